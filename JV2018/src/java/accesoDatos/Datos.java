@@ -15,6 +15,7 @@ import accesoDatos.fichero.*;
 import modelo.Identificable;
 import modelo.ModeloException;
 import modelo.Mundo;
+import modelo.Patron;
 import modelo.SesionUsuario;
 import modelo.Simulacion;
 import modelo.Usuario;
@@ -25,6 +26,7 @@ public class Datos {
 	private SesionesDAO sesionesDAO;
 	private SimulacionesDAO simulacionesDAO;
 	private MundosDAO mundosDAO;
+	private PatronesDAO patronesDAO;
 
 	/**
 	 * Constructor por defecto.
@@ -35,6 +37,7 @@ public class Datos {
 		sesionesDAO = SesionesDAO.getInstance();
 		mundosDAO = MundosDAO.getInstance();
 		simulacionesDAO = SimulacionesDAO.getInstance();
+		patronesDAO = PatronesDAO.getInstance();
 	}
 
 	/**
@@ -45,6 +48,7 @@ public class Datos {
 		sesionesDAO.cerrar();
 		simulacionesDAO.cerrar();
 		mundosDAO.cerrar();
+		patronesDAO.cerrar();
 	}
 	
 	// FACHADA usuariosDAO
@@ -419,4 +423,94 @@ public class Datos {
 		mundosDAO.borrarTodo();
 	}
 
+	// FACHADA patronesDAO
+	/**
+	 * Método fachada para obtener un Patron dado su nombre. 
+	 * Reenvia petición al método DAO específico.
+	 * @param nombre - el nombre del Patron a buscar.
+	 * @return - el Patron encontrado; null si no existe.
+	 * @throws DatosException - si la biblioteca está dañada.
+	 */
+	public Patron obtenerPatron(String nombre) throws DatosException {
+		return patronesDAO.obtener(nombre);
+	}
+
+	/**
+	 * Método fachada para obtener los patrones con la misma forma que uno dado,
+	 * con cualquier giro, simetría o posición. 
+	 * Reenvia petición al método DAO específico.
+	 * @param patron - el Patron cuya forma se busca.
+	 * @return - los patrones encontrados; vacía si no hay ninguno.
+	 * @throws DatosException - si la biblioteca está dañada.
+	 */
+	public List<Patron> obtenerPatronesForma(Patron patron) throws DatosException {
+		assert patron != null;
+		return patronesDAO.obtenerForma(patron.getHuellaForma());
+	}
+
+	/**
+	 * Método fachada para estampar un Patron en el estado actual de un Mundo,
+	 * en el sitio, leyéndolo directamente de la biblioteca. 
+	 * Reenvia petición al método DAO específico.
+	 * @param nombre - el nombre del Patron.
+	 * @param mundo - el Mundo que lo recibe.
+	 * @param fila - fila de la esquina superior izquierda del patrón.
+	 * @param columna - columna de la esquina superior izquierda del patrón.
+	 * @return - número de células estampadas.
+	 * @throws DatosException - si no existe.
+	 */
+	public int estamparPatron(String nombre, Mundo mundo, int fila, int columna) throws DatosException {
+		assert mundo != null;
+		return patronesDAO.estampar(nombre, mundo, fila, columna);
+	}
+
+	/**
+	 * Método fachada para alta de un Patron. 
+	 * Reenvia petición al método DAO específico.
+	 * @param patron - el objeto Patron a dar de alta.
+	 * @throws DatosException - si ya existe.
+	 */
+	public void altaPatron(Patron patron) throws DatosException  {
+		patronesDAO.alta(patron);
+	}
+
+	/**
+	 * Método fachada para baja de un Patron. 
+	 * Reenvia petición al método DAO específico.
+	 * @param nombre - el nombre del Patron a dar de baja.
+	 * @throws DatosException - si no existe.
+	 */
+	public Patron bajaPatron(String nombre) throws DatosException  {
+		return patronesDAO.baja(nombre);
+	}
+
+	/**
+	 * Método fachada para modicar un Patron. 
+	 * Reenvia petición al método DAO específico.
+	 * @param patron - el objeto Patron a modificar.
+	 * @throws DatosException - si no existe.
+	 */
+	public void actualizarPatron(Patron patron) throws DatosException   {
+		patronesDAO.actualizar(patron);
+	}
+
+	/**
+	 * Método fachada para obtener listado de todos
+	 * los objetos en forma de texto.  
+	 * Reenvia petición al método DAO específico.
+	 * @return - el texto.
+	 */
+	public String toStringDatosPatrones() {
+		return patronesDAO.listarDatos();
+	}
+
+	/**
+	 * Método fachada para eliminar todos
+	 * los patrones.  
+	 * Reenvia petición al método DAO específico.
+	 */
+	public void borrarTodosPatrones() {
+		patronesDAO.borrarTodo();
+	}
+
 } //class
\ No newline at end of file
@@ -0,0 +1,327 @@
+/**
+ * Proyecto: Juego de la vida.
+ * Lee y escribe patrones en el formato Macrocell [M2]: el árbol cuaternario
+ * compartido de HashLife, un nodo por línea y cada nodo una sola vez aunque
+ * se repita en el patrón. Las hojas son cuadros de 8x8 escritos con '.'
+ * (muerta), '*' (viva) y '$' (fin de fila); el resto de líneas son
+ * "nivel nw ne sw se" con los números de línea de los cuatro cuadrantes
+ * (0 = vacío) y lado 2^nivel. El último nodo es la raíz.
+ * Cada hoja se guarda en un long, una fila por byte. Al leer se recorre el
+ * árbol emitiendo las células vivas; al escribir se ordenan las células
+ * según la curva Z, de forma que cada cuadrante es un tramo consecutivo, y
+ * se construye el árbol de abajo arriba sin pasar por el espacio denso.
+ * @since: prototipo2.1
+ * @source: FormatoMacrocell.java
+ * @version: 2.1 - 2019.05.30
+ * @author: ajp
+ */
+
+package accesoDatos.fichero;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.LongStream;
+
+import accesoDatos.DatosException;
+import modelo.Distribucion;
+import modelo.ModeloException;
+import modelo.Patron;
+import modelo.Regla;
+
+public class FormatoMacrocell {
+
+	private static final String CABECERA = "[M2]";
+	private static final int NIVEL_HOJA = 3;
+	// Las coordenadas de Distribucion son int no negativos.
+	private static final int NIVEL_MAXIMO = 31;
+
+	/**
+	 * Lee un patrón.
+	 * @param entrada - texto Macrocell.
+	 * @param nombre - nombre si el texto no incluye uno (#N).
+	 * @return el patrón, con la esquina del nodo raíz en (0, 0).
+	 * @throws DatosException - si el texto no es Macrocell válido.
+	 * @throws IOException - si falla la lectura.
+	 */
+	public static Patron leer(Reader entrada, String nombre) throws DatosException, IOException {
+		BufferedReader lector = entrada instanceof BufferedReader
+				? (BufferedReader) entrada : new BufferedReader(entrada);
+		String linea = lector.readLine();
+		if (linea == null || !linea.startsWith(CABECERA)) {
+			throw new DatosException("FormatoMacrocell: falta la cabecera " + CABECERA);
+		}
+		String regla = Regla.CONWAY;
+		// Nodo k: nivel, cuadrantes o contenido de la hoja; el 0 es el vacío.
+		int[] niveles = new int[1024];
+		int[][] hijos = new int[1024][];
+		long[] hojas = new long[1024];
+		int nodos = 1;
+		while ((linea = lector.readLine()) != null) {
+			if (linea.isEmpty()) {
+				continue;
+			}
+			char primero = linea.charAt(0);
+			if (primero == '#') {
+				if (linea.startsWith("#R")) {
+					regla = linea.substring(2).trim();
+				}
+				else if (linea.startsWith("#N")) {
+					nombre = linea.substring(2).trim();
+				}
+				continue;
+			}
+			if (nodos == niveles.length) {
+				niveles = Arrays.copyOf(niveles, nodos * 2);
+				hijos = Arrays.copyOf(hijos, nodos * 2);
+				hojas = Arrays.copyOf(hojas, nodos * 2);
+			}
+			if (primero == '.' || primero == '*' || primero == '$') {
+				niveles[nodos] = NIVEL_HOJA;
+				hojas[nodos] = leerHoja(linea);
+			}
+			else {
+				leerNodo(linea, nodos, niveles, hijos);
+			}
+			nodos++;
+		}
+		if (nodos == 1) {
+			throw new DatosException("FormatoMacrocell: no hay nodos");
+		}
+		int raiz = nodos - 1;
+		if (niveles[raiz] > NIVEL_MAXIMO) {
+			throw new DatosException("FormatoMacrocell: patrón de lado 2^" + niveles[raiz] + " demasiado grande");
+		}
+		LongStream.Builder celdas = LongStream.builder();
+		emitir(raiz, 0, 0, niveles, hijos, hojas, celdas);
+		try {
+			// Recortado al rectángulo de las células, no a la esquina del nodo raíz.
+			return Patron.de(nombre, new Regla(regla), new Distribucion(celdas.build().toArray()));
+		}
+		catch (ModeloException e) {
+			throw new DatosException("FormatoMacrocell: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Convierte una hoja de texto en un long: fila f en el byte f, columna c en el bit c.
+	 */
+	private static long leerHoja(String linea) throws DatosException {
+		long hoja = 0;
+		int fila = 0;
+		int columna = 0;
+		for (int k = 0; k < linea.length(); k++) {
+			char c = linea.charAt(k);
+			if (c == '$') {
+				fila++;
+				columna = 0;
+				continue;
+			}
+			if (fila > 7 || columna > 7 || (c != '.' && c != '*')) {
+				throw new DatosException("FormatoMacrocell: hoja no válida: " + linea);
+			}
+			if (c == '*') {
+				hoja |= 1L << (fila * 8 + columna);
+			}
+			columna++;
+		}
+		return hoja;
+	}
+
+	/**
+	 * Interpreta una línea "nivel nw ne sw se". En el nivel 1 los
+	 * cuadrantes son células (0 ó 1); en los demás, nodos anteriores.
+	 */
+	private static void leerNodo(String linea, int nodo, int[] niveles, int[][] hijos) throws DatosException {
+		String[] campos = linea.trim().split("\\s+");
+		try {
+			if (campos.length != 5) {
+				throw new NumberFormatException();
+			}
+			int nivel = Integer.parseInt(campos[0]);
+			int[] cuadrantes = new int[4];
+			for (int q = 0; q < 4; q++) {
+				cuadrantes[q] = Integer.parseInt(campos[q + 1]);
+				boolean valido = nivel == 1
+						? cuadrantes[q] == 0 || cuadrantes[q] == 1
+						: cuadrantes[q] >= 0 && cuadrantes[q] < nodo
+						&& (cuadrantes[q] == 0 || niveles[cuadrantes[q]] == nivel - 1);
+				if (!valido) {
+					throw new NumberFormatException();
+				}
+			}
+			niveles[nodo] = nivel;
+			hijos[nodo] = cuadrantes;
+		}
+		catch (NumberFormatException e) {
+			throw new DatosException("FormatoMacrocell: nodo no válido: " + linea);
+		}
+	}
+
+	/**
+	 * Emite las células vivas de un nodo situado en (fila, columna).
+	 */
+	private static void emitir(int nodo, int fila, int columna, int[] niveles, int[][] hijos,
+			long[] hojas, LongStream.Builder celdas) {
+		if (nodo == 0) {
+			return;
+		}
+		int nivel = niveles[nodo];
+		if (nivel == NIVEL_HOJA && hijos[nodo] == null) {
+			for (long hoja = hojas[nodo]; hoja != 0; hoja &= hoja - 1) {
+				int bit = Long.numberOfTrailingZeros(hoja);
+				celdas.add(Distribucion.empaquetar(fila + (bit >>> 3), columna + (bit & 7)));
+			}
+			return;
+		}
+		int mitad = 1 << (nivel - 1);
+		int[] cuadrantes = hijos[nodo];
+		if (nivel == 1) {
+			for (int q = 0; q < 4; q++) {
+				if (cuadrantes[q] == 1) {
+					celdas.add(Distribucion.empaquetar(fila + (q >>> 1), columna + (q & 1)));
+				}
+			}
+			return;
+		}
+		for (int q = 0; q < 4; q++) {
+			emitir(cuadrantes[q], fila + (q >>> 1) * mitad, columna + (q & 1) * mitad,
+					niveles, hijos, hojas, celdas);
+		}
+	}
+
+	/**
+	 * Escribe un patrón; los cuadrantes repetidos se escriben una sola vez.
+	 * @param salida - destino; se recomienda un Writer con búfer.
+	 * @param patron - el patrón.
+	 * @throws IOException - si falla la escritura.
+	 */
+	public static void escribir(Writer salida, Patron patron) throws IOException {
+		salida.write(CABECERA + " (JV2018)\n");
+		salida.write("#R " + patron.getRegla() + "\n");
+		if (!patron.getNombre().isEmpty()) {
+			salida.write("#N " + patron.getNombre() + "\n");
+		}
+		Distribucion celdas = patron.getCeldas();
+		if (!celdas.isEmpty()) {
+			int nivel = NIVEL_HOJA;
+			while ((1L << nivel) < Math.max(patron.getAlto(), patron.getAncho())) {
+				nivel++;
+			}
+			long[] claves = new long[celdas.size()];
+			for (int i = 0; i < claves.length; i++) {
+				claves[i] = entrelazar(Distribucion.fila(celdas.getCelda(i)),
+						Distribucion.columna(celdas.getCelda(i)));
+			}
+			Arrays.sort(claves);
+			new Arbol(salida).construir(nivel, claves, 0, claves.length);
+		}
+		salida.flush();
+	}
+
+	/**
+	 * Clave de la curva Z: bits de fila y columna alternados, la columna en
+	 * los pares. Ordenadas, las células de cada cuadrante quedan contiguas.
+	 */
+	private static long entrelazar(int fila, int columna) {
+		return expandir(fila) << 1 | expandir(columna);
+	}
+
+	/**
+	 * Separa los 32 bits de un int dejando un bit libre entre cada dos.
+	 */
+	private static long expandir(int valor) {
+		long x = valor & 0xFFFFFFFFL;
+		x = (x | (x << 16)) & 0x0000FFFF0000FFFFL;
+		x = (x | (x << 8)) & 0x00FF00FF00FF00FFL;
+		x = (x | (x << 4)) & 0x0F0F0F0F0F0F0F0FL;
+		x = (x | (x << 2)) & 0x3333333333333333L;
+		x = (x | (x << 1)) & 0x5555555555555555L;
+		return x;
+	}
+
+	/**
+	 * Construye y escribe el árbol compartido; cada nodo nuevo se escribe
+	 * después de sus cuadrantes y recibe el siguiente número de línea.
+	 */
+	private static class Arbol {
+
+		private final Writer salida;
+		private final Map<Long, Integer> hojas = new HashMap<Long, Integer>();
+		private final Map<String, Integer> nodos = new HashMap<String, Integer>();
+		private int numeroNodos;
+
+		Arbol(Writer salida) {
+			this.salida = salida;
+		}
+
+		/**
+		 * Construye el nodo de un nivel con las claves de un tramo.
+		 * @return su número; 0 si está vacío.
+		 */
+		int construir(int nivel, long[] claves, int desde, int hasta) throws IOException {
+			if (desde == hasta) {
+				return 0;
+			}
+			if (nivel == NIVEL_HOJA) {
+				long hoja = 0;
+				for (int i = desde; i < hasta; i++) {
+					// Los 6 bits bajos de la clave: fila y columna dentro de la hoja.
+					int z = (int) (claves[i] & 63);
+					int fila = (z >>> 1 & 1) | (z >>> 2 & 2) | (z >>> 3 & 4);
+					int columna = (z & 1) | (z >>> 1 & 2) | (z >>> 2 & 4);
+					hoja |= 1L << (fila * 8 + columna);
+				}
+				Integer numero = hojas.get(hoja);
+				if (numero == null) {
+					numero = ++numeroNodos;
+					hojas.put(hoja, numero);
+					salida.write(textoHoja(hoja));
+				}
+				return numero;
+			}
+			// Cuadrante de cada clave: sus dos bits del nivel.
+			int desplazamiento = 2 * (nivel - 1);
+			int[] cuadrantes = new int[4];
+			int inicio = desde;
+			for (int q = 0; q < 4; q++) {
+				int fin = inicio;
+				while (fin < hasta && (int) (claves[fin] >>> desplazamiento & 3) == q) {
+					fin++;
+				}
+				cuadrantes[q] = construir(nivel - 1, claves, inicio, fin);
+				inicio = fin;
+			}
+			String linea = nivel + " " + cuadrantes[0] + " " + cuadrantes[1]
+					+ " " + cuadrantes[2] + " " + cuadrantes[3] + "\n";
+			Integer numero = nodos.get(linea);
+			if (numero == null) {
+				numero = ++numeroNodos;
+				nodos.put(linea, numero);
+				salida.write(linea);
+			}
+			return numero;
+		}
+
+		/**
+		 * Texto de una hoja: filas hasta la última ocupada, sin muertas al final.
+		 */
+		private static String textoHoja(long hoja) {
+			StringBuilder texto = new StringBuilder();
+			int ultimaFila = (63 - Long.numberOfLeadingZeros(hoja)) >>> 3;
+			for (int fila = 0; fila <= ultimaFila; fila++) {
+				int bits = (int) (hoja >>> (fila * 8)) & 0xFF;
+				for (int columna = 0; columna < 32 - Integer.numberOfLeadingZeros(bits); columna++) {
+					texto.append(((bits >>> columna) & 1) != 0 ? '*' : '.');
+				}
+				texto.append('$');
+			}
+			return texto.append('\n').toString();
+		}
+	}
+
+} // class
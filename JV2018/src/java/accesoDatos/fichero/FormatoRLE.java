@@ -0,0 +1,209 @@
+/**
+ * Proyecto: Juego de la vida.
+ * Lee y escribe patrones en el formato RLE estándar: líneas de comentario
+ * con #, cabecera "x = ancho, y = alto, rule = B3/S23" y las filas como
+ * series de <n>b (muertas), <n>o (vivas) y <n>$ (fin de fila) hasta '!'.
+ * Con leyes de más de dos estados las muertas son '.', las vivas 'A' y los
+ * estados de decadencia B a X, o pA a yO; se leen como muertas, porque el
+ * patrón sólo guarda las células vivas.
+ * Se procesa carácter a carácter, sin construir el espacio denso: las
+ * células se acumulan directamente empaquetadas en una Distribucion.
+ * @since: prototipo2.1
+ * @source: FormatoRLE.java
+ * @version: 2.1 - 2019.05.30
+ * @author: ajp
+ */
+
+package accesoDatos.fichero;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.LongStream;
+
+import accesoDatos.DatosException;
+import modelo.Distribucion;
+import modelo.ModeloException;
+import modelo.Patron;
+import modelo.Regla;
+
+public class FormatoRLE {
+
+	private static final Pattern CABECERA = Pattern.compile(
+			"\\s*x\\s*=\\s*(\\d+)\\s*,\\s*y\\s*=\\s*(\\d+)\\s*(?:,\\s*rule\\s*=\\s*([^\\s:]+)\\S*)?\\s*");
+	private static final int ANCHO_LINEA = 70;
+
+	/**
+	 * Lee un patrón.
+	 * @param entrada - texto RLE; se recomienda un Reader con búfer.
+	 * @param nombre - nombre si el texto no incluye uno (#N).
+	 * @return el patrón.
+	 * @throws DatosException - si el texto no es RLE válido.
+	 * @throws IOException - si falla la lectura.
+	 */
+	public static Patron leer(Reader entrada, String nombre) throws DatosException, IOException {
+		String regla = null;
+		String linea;
+		// Comentarios y cabecera, línea a línea.
+		while ((linea = leerLinea(entrada)) != null) {
+			if (linea.startsWith("#N")) {
+				nombre = linea.substring(2).trim();
+			}
+			else if (linea.startsWith("#r")) {
+				regla = linea.substring(2).trim();
+			}
+			else if (!linea.startsWith("#") && !linea.trim().isEmpty()) {
+				break;
+			}
+		}
+		if (linea == null) {
+			throw new DatosException("FormatoRLE: falta la cabecera");
+		}
+		Matcher cabecera = CABECERA.matcher(linea);
+		if (!cabecera.matches()) {
+			throw new DatosException("FormatoRLE: cabecera no válida: " + linea);
+		}
+		int ancho = Integer.parseInt(cabecera.group(1));
+		int alto = Integer.parseInt(cabecera.group(2));
+		if (cabecera.group(3) != null) {
+			regla = cabecera.group(3);
+		}
+		Regla leyes;
+		try {
+			leyes = regla == null ? new Regla(Regla.CONWAY) : new Regla(regla);
+		}
+		catch (ModeloException e) {
+			throw new DatosException("FormatoRLE: " + e.getMessage());
+		}
+		boolean multiestado = leyes.getEstados() > 2;
+		// Filas: el resto del texto, carácter a carácter.
+		LongStream.Builder celdas = LongStream.builder();
+		int fila = 0;
+		int columna = 0;
+		long repeticiones = 0;
+		int c;
+		while ((c = entrada.read()) >= 0 && c != '!') {
+			if (c >= '0' && c <= '9') {
+				repeticiones = repeticiones * 10 + (c - '0');
+				continue;
+			}
+			int n = repeticiones == 0 ? 1 : (int) repeticiones;
+			repeticiones = 0;
+			if (Character.isWhitespace(c)) {
+				continue;
+			}
+			if (c == 'b' || c == '.') {
+				columna += n;
+			}
+			else if (c == '$') {
+				fila += n;
+				columna = 0;
+			}
+			else if (multiestado && c != 'o' && c != 'A' && Character.isLetter(c)) {
+				// Estado de decadencia: B a X, o prefijo p a y seguido de A a X.
+				if (c >= 'p' && c <= 'y') {
+					c = entrada.read();
+				}
+				if (c < 'A' || c > 'X') {
+					throw new DatosException("FormatoRLE: estado no válido '" + (char) c + "'");
+				}
+				columna += n;
+			}
+			else if (Character.isLetter(c) || c == '*') {
+				// o, A en los multiestado, y en los de dos estados cualquier otra letra: viva.
+				for (int k = 0; k < n; k++) {
+					celdas.add(Distribucion.empaquetar(fila, columna++));
+				}
+				// Algunos programas escriben cabeceras que se quedan cortas.
+				alto = Math.max(alto, fila + 1);
+				ancho = Math.max(ancho, columna);
+			}
+			else {
+				throw new DatosException("FormatoRLE: carácter no válido '" + (char) c + "'");
+			}
+		}
+		return new Patron(nombre, leyes, new Distribucion(celdas.build().toArray()), alto, ancho);
+	}
+
+	/**
+	 * Lee una línea sin consumir nada más de la entrada.
+	 * @return la línea sin el fin de línea; null al final.
+	 */
+	private static String leerLinea(Reader entrada) throws IOException {
+		StringBuilder linea = new StringBuilder();
+		int c;
+		while ((c = entrada.read()) >= 0 && c != '\n') {
+			if (c != '\r') {
+				linea.append((char) c);
+			}
+		}
+		return c < 0 && linea.length() == 0 ? null : linea.toString();
+	}
+
+	/**
+	 * Escribe un patrón recorriendo sus células en orden, sin espacio denso.
+	 * @param salida - destino; se recomienda un Writer con búfer.
+	 * @param patron - el patrón.
+	 * @throws IOException - si falla la escritura.
+	 */
+	public static void escribir(Writer salida, Patron patron) throws IOException {
+		if (!patron.getNombre().isEmpty()) {
+			salida.write("#N " + patron.getNombre() + "\n");
+		}
+		salida.write("x = " + patron.getAncho() + ", y = " + patron.getAlto()
+				+ ", rule = " + patron.getRegla() + "\n");
+		Distribucion celdas = patron.getCeldas();
+		boolean multiestado = patron.getRegla().getEstados() > 2;
+		char muerta = multiestado ? '.' : 'b';
+		char viva = multiestado ? 'A' : 'o';
+		StringBuilder linea = new StringBuilder();
+		int fila = 0;
+		int columna = 0;
+		int i = 0;
+		while (i < celdas.size()) {
+			long celda = celdas.getCelda(i);
+			int filaCelda = Distribucion.fila(celda);
+			int columnaCelda = Distribucion.columna(celda);
+			if (filaCelda > fila) {
+				anotar(salida, linea, filaCelda - fila, '$');
+				fila = filaCelda;
+				columna = 0;
+			}
+			anotar(salida, linea, columnaCelda - columna, muerta);
+			// Serie de vivas consecutivas en la fila.
+			int vivas = 1;
+			while (i + vivas < celdas.size()
+					&& celdas.getCelda(i + vivas) == Distribucion.empaquetar(filaCelda, columnaCelda + vivas)) {
+				vivas++;
+			}
+			anotar(salida, linea, vivas, viva);
+			columna = columnaCelda + vivas;
+			i += vivas;
+		}
+		linea.append('!');
+		salida.write(linea.toString());
+		salida.write("\n");
+		salida.flush();
+	}
+
+	/**
+	 * Añade una serie a la línea en curso; si no cabe, escribe la línea antes.
+	 * @param n - longitud de la serie; 0 no añade nada.
+	 * @param etiqueta - b, o, $; o '.' y A con más de dos estados.
+	 */
+	private static void anotar(Writer salida, StringBuilder linea, int n, char etiqueta) throws IOException {
+		if (n == 0) {
+			return;
+		}
+		String serie = n == 1 ? String.valueOf(etiqueta) : n + String.valueOf(etiqueta);
+		if (linea.length() + serie.length() > ANCHO_LINEA) {
+			salida.write(linea.toString());
+			salida.write("\n");
+			linea.setLength(0);
+		}
+		linea.append(serie);
+	}
+
+} // class
@@ -0,0 +1,550 @@
+/**
+ * Proyecto: Juego de la vida.
+ * Resuelve todos los aspectos del almacenamiento del DTO Patron en una
+ * biblioteca compacta, con índices, que se proyecta en memoria: consultar
+ * o estampar un patrón en un Mundo lee sólo su registro, sin deserializar
+ * el resto.
+ * Formato del fichero:
+ * - Cabecera de 32 bytes: marca, número de patrones, posición de los índices.
+ * - Registros: nombre y regla (longitud en dos bytes sin signo y UTF-8), alto,
+ *   ancho, número de células y las células empaquetadas como en Distribucion.
+ * - Índice por nombre: posiciones de los registros en el orden de los nombres.
+ * - Índice por forma: pares huella de forma, posición; en el orden de las huellas.
+ * Las altas, bajas y cambios se acumulan en memoria y guardarDatos()
+ * reescribe la biblioteca y la vuelve a proyectar.
+ * Aplica el patron Singleton.
+ * Colabora en el patrón Façade.
+ * @since: prototipo2.1
+ * @source: PatronesDAO.java
+ * @version: 2.1 - 2019/05/31
+ * @author: ajp
+ */
+
+package accesoDatos.fichero;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import accesoDatos.DatosException;
+import accesoDatos.OperacionesDAO;
+import config.Configuracion;
+import modelo.Distribucion;
+import modelo.ModeloException;
+import modelo.Mundo;
+import modelo.Patron;
+import modelo.Regla;
+import util.Formato;
+
+public class PatronesDAO implements OperacionesDAO, Persistente {
+
+	// Singleton.
+	private static PatronesDAO instance;
+
+	private static final int MARCA = 0x4A565054;
+	private static final int CABECERA = 32;
+	// Bytes UTF-8 del nombre y de la regla; su longitud ocupa dos bytes.
+	private static final int LONGITUD_MAXIMA = 0xFFFF;
+
+	// Elementos de almacenamiento.
+	private File fPatrones;
+	private ByteBuffer biblioteca;
+	private int numeroGuardados;
+	private int indiceNombres;
+	private int indiceFormas;
+	// Cambios pendientes de guardar; un valor null es una baja.
+	private TreeMap<String, Patron> pendientes;
+
+	/**
+	 * Constructor por defecto de uso interno.
+	 * Sólo se ejecutará una vez.
+	 */
+	private PatronesDAO() throws DatosException {
+		pendientes = new TreeMap<String, Patron>();
+		new File(Configuracion.get().getProperty("datos.nombreDirectorio")).mkdirs();
+		fPatrones = new File("." + File.separator
+							+ Configuracion.get().getProperty("datos.nombreDirectorio")
+							+ File.separator
+							+ Configuracion.get().getProperty("patrones.nombreFichero"));
+		recuperarDatos();
+	}
+
+	/**
+	 *  Método estático de acceso a la instancia única.
+	 *  Si no existe la crea invocando al constructor interno.
+	 *  Utiliza inicialización diferida.
+	 *  Sólo se crea una vez; instancia única -patrón singleton-
+	 *  @return instancia
+	 * @throws DatosException - si la biblioteca existe y no es válida.
+	 */
+	public static PatronesDAO getInstance() throws DatosException {
+		if (instance == null) {
+			instance = new PatronesDAO();
+		}
+		return instance;
+	}
+
+	/**
+	 *  Método para generar de datos predeterminados.
+	 */
+	private void cargarPredeterminados() throws DatosException {
+		try {
+			Regla conway = new Regla(Regla.CONWAY);
+			alta(new Patron("Bloque", conway, new Distribucion(new long[] {
+					0x0L, 0x1L, 0x100000000L, 0x100000001L }), 2, 2));
+			alta(new Patron("Parpadeador", conway, new Distribucion(new long[] {
+					0x0L, 0x1L, 0x2L }), 1, 3));
+			alta(new Patron("Planeador", conway, new Distribucion(new long[] {
+					0x1L, 0x100000002L, 0x200000000L, 0x200000001L, 0x200000002L }), 3, 3));
+			guardarDatos();
+		}
+		catch (ModeloException e) {
+			e.printStackTrace();
+		}
+	}
+
+	// OPERACIONES DE PERSISTENCIA
+
+	/**
+	 *  Proyecta en memoria la biblioteca almacenada en fichero.
+	 * @throws DatosException - si el fichero no es una biblioteca válida.
+	 */
+	@Override
+	public void recuperarDatos() throws DatosException {
+		if (!fPatrones.exists()) {
+			biblioteca = null;
+			numeroGuardados = 0;
+			cargarPredeterminados();
+			return;
+		}
+		try (FileChannel canal = FileChannel.open(fPatrones.toPath(), StandardOpenOption.READ)) {
+			if (canal.size() > Integer.MAX_VALUE) {
+				throw new DatosException("PatronesDAO: biblioteca demasiado grande");
+			}
+			// La proyección sigue siendo válida después de cerrar el canal.
+			biblioteca = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+			if (biblioteca.capacity() < CABECERA || biblioteca.getInt(0) != MARCA) {
+				throw new DatosException("PatronesDAO: " + fPatrones + " no es una biblioteca de patrones");
+			}
+			numeroGuardados = biblioteca.getInt(4);
+			indiceNombres = (int) biblioteca.getLong(8);
+			indiceFormas = indiceNombres + numeroGuardados * Long.BYTES;
+		}
+		catch (IOException e) {
+			throw new DatosException("PatronesDAO: no se puede leer " + fPatrones + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 *  Reescribe la biblioteca con los cambios pendientes y la vuelve a proyectar.
+	 * @throws DatosException - si no se puede escribir.
+	 */
+	@Override
+	public void guardarDatos() throws DatosException {
+		List<Patron> patrones = obtenerTodos();
+		long[] posiciones = new long[patrones.size()];
+		long[][] formas = new long[patrones.size()][];
+		File temporal = new File(fPatrones.getPath() + ".tmp");
+		long posicion = CABECERA;
+		try (DataOutputStream salida = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(temporal)))) {
+			salida.writeInt(MARCA);
+			salida.writeInt(patrones.size());
+			// Posición de los índices; se completa al final.
+			salida.writeLong(0);
+			salida.write(new byte[CABECERA - 16]);
+			for (int i = 0; i < patrones.size(); i++) {
+				posiciones[i] = posicion;
+				formas[i] = new long[] { patrones.get(i).getHuellaForma(), posicion };
+				posicion += escribirRegistro(salida, patrones.get(i));
+			}
+			for (long registro : posiciones) {
+				salida.writeLong(registro);
+			}
+			Arrays.sort(formas, (a, b) -> Long.compare(a[0], b[0]));
+			for (long[] forma : formas) {
+				salida.writeLong(forma[0]);
+				salida.writeLong(forma[1]);
+			}
+		}
+		catch (IOException e) {
+			throw new DatosException("PatronesDAO: no se puede escribir " + fPatrones + ": " + e.getMessage());
+		}
+		try (FileChannel canal = FileChannel.open(temporal.toPath(), StandardOpenOption.WRITE)) {
+			canal.write(ByteBuffer.allocate(Long.BYTES).putLong(0, posicion), 8);
+			canal.force(true);
+		}
+		catch (IOException e) {
+			throw new DatosException("PatronesDAO: no se puede escribir " + fPatrones + ": " + e.getMessage());
+		}
+		try {
+			Files.move(temporal.toPath(), fPatrones.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch (IOException e) {
+			throw new DatosException("PatronesDAO: no se puede escribir " + fPatrones + ": " + e.getMessage());
+		}
+		pendientes.clear();
+		recuperarDatos();
+	}
+
+	/**
+	 * Escribe un registro.
+	 * @return bytes escritos.
+	 */
+	private int escribirRegistro(DataOutputStream salida, Patron patron) throws IOException {
+		byte[] nombre = patron.getNombre().getBytes(StandardCharsets.UTF_8);
+		byte[] regla = patron.getRegla().toString().getBytes(StandardCharsets.UTF_8);
+		Distribucion celdas = patron.getCeldas();
+		assert nombre.length <= LONGITUD_MAXIMA && regla.length <= LONGITUD_MAXIMA;
+		salida.writeShort(nombre.length);
+		salida.write(nombre);
+		salida.writeShort(regla.length);
+		salida.write(regla);
+		salida.writeInt(patron.getAlto());
+		salida.writeInt(patron.getAncho());
+		salida.writeInt(celdas.size());
+		for (int i = 0; i < celdas.size(); i++) {
+			salida.writeLong(celdas.getCelda(i));
+		}
+		return 2 + nombre.length + 2 + regla.length + 12 + celdas.size() * Long.BYTES;
+	}
+
+	/**
+	 * Lee el texto, longitud y UTF-8, en una posición de la biblioteca.
+	 */
+	private String leerTexto(int posicion) {
+		byte[] texto = new byte[longitudTexto(posicion)];
+		biblioteca.get(posicion + 2, texto);
+		return new String(texto, StandardCharsets.UTF_8);
+	}
+
+	private int longitudTexto(int posicion) {
+		return Short.toUnsignedInt(biblioteca.getShort(posicion));
+	}
+
+	/**
+	 * Posición de las medidas -alto, ancho, número de células- de un registro.
+	 */
+	private int posicionMedidas(int registro) {
+		int regla = registro + 2 + longitudTexto(registro);
+		return regla + 2 + longitudTexto(regla);
+	}
+
+	/**
+	 * Construye el patrón de un registro.
+	 */
+	private Patron leerRegistro(int registro) throws DatosException {
+		int medidas = posicionMedidas(registro);
+		long[] celdas = new long[biblioteca.getInt(medidas + 8)];
+		for (int i = 0; i < celdas.length; i++) {
+			celdas[i] = biblioteca.getLong(medidas + 12 + i * Long.BYTES);
+		}
+		try {
+			return new Patron(leerTexto(registro), new Regla(leerTexto(registro + 2 + longitudTexto(registro))),
+					new Distribucion(celdas), biblioteca.getInt(medidas), biblioteca.getInt(medidas + 4));
+		}
+		catch (ModeloException e) {
+			throw new DatosException("PatronesDAO: registro no válido en " + registro + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Busca un nombre en la biblioteca por búsqueda binaria en el índice.
+	 * @return la posición del registro; -1 si no está guardado.
+	 */
+	private int buscarGuardado(String nombre) {
+		int inicio = 0;
+		int fin = numeroGuardados - 1;
+		while (inicio <= fin) {
+			int medio = (inicio + fin) >>> 1;
+			int registro = (int) biblioteca.getLong(indiceNombres + medio * Long.BYTES);
+			int comparacion = nombre.compareTo(leerTexto(registro));
+			if (comparacion == 0) {
+				return registro;
+			}
+			if (comparacion > 0) {
+				inicio = medio + 1;
+			}
+			else {
+				fin = medio - 1;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Comprueba que el nombre y la regla caben en un registro.
+	 * @throws DatosException - si alguno pasa de la longitud máxima.
+	 */
+	private void validarLongitudes(Patron patron, String operacion) throws DatosException {
+		if (patron.getNombre().getBytes(StandardCharsets.UTF_8).length > LONGITUD_MAXIMA
+				|| patron.getRegla().toString().getBytes(StandardCharsets.UTF_8).length > LONGITUD_MAXIMA) {
+			throw new DatosException("PatronesDAO." + operacion + ": nombre o regla de más de "
+					+ LONGITUD_MAXIMA + " bytes");
+		}
+	}
+
+	/**
+	 * Comprueba si existe un patrón, guardado o pendiente.
+	 */
+	private boolean existe(String nombre) {
+		if (pendientes.containsKey(nombre)) {
+			return pendientes.get(nombre) != null;
+		}
+		return buscarGuardado(nombre) >= 0;
+	}
+
+	// OPERACIONES DAO
+
+	/**
+	 * Obtiene el patrón dado su nombre.
+	 * @param nombre - nombre del patrón a obtener.
+	 * @return - el Patron encontrado; null si no encuentra.
+	 * @throws DatosException - si el registro no es válido.
+	 */
+	@Override
+	public Patron obtener(String nombre) throws DatosException {
+		assert nombre != null;
+		if (pendientes.containsKey(nombre)) {
+			return pendientes.get(nombre);
+		}
+		int registro = buscarGuardado(nombre);
+		if (registro >= 0) {
+			return leerRegistro(registro);
+		}
+		return null;
+	}
+
+	/**
+	 * Obtiene los patrones de una forma, con cualquier giro, simetría o
+	 * posición, por búsqueda binaria en el índice de huellas.
+	 * @param huellaForma - la huella; ver Patron.getHuellaForma().
+	 * @return - los patrones encontrados; vacío si no hay ninguno.
+	 * @throws DatosException - si algún registro no es válido.
+	 */
+	public List<Patron> obtenerForma(long huellaForma) throws DatosException {
+		List<Patron> encontrados = new ArrayList<Patron>();
+		int inicio = 0;
+		int fin = numeroGuardados;
+		while (inicio < fin) {
+			int medio = (inicio + fin) >>> 1;
+			if (biblioteca.getLong(indiceFormas + medio * 2 * Long.BYTES) < huellaForma) {
+				inicio = medio + 1;
+			}
+			else {
+				fin = medio;
+			}
+		}
+		for (int i = inicio; i < numeroGuardados
+				&& biblioteca.getLong(indiceFormas + i * 2 * Long.BYTES) == huellaForma; i++) {
+			int registro = (int) biblioteca.getLong(indiceFormas + i * 2 * Long.BYTES + Long.BYTES);
+			if (!pendientes.containsKey(leerTexto(registro))) {
+				encontrados.add(leerRegistro(registro));
+			}
+		}
+		for (Patron patron : pendientes.values()) {
+			if (patron != null && patron.getHuellaForma() == huellaForma) {
+				encontrados.add(patron);
+			}
+		}
+		return encontrados;
+	}
+
+	/**
+	 * Estampa las células vivas de un patrón en el estado actual de un 
+	 * Mundo, en el sitio; ver Mundo.estampar(). Sólo se leen sus células.
+	 * @param nombre - nombre del patrón.
+	 * @param mundo - mundo de destino; se modifica.
+	 * @param fila - fila de la esquina superior izquierda del patrón.
+	 * @param columna - columna de la esquina superior izquierda del patrón.
+	 * @return - número de células estampadas.
+	 * @throws DatosException - si no existe.
+	 */
+	public int estampar(String nombre, Mundo mundo, int fila, int columna) throws DatosException {
+		assert nombre != null;
+		assert mundo != null;
+		if (pendientes.containsKey(nombre)) {
+			Patron patron = pendientes.get(nombre);
+			if (patron == null) {
+				throw new DatosException("PatronesDAO.estampar: " + nombre + " no existe");
+			}
+			return mundo.estampar(patron.getCeldas(), fila, columna);
+		}
+		int registro = buscarGuardado(nombre);
+		if (registro < 0) {
+			throw new DatosException("PatronesDAO.estampar: " + nombre + " no existe");
+		}
+		int medidas = posicionMedidas(registro);
+		long[] celdas = new long[biblioteca.getInt(medidas + 8)];
+		for (int i = 0; i < celdas.length; i++) {
+			celdas[i] = biblioteca.getLong(medidas + 12 + i * Long.BYTES);
+		}
+		return mundo.estampar(new Distribucion(celdas), fila, columna);
+	}
+
+	/**
+	 * Obtiene todos los patrones en una lista, en el orden de los nombres.
+	 * Deserializa la biblioteca completa.
+	 * @return - la lista.
+	 */
+	@Override
+	public List<Patron> obtenerTodos() {
+		TreeMap<String, Patron> todos = new TreeMap<String, Patron>();
+		try {
+			for (int i = 0; i < numeroGuardados; i++) {
+				Patron patron = leerRegistro((int) biblioteca.getLong(indiceNombres + i * Long.BYTES));
+				todos.put(patron.getNombre(), patron);
+			}
+		}
+		catch (DatosException e) {
+			e.printStackTrace();
+		}
+		for (Map.Entry<String, Patron> cambio : pendientes.entrySet()) {
+			if (cambio.getValue() == null) {
+				todos.remove(cambio.getKey());
+			}
+			else {
+				todos.put(cambio.getKey(), cambio.getValue());
+			}
+		}
+		return new ArrayList<Patron>(todos.values());
+	}
+
+	/**
+	 *  Alta de un patrón, sin repeticiones de nombre.
+	 *	@param obj - Patron a almacenar.
+	 * @throws DatosException - si ya existe, el nombre no es válido o no cabe en un registro.
+	 */
+	@Override
+	public void alta(Object obj) throws DatosException {
+		assert obj != null;
+		Patron patronNuevo = (Patron) obj;									// Para conversión cast
+		if (!Formato.validar(patronNuevo.getId(), Formato.PATRON_NOMBRE_PATRON_JV)) {
+			throw new DatosException("PatronesDAO.alta: "+ patronNuevo.getId() + " no es un nombre válido");
+		}
+		validarLongitudes(patronNuevo, "alta");
+		if (existe(patronNuevo.getId())) {
+			throw new DatosException("PatronesDAO.alta: "+ patronNuevo.getId() + " ya existe");
+		}
+		pendientes.put(patronNuevo.getId(), patronNuevo);
+	}
+
+	/**
+	 * Elimina el patrón, dado su nombre.
+	 * @param nombre - el nombre del Patron a eliminar.
+	 * @return - el Patron eliminado.
+	 * @throws DatosException - si no existe.
+	 */
+	@Override
+	public Patron baja(String nombre) throws DatosException {
+		assert nombre != null;
+		Patron patronBaja = obtener(nombre);
+		if (patronBaja == null) {
+			throw new DatosException("PatronesDAO.baja: "+ nombre + " no existe");
+		}
+		pendientes.put(nombre, null);
+		return patronBaja;
+	}
+
+	/**
+	 *  Actualiza un Patron reemplazando el almacenado por el recibido.
+	 *	@param obj - Patron con las modificaciones.
+	 * @throws DatosException - si no existe o no cabe en un registro.
+	 */
+	@Override
+	public void actualizar(Object obj) throws DatosException {
+		assert obj != null;
+		Patron patronActualizado = (Patron) obj;								// Para conversión cast
+		validarLongitudes(patronActualizado, "actualizar");
+		if (!existe(patronActualizado.getId())) {
+			throw new DatosException("PatronesDAO.actualizar: "+ patronActualizado.getId() + " no existe");
+		}
+		pendientes.put(patronActualizado.getId(), patronActualizado);
+	}
+
+	/**
+	 * Obtiene el listado de todos los objetos Patron almacenados.
+	 * @return el texto con el volcado de datos.
+	 */
+	@Override
+	public String listarDatos() {
+		StringBuilder result = new StringBuilder();
+		for (Patron patron: obtenerTodos()) {
+			result.append("\n" + patron);
+		}
+		return result.toString();
+	}
+
+	/**
+	 * Obtiene el listado de todos id de los objetos almacenados;
+	 * sólo lee los nombres.
+	 * @return el texto con el volcado de id.
+	 */
+	@Override
+	public String listarId() {
+		TreeSet<String> nombres = new TreeSet<String>();
+		for (int i = 0; i < numeroGuardados; i++) {
+			nombres.add(leerTexto((int) biblioteca.getLong(indiceNombres + i * Long.BYTES)));
+		}
+		for (Map.Entry<String, Patron> cambio : pendientes.entrySet()) {
+			if (cambio.getValue() == null) {
+				nombres.remove(cambio.getKey());
+			}
+			else {
+				nombres.add(cambio.getKey());
+			}
+		}
+		StringBuilder result = new StringBuilder();
+		for (String nombre : nombres) {
+			result.append("\n" + nombre);
+		}
+		return result.toString();
+	}
+
+	/**
+	 * Elimina todos los patrones y regenera los predeterminados.
+	 */
+	@Override
+	public void borrarTodo() {
+		pendientes.clear();
+		for (int i = 0; i < numeroGuardados; i++) {
+			pendientes.put(leerTexto((int) biblioteca.getLong(indiceNombres + i * Long.BYTES)), null);
+		}
+		try {
+			cargarPredeterminados();
+		}
+		catch (DatosException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 *  Cierra almacenes de datos.
+	 */
+	@Override
+	public void cerrar() {
+		if (!pendientes.isEmpty()) {
+			try {
+				guardarDatos();
+			}
+			catch (DatosException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+} // class
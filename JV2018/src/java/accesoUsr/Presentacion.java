@@ -18,7 +18,9 @@ import accesoDatos.Datos;
 import accesoDatos.DatosException;
 import config.Configuracion;
 import modelo.ClaveAcceso;
+import modelo.DetectorCiclos;
 import modelo.ModeloException;
+import modelo.Mundo;
 import modelo.Simulacion;
 import modelo.Usuario;
 import util.Fecha;
@@ -44,20 +46,48 @@ public class Presentacion {
 	/**
 	 * Despliega en la consola el estado almacenado, corresponde
 	 * a una generación del Juego de la vida.
+	 * Se detiene antes de completar los ciclos si el mundo se extingue,
+	 * queda estático o entra en un ciclo que se repite.
 	 * @throws ModeloException 
 	 */
 	public void mostrarSimulacion() throws ModeloException {
 		int generacion = 0; 
-		System.out.println(simulacion.getMundo().getTipoMundo());
+		Mundo mundo = simulacion.getMundo();
+		DetectorCiclos detector = new DetectorCiclos();
+		detector.registrar(mundo.getHuella());
+		System.out.println(mundo.getTipoMundo());
 		do {
 			System.out.println("\nGeneración: " + generacion);
-			simulacion.getMundo().actualizarMundo();
+			mundo.actualizarMundo();
 			generacion++;
-			System.out.println(simulacion.getMundo().toStringEstadoMundo());
+			System.out.println(mundo.toStringEstadoMundo());
+			long huella = mundo.getHuella();
+			int periodo = detector.registrar(huella);
+			if (periodo > 0) {
+				System.out.println(textoFinal(huella, periodo, generacion));
+				break;
+			}
 		}
 		while (generacion < simulacion.getCiclos());
 	}
 
+	/**
+	 * Describe el motivo de la parada anticipada.
+	 * @param huella - huella de la última generación.
+	 * @param periodo - periodo detectado.
+	 * @param generacion - generación en la que se detecta.
+	 * @return el texto.
+	 */
+	private String textoFinal(long huella, int periodo, int generacion) {
+		if (huella == 0) {
+			return "Mundo extinguido en la generación " + generacion;
+		}
+		if (periodo == 1) {
+			return "Mundo estático desde la generación " + (generacion - 1);
+		}
+		return "Mundo en ciclo de periodo " + periodo + " en la generación " + generacion;
+	}
+
 	/**
 	 * Controla el acceso de usuario.
 	 * @return true si la sesión se inicia correctamente.
@@ -0,0 +1,391 @@
+/**
+ * Proyecto: Juego de la vida.
+ * Búsqueda de objetos en sopas aleatorias: cada sopa es un cuadro de 16x16
+ * obtenido del resumen SHA-256 de la semilla, un guion bajo y su número, así que
+ * cualquier sopa se puede reproducir sólo con esos dos datos. Se colocan en
+ * el centro de un mundo plano, se ejecutan como simulaciones de un lote en
+ * todos los núcleos hasta que entran en un ciclo, y se suma el censo final
+ * de cada una.
+ * El plano está acotado: una nave que escapa de la sopa chocaría con el
+ * borde y dejaría restos que se contarían como objetos. Por eso las
+ * simulaciones avanzan por turnos y, entre uno y otro, las naves que han 
+ * entrado en una franja junto a los bordes se cuentan y se retiran.
+ * Las sopas se procesan por bloques; al terminar cada bloque se añade una
+ * línea al fichero de resultados con su recuento de objetos. Al crear la
+ * búsqueda sobre un fichero existente se suman sus bloques y se continúa a
+ * partir del siguiente; una línea incompleta, de una interrupción, se descarta.
+ * Formato: una cabecera con los parámetros y una línea por bloque,
+ * separando los campos con tabuladores:
+ * bloque, número, milisegundos y nombre=cantidad de cada objeto.
+ * @since: prototipo2.1
+ * @source: BusquedaSopas.java
+ * @version: 2.1 - 2019.06.02
+ * @author: ajp
+ */
+
+package modelo;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import config.Configuracion;
+import modelo.Mundo.FormaEspacio;
+import modelo.Mundo.TipoMotor;
+import modelo.Simulacion.EstadoSimulacion;
+import util.Fecha;
+
+public class BusquedaSopas {
+
+	public static final int LADO_SOPA = 16;
+	// Anchura de la franja junto a los bordes en la que se retiran las naves.
+	// Se revisa cada MARGEN/2 generaciones: lo que está fuera de la franja no
+	// puede llegar al borde antes de la siguiente revisión.
+	static final int MARGEN = 8;
+
+	private final String semilla;
+	private final Regla regla;
+	private final int tamañoMundo;
+	private final int generaciones;
+	private final int sopasBloque;
+	private final Path resultados;
+	private final EjecutorLotes ejecutor;
+	private final Usuario usuario;
+	private long bloques;
+	private long milisegundos;
+	private final Map<String, Long> frecuencias;
+
+	/**
+	 * Constructor convencional. Si el fichero de resultados existe, continúa
+	 * la búsqueda que contiene.
+	 * @param semilla - texto del que se obtienen las sopas.
+	 * @param regla - leyes de los mundos.
+	 * @param tamañoMundo - lado de los mundos; al menos el de la sopa.
+	 * @param generaciones - generaciones máximas de cada sopa si no entra en un ciclo.
+	 * @param sopasBloque - sopas de cada línea del fichero de resultados.
+	 * @param resultados - fichero de resultados.
+	 * @throws ModeloException - si el fichero es de una búsqueda con otros parámetros.
+	 * @throws IOException - si no se puede leer el fichero.
+	 */
+	public BusquedaSopas(String semilla, Regla regla, int tamañoMundo, int generaciones,
+			int sopasBloque, Path resultados) throws ModeloException, IOException {
+		assert semilla != null;
+		assert regla != null;
+		assert tamañoMundo >= LADO_SOPA;
+		assert generaciones > 0;
+		assert sopasBloque > 0;
+		assert resultados != null;
+		this.semilla = semilla;
+		this.regla = regla;
+		this.tamañoMundo = tamañoMundo;
+		this.generaciones = generaciones;
+		this.sopasBloque = sopasBloque;
+		this.resultados = resultados;
+		this.frecuencias = new HashMap<String, Long>();
+		this.usuario = new Usuario();
+		recuperarResultados();
+		this.ejecutor = new EjecutorLotes();
+	}
+
+	/**
+	 * Constructor con las leyes, el tamaño, las generaciones y los bloques
+	 * de la configuración.
+	 * @param semilla - texto del que se obtienen las sopas.
+	 * @param resultados - fichero de resultados.
+	 * @throws ModeloException - si el fichero es de una búsqueda con otros parámetros.
+	 * @throws IOException - si no se puede leer el fichero.
+	 */
+	public BusquedaSopas(String semilla, Path resultados) throws ModeloException, IOException {
+		this(semilla, new Regla(Configuracion.get().getProperty("mundo.reglaPredeterminada")),
+				Integer.parseInt(Configuracion.get().getProperty("busqueda.ladoMundo")),
+				Integer.parseInt(Configuracion.get().getProperty("busqueda.generaciones")),
+				Integer.parseInt(Configuracion.get().getProperty("busqueda.sopasBloque")),
+				resultados);
+	}
+
+	/**
+	 * Obtiene una sopa: cada uno de los 256 bits del resumen SHA-256 de la
+	 * semilla, un guion bajo y el número de sopa es una célula. Sin el 
+	 * separador, la semilla "a1" con la sopa 2 y "a" con la 12 coincidirían.
+	 * @param semilla - texto de la búsqueda.
+	 * @param numero - número de sopa.
+	 * @return las células vivas, en un cuadro de LADO_SOPA con la esquina en (0, 0).
+	 */
+	public static Distribucion generarSopa(String semilla, long numero) {
+		byte[] bits;
+		try {
+			bits = MessageDigest.getInstance("SHA-256")
+					.digest((semilla + "_" + numero).getBytes(StandardCharsets.UTF_8));
+		}
+		catch (NoSuchAlgorithmException e) {
+			// Toda plataforma Java incluye SHA-256.
+			throw new AssertionError(e);
+		}
+		long[] celdas = new long[LADO_SOPA * LADO_SOPA];
+		int vivas = 0;
+		for (int k = 0; k < LADO_SOPA * LADO_SOPA; k++) {
+			if ((bits[k >>> 3] >>> (k & 7) & 1) != 0) {
+				celdas[vivas++] = Distribucion.empaquetar(k / LADO_SOPA, k % LADO_SOPA);
+			}
+		}
+		long[] sopa = new long[vivas];
+		System.arraycopy(celdas, 0, sopa, 0, vivas);
+		return new Distribucion(sopa);
+	}
+
+	/**
+	 * Crea el mundo de una sopa, con la sopa en el centro.
+	 * @param numero - número de sopa.
+	 * @return el mundo.
+	 * @throws ModeloException - si las leyes no son válidas.
+	 */
+	public Mundo crearMundo(long numero) throws ModeloException {
+		Distribucion sopa = generarSopa(semilla, numero);
+		int desplazamiento = (tamañoMundo - LADO_SOPA) / 2;
+		long[] celdas = new long[sopa.size()];
+		for (int i = 0; i < celdas.length; i++) {
+			celdas[i] = Distribucion.empaquetar(Distribucion.fila(sopa.getCelda(i)) + desplazamiento,
+					Distribucion.columna(sopa.getCelda(i)) + desplazamiento);
+		}
+		Mundo mundo = new Mundo("Sopa " + numero, new byte[tamañoMundo][tamañoMundo],
+				new Distribucion(celdas), new HashMap<String, int[]>(), FormaEspacio.PLANO);
+		mundo.setRegla(regla);
+		mundo.setTipoMotor(TipoMotor.valueOf(Configuracion.get().getProperty("mundo.motorPredeterminado")));
+		return mundo;
+	}
+
+	/**
+	 * Procesa bloques de sopas a continuación de los ya registrados.
+	 * Cada bloque se registra en el fichero al terminar.
+	 * @param numeroBloques - bloques a procesar.
+	 * @throws ModeloException - si falla alguna simulación.
+	 * @throws IOException - si no se puede escribir el fichero.
+	 * @throws InterruptedException - si se interrumpe; los bloques terminados quedan registrados.
+	 */
+	public void buscar(int numeroBloques) throws ModeloException, IOException, InterruptedException {
+		assert numeroBloques >= 0;
+		for (int b = 0; b < numeroBloques; b++) {
+			long inicio = System.nanoTime();
+			List<Simulacion> lote = new ArrayList<Simulacion>(sopasBloque);
+			for (long numero = bloques * sopasBloque; numero < (bloques + 1) * sopasBloque; numero++) {
+				lote.add(new Simulacion(usuario, new Fecha(), crearMundo(numero),
+						generaciones, EstadoSimulacion.PREPARADA));
+			}
+			// Lo escriben el receptor y el tratamiento entre turnos, desde 
+			// hilos distintos: ambos, con el mismo cerrojo.
+			Map<String, Long> recuento = new HashMap<String, Long>();
+			ejecutor.ejecutarPorTurnos(lote, resultado -> {
+				synchronized (recuento) {
+					for (Map.Entry<Catalogo.Objeto, Integer> objeto : resultado.getCenso().getRecuento().entrySet()) {
+						recuento.merge(objeto.getKey().getNombre(), (long) objeto.getValue(), Long::sum);
+					}
+				}
+			}, MARGEN / 2, mundo -> {
+				Map<String, Long> naves = retirarNaves(mundo);
+				synchronized (recuento) {
+					naves.forEach((nombre, cantidad) -> recuento.merge(nombre, cantidad, Long::sum));
+				}
+			});
+			long ms = (System.nanoTime() - inicio) / 1000000;
+			registrarBloque(bloques, ms, recuento);
+			bloques++;
+			milisegundos += ms;
+			recuento.forEach((nombre, cantidad) -> frecuencias.merge(nombre, cantidad, Long::sum));
+		}
+	}
+
+	/**
+	 * Retira las naves que están enteras en la franja junto a los bordes,
+	 * antes de que choquen con ellos. Sólo se buscan en el catálogo los 
+	 * objetos de la franja, y sólo si alguna célula ha llegado a ella; no se
+	 * clasifican las formas nuevas, que suelen ser restos en evolución y 
+	 * costarían más que la propia sopa: las naves nuevas se catalogan en los
+	 * censos finales.
+	 * @param mundo - mundo plano de una sopa; se modifica.
+	 * @return las naves retiradas: nombre y cantidad.
+	 */
+	Map<String, Long> retirarNaves(Mundo mundo) {
+		Map<String, Long> naves = new HashMap<String, Long>();
+		int limite = tamañoMundo - MARGEN;
+		Estadisticas estadisticas = mundo.getEstadisticas();
+		if (estadisticas.estaVacio()
+				|| estadisticas.getFilaMinima() >= MARGEN && estadisticas.getFilaMaxima() < limite
+				&& estadisticas.getColumnaMinima() >= MARGEN && estadisticas.getColumnaMaxima() < limite) {
+			return naves;
+		}
+		// Células de la franja y de las dos filas y columnas interiores que la
+		// rodean: un objeto que llega al interior tiene alguna en ellas.
+		long[] celdas = mundo.getCelulasVivas().getCeldas();
+		long[] cercanas = new long[celdas.length];
+		int n = 0;
+		for (long celda : celdas) {
+			if (distanciaBorde(celda) < MARGEN + 2) {
+				cercanas[n++] = celda;
+			}
+		}
+		Catalogo catalogo = Catalogo.de(regla);
+		List<long[]> retiradas = new ArrayList<long[]>();
+		for (long[] objeto : Censo.separar(Arrays.copyOf(cercanas, n), tamañoMundo, false)) {
+			if (enFranja(objeto)) {
+				Catalogo.Objeto identificado = catalogo.buscar(Patron.huellaForma(objeto, 0, objeto.length));
+				if (identificado != null && identificado.getTipo() == Catalogo.TipoObjeto.NAVE) {
+					naves.merge(identificado.getNombre(), 1L, Long::sum);
+					retiradas.add(objeto);
+				}
+			}
+		}
+		if (!retiradas.isEmpty()) {
+			byte[][] espacio = new byte[tamañoMundo][tamañoMundo];
+			for (long celda : celdas) {
+				espacio[Distribucion.fila(celda)][Distribucion.columna(celda)] = 1;
+			}
+			for (long[] objeto : retiradas) {
+				for (long celda : objeto) {
+					espacio[Distribucion.fila(celda)][Distribucion.columna(celda)] = 0;
+				}
+			}
+			mundo.setEspacio(espacio);
+		}
+		return naves;
+	}
+
+	/**
+	 * Comprueba si todas las células de un objeto están en la franja.
+	 */
+	private boolean enFranja(long[] objeto) {
+		for (long celda : objeto) {
+			if (distanciaBorde(celda) >= MARGEN) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Distancia de una célula al borde más próximo; 0 en el propio borde.
+	 */
+	private int distanciaBorde(long celda) {
+		int fila = Distribucion.fila(celda);
+		int columna = Distribucion.columna(celda);
+		return Math.min(Math.min(fila, tamañoMundo - 1 - fila), Math.min(columna, tamañoMundo - 1 - columna));
+	}
+
+	/**
+	 * Cabecera del fichero de resultados: identifica la búsqueda.
+	 */
+	private String cabecera() {
+		return "# JV2018 búsqueda de sopas\tsemilla=" + semilla + "\tregla=" + regla
+				+ "\ttamaño=" + tamañoMundo + "\tgeneraciones=" + generaciones
+				+ "\tsopasBloque=" + sopasBloque;
+	}
+
+	/**
+	 * Suma los bloques del fichero de resultados, si existe, y descarta
+	 * una posible línea incompleta al final.
+	 */
+	private void recuperarResultados() throws ModeloException, IOException {
+		if (!Files.exists(resultados)) {
+			Files.write(resultados, (cabecera() + "\n").getBytes(StandardCharsets.UTF_8));
+			return;
+		}
+		byte[] contenido = Files.readAllBytes(resultados);
+		int completo = contenido.length;
+		while (completo > 0 && contenido[completo - 1] != '\n') {
+			completo--;
+		}
+		if (completo < contenido.length) {
+			try (FileChannel canal = FileChannel.open(resultados, StandardOpenOption.WRITE)) {
+				canal.truncate(completo);
+			}
+		}
+		String[] lineas = new String(contenido, 0, completo, StandardCharsets.UTF_8).split("\n");
+		if (completo == 0 || !lineas[0].equals(cabecera())) {
+			throw new ModeloException("BusquedaSopas: " + resultados + " no es de esta búsqueda");
+		}
+		for (int l = 1; l < lineas.length; l++) {
+			String[] campos = lineas[l].split("\t");
+			if (campos.length < 3 || !campos[0].equals("bloque") || Long.parseLong(campos[1]) != bloques) {
+				throw new ModeloException("BusquedaSopas: línea " + (l + 1) + " no válida en " + resultados);
+			}
+			milisegundos += Long.parseLong(campos[2]);
+			for (int c = 3; c < campos.length; c++) {
+				int igual = campos[c].lastIndexOf('=');
+				frecuencias.merge(campos[c].substring(0, igual),
+						Long.parseLong(campos[c].substring(igual + 1)), Long::sum);
+			}
+			bloques++;
+		}
+	}
+
+	/**
+	 * Añade la línea de un bloque al fichero y la fuerza al disco.
+	 */
+	private void registrarBloque(long bloque, long ms, Map<String, Long> recuento) throws IOException {
+		StringBuilder linea = new StringBuilder("bloque\t" + bloque + "\t" + ms);
+		recuento.entrySet().stream()
+				.sorted(Map.Entry.comparingByKey())
+				.forEach(objeto -> linea.append('\t').append(objeto.getKey()).append('=').append(objeto.getValue()));
+		linea.append('\n');
+		try (FileChannel canal = FileChannel.open(resultados, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+			canal.write(ByteBuffer.wrap(linea.toString().getBytes(StandardCharsets.UTF_8)));
+			canal.force(false);
+		}
+	}
+
+	/**
+	 * @return sopas procesadas, incluidas las de ejecuciones anteriores.
+	 */
+	public long getSopas() {
+		return bloques * sopasBloque;
+	}
+
+	/**
+	 * @return tiempo de las sopas procesadas, en milisegundos.
+	 */
+	public long getMilisegundos() {
+		return milisegundos;
+	}
+
+	/**
+	 * Obtiene cuántas veces ha aparecido cada objeto.
+	 * @return nombre y apariciones, de más a menos frecuente.
+	 */
+	public Map<String, Long> getFrecuencias() {
+		Map<String, Long> ordenadas = new LinkedHashMap<String, Long>();
+		frecuencias.entrySet().stream()
+				.sorted((a, b) -> a.getValue().equals(b.getValue())
+						? a.getKey().compareTo(b.getKey()) : Long.compare(b.getValue(), a.getValue()))
+				.forEachOrdered(objeto -> ordenadas.put(objeto.getKey(), objeto.getValue()));
+		return ordenadas;
+	}
+
+	/**
+	 * Termina los hilos de trabajo; la búsqueda deja de admitir bloques.
+	 */
+	public void cerrar() {
+		ejecutor.cerrar();
+	}
+
+	/**
+	 * Reproduce el estado -valores de atributos- de objeto en forma de texto.
+	 * @return el texto formateado.
+	 */
+	@Override
+	public String toString() {
+		return String.format("BusquedaSopas [semilla=%s, regla=%s, sopas=%s, ms=%s, objetos=%s]",
+				semilla, regla, getSopas(), milisegundos, frecuencias.size());
+	}
+
+} // class
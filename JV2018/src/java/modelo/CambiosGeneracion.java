@@ -0,0 +1,406 @@
+/**
+ * Proyecto: Juego de la vida.
+ * Cambios de una generación respecto a la anterior: nacimientos y muertes
+ * codificados como posiciones lineales (fila * tamaño + columna) en orden
+ * creciente. Cada posición se guarda como la distancia a la anterior en
+ * varint -7 bits por byte, el bit alto indica que sigue otro- así que una
+ * célula que cambia cerca de otra ocupa un byte. Aplicados en orden sobre el
+ * espacio inicial, los cambios reproducen todas las generaciones.
+ * Con leyes de más de dos estados nace la célula que pasa a estado 1 y 
+ * muere la que lo deja, que siempre entra en decadencia en el estado 2; 
+ * los demás pasos de la decadencia no dependen de las vecinas -el estado s
+ * pasa a s+1 y el último a 0- así que basta con conocer el número de 
+ * estados para reproducirlos al aplicar los cambios.
+ * Formato: varint nacimientos, distancias; varint muertes, distancias.
+ * @since: prototipo2.1
+ * @source: CambiosGeneracion.java
+ * @version: 2.1 - 2019.05.29
+ * @author: ajp
+ */
+
+package modelo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+public class CambiosGeneracion {
+
+	private final long generacion;
+	private final int tamaño;
+	private final int estados;
+	private final byte[] codificados;
+
+	/**
+	 * Constructor convencional.
+	 * @param generacion - generación a la que llevan los cambios.
+	 * @param tamaño - lado del espacio.
+	 * @param estados - estados de una celda según las leyes del mundo.
+	 * @param codificados - cambios codificados; no se copian.
+	 */
+	public CambiosGeneracion(long generacion, int tamaño, int estados, byte[] codificados) {
+		assert tamaño >= 0;
+		assert estados >= 2;
+		assert codificados != null;
+		this.generacion = generacion;
+		this.tamaño = tamaño;
+		this.estados = estados;
+		this.codificados = codificados;
+	}
+
+	/**
+	 * Codifica las diferencias entre dos generaciones.
+	 * @param generacion - número de la generación actual.
+	 * @param estados - estados de una celda según las leyes del mundo.
+	 * @param anterior - espacio de la generación anterior.
+	 * @param actual - espacio de la generación actual, del mismo tamaño.
+	 * @return los cambios.
+	 */
+	public static CambiosGeneracion diferencia(long generacion, int estados, 
+			byte[][] anterior, byte[][] actual) {
+		assert anterior.length == actual.length;
+		int tamaño = actual.length;
+		Codificador codificador = new Codificador(generacion, tamaño, estados);
+		for (int i = 0; i < tamaño; i++) {
+			byte[] antes = anterior[i];
+			byte[] ahora = actual[i];
+			for (int j = 0; j < tamaño; j++) {
+				boolean viva = ahora[j] == 1;
+				if ((antes[j] == 1) != viva) {
+					if (viva) {
+						codificador.nacimiento(i, j);
+					}
+					else {
+						codificador.muerte(i, j);
+					}
+				}
+			}
+		}
+		return codificador.obtener();
+	}
+
+	/**
+	 * Codifica las diferencias entre las células vivas de dos generaciones,
+	 * sin espacio denso: recorre a la vez las dos distribuciones, que están
+	 * en el mismo orden que las posiciones lineales.
+	 * @param generacion - número de la generación actual.
+	 * @param tamaño - lado del espacio.
+	 * @param anterior - células vivas de la generación anterior.
+	 * @param actual - células vivas de la generación actual.
+	 * @return los cambios.
+	 */
+	public static CambiosGeneracion diferencia(long generacion, int tamaño, 
+			Distribucion anterior, Distribucion actual) {
+		Codificador codificador = new Codificador(generacion, tamaño);
+		int i = 0;
+		int j = 0;
+		while (i < anterior.size() || j < actual.size()) {
+			long antes = i < anterior.size() ? anterior.getCelda(i) : Long.MAX_VALUE;
+			long ahora = j < actual.size() ? actual.getCelda(j) : Long.MAX_VALUE;
+			if (antes == ahora) {
+				i++;
+				j++;
+				continue;
+			}
+			long celda = Math.min(antes, ahora);
+			if (ahora < antes) {
+				codificador.nacimiento(Distribucion.fila(celda), Distribucion.columna(celda));
+				j++;
+			}
+			else {
+				codificador.muerte(Distribucion.fila(celda), Distribucion.columna(celda));
+				i++;
+			}
+		}
+		return codificador.obtener();
+	}
+
+	public long getGeneracion() {
+		return generacion;
+	}
+
+	public int getTamaño() {
+		return tamaño;
+	}
+
+	public int getEstados() {
+		return estados;
+	}
+
+	/**
+	 * Obtiene los cambios codificados; no se deben modificar.
+	 */
+	public byte[] getCodificados() {
+		return codificados;
+	}
+
+	/**
+	 * Decodifica las posiciones lineales de las células que han nacido.
+	 */
+	public long[] getNacimientos() {
+		return decodificar(0);
+	}
+
+	/**
+	 * Decodifica las posiciones lineales de las células que han muerto.
+	 */
+	public long[] getMuertes() {
+		return decodificar(1);
+	}
+
+	/**
+	 * Decodifica una de las dos listas de posiciones.
+	 * @param lista - 0 nacimientos, 1 muertes.
+	 */
+	private long[] decodificar(int lista) {
+		int[] cursor = new int[1];
+		long numero = leerVarint(codificados, cursor);
+		for (int l = 0; l < lista; l++) {
+			for (long k = 0; k < numero; k++) {
+				leerVarint(codificados, cursor);
+			}
+			numero = leerVarint(codificados, cursor);
+		}
+		long[] posiciones = new long[(int) numero];
+		long posicion = 0;
+		for (int k = 0; k < posiciones.length; k++) {
+			posicion += leerVarint(codificados, cursor);
+			posiciones[k] = posicion;
+		}
+		return posiciones;
+	}
+
+	/**
+	 * Aplica los cambios sobre el espacio de la generación anterior, que
+	 * pasa a ser el de la generación de los cambios. Con más de dos estados
+	 * primero avanza un paso la decadencia y las que mueren pasan al estado 2.
+	 * @param espacio - espacio de la generación anterior; se modifica.
+	 */
+	public void aplicar(byte[][] espacio) {
+		assert espacio.length == tamaño;
+		if (estados > 2) {
+			for (byte[] fila : espacio) {
+				for (int j = 0; j < tamaño; j++) {
+					int estado = fila[j] & 0xFF;
+					if (estado > 1) {
+						fila[j] = (byte) (estado + 1 < estados ? estado + 1 : 0);
+					}
+				}
+			}
+		}
+		int[] cursor = new int[1];
+		aplicarPosiciones(espacio, cursor, (byte) 1);
+		aplicarPosiciones(espacio, cursor, (byte) (estados > 2 ? 2 : 0));
+	}
+
+	/**
+	 * Pone en un estado las celdas de la siguiente lista de posiciones.
+	 * @param cursor - posición de lectura de la lista; se avanza.
+	 */
+	private void aplicarPosiciones(byte[][] espacio, int[] cursor, byte estado) {
+		long numero = leerVarint(codificados, cursor);
+		long posicion = 0;
+		for (long k = 0; k < numero; k++) {
+			posicion += leerVarint(codificados, cursor);
+			espacio[(int) (posicion / tamaño)][(int) (posicion % tamaño)] = estado;
+		}
+	}
+
+	/**
+	 * Escribe los cambios en un registro: generación, tamaño, estados, 
+	 * longitud y cambios.
+	 * @param salida - destino.
+	 */
+	public void escribir(OutputStream salida) throws IOException {
+		ByteArrayOutputStream cabecera = new ByteArrayOutputStream(16);
+		escribirVarint(cabecera, generacion);
+		escribirVarint(cabecera, tamaño);
+		escribirVarint(cabecera, estados);
+		escribirVarint(cabecera, codificados.length);
+		cabecera.writeTo(salida);
+		salida.write(codificados);
+	}
+
+	/**
+	 * Lee los cambios de una generación escritos con escribir().
+	 * @param entrada - origen.
+	 * @return los cambios; null al final del registro.
+	 */
+	public static CambiosGeneracion leer(InputStream entrada) throws IOException {
+		int primero = entrada.read();
+		if (primero < 0) {
+			return null;
+		}
+		long generacion = leerVarint(entrada, primero);
+		int tamaño = (int) leerVarint(entrada, entrada.read());
+		int estados = (int) leerVarint(entrada, entrada.read());
+		byte[] codificados = new byte[(int) leerVarint(entrada, entrada.read())];
+		int leidos = entrada.readNBytes(codificados, 0, codificados.length);
+		if (leidos < codificados.length) {
+			throw new EOFException("CambiosGeneracion: registro incompleto");
+		}
+		return new CambiosGeneracion(generacion, tamaño, estados, codificados);
+	}
+
+	private static void escribirVarint(ByteArrayOutputStream salida, long valor) {
+		while ((valor & ~0x7FL) != 0) {
+			salida.write((int) (valor & 0x7F) | 0x80);
+			valor >>>= 7;
+		}
+		salida.write((int) valor);
+	}
+
+	/**
+	 * Lee un varint de un vector.
+	 * @param cursor - posición de lectura; se avanza.
+	 */
+	private static long leerVarint(byte[] origen, int[] cursor) {
+		long valor = 0;
+		int desplazamiento = 0;
+		byte b;
+		do {
+			b = origen[cursor[0]++];
+			valor |= (long) (b & 0x7F) << desplazamiento;
+			desplazamiento += 7;
+		} while (b < 0);
+		return valor;
+	}
+
+	/**
+	 * Lee un varint de un flujo.
+	 * @param primero - primer byte, ya leído.
+	 */
+	private static long leerVarint(InputStream entrada, int primero) throws IOException {
+		long valor = 0;
+		int desplazamiento = 0;
+		int b = primero;
+		while (true) {
+			if (b < 0) {
+				throw new EOFException("CambiosGeneracion: registro incompleto");
+			}
+			valor |= (long) (b & 0x7F) << desplazamiento;
+			if ((b & 0x80) == 0) {
+				return valor;
+			}
+			desplazamiento += 7;
+			b = entrada.read();
+		}
+	}
+
+	/**
+	 * Reúne los nacimientos y muertes de una generación a medida que un 
+	 * motor los encuentra al comparar su estado con el anterior, y los 
+	 * codifica al terminar. Los que llegan fila a fila ya están en el orden
+	 * de las posiciones lineales; si no, se ordenan antes de codificarlos.
+	 */
+	public static class Codificador {
+
+		private final long generacion;
+		private final int tamaño;
+		private final int estados;
+		private long[] nacimientos;
+		private int numeroNacimientos;
+		private long[] muertes;
+		private int numeroMuertes;
+		private boolean desordenados;
+
+		/**
+		 * Constructor convencional.
+		 * @param generacion - generación a la que llevan los cambios.
+		 * @param tamaño - lado del espacio.
+		 * @param estados - estados de una celda según las leyes del mundo.
+		 */
+		public Codificador(long generacion, int tamaño, int estados) {
+			assert tamaño >= 0;
+			assert estados >= 2;
+			this.generacion = generacion;
+			this.tamaño = tamaño;
+			this.estados = estados;
+			this.nacimientos = new long[16];
+			this.muertes = new long[16];
+		}
+
+		/**
+		 * Constructor para leyes de dos estados.
+		 */
+		public Codificador(long generacion, int tamaño) {
+			this(generacion, tamaño, 2);
+		}
+
+		public void nacimiento(int fila, int columna) {
+			long posicion = (long) fila * tamaño + columna;
+			if (numeroNacimientos == nacimientos.length) {
+				nacimientos = Arrays.copyOf(nacimientos, 2 * numeroNacimientos);
+			}
+			desordenados |= numeroNacimientos > 0 && posicion < nacimientos[numeroNacimientos - 1];
+			nacimientos[numeroNacimientos++] = posicion;
+		}
+
+		public void muerte(int fila, int columna) {
+			long posicion = (long) fila * tamaño + columna;
+			if (numeroMuertes == muertes.length) {
+				muertes = Arrays.copyOf(muertes, 2 * numeroMuertes);
+			}
+			desordenados |= numeroMuertes > 0 && posicion < muertes[numeroMuertes - 1];
+			muertes[numeroMuertes++] = posicion;
+		}
+
+		/**
+		 * Añade los cambios de una palabra empaquetada en bits: 64 celdas 
+		 * de una fila con la primera en el bit menos significativo.
+		 * @param fila - fila de la palabra.
+		 * @param columna - columna del bit 0.
+		 * @param nacidas - bits de las celdas que han nacido.
+		 * @param muertas - bits de las celdas que han muerto.
+		 */
+		public void palabra(int fila, int columna, long nacidas, long muertas) {
+			for (long bits = nacidas; bits != 0; bits &= bits - 1) {
+				nacimiento(fila, columna + Long.numberOfTrailingZeros(bits));
+			}
+			for (long bits = muertas; bits != 0; bits &= bits - 1) {
+				muerte(fila, columna + Long.numberOfTrailingZeros(bits));
+			}
+		}
+
+		/**
+		 * Codifica los cambios reunidos.
+		 * @return los cambios de la generación.
+		 */
+		public CambiosGeneracion obtener() {
+			if (desordenados) {
+				Arrays.sort(nacimientos, 0, numeroNacimientos);
+				Arrays.sort(muertes, 0, numeroMuertes);
+			}
+			ByteArrayOutputStream codificados = new ByteArrayOutputStream(numeroNacimientos + numeroMuertes + 8);
+			escribirPosiciones(codificados, nacimientos, numeroNacimientos);
+			escribirPosiciones(codificados, muertes, numeroMuertes);
+			return new CambiosGeneracion(generacion, tamaño, estados, codificados.toByteArray());
+		}
+
+		/**
+		 * Escribe el número de posiciones y sus distancias.
+		 */
+		private static void escribirPosiciones(ByteArrayOutputStream salida, long[] posiciones, int numero) {
+			escribirVarint(salida, numero);
+			long ultima = 0;
+			for (int k = 0; k < numero; k++) {
+				escribirVarint(salida, posiciones[k] - ultima);
+				ultima = posiciones[k];
+			}
+		}
+	}
+
+	/**
+	 * Reproduce el estado -valores de atributos- de objeto en forma de texto.
+	 * @return el texto formateado.
+	 */
+	@Override
+	public String toString() {
+		return String.format("CambiosGeneracion [generacion=%s, tamaño=%s, estados=%s, bytes=%s]",
+				generacion, tamaño, estados, codificados.length);
+	}
+
+} // class
@@ -0,0 +1,371 @@
+/**
+ * Proyecto: Juego de la vida.
+ * Catálogo de objetos -naturalezas muertas, osciladores y naves- de unas
+ * leyes, indexado por la huella de forma de cada una de sus fases, así que
+ * un objeto se reconoce en cualquier fase, giro, simetría y posición con
+ * una sola consulta. Las formas que no están se clasifican al consultarlas
+ * haciéndolas evolucionar aisladas hasta que se repiten, en el sitio
+ * (oscilador) o desplazadas (nave), y se añaden con un nombre que indica
+ * el tipo: xs<población>, xp<periodo> o xq<periodo> y la huella.
+ * Las formas que no se repiten no se catalogan, pero se recuerdan aparte
+ * para no volver a hacerlas evolucionar en cada censo.
+ * Se puede consultar desde varios hilos a la vez.
+ * @since: prototipo2.1
+ * @source: Catalogo.java
+ * @version: 2.1 - 2019.06.01
+ * @author: ajp
+ */
+
+package modelo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import config.Configuracion;
+import modelo.Mundo.FormaEspacio;
+import modelo.motor.Motor;
+import modelo.motor.MotorBits;
+import modelo.motor.MotorGeneraciones;
+
+public class Catalogo {
+
+	public enum TipoObjeto { NATURALEZA_MUERTA, OSCILADOR, NAVE, INDETERMINADO }
+
+	/**
+	 * Objeto catalogado; dos objetos con el mismo nombre son el mismo.
+	 */
+	public static class Objeto {
+
+		private final String nombre;
+		private final TipoObjeto tipo;
+		private final int periodo;
+		private final int poblacion;
+
+		Objeto(String nombre, TipoObjeto tipo, int periodo, int poblacion) {
+			this.nombre = nombre;
+			this.tipo = tipo;
+			this.periodo = periodo;
+			this.poblacion = poblacion;
+		}
+
+		public String getNombre() {
+			return nombre;
+		}
+
+		public TipoObjeto getTipo() {
+			return tipo;
+		}
+
+		/**
+		 * @return generaciones hasta repetirse; 0 si es INDETERMINADO.
+		 */
+		public int getPeriodo() {
+			return periodo;
+		}
+
+		/**
+		 * @return células vivas en la fase en que se catalogó.
+		 */
+		public int getPoblacion() {
+			return poblacion;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("Objeto [nombre=%s, tipo=%s, periodo=%s, poblacion=%s]",
+					nombre, tipo, periodo, poblacion);
+		}
+
+		@Override
+		public int hashCode() {
+			return nombre.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Objeto && nombre.equals(((Objeto) obj).nombre);
+		}
+	}
+
+	// Objetos comunes con nombre propio: filas separadas por $, o viva.
+	private static final String[][] CONOCIDOS = {
+		{ "Bloque", "oo$oo" },
+		{ "Colmena", ".oo.$o..o$.oo." },
+		{ "Hogaza", ".oo.$o..o$.o.o$..o." },
+		{ "Barco", "oo.$o.o$.o." },
+		{ "Buque", "oo.$o.o$.oo" },
+		{ "Bañera", ".o.$o.o$.o." },
+		{ "Estanque", ".oo.$o..o$o..o$.oo." },
+		{ "Parpadeador", "ooo" },
+		{ "Sapo", ".ooo$ooo." },
+		{ "Faro", "oo..$oo..$..oo$..oo" },
+		{ "Semáforo", "..ooo..$$o.....o$o.....o$o.....o$$..ooo.." },
+		{ "Púlsar", "..ooo...ooo..$$o....o.o....o$o....o.o....o$o....o.o....o$..ooo...ooo..$$"
+				+ "..ooo...ooo..$o....o.o....o$o....o.o....o$o....o.o....o$$..ooo...ooo.." },
+		{ "Planeador", ".o.$..o$ooo" },
+		{ "Nave ligera", ".o..o$o....$o...o$oooo." },
+		{ "Nave mediana", "...o..$.o...o$o.....$o....o$ooooo." },
+		{ "Nave pesada", "...oo..$.o....o$o......$o.....o$oooooo." }
+	};
+
+	private static final Map<Regla, Catalogo> catalogos = new ConcurrentHashMap<Regla, Catalogo>();
+
+	private final Regla regla;
+	private final int periodoMaximo;
+	private final Map<Long, Objeto> objetos;
+	// Formas INDETERMINADO ya clasificadas; buscar() no las ve.
+	private final Map<Long, Objeto> indeterminados;
+
+	/**
+	 * Constructor convencional; el catálogo empieza vacío.
+	 * @param regla - leyes con las que evolucionan los objetos.
+	 * @param periodoMaximo - periodo más largo que se reconoce al clasificar.
+	 */
+	public Catalogo(Regla regla, int periodoMaximo) {
+		assert regla != null;
+		assert periodoMaximo > 0;
+		this.regla = regla;
+		this.periodoMaximo = periodoMaximo;
+		this.objetos = new ConcurrentHashMap<Long, Objeto>();
+		this.indeterminados = new ConcurrentHashMap<Long, Objeto>();
+	}
+
+	/**
+	 * Obtiene el catálogo compartido de unas leyes, con los objetos
+	 * conocidos que lo son también con esas leyes.
+	 * @param regla - las leyes.
+	 * @return el catálogo; se crea en la primera consulta.
+	 */
+	public static Catalogo de(Regla regla) {
+		return catalogos.computeIfAbsent(regla, r -> {
+			Catalogo catalogo = new Catalogo(r,
+					Integer.parseInt(Configuracion.get().getProperty("censo.periodoMaximo")));
+			for (String[] conocido : CONOCIDOS) {
+				catalogo.registrar(conocido[0], celdasTexto(conocido[1]));
+			}
+			return catalogo;
+		});
+	}
+
+	/**
+	 * Convierte el texto de un objeto conocido en células empaquetadas.
+	 */
+	private static long[] celdasTexto(String texto) {
+		String[] filas = texto.split("\\$", -1);
+		long[] celdas = new long[texto.length()];
+		int vivas = 0;
+		for (int i = 0; i < filas.length; i++) {
+			for (int j = 0; j < filas[i].length(); j++) {
+				if (filas[i].charAt(j) == 'o') {
+					celdas[vivas++] = Distribucion.empaquetar(i, j);
+				}
+			}
+		}
+		return Arrays.copyOf(celdas, vivas);
+	}
+
+	public Regla getRegla() {
+		return regla;
+	}
+
+	/**
+	 * @return número de fases catalogadas.
+	 */
+	public int getFases() {
+		return objetos.size();
+	}
+
+	/**
+	 * Busca un objeto por la huella de forma de una de sus fases.
+	 * @param huellaForma - la huella; ver Patron.getHuellaForma().
+	 * @return el objeto; null si no está catalogado.
+	 */
+	public Objeto buscar(long huellaForma) {
+		return objetos.get(huellaForma);
+	}
+
+	/**
+	 * Cataloga un objeto con nombre propio, si con estas leyes se repite
+	 * en menos del periodo máximo; sustituye al que hubiera con su forma.
+	 * @param nombre - nombre del objeto.
+	 * @param celdas - células de una fase, empaquetadas, sin negativos.
+	 * @return el objeto; INDETERMINADO y sin catalogar si no se repite.
+	 */
+	public Objeto registrar(String nombre, long[] celdas) {
+		assert nombre != null;
+		return clasificar(nombre, normalizar(celdas, 0, celdas.length));
+	}
+
+	/**
+	 * Identifica un tramo de células como objeto; si la forma no está
+	 * catalogada ni se sabe ya que es INDETERMINADO, se clasifica y se añade.
+	 * @param celdas - células empaquetadas, sin negativos.
+	 * @param desde - primera del tramo.
+	 * @param hasta - siguiente a la última del tramo.
+	 * @return el objeto.
+	 */
+	public Objeto identificar(long[] celdas, int desde, int hasta) {
+		assert desde < hasta;
+		long huellaForma = Patron.huellaForma(celdas, desde, hasta);
+		Objeto objeto = objetos.get(huellaForma);
+		if (objeto == null) {
+			objeto = indeterminados.get(huellaForma);
+		}
+		if (objeto == null) {
+			objeto = clasificar(null, normalizar(celdas, desde, hasta));
+		}
+		return objeto;
+	}
+
+	/**
+	 * Lleva un tramo de células a la esquina (0, 0) y las ordena.
+	 */
+	private static long[] normalizar(long[] celdas, int desde, int hasta) {
+		int filaMinima = Integer.MAX_VALUE;
+		int columnaMinima = Integer.MAX_VALUE;
+		for (int i = desde; i < hasta; i++) {
+			filaMinima = Math.min(filaMinima, Distribucion.fila(celdas[i]));
+			columnaMinima = Math.min(columnaMinima, Distribucion.columna(celdas[i]));
+		}
+		long[] forma = new long[hasta - desde];
+		for (int i = desde; i < hasta; i++) {
+			forma[i - desde] = Distribucion.empaquetar(Distribucion.fila(celdas[i]) - filaMinima,
+					Distribucion.columna(celdas[i]) - columnaMinima);
+		}
+		Arrays.sort(forma);
+		return forma;
+	}
+
+	/**
+	 * Hace evolucionar una forma aislada, en un espacio plano con margen
+	 * para desplazarse el periodo máximo, hasta que vuelve a aparecer.
+	 * Si se repite cataloga todas sus fases. Cada fase se lee de las 
+	 * palabras empaquetadas del motor, sin volcar el espacio denso.
+	 * @param nombre - nombre propio; null para generarlo según el tipo.
+	 * @param forma - células normalizadas y ordenadas.
+	 * @return el objeto.
+	 */
+	private Objeto clasificar(String nombre, long[] forma) {
+		int lado = 0;
+		for (long celda : forma) {
+			lado = Math.max(lado, Math.max(Distribucion.fila(celda), Distribucion.columna(celda)) + 1);
+		}
+		int margen = periodoMaximo + 2;
+		lado += 2 * margen;
+		byte[][] espacio = new byte[lado][lado];
+		for (long celda : forma) {
+			espacio[Distribucion.fila(celda) + margen][Distribucion.columna(celda) + margen] = 1;
+		}
+		Motor motor = regla.getEstados() > 2 ? new MotorGeneraciones(lado, FormaEspacio.PLANO, regla)
+				: new MotorBits(lado, FormaEspacio.PLANO, regla);
+		motor.cargar(espacio);
+		List<long[]> fases = new ArrayList<long[]>();
+		fases.add(forma);
+		TipoObjeto tipo = TipoObjeto.INDETERMINADO;
+		int periodo = 0;
+		for (int generacion = 1; generacion <= periodoMaximo; generacion++) {
+			motor.actualizar();
+			long[] vivas = celdasEmpaquetadas(motor.copiarEstado(), lado);
+			if (vivas.length == 0 || tocaBorde(vivas, lado)) {
+				break;
+			}
+			long[] fase = normalizar(vivas, 0, vivas.length);
+			if (Arrays.equals(fase, forma)) {
+				boolean enSitio = vivas[0] - fase[0] == Distribucion.empaquetar(margen, margen);
+				tipo = !enSitio ? TipoObjeto.NAVE
+						: generacion == 1 ? TipoObjeto.NATURALEZA_MUERTA : TipoObjeto.OSCILADOR;
+				periodo = generacion;
+				break;
+			}
+			fases.add(fase);
+		}
+		long huella = Patron.huellaForma(forma, 0, forma.length);
+		Objeto objeto = new Objeto(nombre != null ? nombre : nombreGenerado(tipo, periodo, forma.length, huella),
+				tipo, periodo, forma.length);
+		if (tipo == TipoObjeto.INDETERMINADO) {
+			// No se catalogan: pueden ser restos de cualquier cosa en evolución.
+			if (nombre == null) {
+				Objeto clasificado = indeterminados.putIfAbsent(huella, objeto);
+				return clasificado != null ? clasificado : objeto;
+			}
+			return objeto;
+		}
+		if (nombre != null) {
+			for (long[] fase : fases) {
+				objetos.put(Patron.huellaForma(fase, 0, fase.length), objeto);
+			}
+			return objeto;
+		}
+		// Otro hilo puede haberla clasificado a la vez; prevalece el primero.
+		Objeto catalogado = objetos.putIfAbsent(huella, objeto);
+		if (catalogado != null) {
+			return catalogado;
+		}
+		for (long[] fase : fases) {
+			objetos.putIfAbsent(Patron.huellaForma(fase, 0, fase.length), objeto);
+		}
+		return objeto;
+	}
+
+	/**
+	 * Obtiene las células vivas, empaquetadas y ordenadas, del estado 
+	 * copiado de MotorBits o MotorGeneraciones: ambos empiezan por las 
+	 * filas del plano de vivas, 64 celdas por long.
+	 * @param estado - resultado de copiarEstado().
+	 * @param lado - lado del espacio.
+	 */
+	private static long[] celdasEmpaquetadas(long[] estado, int lado) {
+		int palabras = (lado + 63) >>> 6;
+		int poblacion = 0;
+		for (int k = 0; k < lado * palabras; k++) {
+			poblacion += Long.bitCount(estado[k]);
+		}
+		long[] vivas = new long[poblacion];
+		int n = 0;
+		for (int i = 0; i < lado; i++) {
+			for (int k = 0; k < palabras; k++) {
+				for (long bits = estado[i * palabras + k]; bits != 0; bits &= bits - 1) {
+					vivas[n++] = Distribucion.empaquetar(i, (k << 6) + Long.numberOfTrailingZeros(bits));
+				}
+			}
+		}
+		return vivas;
+	}
+
+	private static boolean tocaBorde(long[] vivas, int lado) {
+		for (long celda : vivas) {
+			int fila = Distribucion.fila(celda);
+			int columna = Distribucion.columna(celda);
+			if (fila == 0 || columna == 0 || fila == lado - 1 || columna == lado - 1) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static String nombreGenerado(TipoObjeto tipo, int periodo, int poblacion, long huella) {
+		switch (tipo) {
+		case NATURALEZA_MUERTA:
+			return "xs" + poblacion + "_" + Long.toHexString(huella);
+		case OSCILADOR:
+			return "xp" + periodo + "_" + Long.toHexString(huella);
+		case NAVE:
+			return "xq" + periodo + "_" + Long.toHexString(huella);
+		default:
+			return "zz" + poblacion + "_" + Long.toHexString(huella);
+		}
+	}
+
+	/**
+	 * Reproduce el estado -valores de atributos- de objeto en forma de texto.
+	 * @return el texto formateado.
+	 */
+	@Override
+	public String toString() {
+		return String.format("Catalogo [regla=%s, periodoMaximo=%s, fases=%s]", regla, periodoMaximo, objetos.size());
+	}
+
+} // class
@@ -0,0 +1,258 @@
+/**
+ * Proyecto: Juego de la vida.
+ * Censo de los objetos de un mundo: separa las células vivas en grupos
+ * -dos células son del mismo objeto si comparten alguna vecina, es decir,
+ * si están a distancia 2 o menos- y los identifica en el catálogo de las
+ * leyes del mundo. Los grupos se forman con unión-búsqueda sobre los índices
+ * de las células empaquetadas y ordenadas: las vecinas se localizan por
+ * búsqueda binaria y no se crea ningún objeto por célula.
+ * @since: prototipo2.1
+ * @source: Censo.java
+ * @version: 2.1 - 2019.06.01
+ * @author: ajp
+ */
+
+package modelo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import modelo.Catalogo.Objeto;
+import modelo.Catalogo.TipoObjeto;
+import modelo.Mundo.FormaEspacio;
+
+public class Censo {
+
+	private final Map<Objeto, Integer> recuento;
+	private final int objetos;
+
+	private Censo(Map<Objeto, Integer> recuento, int objetos) {
+		this.recuento = recuento;
+		this.objetos = objetos;
+	}
+
+	/**
+	 * Hace el censo de un mundo con el catálogo compartido de sus leyes.
+	 * @param mundo - el mundo en su estado actual.
+	 * @return el censo.
+	 */
+	public static Censo de(Mundo mundo) {
+		return de(mundo, Catalogo.de(mundo.getRegla()));
+	}
+
+	/**
+	 * Hace el censo de un mundo.
+	 * @param mundo - el mundo en su estado actual.
+	 * @param catalogo - catálogo de las leyes del mundo; se amplía con las formas nuevas.
+	 * @return el censo.
+	 */
+	public static Censo de(Mundo mundo, Catalogo catalogo) {
+		assert mundo != null;
+		assert catalogo != null;
+		Map<Objeto, Integer> recuento = new HashMap<Objeto, Integer>();
+		long[][] objetos = separar(mundo.getCelulasVivas().getCeldas(), mundo.getTamañoMundo(),
+				mundo.getTipoMundo() == FormaEspacio.ESFERICO);
+		for (long[] objeto : objetos) {
+			recuento.merge(catalogo.identificar(objeto, 0, objeto.length), 1, Integer::sum);
+		}
+		return new Censo(recuento, objetos.length);
+	}
+
+	/**
+	 * Separa unas células en objetos, sin identificarlos.
+	 * @param celdas - células vivas, empaquetadas y ordenadas.
+	 * @param tamaño - lado del espacio.
+	 * @param esferico - si el espacio es esférico.
+	 * @return las células de cada objeto; en el esférico, las de un objeto
+	 * que cruza un borde se desenrollan y pueden quedar fuera del espacio.
+	 */
+	static long[][] separar(long[] celdas, int tamaño, boolean esferico) {
+		int[] padre = agrupar(celdas, tamaño, esferico);
+
+		// Ordena las células por grupo: recuento por raíz y acumulados.
+		int n = celdas.length;
+		int[] inicio = new int[n + 1];
+		for (int i = 0; i < n; i++) {
+			inicio[padre[i] + 1]++;
+		}
+		for (int i = 0; i < n; i++) {
+			inicio[i + 1] += inicio[i];
+		}
+		long[] agrupadas = new long[n];
+		int[] siguiente = Arrays.copyOf(inicio, n);
+		for (int i = 0; i < n; i++) {
+			agrupadas[siguiente[padre[i]]++] = celdas[i];
+		}
+
+		List<long[]> objetos = new ArrayList<long[]>();
+		for (int i = 0; i < n; i++) {
+			if (padre[i] == i) {
+				if (esferico) {
+					desenrollar(agrupadas, inicio[i], inicio[i + 1], tamaño);
+				}
+				objetos.add(Arrays.copyOfRange(agrupadas, inicio[i], inicio[i + 1]));
+			}
+		}
+		return objetos.toArray(new long[objetos.size()][]);
+	}
+
+	/**
+	 * Une cada célula con las que comparten alguna vecina. Basta mirar las
+	 * que van detrás en el orden de filas: las dos siguientes de su fila y
+	 * las cinco más próximas de las dos filas siguientes.
+	 * @return el padre de cada célula; al terminar, su raíz.
+	 */
+	private static int[] agrupar(long[] celdas, int tamaño, boolean esferico) {
+		int[] padre = new int[celdas.length];
+		for (int i = 0; i < padre.length; i++) {
+			padre[i] = i;
+		}
+		for (int i = 0; i < celdas.length; i++) {
+			int fila = Distribucion.fila(celdas[i]);
+			int columna = Distribucion.columna(celdas[i]);
+			for (int df = 0; df <= 2; df++) {
+				for (int dc = df == 0 ? 1 : -2; dc <= 2; dc++) {
+					int f = fila + df;
+					int c = columna + dc;
+					if (esferico) {
+						f = Math.floorMod(f, tamaño);
+						c = Math.floorMod(c, tamaño);
+					}
+					else if (f >= tamaño || c < 0 || c >= tamaño) {
+						continue;
+					}
+					int j = Arrays.binarySearch(celdas, Distribucion.empaquetar(f, c));
+					if (j >= 0) {
+						unir(padre, i, j);
+					}
+				}
+			}
+		}
+		for (int i = 0; i < padre.length; i++) {
+			padre[i] = raiz(padre, i);
+		}
+		return padre;
+	}
+
+	/**
+	 * Busca la raíz del grupo acortando el camino a la mitad.
+	 */
+	private static int raiz(int[] padre, int i) {
+		while (padre[i] != i) {
+			padre[i] = padre[padre[i]];
+			i = padre[i];
+		}
+		return i;
+	}
+
+	/**
+	 * Une dos grupos; la raíz es la menor para que sea la primera célula del grupo.
+	 */
+	private static void unir(int[] padre, int i, int j) {
+		int a = raiz(padre, i);
+		int b = raiz(padre, j);
+		if (a < b) {
+			padre[b] = a;
+		}
+		else if (b < a) {
+			padre[a] = b;
+		}
+	}
+
+	/**
+	 * En un espacio esférico, un objeto que cruza un borde aparece partido
+	 * en los dos extremos: traslada la parte de arriba (o de la izquierda)
+	 * una vuelta para que quede junta.
+	 */
+	private static void desenrollar(long[] celdas, int desde, int hasta, int tamaño) {
+		int filaMinima = Integer.MAX_VALUE;
+		int filaMaxima = -1;
+		int columnaMinima = Integer.MAX_VALUE;
+		int columnaMaxima = -1;
+		for (int i = desde; i < hasta; i++) {
+			filaMinima = Math.min(filaMinima, Distribucion.fila(celdas[i]));
+			filaMaxima = Math.max(filaMaxima, Distribucion.fila(celdas[i]));
+			columnaMinima = Math.min(columnaMinima, Distribucion.columna(celdas[i]));
+			columnaMaxima = Math.max(columnaMaxima, Distribucion.columna(celdas[i]));
+		}
+		boolean cruzaFilas = filaMaxima - filaMinima > tamaño / 2;
+		boolean cruzaColumnas = columnaMaxima - columnaMinima > tamaño / 2;
+		if (!cruzaFilas && !cruzaColumnas) {
+			return;
+		}
+		for (int i = desde; i < hasta; i++) {
+			int fila = Distribucion.fila(celdas[i]);
+			int columna = Distribucion.columna(celdas[i]);
+			if (cruzaFilas && fila < tamaño / 2) {
+				fila += tamaño;
+			}
+			if (cruzaColumnas && columna < tamaño / 2) {
+				columna += tamaño;
+			}
+			celdas[i] = Distribucion.empaquetar(fila, columna);
+		}
+	}
+
+	/**
+	 * @return número de objetos encontrados.
+	 */
+	public int getObjetos() {
+		return objetos;
+	}
+
+	/**
+	 * @return cuántos hay de cada objeto; no se puede modificar.
+	 */
+	public Map<Objeto, Integer> getRecuento() {
+		return Collections.unmodifiableMap(recuento);
+	}
+
+	/**
+	 * @param nombre - nombre del objeto, del catálogo o generado.
+	 * @return cuántos hay; 0 si ninguno.
+	 */
+	public int getRecuento(String nombre) {
+		for (Map.Entry<Objeto, Integer> entrada : recuento.entrySet()) {
+			if (entrada.getKey().getNombre().equals(nombre)) {
+				return entrada.getValue();
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * @param tipo - tipo de objeto.
+	 * @return cuántos hay de ese tipo.
+	 */
+	public int getRecuento(TipoObjeto tipo) {
+		int total = 0;
+		for (Map.Entry<Objeto, Integer> entrada : recuento.entrySet()) {
+			if (entrada.getKey().getTipo() == tipo) {
+				total += entrada.getValue();
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * Reproduce el estado -valores de atributos- de objeto en forma de texto,
+	 * los más numerosos primero.
+	 * @return el texto formateado.
+	 */
+	@Override
+	public String toString() {
+		StringBuilder texto = new StringBuilder("Censo [objetos=" + objetos);
+		recuento.entrySet().stream()
+				.sorted((a, b) -> a.getValue().equals(b.getValue())
+						? a.getKey().getNombre().compareTo(b.getKey().getNombre())
+						: b.getValue() - a.getValue())
+				.forEach(entrada -> texto.append(", ").append(entrada.getKey().getNombre())
+						.append('=').append(entrada.getValue()));
+		return texto.append(']').toString();
+	}
+
+} // class
@@ -0,0 +1,76 @@
+/**
+ * Proyecto: Juego de la vida.
+ * Detecta cuándo una simulación deja de evolucionar: guarda en un anillo
+ * las huellas de las últimas generaciones y, al registrar una nueva, busca
+ * la más reciente igual. La distancia entre ambas es el periodo: 1 para
+ * vida estática o extinción, N para un oscilador de periodo N.
+ * @since: prototipo2.1
+ * @source: DetectorCiclos.java
+ * @version: 2.1 - 2019.05.22
+ * @author: ajp
+ */
+
+package modelo;
+
+import config.Configuracion;
+
+public class DetectorCiclos {
+
+	private final long[] huellas;
+	// Posición del anillo de la próxima huella y huellas válidas en él:
+	// no crecen con las registradas y no se desbordan en simulaciones largas.
+	private int siguiente;
+	private int recordadas;
+
+	/**
+	 * Constructor convencional.
+	 * @param capacidad - número de huellas recordadas; periodo máximo detectable.
+	 */
+	public DetectorCiclos(int capacidad) {
+		assert capacidad > 0;
+		this.huellas = new long[capacidad];
+	}
+
+	/**
+	 * Constructor por defecto.
+	 * La capacidad se obtiene de la configuración.
+	 */
+	public DetectorCiclos() {
+		this(Integer.parseInt(Configuracion.get().getProperty("simulacion.historialHuellas")));
+	}
+
+	/**
+	 * Registra la huella de una nueva generación.
+	 * @param huella - huella del Mundo, obtenida con getHuella().
+	 * @return el periodo del ciclo en el que ha entrado; 0 si no se repite.
+	 */
+	public int registrar(long huella) {
+		int periodo = 0;
+		for (int distancia = 1; distancia <= recordadas; distancia++) {
+			int posicion = siguiente - distancia;
+			if (huellas[posicion < 0 ? posicion + huellas.length : posicion] == huella) {
+				periodo = distancia;
+				break;
+			}
+		}
+		huellas[siguiente] = huella;
+		siguiente = siguiente + 1 == huellas.length ? 0 : siguiente + 1;
+		if (recordadas < huellas.length) {
+			recordadas++;
+		}
+		return periodo;
+	}
+
+	/**
+	 * Olvida las huellas registradas, por ejemplo al cambiar el espacio.
+	 */
+	public void reiniciar() {
+		siguiente = 0;
+		recordadas = 0;
+	}
+
+	public int getCapacidad() {
+		return huellas.length;
+	}
+
+} // class
@@ -0,0 +1,185 @@
+/**
+ * Proyecto: Juego de la vida.
+ * Distribución de células vivas empaquetada: cada célula es un long con la
+ * fila en los 32 bits altos y la columna en los bajos, en un vector ordenado
+ * y sin repeticiones. Ocupa 8 bytes por célula, sin un objeto por posición,
+ * y se recorre en orden de filas. Para quien la usa como List<Posicion> es
+ * una lista inmutable que crea cada Posicion al consultarla.
+ * @since: prototipo2.1
+ * @source: Distribucion.java
+ * @version: 2.1 - 2019.05.28
+ * @author: ajp
+ */
+
+package modelo;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+public class Distribucion extends AbstractList<Posicion> implements RandomAccess, Serializable {
+
+	private static final long serialVersionUID = 1L;
+	private final long[] celdas;
+	// Se calcula en la primera consulta; 0 = pendiente.
+	private transient int hash;
+
+	/**
+	 * Constructor convencional.
+	 * @param celdas - células empaquetadas con empaquetar(), en cualquier orden;
+	 * se copian, ordenan y depuran de repeticiones.
+	 */
+	public Distribucion(long[] celdas) {
+		assert celdas != null;
+		long[] ordenadas = celdas.clone();
+		Arrays.sort(ordenadas);
+		int distintas = 0;
+		for (int i = 0; i < ordenadas.length; i++) {
+			if (i == 0 || ordenadas[i] != ordenadas[distintas - 1]) {
+				ordenadas[distintas++] = ordenadas[i];
+			}
+		}
+		this.celdas = distintas == ordenadas.length ? ordenadas : Arrays.copyOf(ordenadas, distintas);
+	}
+
+	/**
+	 * Obtiene la distribución de unas posiciones; si ya es una Distribucion, la misma.
+	 * @param posiciones - posiciones de las células vivas.
+	 * @return la distribución empaquetada.
+	 */
+	public static Distribucion de(Collection<Posicion> posiciones) {
+		assert posiciones != null;
+		if (posiciones instanceof Distribucion) {
+			return (Distribucion) posiciones;
+		}
+		long[] celdas = new long[posiciones.size()];
+		int i = 0;
+		for (Posicion posicion : posiciones) {
+			celdas[i++] = empaquetar(posicion.getX(), posicion.getY());
+		}
+		return new Distribucion(celdas);
+	}
+
+	/**
+	 * Obtiene la distribución de las células vivas de un espacio.
+	 * @param espacio - matriz con 0 (muerta) y 1 (viva); los estados de 
+	 * decadencia de las leyes de más de dos estados no son células vivas.
+	 * @return la distribución, ya ordenada.
+	 */
+	public static Distribucion extraer(byte[][] espacio) {
+		int vivas = 0;
+		for (byte[] fila : espacio) {
+			for (byte celda : fila) {
+				if (celda == 1) {
+					vivas++;
+				}
+			}
+		}
+		long[] celdas = new long[vivas];
+		int k = 0;
+		for (int i = 0; i < espacio.length; i++) {
+			for (int j = 0; j < espacio[i].length; j++) {
+				if (espacio[i][j] == 1) {
+					celdas[k++] = empaquetar(i, j);
+				}
+			}
+		}
+		return new Distribucion(celdas);
+	}
+
+	/**
+	 * Empaqueta una posición: el orden de los long es el de filas y columnas.
+	 * @param fila - coordenada x, no negativa.
+	 * @param columna - coordenada y, no negativa.
+	 */
+	public static long empaquetar(int fila, int columna) {
+		assert fila >= 0 && columna >= 0;
+		return (long) fila << 32 | columna;
+	}
+
+	public static int fila(long celda) {
+		return (int) (celda >>> 32);
+	}
+
+	public static int columna(long celda) {
+		return (int) celda;
+	}
+
+	/**
+	 * Obtiene la célula empaquetada de una posición de la distribución.
+	 * @param indice - entre 0 y size() - 1.
+	 */
+	public long getCelda(int indice) {
+		return celdas[indice];
+	}
+
+	/**
+	 * Obtiene las células empaquetadas, ordenadas, sin copiarlas; no se deben modificar.
+	 */
+	long[] getCeldas() {
+		return celdas;
+	}
+
+	/**
+	 * Comprueba si una célula está en la distribución; búsqueda binaria.
+	 */
+	public boolean contiene(int fila, int columna) {
+		return Arrays.binarySearch(celdas, empaquetar(fila, columna)) >= 0;
+	}
+
+	@Override
+	public Posicion get(int indice) {
+		return new Posicion(fila(celdas[indice]), columna(celdas[indice]));
+	}
+
+	@Override
+	public int size() {
+		return celdas.length;
+	}
+
+	@Override
+	public boolean contains(Object obj) {
+		if (obj instanceof Posicion) {
+			Posicion posicion = (Posicion) obj;
+			return posicion.getX() >= 0 && posicion.getY() >= 0
+					&& contiene(posicion.getX(), posicion.getY());
+		}
+		return false;
+	}
+
+	/**
+	 * Mismo valor que el de una List<Posicion> con las mismas posiciones
+	 * en el mismo orden, sin crear las posiciones; se calcula una sola vez.
+	 * @return un número entero de 32 bit.
+	 */
+	@Override
+	public int hashCode() {
+		if (hash == 0) {
+			int result = 1;
+			for (long celda : celdas) {
+				// Posicion.hashCode().
+				result = 31 * result + (31 * (31 + fila(celda)) + columna(celda));
+			}
+			hash = result;
+		}
+		return hash;
+	}
+
+	/**
+	 * Igual que cualquier List<Posicion> con las mismas posiciones en el mismo
+	 * orden; entre distribuciones basta con comparar los vectores.
+	 * @return falso si no cumple las condiciones.
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (obj instanceof Distribucion) {
+			return celdas.length == ((Distribucion) obj).celdas.length
+					&& hashCode() == obj.hashCode()
+					&& Arrays.equals(celdas, ((Distribucion) obj).celdas);
+		}
+		return super.equals(obj);
+	}
+
+} // class
@@ -0,0 +1,285 @@
+/**
+ * Proyecto: Juego de la vida.
+ * Ejecuta lotes de simulaciones en un conjunto acotado de hilos, uno por
+ * núcleo salvo otra configuración. Cada simulación pasa de PREPARADA a
+ * INICIADA y COMPLETADA y su resultado se entrega al Receptor en cuanto
+ * termina, sin esperar al resto del lote.
+ * Si una simulación entra en un ciclo se deja de calcular: su estado al
+ * completar los ciclos se obtiene avanzando sólo el resto de la división
+ * de las generaciones pendientes entre el periodo.
+ * En la ejecución por turnos cada simulación calcula unas pocas generaciones
+ * y cede el hilo a la siguiente: pueden estar en curso muchas más simulaciones
+ * que hilos, cada una sin más coste que su estado; entre turnos el lote se 
+ * puede pausar y reanudar, y cada Mundo se puede tratar.
+ * @since: prototipo2.1
+ * @source: EjecutorLotes.java
+ * @version: 2.1 - 2019.05.25
+ * @author: ajp
+ */
+
+package modelo;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import config.Configuracion;
+import modelo.Simulacion.EstadoSimulacion;
+import modelo.motor.EjecutorFranjas;
+
+public class EjecutorLotes {
+
+	/**
+	 * Destino de los resultados. Las llamadas se serializan:
+	 * no necesita ser seguro entre hilos.
+	 */
+	public interface Receptor {
+		void recibir(ResultadoSimulacion resultado);
+	}
+
+	/**
+	 * Tratamiento del Mundo de una simulación entre un turno y el siguiente.
+	 * Se llama desde los hilos de trabajo, a la vez para simulaciones 
+	 * distintas: lo que compartan debe ser seguro entre hilos.
+	 */
+	public interface EntreTurnos {
+		void tratar(Mundo mundo);
+	}
+
+	private final ExecutorService hilos;
+	// Turnos detenidos por pausar(), a la espera de reanudar().
+	private final Queue<Turno> turnosPausados;
+	private volatile boolean pausado;
+
+	/**
+	 * Constructor convencional.
+	 * @param numeroHilos - hilos de trabajo; 0 = todos los núcleos.
+	 */
+	public EjecutorLotes(int numeroHilos) {
+		assert numeroHilos >= 0;
+		if (numeroHilos == 0) {
+			numeroHilos = Runtime.getRuntime().availableProcessors();
+		}
+		this.hilos = Executors.newFixedThreadPool(numeroHilos, tarea -> {
+			Thread hilo = new Thread(() -> {
+				// El lote ya ocupa los núcleos: cada simulación, en su hilo.
+				EjecutorFranjas.setSecuencial(true);
+				tarea.run();
+			}, "lote");
+			hilo.setDaemon(true);
+			return hilo;
+		});
+		this.turnosPausados = new ConcurrentLinkedQueue<Turno>();
+	}
+
+	/**
+	 * Constructor por defecto.
+	 * El número de hilos se obtiene de la configuración.
+	 */
+	public EjecutorLotes() {
+		this(Integer.parseInt(Configuracion.get().getProperty("simulacion.hilosLote")));
+	}
+
+	/**
+	 * Ejecuta las simulaciones PREPARADAS del lote; las demás se ignoran.
+	 * Vuelve cuando todas han terminado.
+	 * @param simulaciones - el lote; cada Mundo sólo debe pertenecer a una simulación.
+	 * @param receptor - destino de los resultados, en orden de finalización.
+	 * @throws ModeloException - si alguna simulación falla; el resto se completa.
+	 * @throws InterruptedException - si se interrumpe la espera.
+	 */
+	public void ejecutar(Collection<Simulacion> simulaciones, Receptor receptor)
+			throws ModeloException, InterruptedException {
+		assert simulaciones != null;
+		assert receptor != null;
+		List<Callable<ResultadoSimulacion>> tareas = new ArrayList<Callable<ResultadoSimulacion>>();
+		for (Simulacion simulacion : simulaciones) {
+			if (simulacion.getEstado() == EstadoSimulacion.PREPARADA) {
+				tareas.add(() -> {
+					ResultadoSimulacion resultado = ejecutar(simulacion);
+					synchronized (receptor) {
+						receptor.recibir(resultado);
+					}
+					return resultado;
+				});
+			}
+		}
+		String fallos = "";
+		for (Future<ResultadoSimulacion> futuro : hilos.invokeAll(tareas)) {
+			try {
+				futuro.get();
+			}
+			catch (ExecutionException e) {
+				fallos += " " + e.getCause();
+			}
+		}
+		if (!fallos.isEmpty()) {
+			throw new ModeloException("EjecutorLotes: simulaciones fallidas:" + fallos);
+		}
+	}
+
+	/**
+	 * Ejecuta una simulación en el hilo actual.
+	 * @param simulacion - simulación PREPARADA.
+	 * @return el resultado.
+	 */
+	public static ResultadoSimulacion ejecutar(Simulacion simulacion) {
+		SimulacionEnCurso enCurso = new SimulacionEnCurso(simulacion);
+		enCurso.avanzar(simulacion.getCiclos());
+		return enCurso.getResultado();
+	}
+
+	/**
+	 * Ejecuta por turnos las simulaciones PREPARADAS del lote; las demás se ignoran.
+	 * Los hilos de trabajo limitan cuántas calculan a la vez; entre turno y 
+	 * turno la simulación vuelve al final de la cola.
+	 * Vuelve cuando todas han terminado.
+	 * @param simulaciones - el lote; cada Mundo sólo debe pertenecer a una simulación.
+	 * @param receptor - destino de los resultados, en orden de finalización.
+	 * @param generacionesTurno - generaciones que calcula una simulación antes de ceder el hilo.
+	 * @throws ModeloException - si alguna simulación falla; el resto se completa.
+	 * @throws InterruptedException - si se interrumpe la espera.
+	 */
+	public void ejecutarPorTurnos(Collection<Simulacion> simulaciones, Receptor receptor, 
+			int generacionesTurno) throws ModeloException, InterruptedException {
+		ejecutarPorTurnos(simulaciones, receptor, generacionesTurno, mundo -> {});
+	}
+
+	/**
+	 * Ejecuta por turnos las simulaciones PREPARADAS del lote, tratando el
+	 * Mundo de cada una después de cada turno en que no termina.
+	 * @param simulaciones - el lote; cada Mundo sólo debe pertenecer a una simulación.
+	 * @param receptor - destino de los resultados, en orden de finalización.
+	 * @param generacionesTurno - generaciones que calcula una simulación antes de ceder el hilo.
+	 * @param entreTurnos - tratamiento entre turnos.
+	 * @throws ModeloException - si alguna simulación falla; el resto se completa.
+	 * @throws InterruptedException - si se interrumpe la espera.
+	 */
+	public void ejecutarPorTurnos(Collection<Simulacion> simulaciones, Receptor receptor, 
+			int generacionesTurno, EntreTurnos entreTurnos) throws ModeloException, InterruptedException {
+		assert simulaciones != null;
+		assert receptor != null;
+		assert generacionesTurno > 0;
+		assert entreTurnos != null;
+		List<Simulacion> preparadas = new ArrayList<Simulacion>();
+		for (Simulacion simulacion : simulaciones) {
+			if (simulacion.getEstado() == EstadoSimulacion.PREPARADA) {
+				preparadas.add(simulacion);
+			}
+		}
+		CountDownLatch pendientes = new CountDownLatch(preparadas.size());
+		List<String> fallos = Collections.synchronizedList(new ArrayList<String>());
+		for (Simulacion simulacion : preparadas) {
+			hilos.execute(new Turno(new SimulacionEnCurso(simulacion), receptor, 
+					generacionesTurno, entreTurnos, pendientes, fallos));
+		}
+		pendientes.await();
+		if (!fallos.isEmpty()) {
+			throw new ModeloException("EjecutorLotes: simulaciones fallidas: " + fallos);
+		}
+	}
+
+	/**
+	 * Detiene la ejecución por turnos al terminar los turnos en curso.
+	 */
+	public void pausar() {
+		pausado = true;
+	}
+
+	/**
+	 * Continúa la ejecución por turnos detenida por pausar().
+	 */
+	public void reanudar() {
+		pausado = false;
+		Turno turno;
+		while ((turno = turnosPausados.poll()) != null) {
+			hilos.execute(turno);
+		}
+	}
+
+	public boolean isPausado() {
+		return pausado;
+	}
+
+	/**
+	 * @return turnos detenidos a la espera de reanudar().
+	 */
+	int getTurnosPausados() {
+		return turnosPausados.size();
+	}
+
+	/**
+	 * Turno de cálculo de una simulación; se vuelve a encolar hasta que termina.
+	 */
+	private class Turno implements Runnable {
+
+		private final SimulacionEnCurso enCurso;
+		private final Receptor receptor;
+		private final int generacionesTurno;
+		private final EntreTurnos entreTurnos;
+		private final CountDownLatch pendientes;
+		private final List<String> fallos;
+
+		Turno(SimulacionEnCurso enCurso, Receptor receptor, int generacionesTurno,
+				EntreTurnos entreTurnos, CountDownLatch pendientes, List<String> fallos) {
+			this.enCurso = enCurso;
+			this.receptor = receptor;
+			this.generacionesTurno = generacionesTurno;
+			this.entreTurnos = entreTurnos;
+			this.pendientes = pendientes;
+			this.fallos = fallos;
+		}
+
+		@Override
+		public void run() {
+			if (pausado) {
+				turnosPausados.add(this);
+				// Si se reanudó mientras se encolaba, nadie más lo recogerá.
+				if (!pausado) {
+					reanudar();
+				}
+				return;
+			}
+			boolean terminada = true;
+			try {
+				if (!enCurso.avanzar(generacionesTurno)) {
+					entreTurnos.tratar(enCurso.getMundo());
+					// Cede el hilo: vuelve al final de la cola.
+					hilos.execute(this);
+					terminada = false;
+					return;
+				}
+				ResultadoSimulacion resultado = enCurso.getResultado();
+				synchronized (receptor) {
+					receptor.recibir(resultado);
+				}
+			}
+			catch (Throwable e) {
+				// También los Error: si no, nadie descontaría la simulación.
+				fallos.add(enCurso.getIdSimulacion() + " " + e);
+			}
+			finally {
+				if (terminada) {
+					pendientes.countDown();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Termina los hilos de trabajo; el ejecutor deja de admitir lotes.
+	 */
+	public void cerrar() {
+		hilos.shutdown();
+	}
+
+} // class
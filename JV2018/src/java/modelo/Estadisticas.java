@@ -0,0 +1,323 @@
+/**
+ * Proyecto: Juego de la vida.
+ * Resumen de una generación de un Mundo: población, nacimientos y muertes
+ * respecto a la generación anterior, y rectángulo mínimo que contiene
+ * todas las células vivas. Los motores lo obtienen como subproducto del
+ * cálculo acumulando resúmenes parciales con un Acumulador.
+ * @since: prototipo2.1
+ * @source: Estadisticas.java
+ * @version: 2.1 - 2019.05.27
+ * @author: ajp
+ */
+
+package modelo;
+
+public class Estadisticas {
+
+	private final long poblacion;
+	private final long nacimientos;
+	private final long muertes;
+	private final int filaMinima;
+	private final int filaMaxima;
+	private final int columnaMinima;
+	private final int columnaMaxima;
+
+	/**
+	 * Constructor convencional.
+	 * Sin población los límites del rectángulo son -1.
+	 */
+	public Estadisticas(long poblacion, long nacimientos, long muertes,
+			int filaMinima, int filaMaxima, int columnaMinima, int columnaMaxima) {
+		assert poblacion >= 0 && nacimientos >= 0 && muertes >= 0;
+		this.poblacion = poblacion;
+		this.nacimientos = nacimientos;
+		this.muertes = muertes;
+		this.filaMinima = filaMinima;
+		this.filaMaxima = filaMaxima;
+		this.columnaMinima = columnaMinima;
+		this.columnaMaxima = columnaMaxima;
+	}
+
+	public long getPoblacion() {
+		return poblacion;
+	}
+
+	public long getNacimientos() {
+		return nacimientos;
+	}
+
+	public long getMuertes() {
+		return muertes;
+	}
+
+	public int getFilaMinima() {
+		return filaMinima;
+	}
+
+	public int getFilaMaxima() {
+		return filaMaxima;
+	}
+
+	public int getColumnaMinima() {
+		return columnaMinima;
+	}
+
+	public int getColumnaMaxima() {
+		return columnaMaxima;
+	}
+
+	public boolean estaVacio() {
+		return poblacion == 0;
+	}
+
+	/**
+	 * Alto del rectángulo ocupado; 0 sin población.
+	 */
+	public int getAlto() {
+		return poblacion == 0 ? 0 : filaMaxima - filaMinima + 1;
+	}
+
+	/**
+	 * Ancho del rectángulo ocupado; 0 sin población.
+	 */
+	public int getAncho() {
+		return poblacion == 0 ? 0 : columnaMaxima - columnaMinima + 1;
+	}
+
+	/**
+	 * Reproduce el estado -valores de atributos- de objeto en forma de texto.
+	 * @return el texto formateado.
+	 */
+	@Override
+	public String toString() {
+		return String.format("Estadisticas [poblacion=%s, nacimientos=%s, muertes=%s, filas=%s..%s, columnas=%s..%s]",
+				poblacion, nacimientos, muertes, filaMinima, filaMaxima, columnaMinima, columnaMaxima);
+	}
+
+	/**
+	 * hashCode() complementa al método equals y sirve para comparar objetos de forma
+	 * rápida en estructuras Hash.
+	 * @return un número entero de 32 bit.
+	 */
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + Long.hashCode(poblacion);
+		result = prime * result + Long.hashCode(nacimientos);
+		result = prime * result + Long.hashCode(muertes);
+		result = prime * result + filaMinima;
+		result = prime * result + filaMaxima;
+		result = prime * result + columnaMinima;
+		result = prime * result + columnaMaxima;
+		return result;
+	}
+
+	/**
+	 * Dos objetos son iguales si:
+	 * Son de la misma clase.
+	 * Tienen los mismos valores en los atributos; o son el mismo objeto.
+	 * @return falso si no cumple las condiciones.
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (obj != null && getClass() == obj.getClass()) {
+			if (this == obj) {
+				return true;
+			}
+			Estadisticas otras = (Estadisticas) obj;
+			if (poblacion == otras.poblacion && nacimientos == otras.nacimientos
+					&& muertes == otras.muertes
+					&& filaMinima == otras.filaMinima && filaMaxima == otras.filaMaxima
+					&& columnaMinima == otras.columnaMinima && columnaMaxima == otras.columnaMaxima) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Suma resúmenes parciales -una fila, una franja o una celda- en
+	 * cualquier orden y obtiene las estadísticas del conjunto.
+	 */
+	public static class Acumulador {
+
+		private long poblacion;
+		private long nacimientos;
+		private long muertes;
+		private int filaMinima = Integer.MAX_VALUE;
+		private int filaMaxima = -1;
+		private int columnaMinima = Integer.MAX_VALUE;
+		private int columnaMaxima = -1;
+
+		/**
+		 * Añade el resumen de una región contenida en una fila.
+		 * @param fila - fila de la región.
+		 * @param columnaMinima - primera columna con célula viva; sin vivas se ignora.
+		 * @param columnaMaxima - última columna con célula viva; sin vivas se ignora.
+		 * @param poblacion - células vivas en la región.
+		 * @param nacimientos - células que han nacido en la región.
+		 * @param muertes - células que han muerto en la región.
+		 */
+		public void añadir(int fila, int columnaMinima, int columnaMaxima,
+				long poblacion, long nacimientos, long muertes) {
+			this.poblacion += poblacion;
+			this.nacimientos += nacimientos;
+			this.muertes += muertes;
+			if (poblacion > 0) {
+				this.filaMinima = Math.min(this.filaMinima, fila);
+				this.filaMaxima = Math.max(this.filaMaxima, fila);
+				this.columnaMinima = Math.min(this.columnaMinima, columnaMinima);
+				this.columnaMaxima = Math.max(this.columnaMaxima, columnaMaxima);
+			}
+		}
+
+		/**
+		 * Añade el resumen de un tramo de fila comparándolo con el mismo tramo
+		 * de la generación anterior.
+		 * @param fila - fila del tramo.
+		 * @param anterior - celdas de la generación anterior; null si no la hay.
+		 * @param inicioAnterior - posición de la primera celda en anterior.
+		 * @param actual - celdas de la generación actual; sólo 1 es viva.
+		 * @param inicioActual - posición de la primera celda en actual.
+		 * @param longitud - número de celdas; la primera es la columna 0.
+		 */
+		public void añadirFila(int fila, byte[] anterior, int inicioAnterior,
+				byte[] actual, int inicioActual, int longitud) {
+			long poblacion = 0;
+			long nacimientos = 0;
+			long muertes = 0;
+			int columnaMinima = -1;
+			int columnaMaxima = -1;
+			for (int j = 0; j < longitud; j++) {
+				// Con más de dos estados, las celdas en decadencia no están vivas.
+				int viva = actual[inicioActual + j] == 1 ? 1 : 0;
+				int vivaAntes = anterior == null ? viva : anterior[inicioAnterior + j] == 1 ? 1 : 0;
+				poblacion += viva;
+				nacimientos += viva & ~vivaAntes;
+				muertes += vivaAntes & ~viva;
+				if (viva != 0) {
+					if (columnaMinima < 0) {
+						columnaMinima = j;
+					}
+					columnaMaxima = j;
+				}
+			}
+			añadir(fila, columnaMinima, columnaMaxima, poblacion, nacimientos, muertes);
+		}
+
+		/**
+		 * Añade el resumen de una fila empaquetada en bits, 64 celdas por long
+		 * con la columna 0 en el bit menos significativo de la primera palabra.
+		 * @param fila - fila resumida.
+		 * @param anterior - palabras de la generación anterior; null si no la hay.
+		 * @param inicioAnterior - posición de la primera palabra en anterior.
+		 * @param actual - palabras de la generación actual.
+		 * @param inicioActual - posición de la primera palabra en actual.
+		 * @param palabras - número de palabras de la fila.
+		 */
+		public void añadirPalabras(int fila, long[] anterior, int inicioAnterior,
+				long[] actual, int inicioActual, int palabras) {
+			long poblacion = 0;
+			long nacimientos = 0;
+			long muertes = 0;
+			int columnaMinima = -1;
+			int columnaMaxima = -1;
+			for (int k = 0; k < palabras; k++) {
+				long viva = actual[inicioActual + k];
+				long vivaAntes = anterior == null ? viva : anterior[inicioAnterior + k];
+				poblacion += Long.bitCount(viva);
+				nacimientos += Long.bitCount(viva & ~vivaAntes);
+				muertes += Long.bitCount(vivaAntes & ~viva);
+				if (viva != 0) {
+					if (columnaMinima < 0) {
+						columnaMinima = (k << 6) + Long.numberOfTrailingZeros(viva);
+					}
+					columnaMaxima = (k << 6) + 63 - Long.numberOfLeadingZeros(viva);
+				}
+			}
+			añadir(fila, columnaMinima, columnaMaxima, poblacion, nacimientos, muertes);
+		}
+
+		/**
+		 * Añade el resumen de otro acumulador.
+		 */
+		public void añadir(Acumulador otro) {
+			poblacion += otro.poblacion;
+			nacimientos += otro.nacimientos;
+			muertes += otro.muertes;
+			if (otro.poblacion > 0) {
+				filaMinima = Math.min(filaMinima, otro.filaMinima);
+				filaMaxima = Math.max(filaMaxima, otro.filaMaxima);
+				columnaMinima = Math.min(columnaMinima, otro.columnaMinima);
+				columnaMaxima = Math.max(columnaMaxima, otro.columnaMaxima);
+			}
+		}
+
+		/**
+		 * Vuelve al estado inicial, sin nada acumulado.
+		 */
+		public void reiniciar() {
+			poblacion = 0;
+			nacimientos = 0;
+			muertes = 0;
+			filaMinima = Integer.MAX_VALUE;
+			filaMaxima = -1;
+			columnaMinima = Integer.MAX_VALUE;
+			columnaMaxima = -1;
+		}
+
+		public Estadisticas obtener() {
+			if (poblacion == 0) {
+				return new Estadisticas(0, nacimientos, muertes, -1, -1, -1, -1);
+			}
+			return new Estadisticas(poblacion, nacimientos, muertes,
+					filaMinima, filaMaxima, columnaMinima, columnaMaxima);
+		}
+	}
+
+	/**
+	 * Resúmenes por fila de un espacio, denso o empaquetado en bits. Cada 
+	 * franja de cálculo escribe sólo en sus filas, así que no necesita 
+	 * sincronizarse con las demás.
+	 */
+	public static class Filas {
+
+		private final Acumulador[] filas;
+
+		public Filas(int numeroFilas) {
+			filas = new Acumulador[numeroFilas];
+			for (int i = 0; i < numeroFilas; i++) {
+				filas[i] = new Acumulador();
+			}
+		}
+
+		/**
+		 * Sustituye el resumen de una fila; véase Acumulador.añadirFila().
+		 */
+		public void resumir(int fila, byte[] anterior, int inicioAnterior,
+				byte[] actual, int inicioActual, int longitud) {
+			filas[fila].reiniciar();
+			filas[fila].añadirFila(fila, anterior, inicioAnterior, actual, inicioActual, longitud);
+		}
+
+		/**
+		 * Sustituye el resumen de una fila empaquetada en bits; véase 
+		 * Acumulador.añadirPalabras().
+		 */
+		public void resumirPalabras(int fila, long[] anterior, int inicioAnterior,
+				long[] actual, int inicioActual, int palabras) {
+			filas[fila].reiniciar();
+			filas[fila].añadirPalabras(fila, anterior, inicioAnterior, actual, inicioActual, palabras);
+		}
+
+		public Estadisticas obtener() {
+			Acumulador total = new Acumulador();
+			for (Acumulador fila : filas) {
+				total.añadir(fila);
+			}
+			return total.obtener();
+		}
+	}
+
+} // class
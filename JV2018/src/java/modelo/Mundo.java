@@ -9,26 +9,79 @@
 
 package modelo;
 
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
 
 import config.Configuracion;
+import modelo.motor.EjecutorFranjas;
+import modelo.motor.Motor;
+import modelo.motor.MotorBits;
+import modelo.motor.MotorCeldas;
+import modelo.motor.MotorDisperso;
+import modelo.motor.MotorGeneraciones;
+import modelo.motor.MotorHalo;
+import modelo.motor.MotorHashLife;
+import modelo.motor.MotorMapeado;
+import modelo.motor.MotorVectorial;
 import util.Formato;
 
 public class Mundo implements Identificable, Serializable {
 
 	private static final long serialVersionUID = 1L;
 	private String nombre;
+	// null en un mundo disperso o mapeado: el estado sólo está en su motor.
 	private byte[][] espacio;
 	private int tamañoMundo;
+	// Una Distribucion empaquetada; los mundos guardados antes la tienen en una
+	// LinkedList, que se convierte al recuperarlos.
 	private List<Posicion> distribucion;
 	private Map<String, int[]> constantes;
 	public enum FormaEspacio { PLANO, ESFERICO }
 	private FormaEspacio tipoMundo;
+	public enum TipoMotor { REFERENCIA, BITS, HASHLIFE, DISPERSO, TESELAS, VECTORIAL, HALO, MAPEADO }
+	private TipoMotor tipoMotor;
+	private Regla regla;
+	// Fichero persistente de un mundo mapeado; null si es temporal.
+	private String ficheroMapeado;
+	private transient Motor motor;
+	private transient boolean espacioDesfasado;
+	private transient byte[][] espacioSiguiente;
+	// Copia en escritura: los clones comparten el espacio hasta que uno de
+	// los dos calcula una generación; un búfer compartido no se sobrescribe.
+	// Al escribir unas celdas sólo se copian sus filas: con filasPropias, el
+	// vector de filas es propio y las filas marcadas también.
+	private transient boolean espacioCompartido;
+	private transient boolean[] filasPropias;
+	private transient boolean siguienteCompartido;
+	private transient EjecutorFranjas.TareaFilas tareaPlano;
+	private transient EjecutorFranjas.TareaFilas tareaEsferico;
+	private transient EjecutorFranjas.TareaFilas tareaGeneraciones;
+	// Huella Zobrist del espacio; el motor de referencia la mantiene
+	// incrementalmente, acumulando por filas las celdas que cambian.
+	private transient long huella;
+	private transient boolean huellaValida;
+	private transient long[] cambiosFilas;
+	// Estadísticas: el motor de referencia resume cada fila al calcularla;
+	// espacioSiguiente guarda la generación anterior si hayAnterior.
+	private transient boolean estadisticasSeguidas;
+	private transient Estadisticas.Filas resumenFilas;
+	private transient boolean hayAnterior;
+	// Flujo de cambios por generación, sólo si hay suscriptores.
+	private transient SubmissionPublisher<CambiosGeneracion> publicadorCambios;
+	private transient long generacionCambios;
 
 	public Mundo(String nombre, byte[][] espacio, 
 			List distribucion, Map constantes, FormaEspacio tipoMundo) throws ModeloException {
@@ -37,30 +90,120 @@ public class Mundo implements Identificable, Serializable {
 		setDistribucion(distribucion);
 		setConstantes(constantes);
 		setTipoMundo(tipoMundo);
+		setTipoMotor(TipoMotor.REFERENCIA);
 		
 		establecerTamañoMundo();	
 		establecerLeyes();
 	}
 
+	/**
+	 * Constructor de un mundo disperso, sin espacio denso: el estado sólo lo
+	 * guarda el motor DISPERSO, según la población y no según el área, así
+	 * que admite lados de cientos de miles de celdas. Si las leyes no las 
+	 * admite ese motor, se forma el espacio denso.
+	 * @param nombre
+	 * @param tamaño - lado del espacio, mayor que 0.
+	 * @param distribucion - posiciones de las células vivas, dentro del espacio.
+	 * @param constantes - leyes del mundo.
+	 * @param tipoMundo - forma del espacio.
+	 * @throws ModeloException - si el tamaño, el nombre o las leyes no son válidos.
+	 */
+	public Mundo(String nombre, int tamaño, 
+			List<Posicion> distribucion, Map<String, int[]> constantes, FormaEspacio tipoMundo) throws ModeloException {
+		assert tipoMundo != null;
+		if (tamaño <= 0) {
+			throw new ModeloException("Mundo: el tamaño ha de ser mayor que 0.");
+		}
+		setNombre(nombre);
+		this.tamañoMundo = tamaño;
+		setConstantes(constantes);
+		this.tipoMundo = tipoMundo;
+		this.tipoMotor = TipoMotor.DISPERSO;
+		establecerLeyes();
+		setDistribucion(distribucion);
+	}
+
+	/**
+	 * Constructor de un mundo mapeado, sin espacio denso: el estado sólo lo
+	 * guarda el motor MAPEADO en el fichero indicado, fuera del montón, y el
+	 * fichero es el estado persistente del mundo. Si ya contiene un mundo del
+	 * mismo tamaño, forma y leyes, se continúa desde el estado en que quedó;
+	 * si no existe, se crea con el espacio vacío. Las células se añaden con
+	 * estampar(). La distribución inicial queda vacía.
+	 * @param nombre
+	 * @param fichero - fichero del mundo; no lo comparten sus clones.
+	 * @param tamaño - lado del espacio.
+	 * @param constantes - leyes del mundo, de dos estados.
+	 * @param tipoMundo - forma del espacio.
+	 * @throws ModeloException - si el nombre o las leyes no son válidos o el 
+	 * fichero contiene otro mundo.
+	 */
+	public Mundo(String nombre, Path fichero, int tamaño, 
+			Map<String, int[]> constantes, FormaEspacio tipoMundo) throws ModeloException {
+		assert fichero != null;
+		assert tamaño >= 0;
+		assert tipoMundo != null;
+		setNombre(nombre);
+		this.tamañoMundo = tamaño;
+		setConstantes(constantes);
+		this.tipoMundo = tipoMundo;
+		this.tipoMotor = TipoMotor.MAPEADO;
+		establecerLeyes();
+		if (regla.getEstados() > 2) {
+			throw new ModeloException("Mundo: el motor MAPEADO sólo admite leyes de dos estados.");
+		}
+		this.distribucion = new Distribucion(new long[0]);
+		this.ficheroMapeado = fichero.toString();
+		abrirMapeado();
+	}
+
 	public Mundo() throws ModeloException {	
 		this(Configuracion.get().getProperty("mundo.nombrePredeterminado"), 
 				new byte[Integer.parseInt(Configuracion.get().getProperty("mundo.sizePredeterminado"))]
 						[Integer.parseInt(Configuracion.get().getProperty("mundo.sizePredeterminado"))], 
-				new LinkedList<Posicion>(), 
+				new Distribucion(new long[0]), 
 				new HashMap<String, int[]>(), 
 				FormaEspacio.PLANO
 		);
+		setTipoMotor(TipoMotor.valueOf(Configuracion.get().getProperty("mundo.motorPredeterminado")));
+		setRegla(new Regla(Configuracion.get().getProperty("mundo.reglaPredeterminada")));
 	}
 
+	/**
+	 * Constructor copia. El clon comparte el espacio con el original, sin 
+	 * copiarlo: el primero de los dos que calcula una generación la escribe 
+	 * en un búfer propio, y al estampar células sólo se copian las filas que
+	 * cambian. Con BITS y TESELAS comparte también el estado empaquetado del
+	 * motor, que va por delante del espacio, sin volcarlo ni volver a
+	 * cargarlo; con los demás motores el original vuelca antes su estado en
+	 * el espacio, en un recorrido entero, y el clon carga el suyo al calcular.
+	 * La distribución es inmutable y también se comparte.
+	 * @param mundo - el original, en su estado actual.
+	 */
 	public Mundo(Mundo mundo) {
-		this.nombre = new String(mundo.nombre);
-		this.espacio = mundo.espacio.clone();
-		setDistribucion(new LinkedList<Posicion>(mundo.distribucion));
+		Motor copia = mundo.motor == null || mundo.espacio == null ? null : mundo.motor.copiar();
+		if (copia == null) {
+			mundo.sincronizarEspacio();
+		}
+		this.nombre = mundo.nombre;
+		this.tamañoMundo = mundo.tamañoMundo;
+		this.espacio = mundo.espacio;
+		this.espacioCompartido = true;
+		mundo.espacioCompartido = true;
+		mundo.filasPropias = null;
+		this.motor = copia;
+		this.espacioDesfasado = copia != null && mundo.espacioDesfasado;
+		this.distribucion = Distribucion.de(mundo.distribucion);
 		this.constantes = new HashMap<String, int[]>(mundo.constantes);
 		this.tipoMundo = mundo.tipoMundo;
-		
-		establecerTamañoMundo();	
-		establecerLeyes();
+		this.tipoMotor = mundo.tipoMotor;
+		this.regla = mundo.obtenerRegla();
+		if (mundo.espacio == null) {
+			// Un motor propio, con las mismas células; el mapeado, en un temporal.
+			cargarCelulas(mundo.celulasMotor());
+		}
+		this.huella = mundo.huella;
+		this.huellaValida = mundo.huellaValida;
 	}
 	
 	public void setNombre(String nombre) throws ModeloException {	
@@ -103,14 +246,49 @@ public class Mundo implements Identificable, Serializable {
 		return tamañoMundo;
 	}
 	
+	public TipoMotor getTipoMotor() {
+		return tipoMotor == null ? TipoMotor.REFERENCIA : tipoMotor;
+	}
+	
 	public void setTipoMundo(FormaEspacio tipoMundo) {
 		assert tipoMundo != null;
+		long[] vivas = celulasMotor();
+		sincronizarEspacio();
 		this.tipoMundo = tipoMundo;
+		recolocarCelulas(vivas);
+	}
+	
+	/**
+	 * Selecciona el motor de cálculo de generaciones.
+	 * El estado actual se conserva al cambiar de motor. Con DISPERSO el
+	 * mundo deja de guardar el espacio denso; con otro motor, lo forma.
+	 * @param tipoMotor
+	 */
+	public void setTipoMotor(TipoMotor tipoMotor) {
+		assert tipoMotor != null;
+		long[] vivas = celulasMotor();
+		sincronizarEspacio();
+		this.tipoMotor = tipoMotor;
+		recolocarCelulas(vivas);
 	}
 	
+	/**
+	 * Establece el estado del espacio. 
+	 * La matriz recibida no se copia: se trata como compartida, así que el
+	 * Mundo nunca escribe en ella y la primera generación se calcula en un
+	 * búfer propio. Quien la entrega no debe modificarla después.
+	 * @param espacio
+	 */
 	public void setEspacio(byte[][] espacio) {
 		assert espacio != null;
 		this.espacio = espacio;
+		espacioCompartido = true;
+		filasPropias = null;
+		establecerTamañoMundo();
+		espacioDesfasado = false;
+		huellaValida = false;
+		olvidarResumen();
+		recolocarCelulas(null);
 	}
 	
 	private void setConstantes(Map constantes) {
@@ -118,52 +296,561 @@ public class Mundo implements Identificable, Serializable {
 		this.constantes = constantes;	
 	}
 	
+	/**
+	 * Establece la distribución inicial de células vivas y la carga en el espacio.
+	 * Se guarda empaquetada; la lista recibida no se conserva.
+	 * @param distribucion - posiciones de las células vivas.
+	 */
 	public void setDistribucion(List distribucion) {
 		assert distribucion != null;
-		this.distribucion = distribucion;
+		@SuppressWarnings("unchecked")
+		Collection<Posicion> posiciones = (Collection<Posicion>) distribucion;
+		this.distribucion = Distribucion.de(posiciones);
 		cargarDistribucion();
 	}
-	private void establecerLeyes() {
-		constantes.put("ValoresSobrevivir", new int[] {2, 3});
-		constantes.put("ValoresRenacer", new int[] {3});
+	
+	/**
+	 * Obtiene la distribución inicial de células vivas.
+	 * @return una lista inmutable de posiciones, ordenadas por filas.
+	 */
+	public List<Posicion> getDistribucion() {
+		return distribucion;
+	}
+	
+	/**
+	 * Obtiene las células vivas del estado actual.
+	 * @return una distribución nueva, ordenada por filas.
+	 */
+	public Distribucion getCelulasVivas() {
+		if (espacio == null) {
+			return new Distribucion(celulasMotor());
+		}
+		sincronizarEspacio();
+		return Distribucion.extraer(espacio);
 	}
 	
+	/**
+	 * Compila las leyes recibidas en constantes; si no se recibieron
+	 * establece las de Conway (B3/S23). 
+	 * @throws ModeloException - si las leyes recibidas no son válidas.
+	 */
+	private void establecerLeyes() throws ModeloException {
+		if (!constantes.containsKey("ValoresRenacer") || !constantes.containsKey("ValoresSobrevivir")) {
+			constantes.put("ValoresSobrevivir", new int[] {2, 3});
+			constantes.put("ValoresRenacer", new int[] {3});
+		}
+		// Se compilan una sola vez, al establecerlas.
+		regla = compilarRegla();
+	}
+	
+	/**
+	 * Compila las leyes de constantes; "Estados" sólo está en las de más de dos.
+	 * @return la regla.
+	 * @throws ModeloException - si las leyes no son válidas.
+	 */
+	private Regla compilarRegla() throws ModeloException {
+		int[] estados = constantes.get("Estados");
+		return new Regla(constantes.get("ValoresRenacer"), constantes.get("ValoresSobrevivir"), 
+				estados == null ? 2 : estados[0]);
+	}
+	
+	/**
+	 * Obtiene las leyes compiladas; los mundos guardados antes de 
+	 * persistir la regla la obtienen de constantes.
+	 * @return la regla.
+	 */
+	private Regla obtenerRegla() {
+		if (regla == null) {
+			try {
+				regla = compilarRegla();
+			} 
+			catch (ModeloException e) {
+				throw new IllegalStateException("Mundo: leyes no válidas " + e.getMessage());
+			}
+		}
+		return regla;
+	}
+	
+	public Regla getRegla() {
+		return obtenerRegla();
+	}
+	
+	/**
+	 * Establece las leyes del mundo; se mantienen también en constantes.
+	 * El estado actual se conserva, salvo las celdas en estados de
+	 * decadencia que las nuevas leyes no tienen, que pasan a estar muertas.
+	 * @param regla
+	 */
+	public void setRegla(Regla regla) {
+		assert regla != null;
+		long[] vivas = celulasMotor();
+		sincronizarEspacio();
+		if (espacio != null && obtenerRegla().getEstados() > regla.getEstados()) {
+			descartarEstados(regla.getEstados());
+		}
+		this.regla = regla;
+		constantes.put("ValoresRenacer", regla.getValoresRenacer());
+		constantes.put("ValoresSobrevivir", regla.getValoresSobrevivir());
+		if (regla.getEstados() > 2) {
+			constantes.put("Estados", new int[] {regla.getEstados()});
+		}
+		else {
+			constantes.remove("Estados");
+		}
+		recolocarCelulas(vivas);
+	}
+	
+	/**
+	 * Deja muertas las celdas en estados que no llegan a existir con menos
+	 * estados; las filas compartidas con un clon se copian antes de escribir.
+	 * @param estados - estados de las nuevas leyes.
+	 */
+	private void descartarEstados(int estados) {
+		boolean cambiado = false;
+		for (int i = 0; i < espacio.length; i++) {
+			for (int j = 0; j < espacio[i].length; j++) {
+				if ((espacio[i][j] & 0xFF) >= estados) {
+					copiarFilaCompartida(i);
+					cambiado = true;
+					espacio[i][j] = 0;
+				}
+			}
+		}
+		if (cambiado) {
+			huellaValida = false;
+			olvidarResumen();
+		}
+	}
+	
+	/**
+	 * Antes de escribir en una fila del espacio: si es compartida con un
+	 * clon, se copia sólo esa fila; el vector de filas, la primera vez.
+	 * @param fila - la fila que se va a escribir.
+	 */
+	private void copiarFilaCompartida(int fila) {
+		if (espacioCompartido) {
+			espacio = espacio.clone();
+			filasPropias = new boolean[espacio.length];
+			espacioCompartido = false;
+		}
+		if (filasPropias != null && !filasPropias[fila]) {
+			espacio[fila] = espacio[fila].clone();
+			filasPropias[fila] = true;
+		}
+	}
+
+	/**
+	 * Indica si una fila del espacio puede estar compartida con un clon.
+	 * @param fila
+	 * @return true si escribir en ella obligaría a copiarla.
+	 */
+	boolean filaCompartida(int fila) {
+		return espacioCompartido || filasPropias != null && !filasPropias[fila];
+	}
+
+	/**
+	 * Hace vivas unas células en el estado actual, en el sitio, sin formar
+	 * otro espacio. Los motores disperso y mapeado las reciben directamente;
+	 * con los demás se recoge antes su estado y se vuelve a cargar en el 
+	 * siguiente cálculo.
+	 * La huella, si se sigue, se actualiza con las celdas que cambian.
+	 * @param celdas - células empaquetadas, relativas a la esquina.
+	 * @param fila - fila de la esquina; las que caen fuera se descartan.
+	 * @param columna - columna de la esquina.
+	 * @return el número de células que caen dentro del espacio.
+	 */
+	public int estampar(Distribucion celdas, int fila, int columna) {
+		assert celdas != null;
+		int estampadas = 0;
+		if (espacio == null) {
+			MotorCeldas motorCeldas = (MotorCeldas) motor;
+			for (int k = 0; k < celdas.size(); k++) {
+				long i = (long) fila + Distribucion.fila(celdas.getCelda(k));
+				long j = (long) columna + Distribucion.columna(celdas.getCelda(k));
+				if (i >= 0 && i < tamañoMundo && j >= 0 && j < tamañoMundo) {
+					motorCeldas.añadir((int) i, (int) j);
+					estampadas++;
+				}
+			}
+			huellaValida = false;
+			return estampadas;
+		}
+		sincronizarEspacio();
+		descartarMotor();
+		for (int k = 0; k < celdas.size(); k++) {
+			long i = (long) fila + Distribucion.fila(celdas.getCelda(k));
+			long j = (long) columna + Distribucion.columna(celdas.getCelda(k));
+			if (i >= 0 && i < tamañoMundo && j >= 0 && j < tamañoMundo) {
+				int estado = espacio[(int) i][(int) j] & 0xFF;
+				if (estado != 1) {
+					copiarFilaCompartida((int) i);
+					if (huellaValida) {
+						huella ^= claveZobrist((int) i, (int) j, estado) ^ claveZobrist((int) i, (int) j, 1);
+					}
+					espacio[(int) i][(int) j] = 1;
+				}
+				estampadas++;
+			}
+		}
+		olvidarResumen();
+		return estampadas;
+	}
+
 	private void cargarDistribucion() {
-		espacio = new byte[tamañoMundo][tamañoMundo];
-		for(Posicion pos : distribucion) {
-			espacio[pos.getX()][pos.getY()] = 1;
-		}	
+		cargarCelulas(Distribucion.de(distribucion).getCeldas());
 	}
 
 	private void extraerDistribucion() {
-		for (int i=0; i < espacio.length; i++) {
-			for (int j=0; i < espacio.length; j++) {
-				if(espacio[i][j] == 1) {	
-					distribucion.add(new Posicion(i, j));
-					tamañoMundo = i;
-				}
-			}	
+		distribucion = getCelulasVivas();
+	}
+
+	/**
+	 * Establece como estado unas células vivas: sólo en el motor disperso o
+	 * en el mapeado, si está seleccionado y admite las leyes, o en un 
+	 * espacio denso nuevo. Un mundo mapeado persistente sustituye el 
+	 * contenido de su fichero.
+	 * @param celdas - células empaquetadas como en Distribucion.
+	 */
+	private void cargarCelulas(long[] celdas) {
+		espacioDesfasado = false;
+		huellaValida = false;
+		olvidarResumen();
+		descartarMotor();
+		espacioCompartido = false;
+		filasPropias = null;
+		if (estadoEnMotor()) {
+			espacio = null;
+			MotorCeldas motorCeldas;
+			if (getTipoMotor() == TipoMotor.DISPERSO) {
+				motorCeldas = new MotorDisperso(tamañoMundo, tipoMundo, obtenerRegla());
+			}
+			else if (ficheroMapeado == null) {
+				motorCeldas = MotorMapeado.temporal(tamañoMundo, tipoMundo, obtenerRegla());
+			}
+			else {
+				motorCeldas = MotorMapeado.nuevo(Paths.get(ficheroMapeado), tamañoMundo, tipoMundo, obtenerRegla());
+			}
+			for (long celda : celdas) {
+				motorCeldas.añadir(Distribucion.fila(celda), Distribucion.columna(celda));
+			}
+			motor = motorCeldas;
+			return;
+		}
+		espacio = new byte[tamañoMundo][tamañoMundo];
+		for (long celda : celdas) {
+			espacio[Distribucion.fila(celda)][Distribucion.columna(celda)] = 1;
 		}
 	}
+
+	/**
+	 * Indica si el estado se guarda sólo en el motor: DISPERSO o MAPEADO 
+	 * está seleccionado y admite las leyes, que han de ser de dos estados.
+	 */
+	private boolean estadoEnMotor() {
+		return (getTipoMotor() == TipoMotor.MAPEADO
+				|| getTipoMotor() == TipoMotor.DISPERSO && MotorDisperso.admite(obtenerRegla()))
+				&& obtenerRegla().getEstados() == 2;
+	}
+
+	/**
+	 * Obtiene las células de un mundo disperso o mapeado, empaquetadas como en Distribucion.
+	 * @return las células en orden no especificado; null si hay espacio denso.
+	 */
+	private long[] celulasMotor() {
+		return espacio == null ? ((MotorCeldas) motor).getVivas() : null;
+	}
+
+	/**
+	 * Abre el fichero de un mundo mapeado persistente en el estado en que quedó.
+	 * @throws ModeloException - si el fichero contiene otro mundo.
+	 */
+	private void abrirMapeado() throws ModeloException {
+		try {
+			motor = new MotorMapeado(Paths.get(ficheroMapeado), tamañoMundo, tipoMundo, obtenerRegla());
+		}
+		catch (IllegalArgumentException e) {
+			throw new ModeloException("Mundo: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Tras cambiar la forma, el motor o las leyes, descarta el motor y deja
+	 * el estado en el motor disperso o mapeado o en el espacio denso, según corresponda.
+	 * @param vivas - células del mundo sin espacio denso anteriores al cambio; 
+	 * null si el estado está en el espacio denso.
+	 */
+	private void recolocarCelulas(long[] vivas) {
+		descartarMotor();
+		if (vivas != null) {
+			cargarCelulas(vivas);
+		}
+		else if (estadoEnMotor()) {
+			cargarCelulas(Distribucion.extraer(espacio).getCeldas());
+		}
+	}
+
+	/**
+	 * Obtiene el espacio denso del estado actual; el de un mundo disperso 
+	 * o mapeado se forma sólo para la consulta.
+	 */
+	private byte[][] obtenerEspacio() {
+		if (espacio == null) {
+			return motor.volcar();
+		}
+		sincronizarEspacio();
+		return espacio;
+	}
 	
 	private void establecerTamañoMundo() {
 		this.tamañoMundo = espacio.length;
 	}
 	
+	/**
+	 * Obtiene el motor activo; lo crea y carga con el espacio actual si no existe.
+	 * @return el motor.
+	 */
+	private Motor obtenerMotor() {
+		if (motor == null) {
+			motor = crearMotor();
+			motor.cargar(espacio);
+			if (estadisticasSeguidas) {
+				motor.seguirEstadisticas();
+			}
+		}
+		return motor;
+	}
+	
+	/**
+	 * Descarta el motor activo, si lo hay, liberando sus recursos externos;
+	 * el siguiente cálculo crea uno nuevo con el espacio actual.
+	 */
+	private void descartarMotor() {
+		if (motor != null) {
+			motor.cerrar();
+			motor = null;
+		}
+	}
+	
+	/**
+	 * Crea el motor seleccionado para la forma, tamaño y leyes actuales.
+	 * HASHLIFE reproduce cualquier forma y tamaño, con pared alrededor del
+	 * plano o un mosaico de copias del esférico; ni HASHLIFE ni DISPERSO
+	 * admiten nacimiento sin vecinas. En otro caso se utiliza BITS.
+	 * TESELAS es BITS recalculando sólo las teselas activas. DISPERSO, cuando
+	 * admite las leyes, y MAPEADO no llegan aquí: los crea cargarCelulas() y
+	 * guardan ellos solos el estado, sin espacio denso. MAPEADO calcula sobre
+	 * el fichero del mundo o, si no tiene, sobre un temporal que se borra al
+	 * descartar el motor; el tamaño del mundo no lo limita el montón.
+	 * Las leyes de más de dos estados sólo las calcula MotorGeneraciones,
+	 * sea cual sea el tipo seleccionado.
+	 * @return el motor sin cargar.
+	 */
+	private Motor crearMotor() {
+		Regla regla = obtenerRegla();
+		if (regla.getEstados() > 2) {
+			return new MotorGeneraciones(tamañoMundo, tipoMundo, regla);
+		}
+		switch (getTipoMotor()) {
+		case HASHLIFE:
+			if (MotorHashLife.admite(tamañoMundo, tipoMundo, regla)) {
+				return new MotorHashLife(tamañoMundo, tipoMundo, regla,
+						Integer.parseInt(Configuracion.get().getProperty("mundo.nodosHashLife")));
+			}
+			break;
+		case DISPERSO:
+			if (MotorDisperso.admite(regla)) {
+				return new MotorDisperso(tamañoMundo, tipoMundo, regla);
+			}
+			break;
+		case TESELAS:
+			return new MotorBits(tamañoMundo, tipoMundo, regla, true);
+		case VECTORIAL:
+			return new MotorVectorial(tamañoMundo, tipoMundo, regla);
+		case HALO:
+			return new MotorHalo(tamañoMundo, tipoMundo, regla);
+		default:
+			break;
+		}
+		return new MotorBits(tamañoMundo, tipoMundo, regla);
+	}
+	
+	/**
+	 * Recoge en espacio el estado calculado por el motor, si va por delante.
+	 */
+	private void sincronizarEspacio() {
+		if (espacioDesfasado) {
+			espacio = motor.volcar();
+			espacioCompartido = false;
+			filasPropias = null;
+			espacioDesfasado = false;
+			olvidarResumen();
+		}
+	}
+	
+	/**
+	 * Sincroniza el espacio antes de la serialización por defecto; un mundo
+	 * disperso, o mapeado en un temporal, añade a continuación sus células
+	 * vivas. Del mapeado persistente sólo se guarda el nombre del fichero,
+	 * que se escribe antes en el disco.
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		sincronizarEspacio();
+		out.defaultWriteObject();
+		if (espacio == null) {
+			if (ficheroMapeado == null) {
+				out.writeObject(getCelulasVivas());
+			}
+			else {
+				((MotorMapeado) motor).guardar();
+			}
+		}
+	}
+	
+	/**
+	 * Un mundo disperso, sin espacio, recupera sus células en su motor; 
+	 * uno mapeado persistente vuelve a abrir su fichero.
+	 * La distribución de un mundo guardado antes de empaquetarla se empaqueta:
+	 * los clones la comparten y no debe ser una lista modificable.
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		if (distribucion != null) {
+			distribucion = Distribucion.de(distribucion);
+		}
+		if (espacio == null) {
+			if (ficheroMapeado == null) {
+				cargarCelulas(((Distribucion) in.readObject()).getCeldas());
+			}
+			else {
+				try {
+					abrirMapeado();
+				}
+				catch (ModeloException e) {
+					throw new InvalidObjectException(e.getMessage());
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Obtiene la huella Zobrist del estado actual: el XOR de las claves de
+	 * las celdas vivas o en decadencia. Dos estados iguales tienen la misma huella y el
+	 * espacio vacío tiene huella 0; con 64 bits, la coincidencia de dos 
+	 * estados distintos es despreciable.
+	 * La primera consulta la calcula entera; después el motor de referencia 
+	 * la actualiza con las celdas que cambian y los demás motores la 
+	 * mantienen con las palabras que cambian en cada generación.
+	 * @return la huella.
+	 */
+	public long getHuella() {
+		if (!huellaValida) {
+			huella = espacio == null || espacioDesfasado ? motor.getHuella() : calcularHuella(espacio);
+			huellaValida = true;
+		}
+		return huella;
+	}
+	
+	/**
+	 * Obtiene las estadísticas de la última generación: población, nacimientos,
+	 * muertes y rectángulo ocupado. Desde la primera consulta, el motor las 
+	 * mantiene como subproducto del cálculo, sin recorrer de nuevo el espacio.
+	 * Sin generación previa no hay nacimientos ni muertes.
+	 * @return las estadísticas.
+	 */
+	public Estadisticas getEstadisticas() {
+		estadisticasSeguidas = true;
+		if (getTipoMotor() != TipoMotor.REFERENCIA) {
+			Motor motor = obtenerMotor();
+			motor.seguirEstadisticas();
+			return motor.getEstadisticas();
+		}
+		if (resumenFilas == null) {
+			resumenFilas = new Estadisticas.Filas(espacio.length);
+			for (int i = 0; i < espacio.length; i++) {
+				resumenFilas.resumir(i, hayAnterior ? espacioSiguiente[i] : null, 0, 
+						espacio[i], 0, espacio.length);
+			}
+		}
+		return resumenFilas.obtener();
+	}
+	
+	/**
+	 * El espacio ha cambiado fuera del motor de referencia: los resúmenes por
+	 * fila y la generación anterior dejan de valer.
+	 */
+	private void olvidarResumen() {
+		resumenFilas = null;
+		hayAnterior = false;
+	}
+	
+	/**
+	 * Clave pseudoaleatoria de una celda; se genera al vuelo con el
+	 * mezclador de SplitMix64 en lugar de guardar una tabla por celda.
+	 * @param fila
+	 * @param col
+	 * @return la clave de 64 bits.
+	 */
+	public static long claveZobrist(int fila, int col) {
+		return mezclar(((long) fila << 32) | (col & 0xFFFFFFFFL));
+	}
+	
+	/**
+	 * Clave de una celda en un estado; la de una viva es claveZobrist(fila, col)
+	 * y cada estado de decadencia tiene la suya.
+	 * @param fila
+	 * @param col
+	 * @param estado - 0 muerta, 1 viva, 2 en adelante en decadencia.
+	 * @return la clave de 64 bits; 0 si está muerta.
+	 */
+	public static long claveZobrist(int fila, int col, int estado) {
+		if (estado <= 1) {
+			return estado == 0 ? 0 : claveZobrist(fila, col);
+		}
+		return mezclar((((long) fila << 32) | (col & 0xFFFFFFFFL)) + (estado - 1) * 0xD1B54A32D192ED03L);
+	}
+	
+	/**
+	 * Calcula entera la huella Zobrist de un espacio denso.
+	 * @param espacio
+	 * @return el XOR de las claves de las celdas no muertas.
+	 */
+	public static long calcularHuella(byte[][] espacio) {
+		long huella = 0;
+		for (int i = 0; i < espacio.length; i++) {
+			for (int j = 0; j < espacio[i].length; j++) {
+				if (espacio[i][j] != 0) {
+					huella ^= claveZobrist(i, j, espacio[i][j] & 0xFF);
+				}
+			}
+		}
+		return huella;
+	}
+	
+	private static long mezclar(long x) {
+		// Como en SplitMix64, se suma la constante antes de mezclar: 
+		// sin ella la celda (0, 0) tendría clave 0.
+		long z = (x + 0x9E3779B97F4A7C15L) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+	
 	/**
 	 * hashCode() complementa al método equals y sirve para comparar objetos de forma 
 	 * rápida en estructuras Hash. 
 	 * Cuando Java compara dos objetos en estructuras de tipo hash (HashMap, HashSet etc)
 	 * primero invoca al método hashcode y luego el equals.
+	 * El espacio aporta su huella Zobrist, que se mantiene al actualizarlo: 
+	 * sin cambios desde la última consulta no se recorre.
 	 * @return un número entero de 32 bit.
 	 */
 	@Override
 	public int hashCode() {
 		final int prime = 31;
 		int result = 1;
-		result = prime * result + ((constantes == null) ? 0 : constantes.hashCode());
+		result = prime * result + ((constantes == null) ? 0 : hashConstantes());
 		result = prime * result + ((distribucion == null) ? 0 : distribucion.hashCode());
-		result = prime * result + Arrays.deepHashCode(espacio);
+		result = prime * result + Long.hashCode(getHuella());
 		result = prime * result + ((nombre == null) ? 0 : nombre.hashCode());
 		result = prime * result + tamañoMundo;
 		result = prime * result + ((tipoMundo == null) ? 0 : tipoMundo.hashCode());
@@ -182,12 +869,21 @@ public class Mundo implements Identificable, Serializable {
 			if (this == obj) {
 				return true;
 			}
-			if (nombre.equals(((Mundo)obj).nombre) 
-					&& Arrays.deepEquals(espacio, ((Mundo)obj).espacio)
-					&& tamañoMundo == ((Mundo)obj).tamañoMundo
-					&& distribucion.equals(((Mundo)obj).distribucion)
-					&& constantes.equals(((Mundo)obj).constantes)
-					&& tipoMundo.equals(((Mundo)obj).tipoMundo)
+			// Primero lo que se compara sin recorrer el espacio: con huellas
+			// distintas los espacios son distintos.
+			if (tamañoMundo != ((Mundo)obj).tamañoMundo
+					|| !tipoMundo.equals(((Mundo)obj).tipoMundo)
+					|| !nombre.equals(((Mundo)obj).nombre)
+					|| getHuella() != ((Mundo)obj).getHuella()) {
+				return false;
+			}
+			sincronizarEspacio();
+			((Mundo)obj).sincronizarEspacio();
+			if (distribucion.equals(((Mundo)obj).distribucion)
+					&& constantesIguales(((Mundo)obj).constantes)
+					&& (espacio == null || ((Mundo)obj).espacio == null
+							? getCelulasVivas().equals(((Mundo)obj).getCelulasVivas())
+							: Arrays.deepEquals(espacio, ((Mundo)obj).espacio))
 					) {
 				return true;
 			}
@@ -196,7 +892,31 @@ public class Mundo implements Identificable, Serializable {
 	}
 
 	/**
-	 * Genera un clon del propio objeto realizando una copia profunda.
+	 * Las constantes son vectores: se comparan y resumen por su contenido,
+	 * no por identidad como haría Map.equals().
+	 */
+	private boolean constantesIguales(Map<String, int[]> otras) {
+		if (constantes.size() != otras.size()) {
+			return false;
+		}
+		for (Map.Entry<String, int[]> constante : constantes.entrySet()) {
+			if (!Arrays.equals(constante.getValue(), otras.get(constante.getKey()))) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private int hashConstantes() {
+		int result = 0;
+		for (Map.Entry<String, int[]> constante : constantes.entrySet()) {
+			result += constante.getKey().hashCode() ^ Arrays.hashCode(constante.getValue());
+		}
+		return result;
+	}
+
+	/**
+	 * Genera un clon del propio objeto; el espacio se copia en escritura.
 	 * @return el objeto clonado.
 	 */
 	@Override
@@ -210,10 +930,11 @@ public class Mundo implements Identificable, Serializable {
 	 * a una generación del Juego de la vida.
 	 */
 	public String toStringEstadoMundo() {	
+		byte[][] espacio = obtenerEspacio();
 		StringBuilder salida = new StringBuilder();	
 		for (int i = 0; i < espacio.length; i++) {
 			for (int j = 0; j < espacio.length; j++) {		
-				salida.append(espacio[i][j] == 1 ? "|o" : "| ");
+				salida.append(espacio[i][j] == 1 ? "|o" : espacio[i][j] == 0 ? "| " : "|.");
 			}
 			salida.append("|\n");
 		}
@@ -222,9 +943,47 @@ public class Mundo implements Identificable, Serializable {
 
 	/**
 	 * Actualiza el estado del Juego de la Vida.
-	 * Actualiza según la configuración establecida para la forma del espacio.
+	 * Actualiza según la configuración establecida para la forma del espacio,
+	 * con el motor seleccionado; REFERENCIA utiliza el cálculo celda a celda sobre espacio.
+	 * En las leyes de más de dos estados las celdas en decadencia guardan 
+	 * su estado, de 2 a C-1, en el mismo byte.
 	 */
 	public void actualizarMundo() {
+		if (publicadorCambios == null) {
+			calcularGeneracion();
+			return;
+		}
+		CambiosGeneracion cambios;
+		if (getTipoMotor() != TipoMotor.REFERENCIA) {
+			calcularGeneracion();
+			// El motor compara con la generación anterior que conserva.
+			cambios = obtenerMotor().getCambios(++generacionCambios);
+		}
+		else {
+			sincronizarEspacio();
+			byte[][] anterior = espacio;
+			calcularGeneracion();
+			cambios = CambiosGeneracion.diferencia(++generacionCambios, 
+					obtenerRegla().getEstados(), anterior, espacio);
+		}
+		// Bloquea mientras algún suscriptor tenga lleno su búfer.
+		publicadorCambios.submit(cambios);
+	}
+
+	/**
+	 * Calcula la siguiente generación con el motor seleccionado.
+	 */
+	private void calcularGeneracion() {
+		if (getTipoMotor() != TipoMotor.REFERENCIA) {
+			obtenerMotor().actualizar();
+			espacioDesfasado = espacio != null;
+			huellaValida = false;
+			return;
+		}
+		if (obtenerRegla().getEstados() > 2) {
+			actualizarMundoGeneraciones();
+			return;
+		}
 		if (tipoMundo == FormaEspacio.PLANO) {
 			actualizarMundoPlano();
 		}
@@ -233,15 +992,148 @@ public class Mundo implements Identificable, Serializable {
 		}
 	}
 
+	/**
+	 * Suscribe un observador a los cambios de cada generación -nacimientos y
+	 * muertes codificados- a partir de la siguiente. Cada suscriptor pide los
+	 * que puede procesar; si su búfer se llena, el cálculo espera.
+	 * Aplicados sobre el espacio actual, los cambios reproducen la simulación,
+	 * también la decadencia de las leyes de más de dos estados.
+	 * @param suscriptor - observador de los cambios.
+	 */
+	public void suscribirCambios(Flow.Subscriber<? super CambiosGeneracion> suscriptor) {
+		assert suscriptor != null;
+		if (publicadorCambios == null) {
+			publicadorCambios = new SubmissionPublisher<CambiosGeneracion>(
+					ForkJoinPool.commonPool(), 
+					Integer.parseInt(Configuracion.get().getProperty("simulacion.bufferCambios")));
+			generacionCambios = 0;
+		}
+		publicadorCambios.subscribe(suscriptor);
+	}
+
+	/**
+	 * Termina el flujo de cambios: los suscriptores reciben onComplete()
+	 * tras los cambios pendientes.
+	 */
+	public void cerrarCambios() {
+		if (publicadorCambios != null) {
+			publicadorCambios.close();
+			publicadorCambios = null;
+		}
+	}
+
+	/**
+	 * Avanza varias generaciones en una llamada, con la estrategia más rápida
+	 * del motor seleccionado: HASHLIFE salta potencias de 2; los demás 
+	 * siguen la huella de cada generación y, si entran en un ciclo 
+	 * confirmado con el estado, sólo avanzan el resto de las generaciones 
+	 * pendientes entre el periodo. Con suscriptores a los cambios se 
+	 * calculan todas, de una en una.
+	 * @param generaciones - número de generaciones a avanzar.
+	 */
+	public void avanzar(long generaciones) {
+		assert generaciones >= 0;
+		if (generaciones == 0) {
+			return;
+		}
+		if (publicadorCambios != null) {
+			// Los suscriptores reciben todas las generaciones: sin saltos.
+			for (long g = 0; g < generaciones; g++) {
+				actualizarMundo();
+			}
+			return;
+		}
+		if (getTipoMotor() != TipoMotor.REFERENCIA) {
+			avanzarMotor(obtenerMotor(), generaciones);
+			espacioDesfasado = espacio != null;
+			huellaValida = false;
+			return;
+		}
+		DetectorCiclos detector = new DetectorCiclos();
+		detector.registrar(getHuella());
+		for (long g = 1; g <= generaciones; g++) {
+			actualizarMundo();
+			int periodo = detector.registrar(getHuella());
+			if (periodo > 0 && generaciones - g >= periodo) {
+				// Dos huellas iguales sólo sugieren el ciclo: se confirma con 
+				// el estado de periodo generaciones más tarde antes de saltar.
+				byte[][] inicioCiclo = new byte[espacio.length][];
+				for (int i = 0; i < espacio.length; i++) {
+					inicioCiclo[i] = espacio[i].clone();
+				}
+				for (int k = 0; k < periodo; k++) {
+					actualizarMundo();
+					detector.registrar(getHuella());
+				}
+				g += periodo;
+				if (Arrays.deepEquals(inicioCiclo, espacio)) {
+					for (long resto = (generaciones - g) % periodo; resto > 0; resto--) {
+						actualizarMundo();
+					}
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Avanza con el motor siguiendo su huella, que ya mantiene él mismo;
+	 * el ciclo se confirma con copias de su estado empaquetado, sin formar
+	 * el espacio denso. Los motores sin copia del estado, al sugerirse un 
+	 * ciclo, siguen con su propio avanzar().
+	 * @param motor - el motor activo.
+	 * @param generaciones - número de generaciones a avanzar.
+	 */
+	private static void avanzarMotor(Motor motor, long generaciones) {
+		if (motor.saltaGeneraciones()) {
+			motor.avanzar(generaciones);
+			return;
+		}
+		DetectorCiclos detector = new DetectorCiclos();
+		detector.registrar(motor.getHuella());
+		for (long g = 1; g <= generaciones; g++) {
+			motor.actualizar();
+			int periodo = detector.registrar(motor.getHuella());
+			if (periodo > 0 && generaciones - g >= periodo) {
+				long[] inicioCiclo = motor.copiarEstado();
+				if (inicioCiclo == null) {
+					motor.avanzar(generaciones - g);
+					return;
+				}
+				for (int k = 0; k < periodo; k++) {
+					motor.actualizar();
+					detector.registrar(motor.getHuella());
+				}
+				g += periodo;
+				if (Arrays.equals(inicioCiclo, motor.copiarEstado())) {
+					motor.avanzar((generaciones - g) % periodo);
+					return;
+				}
+			}
+		}
+	}
+
 	/**
 	 * Actualiza el estado almacenado del Juego de la Vida.
 	 * Las celdas periféricas son adyacentes con las del lado contrario.
 	 * El mundo representado sería esférico cerrado sin límites para células de dos dimensiones.
 	 */
 	private void actualizarMundoEsferico()  {     					
-		byte[][] nuevoEstado = new byte[espacio.length][espacio.length];
+		prepararEspacioSiguiente();
+		EjecutorFranjas.ejecutar(0, espacio.length, tareaEsferico);
+		acumularCambios();
+		intercambiarEspacios();
+	}
 
-		for (int i = 0; i < espacio.length; i++) {
+	/**
+	 * Calcula una franja de filas del mundo esférico sobre espacioSiguiente.
+	 * @param desde - primera fila incluida.
+	 * @param hasta - última fila excluida.
+	 */
+	private void actualizarFilasEsferico(int desde, int hasta)  {     					
+		byte[][] nuevoEstado = espacioSiguiente;
+		for (int i = desde; i < hasta; i++) {
+			long cambios = 0;
 			for (int j = 0; j < espacio.length; j++) {
 
 				int filaSuperior = i-1;
@@ -274,10 +1166,13 @@ public class Mundo implements Identificable, Serializable {
 				vecinas += espacio[filaInferior][colAnterior]; 			// Celda SO 
 				vecinas += espacio[i][colAnterior];						// Celda O           			                                     	
 
-				actualizarCelda(nuevoEstado, i, j, vecinas);
+				cambios ^= actualizarCelda(nuevoEstado, i, j, vecinas);
+			}
+			cambiosFilas[i] = cambios;
+			if (resumenFilas != null) {
+				resumenFilas.resumir(i, espacio[i], 0, nuevoEstado[i], 0, espacio.length);
 			}
 		}
-		espacio = nuevoEstado;
 	}
 
 	/**
@@ -286,9 +1181,21 @@ public class Mundo implements Identificable, Serializable {
 	 * El mundo representado sería plano, cerrado y con límites para células de dos dimensiones.
 	 */
 	private void actualizarMundoPlano()  {     					
-		byte[][] nuevoEstado = new byte[espacio.length][espacio.length];
+		prepararEspacioSiguiente();
+		EjecutorFranjas.ejecutar(0, espacio.length, tareaPlano);
+		acumularCambios();
+		intercambiarEspacios();
+	}
 
-		for (int i = 0; i < espacio.length; i++) {
+	/**
+	 * Calcula una franja de filas del mundo plano sobre espacioSiguiente.
+	 * @param desde - primera fila incluida.
+	 * @param hasta - última fila excluida.
+	 */
+	private void actualizarFilasPlano(int desde, int hasta)  {     					
+		byte[][] nuevoEstado = espacioSiguiente;
+		for (int i = desde; i < hasta; i++) {
+			long cambios = 0;
 			for (int j = 0; j < espacio.length; j++) {
 				int vecinas = 0;							
 				vecinas += visitarCeldaNoroeste(i, j);		
@@ -300,32 +1207,146 @@ public class Mundo implements Identificable, Serializable {
 				vecinas += visitarCeldaSuroeste(i, j); 	  
 				vecinas += visitarCeldaOeste(i, j);		          			                                     	
 
-				actualizarCelda(nuevoEstado, i, j, vecinas);
+				cambios ^= actualizarCelda(nuevoEstado, i, j, vecinas);
+			}
+			cambiosFilas[i] = cambios;
+			if (resumenFilas != null) {
+				resumenFilas.resumir(i, espacio[i], 0, nuevoEstado[i], 0, espacio.length);
 			}
 		}
-		espacio = nuevoEstado;
+	}
+
+	/**
+	 * Actualiza el estado con leyes de más de dos estados, en cualquier forma
+	 * del espacio. Se mantiene aparte para no añadir a los cálculos de dos
+	 * estados la comprobación de que la vecina está viva y no en decadencia.
+	 */
+	private void actualizarMundoGeneraciones()  {
+		prepararEspacioSiguiente();
+		EjecutorFranjas.ejecutar(0, espacio.length, tareaGeneraciones);
+		acumularCambios();
+		intercambiarEspacios();
+	}
+
+	/**
+	 * Calcula una franja de filas con leyes de más de dos estados sobre espacioSiguiente.
+	 * Sólo cuentan como vecinas las celdas en estado 1.
+	 * @param desde - primera fila incluida.
+	 * @param hasta - última fila excluida.
+	 */
+	private void actualizarFilasGeneraciones(int desde, int hasta)  {
+		byte[][] nuevoEstado = espacioSiguiente;
+		boolean esferico = tipoMundo == FormaEspacio.ESFERICO;
+		int lado = espacio.length;
+		for (int i = desde; i < hasta; i++) {
+			byte[] norte = filaVecina(i - 1);
+			byte[] fila = espacio[i];
+			byte[] sur = filaVecina(i + 1);
+			long cambios = 0;
+			for (int j = 0; j < lado; j++) {
+				int oeste = esferico && j == 0 ? lado - 1 : j - 1;
+				int este = esferico && j == lado - 1 ? 0 : j + 1;
+				int vecinas = viva(norte, oeste) + viva(norte, j) + viva(norte, este)
+						+ viva(fila, oeste) + viva(fila, este)
+						+ viva(sur, oeste) + viva(sur, j) + viva(sur, este);
+				int anterior = fila[j] & 0xFF;
+				byte estado = regla.siguiente(anterior, vecinas);
+				nuevoEstado[i][j] = estado;
+				if (huellaValida && estado != fila[j]) {
+					cambios ^= claveZobrist(i, j, anterior) ^ claveZobrist(i, j, estado & 0xFF);
+				}
+			}
+			cambiosFilas[i] = cambios;
+			if (resumenFilas != null) {
+				resumenFilas.resumir(i, espacio[i], 0, nuevoEstado[i], 0, lado);
+			}
+		}
+	}
+
+	/**
+	 * Obtiene una fila adyacente; fuera del espacio plano no hay fila.
+	 * @param fila - índice, que puede salirse en uno por cada extremo.
+	 * @return la fila; null si no existe.
+	 */
+	private byte[] filaVecina(int fila) {
+		if (fila >= 0 && fila < espacio.length) {
+			return espacio[fila];
+		}
+		if (tipoMundo == FormaEspacio.ESFERICO) {
+			return espacio[Math.floorMod(fila, espacio.length)];
+		}
+		return null;
+	}
+
+	/**
+	 * @return 1 si la celda existe y está viva; 0 si no.
+	 */
+	private static int viva(byte[] fila, int col) {
+		return fila != null && col >= 0 && col < fila.length && fila[col] == 1 ? 1 : 0;
+	}
+
+	/**
+	 * Asegura el segundo búfer del doble búfer, del mismo tamaño que espacio.
+	 * Sólo se reserva la primera vez, si cambia el tamaño o si el búfer
+	 * es compartido con un clon; las tareas por franjas se crean una sola vez.
+	 */
+	private void prepararEspacioSiguiente() {
+		if (espacioSiguiente == null || espacioSiguiente.length != espacio.length
+				|| siguienteCompartido) {
+			siguienteCompartido = false;
+			espacioSiguiente = new byte[espacio.length][espacio.length];
+			cambiosFilas = new long[espacio.length];
+		}
+		obtenerRegla();
+		if (tareaPlano == null) {
+			tareaPlano = this::actualizarFilasPlano;
+			tareaEsferico = this::actualizarFilasEsferico;
+			tareaGeneraciones = this::actualizarFilasGeneraciones;
+		}
+	}
+
+	/**
+	 * Incorpora a la huella los cambios acumulados por cada fila.
+	 */
+	private void acumularCambios() {
+		if (huellaValida) {
+			for (long cambios : cambiosFilas) {
+				huella ^= cambios;
+			}
+		}
+	}
+
+	/**
+	 * La generación calculada pasa a ser la actual; la anterior se reutiliza
+	 * como destino de la siguiente, salvo si alguna fila es compartida con un clon.
+	 */
+	private void intercambiarEspacios() {
+		byte[][] aux = espacio;
+		espacio = espacioSiguiente;
+		espacioSiguiente = aux;
+		siguienteCompartido = espacioCompartido || filasPropias != null;
+		espacioCompartido = false;
+		filasPropias = null;
+		hayAnterior = true;
 	}
 
 	/**
 	 * Aplica las leyes del mundo a la celda indicada dada la cantidad de células adyacentes vivas.
+	 * Consulta la tabla de transiciones de la regla compilada, sin bucles ni accesos al mapa.
+	 * Escribe siempre la celda, el búfer de destino contiene una generación antigua.
 	 * @param nuevoEstado
 	 * @param fila
 	 * @param col
 	 * @param vecinas
+	 * @return la clave Zobrist de la celda si cambia y se sigue la huella; 0 si no.
 	 */
-	private void actualizarCelda(byte[][] nuevoEstado, int fila, int col, int vecinas) {	
-		for (int valor : constantes.get("ValoresRenacer")) {
-			if (vecinas == valor) {									// Pasa a estar viva.
-				nuevoEstado[fila][col] = 1;
-				return;
-			}
-		}	
-		for (int valor : constantes.get("ValoresSobrevivir")) {
-			if (vecinas == valor && espacio[fila][col] == 1) {		// Permanece viva, si lo estaba.
-				nuevoEstado[fila][col] = 1;
-				return;
-			}
+	private long actualizarCelda(byte[][] nuevoEstado, int fila, int col, int vecinas) {	
+		byte estado = regla.siguiente(espacio[fila][col], vecinas);
+		nuevoEstado[fila][col] = estado;
+		if (huellaValida && estado != espacio[fila][col]) {
+			return claveZobrist(fila, col);
 		}
+		return 0;
 	}
 
 	/**
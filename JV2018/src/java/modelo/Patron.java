@@ -0,0 +1,268 @@
+/**
+ * Proyecto: Juego de la vida.
+ * Patrón de células vivas con sus leyes, independiente del tamaño y la
+ * forma del mundo en que se coloque: nombre, rectángulo que ocupa y
+ * células empaquetadas en una Distribucion relativa a su esquina superior
+ * izquierda. Es lo que se importa y exporta en los formatos RLE y Macrocell.
+ * @since: prototipo2.1
+ * @source: Patron.java
+ * @version: 2.1 - 2019.05.30
+ * @author: ajp
+ */
+
+package modelo;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+import modelo.Mundo.FormaEspacio;
+
+public class Patron implements Identificable, Serializable {
+
+	private static final long serialVersionUID = 1L;
+	private final String nombre;
+	private final Regla regla;
+	private final Distribucion celdas;
+	private final int alto;
+	private final int ancho;
+	private transient long huellaForma;
+
+	/**
+	 * Constructor convencional.
+	 * @param nombre - nombre del patrón; texto libre.
+	 * @param regla - leyes con las que evoluciona.
+	 * @param celdas - células vivas, con la esquina del rectángulo en (0, 0).
+	 * @param alto - filas del rectángulo; al menos la última fila ocupada.
+	 * @param ancho - columnas del rectángulo; al menos la última columna ocupada.
+	 */
+	public Patron(String nombre, Regla regla, Distribucion celdas, int alto, int ancho) {
+		assert nombre != null;
+		assert regla != null;
+		assert celdas != null;
+		assert alto >= 0 && ancho >= 0;
+		this.nombre = nombre;
+		this.regla = regla;
+		this.celdas = celdas;
+		this.alto = alto;
+		this.ancho = ancho;
+	}
+
+	/**
+	 * Obtiene el patrón de las células vivas de un mundo, recortado al
+	 * rectángulo que ocupan.
+	 * @param nombre - nombre del patrón.
+	 * @param mundo - mundo en su estado actual.
+	 * @return el patrón.
+	 */
+	public static Patron de(String nombre, Mundo mundo) {
+		return de(nombre, mundo.getRegla(), mundo.getCelulasVivas());
+	}
+
+	/**
+	 * Obtiene el patrón de unas células, recortado al rectángulo que ocupan:
+	 * se llevan a la esquina (0, 0).
+	 * @param nombre - nombre del patrón.
+	 * @param regla - leyes del patrón.
+	 * @param vivas - células vivas, sin negativos.
+	 * @return el patrón.
+	 */
+	public static Patron de(String nombre, Regla regla, Distribucion vivas) {
+		if (vivas.isEmpty()) {
+			return new Patron(nombre, regla, vivas, 0, 0);
+		}
+		int filaMinima = Integer.MAX_VALUE;
+		int filaMaxima = -1;
+		int columnaMinima = Integer.MAX_VALUE;
+		int columnaMaxima = -1;
+		for (int i = 0; i < vivas.size(); i++) {
+			long celda = vivas.getCelda(i);
+			filaMinima = Math.min(filaMinima, Distribucion.fila(celda));
+			filaMaxima = Math.max(filaMaxima, Distribucion.fila(celda));
+			columnaMinima = Math.min(columnaMinima, Distribucion.columna(celda));
+			columnaMaxima = Math.max(columnaMaxima, Distribucion.columna(celda));
+		}
+		return new Patron(nombre, regla,
+				desplazar(vivas, -filaMinima, -columnaMinima),
+				filaMaxima - filaMinima + 1, columnaMaxima - columnaMinima + 1);
+	}
+
+	/**
+	 * Desplaza todas las células; el resultado no puede quedar en negativo.
+	 */
+	private static Distribucion desplazar(Distribucion celdas, int filas, int columnas) {
+		long[] desplazadas = new long[celdas.size()];
+		for (int i = 0; i < desplazadas.length; i++) {
+			long celda = celdas.getCelda(i);
+			desplazadas[i] = Distribucion.empaquetar(Distribucion.fila(celda) + filas,
+					Distribucion.columna(celda) + columnas);
+		}
+		return new Distribucion(desplazadas);
+	}
+
+	@Override
+	public String getId() {
+		return nombre;
+	}
+
+	public String getNombre() {
+		return nombre;
+	}
+
+	public Regla getRegla() {
+		return regla;
+	}
+
+	public Distribucion getCeldas() {
+		return celdas;
+	}
+
+	public int getAlto() {
+		return alto;
+	}
+
+	public int getAncho() {
+		return ancho;
+	}
+
+	/**
+	 * Obtiene la huella de la forma del patrón, la misma para sus 8 giros y
+	 * simetrías y para cualquier desplazamiento: de cada orientación,
+	 * llevada a la esquina (0, 0), el XOR de las claves Zobrist de sus
+	 * células; la huella es la menor. No depende del nombre ni de las leyes.
+	 * @return la huella; 0 si no hay células.
+	 */
+	public long getHuellaForma() {
+		if (huellaForma == 0 && !celdas.isEmpty()) {
+			huellaForma = huellaForma(celdas.getCeldas(), 0, celdas.size());
+		}
+		return huellaForma;
+	}
+
+	/**
+	 * Calcula la huella de forma de un tramo de células empaquetadas.
+	 * @param celdas - células empaquetadas, en cualquier orden.
+	 * @param desde - primera del tramo.
+	 * @param hasta - siguiente a la última del tramo.
+	 * @return la huella; 0 si el tramo está vacío.
+	 */
+	static long huellaForma(long[] celdas, int desde, int hasta) {
+		if (desde == hasta) {
+			return 0;
+		}
+		long menor = Long.MAX_VALUE;
+		for (int simetria = 0; simetria < 8; simetria++) {
+			menor = Math.min(menor, huellaOrientacion(celdas, desde, hasta, simetria));
+		}
+		return menor;
+	}
+
+	/**
+	 * Huella de una orientación: bit 0 refleja columnas, bit 1 refleja
+	 * filas, bit 2 traspone.
+	 */
+	private static long huellaOrientacion(long[] celdas, int desde, int hasta, int simetria) {
+		int filaMinima = Integer.MAX_VALUE;
+		int columnaMinima = Integer.MAX_VALUE;
+		for (int i = desde; i < hasta; i++) {
+			long celda = orientar(celdas[i], simetria);
+			filaMinima = Math.min(filaMinima, Distribucion.fila(celda));
+			columnaMinima = Math.min(columnaMinima, Distribucion.columna(celda));
+		}
+		long huella = 0;
+		for (int i = desde; i < hasta; i++) {
+			long celda = orientar(celdas[i], simetria);
+			huella ^= Mundo.claveZobrist(Distribucion.fila(celda) - filaMinima,
+					Distribucion.columna(celda) - columnaMinima);
+		}
+		return huella;
+	}
+
+	/**
+	 * Aplica una simetría a una célula; el resultado no es negativo.
+	 */
+	private static long orientar(long celda, int simetria) {
+		int fila = Distribucion.fila(celda);
+		int columna = Distribucion.columna(celda);
+		if ((simetria & 1) != 0) {
+			columna = Integer.MAX_VALUE - columna;
+		}
+		if ((simetria & 2) != 0) {
+			fila = Integer.MAX_VALUE - fila;
+		}
+		return (simetria & 4) != 0
+				? Distribucion.empaquetar(columna, fila) : Distribucion.empaquetar(fila, columna);
+	}
+
+	/**
+	 * Crea un mundo con el patrón centrado y sus leyes.
+	 * @param nombreMundo - nombre del mundo.
+	 * @param tamaño - lado del espacio; el patrón debe caber.
+	 * @param forma - forma del espacio.
+	 * @return el mundo.
+	 * @throws ModeloException - si el nombre no es válido o el patrón no cabe.
+	 */
+	public Mundo crearMundo(String nombreMundo, int tamaño, FormaEspacio forma) throws ModeloException {
+		if (alto > tamaño || ancho > tamaño) {
+			throw new ModeloException("Patron: " + nombre + " no cabe en un mundo de lado " + tamaño);
+		}
+		Map<String, int[]> constantes = new HashMap<String, int[]>();
+		constantes.put("ValoresRenacer", regla.getValoresRenacer());
+		constantes.put("ValoresSobrevivir", regla.getValoresSobrevivir());
+		if (regla.getEstados() > 2) {
+			constantes.put("Estados", new int[] {regla.getEstados()});
+		}
+		return new Mundo(nombreMundo, new byte[tamaño][tamaño],
+				desplazar(celdas, (tamaño - alto) / 2, (tamaño - ancho) / 2), constantes, forma);
+	}
+
+	/**
+	 * Reproduce el estado -valores de atributos- de objeto en forma de texto.
+	 * @return el texto formateado.
+	 */
+	@Override
+	public String toString() {
+		return String.format("Patron [nombre=%s, regla=%s, alto=%s, ancho=%s, celulas=%s]",
+				nombre, regla, alto, ancho, celdas.size());
+	}
+
+	/**
+	 * hashCode() complementa al método equals y sirve para comparar objetos de forma
+	 * rápida en estructuras Hash.
+	 * @return un número entero de 32 bit.
+	 */
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + nombre.hashCode();
+		result = prime * result + regla.hashCode();
+		result = prime * result + celdas.hashCode();
+		result = prime * result + alto;
+		result = prime * result + ancho;
+		return result;
+	}
+
+	/**
+	 * Dos objetos son iguales si:
+	 * Son de la misma clase.
+	 * Tienen los mismos valores en los atributos; o son el mismo objeto.
+	 * @return falso si no cumple las condiciones.
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (obj != null && getClass() == obj.getClass()) {
+			if (this == obj) {
+				return true;
+			}
+			Patron otro = (Patron) obj;
+			if (nombre.equals(otro.nombre) && regla.equals(otro.regla)
+					&& alto == otro.alto && ancho == otro.ancho
+					&& celdas.equals(otro.celdas)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+} // class
@@ -0,0 +1,113 @@
+/**
+ * Proyecto: Juego de la vida.
+ * Suscriptor que escribe los cambios de cada generación en un flujo de
+ * salida -fichero, conexión- según llegan. Pide los cambios de uno en uno:
+ * si la escritura es más lenta que el cálculo, el búfer del publicador se
+ * llena y la simulación espera. Junto con el espacio inicial, el registro
+ * permite reproducir la simulación con reproducir().
+ * @since: prototipo2.1
+ * @source: RegistroCambios.java
+ * @version: 2.1 - 2019.05.29
+ * @author: ajp
+ */
+
+package modelo;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
+
+public class RegistroCambios implements Flow.Subscriber<CambiosGeneracion> {
+
+	private final OutputStream salida;
+	private Flow.Subscription suscripcion;
+	private volatile Throwable error;
+	private final CountDownLatch terminado;
+
+	/**
+	 * Constructor convencional.
+	 * @param salida - destino del registro; se cierra al terminar el flujo.
+	 */
+	public RegistroCambios(OutputStream salida) {
+		assert salida != null;
+		this.salida = salida;
+		this.terminado = new CountDownLatch(1);
+	}
+
+	@Override
+	public void onSubscribe(Flow.Subscription suscripcion) {
+		this.suscripcion = suscripcion;
+		suscripcion.request(1);
+	}
+
+	@Override
+	public void onNext(CambiosGeneracion cambios) {
+		try {
+			cambios.escribir(salida);
+			suscripcion.request(1);
+		}
+		catch (IOException e) {
+			suscripcion.cancel();
+			onError(e);
+		}
+	}
+
+	@Override
+	public void onError(Throwable error) {
+		this.error = error;
+		cerrarSalida();
+	}
+
+	@Override
+	public void onComplete() {
+		cerrarSalida();
+	}
+
+	private void cerrarSalida() {
+		try {
+			salida.close();
+		}
+		catch (IOException e) {
+			if (error == null) {
+				error = e;
+			}
+		}
+		terminado.countDown();
+	}
+
+	/**
+	 * Espera a que el flujo termine y el registro esté completo.
+	 * @throws IOException - si no se pudo escribir el registro.
+	 * @throws InterruptedException - si se interrumpe la espera.
+	 */
+	public void esperar() throws IOException, InterruptedException {
+		terminado.await();
+		if (error != null) {
+			throw new IOException("RegistroCambios: registro incompleto", error);
+		}
+	}
+
+	/**
+	 * Reproduce una simulación registrada: aplica los cambios en orden sobre
+	 * el espacio inicial y entrega cada generación al observador.
+	 * @param entrada - registro escrito por un RegistroCambios.
+	 * @param espacio - espacio inicial; se modifica.
+	 * @param observador - recibe el espacio tras cada generación.
+	 * @return número de generaciones reproducidas.
+	 */
+	public static long reproducir(InputStream entrada, byte[][] espacio,
+			Consumer<byte[][]> observador) throws IOException {
+		long generaciones = 0;
+		CambiosGeneracion cambios;
+		while ((cambios = CambiosGeneracion.leer(entrada)) != null) {
+			cambios.aplicar(espacio);
+			observador.accept(espacio);
+			generaciones++;
+		}
+		return generaciones;
+	}
+
+} // class
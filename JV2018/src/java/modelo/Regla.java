@@ -0,0 +1,280 @@
+/**
+ * Proyecto: Juego de la vida.
+ * Implementa las leyes de un Mundo de tipo "Life-like": número de vecinas
+ * con las que nace una célula muerta (B) y con las que sobrevive una viva (S).
+ * Admite también las leyes "Generations" de C estados: la célula viva que no
+ * sobrevive pasa por los estados 2 a C-1 antes de morir, sin contar como
+ * vecina ni poder nacer mientras tanto.
+ * Se compila una sola vez, al crearla, en dos máscaras de 9 bits y en una
+ * tabla de transiciones (estado x vecinas) que se consulta sin bucles ni saltos.
+ * Se puede crear a partir de la notación habitual, por ejemplo "B36/S23" o "B2/S/C3".
+ * @since: prototipo2.1
+ * @source: Regla.java
+ * @version: 2.1 - 2019.05.17
+ * @author: ajp
+ */
+
+package modelo;
+
+import java.io.Serializable;
+
+import util.Formato;
+
+public class Regla implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+	public static final int MAX_VECINAS = 8;
+	public static final String CONWAY = "B3/S23";
+	public static final String HIGHLIFE = "B36/S23";
+	public static final String DIA_Y_NOCHE = "B3678/S34678";
+	public static final String SEMILLAS = "B2/S";
+	public static final String CEREBRO_DE_BRIAN = "B2/S/C3";
+	public static final String STAR_WARS = "B2/S345/C4";
+	public static final int MAX_ESTADOS = 256;
+	private final int mascaraNace;
+	private final int mascaraSobrevive;
+	private final byte[] transiciones;
+
+	/**
+	 * Constructor convencional.
+	 * @param valoresRenacer - número de vecinas con las que nace una célula.
+	 * @param valoresSobrevivir - número de vecinas con las que sobrevive una célula.
+	 * @param estados - estados de una celda: 2 (muerta y viva) o más con decadencia.
+	 * @throws ModeloException - si algún valor no está entre 0 y 8 o los estados entre 2 y MAX_ESTADOS.
+	 */
+	public Regla(int[] valoresRenacer, int[] valoresSobrevivir, int estados) throws ModeloException {
+		assert valoresRenacer != null;
+		assert valoresSobrevivir != null;
+		if (estados < 2 || estados > MAX_ESTADOS) {
+			throw new ModeloException("Regla: número de estados no válido " + estados);
+		}
+		this.mascaraNace = compilarMascara(valoresRenacer);
+		this.mascaraSobrevive = compilarMascara(valoresSobrevivir);
+		this.transiciones = compilarTransiciones(estados);
+	}
+
+	/**
+	 * Constructor de leyes de dos estados.
+	 * @param valoresRenacer - número de vecinas con las que nace una célula.
+	 * @param valoresSobrevivir - número de vecinas con las que sobrevive una célula.
+	 * @throws ModeloException - si algún valor no está entre 0 y 8.
+	 */
+	public Regla(int[] valoresRenacer, int[] valoresSobrevivir) throws ModeloException {
+		this(valoresRenacer, valoresSobrevivir, 2);
+	}
+
+	/**
+	 * Constructor a partir de la notación B/S.
+	 * Admite B36/S23, S23/B36 y la forma numérica clásica 23/36 (supervivencia/nacimiento);
+	 * los estados de las leyes "Generations" se añaden como B2/S/C3 o /2/3.
+	 * @param notacion - el texto de la regla.
+	 * @throws ModeloException - si el formato no es válido.
+	 */
+	public Regla(String notacion) throws ModeloException {
+		this(valoresNotacion(notacion, 'B'), valoresNotacion(notacion, 'S'), estadosNotacion(notacion));
+	}
+
+	/**
+	 * Extrae de la notación los números de vecinas de una de las dos partes.
+	 * @param notacion - el texto de la regla.
+	 * @param parte - 'B' nacimiento o 'S' supervivencia.
+	 * @return los valores.
+	 * @throws ModeloException - si el formato no es válido.
+	 */
+	private static int[] valoresNotacion(String notacion, char parte) throws ModeloException {
+		assert notacion != null;
+		String texto = notacion.trim().toUpperCase();
+		if (!texto.matches(Formato.PATRON_REGLA_JV)) {
+			throw new ModeloException("Regla: formato no válido " + notacion);
+		}
+		String[] partes = texto.split("/", -1);
+		String digitos;
+		if (Character.isDigit(texto.charAt(0)) || texto.charAt(0) == '/') {
+			// Forma numérica: supervivencia/nacimiento.
+			digitos = parte == 'S' ? partes[0] : partes[1];
+		}
+		else {
+			digitos = partes[0].charAt(0) == parte ? partes[0].substring(1) : partes[1].substring(1);
+		}
+		int[] valores = new int[digitos.length()];
+		for (int i = 0; i < valores.length; i++) {
+			valores[i] = digitos.charAt(i) - '0';
+		}
+		return valores;
+	}
+
+	/**
+	 * Extrae de la notación el número de estados.
+	 * @param notacion - el texto de la regla, ya validado.
+	 * @return los estados; 2 si no se indican.
+	 */
+	private static int estadosNotacion(String notacion) {
+		String[] partes = notacion.trim().toUpperCase().split("/", -1);
+		if (partes.length < 3) {
+			return 2;
+		}
+		return Integer.parseInt(partes[2].charAt(0) == 'C' ? partes[2].substring(1) : partes[2]);
+	}
+
+	/**
+	 * Constructor copia.
+	 * @param regla
+	 */
+	public Regla(Regla regla) {
+		this.mascaraNace = regla.mascaraNace;
+		this.mascaraSobrevive = regla.mascaraSobrevive;
+		this.transiciones = regla.transiciones.clone();
+	}
+
+	private static int compilarMascara(int[] valores) throws ModeloException {
+		int mascara = 0;
+		for (int valor : valores) {
+			if (valor < 0 || valor > MAX_VECINAS) {
+				throw new ModeloException("Regla: número de vecinas no válido " + valor);
+			}
+			mascara |= 1 << valor;
+		}
+		return mascara;
+	}
+
+	/**
+	 * Con más de dos estados la viva que no sobrevive pasa al 2, y cada
+	 * estado de decadencia al siguiente, hasta volver a 0 tras el último.
+	 */
+	private byte[] compilarTransiciones(int estados) {
+		byte[] tabla = new byte[estados * (MAX_VECINAS + 1)];
+		byte decae = (byte) (estados > 2 ? 2 : 0);
+		for (int vecinas = 0; vecinas <= MAX_VECINAS; vecinas++) {
+			tabla[vecinas] = (byte) ((mascaraNace >>> vecinas) & 1);
+			tabla[MAX_VECINAS + 1 + vecinas] = ((mascaraSobrevive >>> vecinas) & 1) != 0 ? 1 : decae;
+			for (int estado = 2; estado < estados; estado++) {
+				tabla[estado * (MAX_VECINAS + 1) + vecinas] = (byte) ((estado + 1) % estados);
+			}
+		}
+		return tabla;
+	}
+
+	/**
+	 * Obtiene el estado siguiente de una celda.
+	 * @param estado - 0 muerta, 1 viva, 2 en adelante en decadencia.
+	 * @param vecinas - número de vecinas vivas.
+	 * @return el nuevo estado; los superiores a 127 quedan negativos al convertirlos a byte.
+	 */
+	public byte siguiente(int estado, int vecinas) {
+		return transiciones[estado * (MAX_VECINAS + 1) + vecinas];
+	}
+
+	/**
+	 * @return estados de una celda; 2 en las leyes "Life-like".
+	 */
+	public int getEstados() {
+		return transiciones.length / (MAX_VECINAS + 1);
+	}
+
+	/**
+	 * Máscara con el bit n activo si una célula muerta con n vecinas nace.
+	 */
+	public int getMascaraNace() {
+		return mascaraNace;
+	}
+
+	/**
+	 * Máscara con el bit n activo si una célula viva con n vecinas sobrevive.
+	 */
+	public int getMascaraSobrevive() {
+		return mascaraSobrevive;
+	}
+
+	public boolean naceCon(int vecinas) {
+		return ((mascaraNace >>> vecinas) & 1) != 0;
+	}
+
+	public boolean sobreviveCon(int vecinas) {
+		return ((mascaraSobrevive >>> vecinas) & 1) != 0;
+	}
+
+	public int[] getValoresRenacer() {
+		return valores(mascaraNace);
+	}
+
+	public int[] getValoresSobrevivir() {
+		return valores(mascaraSobrevive);
+	}
+
+	private static int[] valores(int mascara) {
+		int[] valores = new int[Integer.bitCount(mascara)];
+		int i = 0;
+		for (int vecinas = 0; vecinas <= MAX_VECINAS; vecinas++) {
+			if (((mascara >>> vecinas) & 1) != 0) {
+				valores[i++] = vecinas;
+			}
+		}
+		return valores;
+	}
+
+	/**
+	 * Reproduce la regla en notación B/S, por ejemplo B3/S23 o B2/S/C3.
+	 * @return el texto formateado.
+	 */
+	@Override
+	public String toString() {
+		StringBuilder texto = new StringBuilder("B");
+		for (int valor : getValoresRenacer()) {
+			texto.append(valor);
+		}
+		texto.append("/S");
+		for (int valor : getValoresSobrevivir()) {
+			texto.append(valor);
+		}
+		if (getEstados() > 2) {
+			texto.append("/C").append(getEstados());
+		}
+		return texto.toString();
+	}
+
+	/**
+	 * hashCode() complementa al método equals y sirve para comparar objetos de forma
+	 * rápida en estructuras Hash.
+	 * @return un número entero de 32 bit.
+	 */
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + mascaraNace;
+		result = prime * result + mascaraSobrevive;
+		result = prime * result + transiciones.length;
+		return result;
+	}
+
+	/**
+	 * Dos objetos son iguales si:
+	 * Son de la misma clase.
+	 * Tienen los mismos valores en los atributos; o son el mismo objeto.
+	 * @return falso si no cumple las condiciones.
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (obj != null && getClass() == obj.getClass()) {
+			if (this == obj) {
+				return true;
+			}
+			if (mascaraNace == ((Regla)obj).mascaraNace
+					&& mascaraSobrevive == ((Regla)obj).mascaraSobrevive
+					&& transiciones.length == ((Regla)obj).transiciones.length) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Genera un clon del propio objeto realizando una copia profunda.
+	 * @return el objeto clonado.
+	 */
+	@Override
+	public Object clone() {
+		return new Regla(this);
+	}
+
+} // class
@@ -0,0 +1,76 @@
+/**
+ * Proyecto: Juego de la vida.
+ * Resultado de la ejecución de una Simulacion en un lote.
+ * @since: prototipo2.1
+ * @source: ResultadoSimulacion.java
+ * @version: 2.1 - 2019.05.24
+ * @author: ajp
+ */
+
+package modelo;
+
+public class ResultadoSimulacion {
+
+	private final String idSimulacion;
+	private final int generaciones;
+	private final int periodo;
+	private final long poblacionFinal;
+	private final long nanos;
+	private final Censo censo;
+
+	/**
+	 * Constructor convencional.
+	 * @param idSimulacion - id de la simulación ejecutada.
+	 * @param generaciones - generaciones calculadas hasta detectar un ciclo o completar los ciclos.
+	 * @param periodo - periodo del ciclo detectado; 0 si no se detectó.
+	 * @param poblacionFinal - células vivas al completar los ciclos.
+	 * @param nanos - tiempo de ejecución en nanosegundos.
+	 * @param censo - objetos del mundo al completar los ciclos.
+	 */
+	public ResultadoSimulacion(String idSimulacion, int generaciones, int periodo,
+			long poblacionFinal, long nanos, Censo censo) {
+		assert idSimulacion != null;
+		assert censo != null;
+		this.idSimulacion = idSimulacion;
+		this.generaciones = generaciones;
+		this.periodo = periodo;
+		this.poblacionFinal = poblacionFinal;
+		this.nanos = nanos;
+		this.censo = censo;
+	}
+
+	public String getIdSimulacion() {
+		return idSimulacion;
+	}
+
+	public int getGeneraciones() {
+		return generaciones;
+	}
+
+	public int getPeriodo() {
+		return periodo;
+	}
+
+	public long getPoblacionFinal() {
+		return poblacionFinal;
+	}
+
+	public long getNanos() {
+		return nanos;
+	}
+
+	public Censo getCenso() {
+		return censo;
+	}
+
+	/**
+	 * Reproduce el estado -valores de atributos- de objeto en forma de texto.
+	 * @return el texto formateado.
+	 */
+	@Override
+	public String toString() {
+		return String.format("ResultadoSimulacion [idSimulacion=%s, generaciones=%s, periodo=%s, poblacionFinal=%s, ms=%.3f, %s]",
+				idSimulacion, generaciones, periodo, poblacionFinal, nanos / 1e6, censo);
+	}
+
+} // class
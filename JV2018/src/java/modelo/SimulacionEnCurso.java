@@ -0,0 +1,85 @@
+/**
+ * Proyecto: Juego de la vida.
+ * Estado de ejecución de una Simulacion que se puede calcular por turnos:
+ * conserva la generación alcanzada y las huellas recientes entre un turno
+ * y el siguiente, así que interrumpirla y continuarla sólo cuesta este objeto.
+ * @since: prototipo2.1
+ * @source: SimulacionEnCurso.java
+ * @version: 2.1 - 2019.05.25
+ * @author: ajp
+ */
+
+package modelo;
+
+import modelo.Simulacion.EstadoSimulacion;
+
+class SimulacionEnCurso {
+
+	private final Simulacion simulacion;
+	private DetectorCiclos detector;
+	private int generacion;
+	private int periodo;
+	private long nanos;
+
+	SimulacionEnCurso(Simulacion simulacion) {
+		assert simulacion != null;
+		this.simulacion = simulacion;
+	}
+
+	/**
+	 * Calcula como máximo las generaciones indicadas.
+	 * El primer turno pasa la simulación a INICIADA y el último a COMPLETADA.
+	 * Si entra en un ciclo deja de calcular: el estado al completar los ciclos
+	 * se obtiene avanzando sólo el resto de las pendientes entre el periodo.
+	 * @param generacionesTurno - generaciones del turno.
+	 * @return true si la simulación ha terminado.
+	 */
+	boolean avanzar(int generacionesTurno) {
+		assert generacionesTurno > 0;
+		long inicio = System.nanoTime();
+		Mundo mundo = simulacion.getMundo();
+		if (detector == null) {
+			simulacion.setEstado(EstadoSimulacion.INICIADA);
+			detector = new DetectorCiclos();
+			detector.registrar(mundo.getHuella());
+		}
+		int ultima = (int) Math.min(simulacion.getCiclos(), (long) generacion + generacionesTurno);
+		while (generacion < ultima && periodo == 0) {
+			mundo.actualizarMundo();
+			generacion++;
+			periodo = detector.registrar(mundo.getHuella());
+		}
+		boolean terminada = generacion == simulacion.getCiclos() || periodo > 0;
+		if (terminada && periodo > 0) {
+			for (int i = 0; i < (simulacion.getCiclos() - generacion) % periodo; i++) {
+				mundo.actualizarMundo();
+			}
+		}
+		nanos += System.nanoTime() - inicio;
+		if (terminada) {
+			simulacion.setEstado(EstadoSimulacion.COMPLETADA);
+		}
+		return terminada;
+	}
+
+	/**
+	 * Obtiene el resultado de una simulación terminada.
+	 * Incluye el censo de los objetos del mundo final.
+	 * @return el resultado; el tiempo es sólo el de cálculo, sin esperas entre turnos.
+	 */
+	ResultadoSimulacion getResultado() {
+		assert simulacion.getEstado() == EstadoSimulacion.COMPLETADA;
+		return new ResultadoSimulacion(simulacion.getId(), generacion, periodo,
+				simulacion.getMundo().getEstadisticas().getPoblacion(), nanos,
+				Censo.de(simulacion.getMundo()));
+	}
+
+	String getIdSimulacion() {
+		return simulacion.getId();
+	}
+
+	Mundo getMundo() {
+		return simulacion.getMundo();
+	}
+
+} // class
@@ -0,0 +1,120 @@
+/**
+ * Proyecto: Juego de la vida.
+ * Reparte el cálculo de una generación en franjas de filas que se ejecutan
+ * en un ForkJoinPool compartido. Cada fila nueva sólo depende de tres filas
+ * de la generación anterior, así que las franjas no necesitan sincronizarse.
+ * El nivel de paralelismo se establece en la configuración (0 = todos los núcleos).
+ * @since: prototipo2.1
+ * @source: EjecutorFranjas.java
+ * @version: 2.1 - 2019.05.08
+ * @author: ajp
+ */
+
+package modelo.motor;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import config.Configuracion;
+
+public class EjecutorFranjas {
+
+	/**
+	 * Cálculo de un rango de filas [desde, hasta).
+	 */
+	public interface TareaFilas {
+		void actualizar(int desde, int hasta);
+	}
+
+	// Por debajo de este número de filas no compensa repartir.
+	private static final int FILAS_MINIMAS = 16;
+
+	// Singleton.
+	private static ForkJoinPool pool;
+	// Hilos que ya comparten los núcleos con otros -lotes de simulaciones-
+	// y calculan sus generaciones sin repartirlas.
+	private static final ThreadLocal<Boolean> secuencial = ThreadLocal.withInitial(() -> false);
+
+	/**
+	 * Obtiene el nivel de paralelismo configurado.
+	 * @return número de hilos de cálculo; 1 si es secuencial.
+	 */
+	public static int getParalelismo() {
+		int paralelismo = Integer.parseInt(Configuracion.get().getProperty("mundo.paralelismo"));
+		if (paralelismo <= 0) {
+			return Runtime.getRuntime().availableProcessors();
+		}
+		return paralelismo;
+	}
+
+	/**
+	 *  Método estático de acceso al pool único.
+	 *  Utiliza inicialización diferida.
+	 *  @return el pool.
+	 */
+	private static synchronized ForkJoinPool getPool() {
+		if (pool == null) {
+			pool = new ForkJoinPool(getParalelismo());
+		}
+		return pool;
+	}
+
+	/**
+	 * Indica si el hilo actual debe calcular sus generaciones sin repartir franjas.
+	 * @param valor - true para el hilo actual secuencial.
+	 */
+	public static void setSecuencial(boolean valor) {
+		secuencial.set(valor);
+	}
+
+	/**
+	 * Ejecuta la tarea sobre el rango de filas indicado, repartido en franjas
+	 * si el paralelismo configurado y el tamaño lo justifican.
+	 * @param desde - primera fila incluida.
+	 * @param hasta - última fila excluida.
+	 * @param tarea - el cálculo de cada franja.
+	 */
+	public static void ejecutar(int desde, int hasta, TareaFilas tarea) {
+		int filas = hasta - desde;
+		ForkJoinPool pool = filas < 2 * FILAS_MINIMAS || secuencial.get() ? null : getPool();
+		if (pool == null || pool.getParallelism() <= 1) {
+			tarea.actualizar(desde, hasta);
+			return;
+		}
+		// Unas cuatro franjas por hilo para equilibrar la carga.
+		int filasFranja = Math.max(FILAS_MINIMAS, filas / (pool.getParallelism() * 4));
+		pool.invoke(new Franja(desde, hasta, filasFranja, tarea));
+	}
+
+	/**
+	 * Divide recursivamente el rango hasta llegar al tamaño de franja.
+	 */
+	private static class Franja extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+		private final int desde;
+		private final int hasta;
+		private final int filasFranja;
+		// Las franjas nunca se serializan.
+		private final transient TareaFilas tarea;
+
+		Franja(int desde, int hasta, int filasFranja, TareaFilas tarea) {
+			this.desde = desde;
+			this.hasta = hasta;
+			this.filasFranja = filasFranja;
+			this.tarea = tarea;
+		}
+
+		@Override
+		protected void compute() {
+			if (hasta - desde <= filasFranja) {
+				tarea.actualizar(desde, hasta);
+				return;
+			}
+			int medio = (desde + hasta) >>> 1;
+			invokeAll(new Franja(desde, medio, filasFranja, tarea),
+					new Franja(medio, hasta, filasFranja, tarea));
+		}
+	}
+
+} // class
@@ -0,0 +1,58 @@
+/**
+ * Proyecto: Juego de la vida.
+ * Cálculo de la huella Zobrist de los motores de dos estados a partir de
+ * sus propias celdas: palabras de 64 bits o filas de un byte por celda.
+ * Con el XOR de lo que cambia, la huella se mantiene sin volcar el espacio.
+ * @since: prototipo2.1
+ * @source: Huella.java
+ * @version: 2.1 - 2019.06.10
+ * @author: ajp
+ */
+
+package modelo.motor;
+
+import modelo.Mundo;
+
+final class Huella {
+
+	private Huella() {
+	}
+
+	/**
+	 * XOR de las claves de los bits a 1 de una palabra.
+	 * @param fila - fila del espacio, sin halo.
+	 * @param columna - columna del bit 0.
+	 * @param bits - celdas vivas o que han cambiado.
+	 * @return el XOR de sus claves.
+	 */
+	static long palabra(int fila, int columna, long bits) {
+		long claves = 0;
+		while (bits != 0) {
+			claves ^= Mundo.claveZobrist(fila, columna + Long.numberOfTrailingZeros(bits));
+			bits &= bits - 1;
+		}
+		return claves;
+	}
+
+	/**
+	 * XOR de las claves de las celdas de un tramo de fila que difieren en 
+	 * dos búferes de un byte por celda; con anterior null, de las vivas.
+	 * @param fila - fila del espacio, sin halo.
+	 * @param anterior - búfer con el estado anterior o null.
+	 * @param actual - búfer con el estado actual.
+	 * @param desde - índice de la columna 0 en ambos búferes.
+	 * @param longitud - número de celdas.
+	 * @return el XOR de sus claves.
+	 */
+	static long bytes(int fila, byte[] anterior, byte[] actual, int desde, int longitud) {
+		long claves = 0;
+		for (int j = 0; j < longitud; j++) {
+			int antes = anterior == null ? 0 : anterior[desde + j];
+			if (actual[desde + j] != antes) {
+				claves ^= Mundo.claveZobrist(fila, j);
+			}
+		}
+		return claves;
+	}
+
+} // class
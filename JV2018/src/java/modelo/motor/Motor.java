@@ -0,0 +1,125 @@
+/**
+ * Proyecto: Juego de la vida.
+ * Interfaz de los motores de cálculo de generaciones de un Mundo.
+ * Cada motor mantiene su propia representación interna del espacio;
+ * el Mundo sólo le entrega y recoge el estado en forma de byte[][].
+ * @since: prototipo2.1
+ * @source: Motor.java
+ * @version: 2.1 - 2019.05.06
+ * @author: ajp
+ */
+
+package modelo.motor;
+
+import modelo.CambiosGeneracion;
+import modelo.Estadisticas;
+import modelo.Mundo;
+
+public interface Motor {
+
+	/**
+	 * Carga el estado de partida desde un espacio denso.
+	 * @param espacio - matriz cuadrada con 0 (muerta) y 1 (viva); con leyes
+	 * de más de dos estados, de 2 en adelante en decadencia.
+	 */
+	void cargar(byte[][] espacio);
+
+	/**
+	 * Obtiene el estado actual en forma de espacio denso.
+	 * @return - una matriz nueva, no compartida con el motor.
+	 */
+	byte[][] volcar();
+
+	/**
+	 * Calcula la siguiente generación.
+	 */
+	void actualizar();
+
+	/**
+	 * Avanza varias generaciones; los motores que pueden saltar
+	 * generaciones de una vez, o dejar de calcular cuando el estado ya
+	 * no cambia, lo redefinen.
+	 * @param generaciones - número de generaciones a avanzar.
+	 */
+	default void avanzar(long generaciones) {
+		for (long g = 0; g < generaciones; g++) {
+			actualizar();
+		}
+	}
+
+	/**
+	 * Indica si avanzar() salta muchas generaciones de una vez; si no, el
+	 * Mundo avanza generación a generación siguiendo la huella para 
+	 * detectar ciclos.
+	 * @return true si el motor salta generaciones.
+	 */
+	default boolean saltaGeneraciones() {
+		return false;
+	}
+
+	/**
+	 * Obtiene una copia compacta del estado actual, sin formar el espacio
+	 * denso, para confirmar un ciclo que la huella sólo sugiere: dos 
+	 * estados son iguales si sus copias lo son (Arrays.equals).
+	 * @return un vector nuevo; null si el motor no la ofrece.
+	 */
+	default long[] copiarEstado() {
+		return null;
+	}
+
+	/**
+	 * Obtiene las estadísticas de la última generación calculada. Los
+	 * nacimientos y muertes se cuentan respecto a la generación anterior o,
+	 * en los motores que saltan varias de una vez, al estado previo al salto.
+	 * Tras cargar() no hay nacimientos ni muertes.
+	 * @return las estadísticas.
+	 */
+	Estadisticas getEstadisticas();
+
+	/**
+	 * Obtiene las células que han nacido y las que han muerto en la 
+	 * última generación calculada, comparando con la anterior que el motor
+	 * conserva, sin formar el espacio denso. Como en getEstadisticas(), 
+	 * tras cargar() no hay cambios.
+	 * @param generacion - número de la generación en el registro de cambios.
+	 * @return los cambios.
+	 */
+	CambiosGeneracion getCambios(long generacion);
+
+	/**
+	 * Obtiene la huella Zobrist del estado actual, la misma que 
+	 * Mundo.calcularHuella() daría sobre el volcado. Los motores la 
+	 * calculan entera en la primera consulta y, desde entonces, la 
+	 * mantienen con las celdas que cambia cada generación.
+	 * @return la huella.
+	 */
+	default long getHuella() {
+		return Mundo.calcularHuella(volcar());
+	}
+
+	/**
+	 * Pide al motor que mantenga las estadísticas en cada generación;
+	 * los motores que las obtienen a demanda sin recorrer el espacio
+	 * denso no necesitan hacer nada.
+	 */
+	default void seguirEstadisticas() {
+	}
+
+	/**
+	 * Obtiene otro motor con el mismo estado, para el clon de un Mundo,
+	 * sin pasar por el espacio denso; los motores que pueden compartir su
+	 * estado hasta que uno de los dos lo escribe lo redefinen.
+	 * @return el motor nuevo; null si el motor no se puede copiar.
+	 */
+	default Motor copiar() {
+		return null;
+	}
+
+	/**
+	 * Libera los recursos externos al montón -ficheros, proyecciones- 
+	 * que utilice el motor; después no se debe volver a usar.
+	 */
+	default void cerrar() {
+	}
+
+} // interface
@@ -0,0 +1,429 @@
+/**
+ * Proyecto: Juego de la vida.
+ * Motor que empaqueta 64 celdas en cada long y calcula la siguiente
+ * generación con lógica de sumadores completos sobre palabras enteras.
+ * Cada fila ocupa (tamaño+63)/64 palabras; se reservan dos filas extra
+ * -halo superior e inferior- que se rellenan antes de cada generación.
+ * Opcionalmente sigue la actividad por teselas de 32 filas x 64 columnas
+ * (una palabra por fila): sólo se recalculan las teselas que cambiaron en la
+ * generación anterior y sus vecinas. Una tesela estable ya tiene el mismo
+ * contenido en el búfer de destino, así que no hace falta ni copiarla.
+ * Al avanzar varias generaciones se detiene en cuanto el mundo no cambia.
+ * La huella, una vez pedida, se mantiene con las palabras que cambian.
+ * Una copia comparte las celdas con el original hasta que uno de los dos
+ * calcula una generación o carga otro estado.
+ * @since: prototipo2.1
+ * @source: MotorBits.java
+ * @version: 2.1 - 2019.05.26
+ * @author: ajp
+ */
+
+package modelo.motor;
+
+import java.util.Arrays;
+
+import modelo.CambiosGeneracion;
+import modelo.Estadisticas;
+import modelo.Mundo.FormaEspacio;
+import modelo.Regla;
+
+public class MotorBits implements Motor {
+
+	private final int tamaño;
+	private final int palabras;
+	private final boolean esferico;
+	private final ReglaBits reglaBits;
+	private long[] celdas;
+	// null en una copia hasta la primera generación.
+	private long[] nuevasCeldas;
+	private boolean celdasCompartidas;
+	private static final int FILAS_TESELA = 32;
+	private final int filasTeselas;
+	private boolean[] teselasCambiadas;
+	private boolean[] nuevasTeselasCambiadas;
+	// Resúmenes por fila, sólo si se siguen las estadísticas.
+	private Estadisticas.Filas resumen;
+	private boolean hayAnterior;
+	// Huella Zobrist, desde la primera consulta, y su cambio en cada fila con halo.
+	private boolean seguirHuella;
+	private long huella;
+	private long[] cambiosHuella;
+	private final EjecutorFranjas.TareaFilas tareaFilas = this::actualizarFilas;
+	private final EjecutorFranjas.TareaFilas tareaTeselas = this::actualizarTeselas;
+
+	/**
+	 * Constructor convencional.
+	 * @param tamaño - lado del espacio cuadrado.
+	 * @param forma - forma del espacio.
+	 * @param regla - leyes del mundo.
+	 * @param seguirActividad - true para recalcular sólo las teselas activas.
+	 */
+	public MotorBits(int tamaño, FormaEspacio forma, Regla regla, boolean seguirActividad) {
+		assert tamaño >= 0;
+		assert forma != null;
+		this.tamaño = tamaño;
+		this.palabras = (tamaño + 63) >>> 6;
+		this.esferico = forma == FormaEspacio.ESFERICO;
+		this.reglaBits = new ReglaBits(tamaño, esferico, regla);
+		this.celdas = new long[(tamaño + 2) * palabras];
+		this.nuevasCeldas = new long[(tamaño + 2) * palabras];
+		this.filasTeselas = (tamaño + FILAS_TESELA - 1) / FILAS_TESELA;
+		if (seguirActividad) {
+			this.teselasCambiadas = new boolean[filasTeselas * palabras];
+			this.nuevasTeselasCambiadas = new boolean[filasTeselas * palabras];
+		}
+	}
+
+	/**
+	 * Constructor sin seguimiento de actividad.
+	 */
+	public MotorBits(int tamaño, FormaEspacio forma, Regla regla) {
+		this(tamaño, forma, regla, false);
+	}
+
+	/**
+	 * Constructor copia: comparte las celdas del original, sin copiarlas.
+	 * Sin historia, como tras cargar(): todas las teselas son activas.
+	 * @param motor - el original.
+	 */
+	private MotorBits(MotorBits motor) {
+		this.tamaño = motor.tamaño;
+		this.palabras = motor.palabras;
+		this.esferico = motor.esferico;
+		this.reglaBits = motor.reglaBits;
+		this.filasTeselas = motor.filasTeselas;
+		this.celdas = motor.celdas;
+		this.celdasCompartidas = true;
+		motor.celdasCompartidas = true;
+		if (motor.teselasCambiadas != null) {
+			this.teselasCambiadas = new boolean[motor.teselasCambiadas.length];
+			this.nuevasTeselasCambiadas = new boolean[motor.teselasCambiadas.length];
+			Arrays.fill(teselasCambiadas, true);
+		}
+		if (motor.seguirHuella) {
+			this.huella = motor.huella;
+			this.cambiosHuella = new long[tamaño + 2];
+			this.seguirHuella = true;
+		}
+	}
+
+	@Override
+	public Motor copiar() {
+		return new MotorBits(this);
+	}
+
+	@Override
+	public void cargar(byte[][] espacio) {
+		assert espacio.length == tamaño;
+		if (celdasCompartidas) {
+			celdas = new long[celdas.length];
+			celdasCompartidas = false;
+		}
+		else {
+			Arrays.fill(celdas, 0L);
+		}
+		for (int i = 0; i < tamaño; i++) {
+			int base = (i + 1) * palabras;
+			for (int j = 0; j < tamaño; j++) {
+				if (espacio[i][j] == 1) {
+					celdas[base + (j >>> 6)] |= 1L << (j & 63);
+				}
+			}
+		}
+		if (teselasCambiadas != null) {
+			// Sin historia: todas se consideran activas.
+			Arrays.fill(teselasCambiadas, true);
+		}
+		hayAnterior = false;
+		seguirHuella = false;
+		if (resumen != null) {
+			resumirFilas();
+		}
+	}
+
+	@Override
+	public byte[][] volcar() {
+		byte[][] espacio = new byte[tamaño][tamaño];
+		for (int i = 0; i < tamaño; i++) {
+			int base = (i + 1) * palabras;
+			for (int j = 0; j < tamaño; j++) {
+				espacio[i][j] = (byte) ((celdas[base + (j >>> 6)] >>> (j & 63)) & 1L);
+			}
+		}
+		return espacio;
+	}
+
+	@Override
+	public void actualizar() {
+		if (tamaño == 0) {
+			return;
+		}
+		if (celdasCompartidas) {
+			// El halo se escribe en las celdas actuales.
+			celdas = celdas.clone();
+			celdasCompartidas = false;
+		}
+		if (nuevasCeldas == null) {
+			nuevasCeldas = new long[celdas.length];
+		}
+		rellenarHalo();
+		if (teselasCambiadas == null) {
+			EjecutorFranjas.ejecutar(1, tamaño + 1, tareaFilas);
+		}
+		else {
+			EjecutorFranjas.ejecutar(0, filasTeselas, tareaTeselas);
+			boolean[] auxTeselas = teselasCambiadas;
+			teselasCambiadas = nuevasTeselasCambiadas;
+			nuevasTeselasCambiadas = auxTeselas;
+		}
+		long[] aux = celdas;
+		celdas = nuevasCeldas;
+		nuevasCeldas = aux;
+		hayAnterior = true;
+		if (seguirHuella) {
+			for (int i = 1; i <= tamaño; i++) {
+				huella ^= cambiosHuella[i];
+			}
+		}
+	}
+
+	/**
+	 * Avanza generación a generación hasta que el mundo deja de cambiar;
+	 * a partir de ahí las generaciones restantes no tienen efecto.
+	 * @param generaciones - número de generaciones a avanzar.
+	 */
+	@Override
+	public void avanzar(long generaciones) {
+		assert generaciones >= 0;
+		for (long g = 0; g < generaciones; g++) {
+			actualizar();
+			if (esEstable()) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Las filas del espacio empaquetadas, sin el halo.
+	 */
+	@Override
+	public long[] copiarEstado() {
+		return Arrays.copyOfRange(celdas, palabras, (tamaño + 1) * palabras);
+	}
+
+	/**
+	 * Comprueba si la última generación es igual a la anterior; con
+	 * seguimiento de actividad basta con mirar las teselas cambiadas.
+	 */
+	private boolean esEstable() {
+		if (teselasCambiadas == null) {
+			// El búfer de destino guarda la generación anterior; los halos no cuentan.
+			return Arrays.equals(celdas, palabras, (tamaño + 1) * palabras,
+					nuevasCeldas, palabras, (tamaño + 1) * palabras);
+		}
+		for (boolean cambiada : teselasCambiadas) {
+			if (cambiada) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public void seguirEstadisticas() {
+		if (resumen == null) {
+			resumen = new Estadisticas.Filas(tamaño);
+			resumirFilas();
+		}
+	}
+
+	/**
+	 * Desde que se siguen, cada generación resume las filas que calcula, 
+	 * palabra a palabra, con recuentos de bits; sólo se combinan esos resúmenes.
+	 */
+	@Override
+	public Estadisticas getEstadisticas() {
+		seguirEstadisticas();
+		return resumen.obtener();
+	}
+
+	/**
+	 * Resume todas las filas del estado actual; sólo al empezar el 
+	 * seguimiento o al cargar otro estado. El búfer de destino conserva 
+	 * entera la generación anterior, también en las teselas estables, que 
+	 * tienen el mismo contenido en ambos.
+	 */
+	private void resumirFilas() {
+		for (int i = 0; i < tamaño; i++) {
+			int base = (i + 1) * palabras;
+			resumen.resumirPalabras(i, hayAnterior ? nuevasCeldas : null, base, celdas, base, palabras);
+		}
+	}
+
+	/**
+	 * Los bits que cambian entre el búfer actual y el de destino, que 
+	 * conserva la generación anterior, palabra a palabra; con seguimiento
+	 * de actividad sólo se miran las teselas cambiadas.
+	 */
+	@Override
+	public CambiosGeneracion getCambios(long generacion) {
+		CambiosGeneracion.Codificador codificador = new CambiosGeneracion.Codificador(generacion, tamaño);
+		if (!hayAnterior) {
+			return codificador.obtener();
+		}
+		for (int i = 0; i < tamaño; i++) {
+			int base = (i + 1) * palabras;
+			int teselas = (i / FILAS_TESELA) * palabras;
+			for (int k = 0; k < palabras; k++) {
+				if (teselasCambiadas != null && !teselasCambiadas[teselas + k]) {
+					continue;
+				}
+				long cambiadas = celdas[base + k] ^ nuevasCeldas[base + k];
+				if (cambiadas != 0) {
+					codificador.palabra(i, k << 6, celdas[base + k] & cambiadas, 
+							nuevasCeldas[base + k] & cambiadas);
+				}
+			}
+		}
+		return codificador.obtener();
+	}
+
+	@Override
+	public long getHuella() {
+		if (!seguirHuella) {
+			huella = 0;
+			for (int i = 0; i < tamaño; i++) {
+				int base = (i + 1) * palabras;
+				for (int k = 0; k < palabras; k++) {
+					huella ^= Huella.palabra(i, k << 6, celdas[base + k]);
+				}
+			}
+			if (cambiosHuella == null) {
+				cambiosHuella = new long[tamaño + 2];
+			}
+			seguirHuella = true;
+		}
+		return huella;
+	}
+
+	/**
+	 * Calcula las teselas activas de una franja de filas de teselas
+	 * y anota cuáles han cambiado.
+	 * @param desde - primera fila de teselas incluida.
+	 * @param hasta - última fila de teselas excluida.
+	 */
+	private void actualizarTeselas(int desde, int hasta) {
+		for (int t = desde; t < hasta; t++) {
+			int primera = 1 + t * FILAS_TESELA;
+			int ultima = Math.min(primera + FILAS_TESELA, tamaño + 1);
+			if (seguirHuella) {
+				Arrays.fill(cambiosHuella, primera, ultima, 0L);
+			}
+			boolean activas = false;
+			for (int k = 0; k < palabras; k++) {
+				boolean cambiada = false;
+				if (teselaActiva(t, k)) {
+					activas = true;
+					for (int fila = primera; fila < ultima; fila++) {
+						int centro = fila * palabras;
+						long nueva = reglaBits.calcularPalabra(celdas, centro - palabras, centro, centro + palabras, k);
+						nuevasCeldas[centro + k] = nueva;
+						if (nueva != celdas[centro + k]) {
+							cambiada = true;
+							if (seguirHuella) {
+								cambiosHuella[fila] ^= Huella.palabra(fila - 1, k << 6, nueva ^ celdas[centro + k]);
+							}
+						}
+					}
+				}
+				nuevasTeselasCambiadas[t * palabras + k] = cambiada;
+			}
+			// Sin teselas activas en la franja, tampoco cambió en la generación
+			// anterior: sus resúmenes, sin nacimientos ni muertes, siguen valiendo.
+			if (resumen != null && activas) {
+				for (int fila = primera; fila < ultima; fila++) {
+					int centro = fila * palabras;
+					resumen.resumirPalabras(fila - 1, celdas, centro, nuevasCeldas, centro, palabras);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Una tesela es activa si ella o alguna adyacente cambió en la generación anterior.
+	 */
+	private boolean teselaActiva(int t, int k) {
+		for (int dt = -1; dt <= 1; dt++) {
+			int ft = t + dt;
+			if (ft < 0 || ft >= filasTeselas) {
+				if (!esferico) {
+					continue;
+				}
+				ft = Math.floorMod(ft, filasTeselas);
+			}
+			for (int dk = -1; dk <= 1; dk++) {
+				int ck = k + dk;
+				if (ck < 0 || ck >= palabras) {
+					if (!esferico) {
+						continue;
+					}
+					ck = Math.floorMod(ck, palabras);
+				}
+				if (teselasCambiadas[ft * palabras + ck]) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Copia las filas de los extremos opuestos en el halo (esférico)
+	 * o lo deja a cero (plano).
+	 */
+	private void rellenarHalo() {
+		int ultima = tamaño * palabras;
+		if (esferico) {
+			System.arraycopy(celdas, ultima, celdas, 0, palabras);
+			System.arraycopy(celdas, palabras, celdas, ultima + palabras, palabras);
+		}
+		else {
+			Arrays.fill(celdas, 0, palabras, 0L);
+			Arrays.fill(celdas, ultima + palabras, ultima + 2 * palabras, 0L);
+		}
+	}
+
+	/**
+	 * Calcula una franja de filas de la nueva generación.
+	 * @param desde - primera fila con halo incluida.
+	 * @param hasta - última fila con halo excluida.
+	 */
+	private void actualizarFilas(int desde, int hasta) {
+		for (int i = desde; i < hasta; i++) {
+			actualizarFila(i);
+		}
+	}
+
+	/**
+	 * Calcula una fila de la nueva generación, palabra a palabra.
+	 * @param fila - fila con halo, en base 1.
+	 */
+	private void actualizarFila(int fila) {
+		int centro = fila * palabras;
+		long cambios = 0;
+		for (int k = 0; k < palabras; k++) {
+			long nueva = reglaBits.calcularPalabra(celdas, centro - palabras, centro, centro + palabras, k);
+			nuevasCeldas[centro + k] = nueva;
+			if (seguirHuella && nueva != celdas[centro + k]) {
+				cambios ^= Huella.palabra(fila - 1, k << 6, nueva ^ celdas[centro + k]);
+			}
+		}
+		if (seguirHuella) {
+			cambiosHuella[fila] = cambios;
+		}
+		if (resumen != null) {
+			resumen.resumirPalabras(fila - 1, celdas, centro, nuevasCeldas, centro, palabras);
+		}
+	}
+
+} // class
@@ -0,0 +1,29 @@
+/**
+ * Proyecto: Juego de la vida.
+ * Interfaz de los motores que guardan por sí solos el estado de un Mundo,
+ * sin espacio denso byte[][]: se leen y se escriben por células, sin
+ * volcar ni cargar el espacio entero.
+ * @since: prototipo2.1
+ * @source: MotorCeldas.java
+ * @version: 2.1 - 2019.06.06
+ * @author: ajp
+ */
+
+package modelo.motor;
+
+public interface MotorCeldas extends Motor {
+
+	/**
+	 * Obtiene las células vivas, empaquetadas como en Distribucion.
+	 * @return un vector nuevo, en orden no especificado.
+	 */
+	long[] getVivas();
+
+	/**
+	 * Hace viva una célula en el estado actual.
+	 * @param fila
+	 * @param col
+	 */
+	void añadir(int fila, int col);
+
+} // interface
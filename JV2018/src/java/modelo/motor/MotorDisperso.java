@@ -0,0 +1,277 @@
+/**
+ * Proyecto: Juego de la vida.
+ * Motor disperso: sólo guarda las células vivas, codificadas como
+ * fila<<32|columna en una TablaLong, y cuenta vecinas únicamente
+ * alrededor de ellas. El coste por generación depende de la población,
+ * no del área.
+ * No admite reglas con nacimiento sin vecinas (B0).
+ * La huella, una vez pedida, se mantiene con los nacimientos y muertes,
+ * que se obtienen comparando las dos tablas: también cuesta según la población.
+ * @since: prototipo2.1
+ * @source: MotorDisperso.java
+ * @version: 2.1 - 2019.05.13
+ * @author: ajp
+ */
+
+package modelo.motor;
+
+import java.util.Arrays;
+
+import modelo.CambiosGeneracion;
+import modelo.Estadisticas;
+import modelo.Mundo;
+import modelo.Mundo.FormaEspacio;
+import modelo.Regla;
+import util.TablaLong;
+
+public class MotorDisperso implements MotorCeldas {
+
+	private static final int[] DESPLAZAMIENTO_FILA = { -1, -1, -1,  0, 0,  1, 1, 1 };
+	private static final int[] DESPLAZAMIENTO_COL =  { -1,  0,  1, -1, 1, -1, 0, 1 };
+
+	private final int tamaño;
+	private final boolean esferico;
+	private final Regla regla;
+	private TablaLong vivas;
+	private TablaLong nuevasVivas;
+	private final TablaLong vecinas;
+	private boolean hayAnterior;
+	// Huella Zobrist, desde la primera consulta.
+	private boolean seguirHuella;
+	private long huella;
+
+	/**
+	 * Indica si el motor puede aplicar la regla.
+	 * @param regla - leyes del mundo.
+	 * @return true si no hay nacimiento sin vecinas.
+	 */
+	public static boolean admite(Regla regla) {
+		return !regla.naceCon(0);
+	}
+
+	/**
+	 * Constructor convencional.
+	 * @param tamaño - lado del espacio cuadrado.
+	 * @param forma - forma del espacio.
+	 * @param regla - leyes del mundo.
+	 */
+	public MotorDisperso(int tamaño, FormaEspacio forma, Regla regla) {
+		assert tamaño >= 0;
+		assert admite(regla);
+		this.tamaño = tamaño;
+		this.esferico = forma == FormaEspacio.ESFERICO;
+		this.regla = regla;
+		this.vivas = new TablaLong();
+		this.nuevasVivas = new TablaLong();
+		this.vecinas = new TablaLong();
+	}
+
+	/**
+	 * Codifica una coordenada como clave de la tabla.
+	 */
+	public static long codificar(int fila, int col) {
+		return ((long) fila << 32) | (col & 0xFFFFFFFFL);
+	}
+
+	public static int fila(long clave) {
+		return (int) (clave >> 32);
+	}
+
+	public static int columna(long clave) {
+		return (int) clave;
+	}
+
+	@Override
+	public void cargar(byte[][] espacio) {
+		assert espacio.length == tamaño;
+		vivas.limpiar();
+		for (int i = 0; i < espacio.length; i++) {
+			for (int j = 0; j < espacio[i].length; j++) {
+				if (espacio[i][j] == 1) {
+					vivas.añadir(codificar(i, j));
+				}
+			}
+		}
+		hayAnterior = false;
+		seguirHuella = false;
+	}
+
+	/**
+	 * Añade una célula viva sin pasar por un espacio denso.
+	 */
+	@Override
+	public void añadir(int fila, int col) {
+		if (vivas.añadir(codificar(fila, col)) && seguirHuella) {
+			huella ^= Mundo.claveZobrist(fila, col);
+		}
+		hayAnterior = false;
+	}
+
+	public int getPoblacion() {
+		return vivas.tamaño();
+	}
+
+	/**
+	 * Obtiene las células vivas codificadas con codificar().
+	 * @return claves en orden no especificado.
+	 */
+	@Override
+	public long[] getVivas() {
+		long[] resultado = new long[vivas.tamaño()];
+		int n = 0;
+		for (int i = 0; i < vivas.capacidad(); i++) {
+			if (vivas.ocupada(i)) {
+				resultado[n++] = vivas.clave(i);
+			}
+		}
+		return resultado;
+	}
+
+	@Override
+	public byte[][] volcar() {
+		byte[][] espacio = new byte[tamaño][tamaño];
+		for (long clave : getVivas()) {
+			espacio[fila(clave)][columna(clave)] = 1;
+		}
+		return espacio;
+	}
+
+	@Override
+	public void actualizar() {
+		contarVecinas();
+		nuevasVivas.limpiar();
+		// Nacimientos y supervivientes con alguna vecina.
+		for (int i = 0; i < vecinas.capacidad(); i++) {
+			if (vecinas.ocupada(i)) {
+				long clave = vecinas.clave(i);
+				int cuenta = vecinas.valor(i);
+				if (vivas.contiene(clave) ? regla.sobreviveCon(cuenta) : regla.naceCon(cuenta)) {
+					nuevasVivas.añadir(clave);
+				}
+			}
+		}
+		// Supervivientes aisladas.
+		if (regla.sobreviveCon(0)) {
+			for (int i = 0; i < vivas.capacidad(); i++) {
+				if (vivas.ocupada(i) && !vecinas.contiene(vivas.clave(i))) {
+					nuevasVivas.añadir(vivas.clave(i));
+				}
+			}
+		}
+		TablaLong aux = vivas;
+		vivas = nuevasVivas;
+		nuevasVivas = aux;
+		hayAnterior = true;
+		if (seguirHuella) {
+			huella ^= clavesAusentes(vivas, nuevasVivas) ^ clavesAusentes(nuevasVivas, vivas);
+		}
+	}
+
+	/**
+	 * Las células vivas ordenadas: cuesta según la población.
+	 */
+	@Override
+	public long[] copiarEstado() {
+		long[] estado = getVivas();
+		Arrays.sort(estado);
+		return estado;
+	}
+
+	@Override
+	public long getHuella() {
+		if (!seguirHuella) {
+			huella = clavesAusentes(vivas, null);
+			seguirHuella = true;
+		}
+		return huella;
+	}
+
+	/**
+	 * XOR de las claves Zobrist de las células de una tabla que no están en otra.
+	 * @param tabla - células que se recorren.
+	 * @param otra - células que se excluyen; null para no excluir ninguna.
+	 * @return el XOR de sus claves.
+	 */
+	private static long clavesAusentes(TablaLong tabla, TablaLong otra) {
+		long claves = 0;
+		for (int i = 0; i < tabla.capacidad(); i++) {
+			if (tabla.ocupada(i) && (otra == null || !otra.contiene(tabla.clave(i)))) {
+				claves ^= Mundo.claveZobrist(fila(tabla.clave(i)), columna(tabla.clave(i)));
+			}
+		}
+		return claves;
+	}
+
+	/**
+	 * Se obtienen a demanda recorriendo sólo las células vivas de esta 
+	 * generación y de la anterior, que conserva la tabla de destino.
+	 */
+	@Override
+	public Estadisticas getEstadisticas() {
+		Estadisticas.Acumulador acumulador = new Estadisticas.Acumulador();
+		for (int i = 0; i < vivas.capacidad(); i++) {
+			if (vivas.ocupada(i)) {
+				long clave = vivas.clave(i);
+				int nacida = hayAnterior && !nuevasVivas.contiene(clave) ? 1 : 0;
+				acumulador.añadir(fila(clave), columna(clave), columna(clave), 1, nacida, 0);
+			}
+		}
+		if (hayAnterior) {
+			for (int i = 0; i < nuevasVivas.capacidad(); i++) {
+				if (nuevasVivas.ocupada(i) && !vivas.contiene(nuevasVivas.clave(i))) {
+					acumulador.añadir(fila(nuevasVivas.clave(i)), 0, 0, 0, 0, 1);
+				}
+			}
+		}
+		return acumulador.obtener();
+	}
+
+	/**
+	 * Las nacidas son las vivas que no están en la tabla de la generación
+	 * anterior y las muertas, las de esa tabla que ya no están vivas.
+	 */
+	@Override
+	public CambiosGeneracion getCambios(long generacion) {
+		CambiosGeneracion.Codificador codificador = new CambiosGeneracion.Codificador(generacion, tamaño);
+		if (hayAnterior) {
+			for (int i = 0; i < vivas.capacidad(); i++) {
+				if (vivas.ocupada(i) && !nuevasVivas.contiene(vivas.clave(i))) {
+					codificador.nacimiento(fila(vivas.clave(i)), columna(vivas.clave(i)));
+				}
+			}
+			for (int i = 0; i < nuevasVivas.capacidad(); i++) {
+				if (nuevasVivas.ocupada(i) && !vivas.contiene(nuevasVivas.clave(i))) {
+					codificador.muerte(fila(nuevasVivas.clave(i)), columna(nuevasVivas.clave(i)));
+				}
+			}
+		}
+		return codificador.obtener();
+	}
+
+	/**
+	 * Acumula en vecinas el recuento de cada celda adyacente a una viva.
+	 */
+	private void contarVecinas() {
+		vecinas.limpiar();
+		for (int i = 0; i < vivas.capacidad(); i++) {
+			if (!vivas.ocupada(i)) {
+				continue;
+			}
+			int fila = fila(vivas.clave(i));
+			int col = columna(vivas.clave(i));
+			for (int d = 0; d < 8; d++) {
+				int f = fila + DESPLAZAMIENTO_FILA[d];
+				int c = col + DESPLAZAMIENTO_COL[d];
+				if (esferico) {
+					f = Math.floorMod(f, tamaño);
+					c = Math.floorMod(c, tamaño);
+				}
+				else if (f < 0 || f >= tamaño || c < 0 || c >= tamaño) {
+					continue;
+				}
+				vecinas.incrementar(codificar(f, c));
+			}
+		}
+	}
+
+} // class
@@ -0,0 +1,399 @@
+/**
+ * Proyecto: Juego de la vida.
+ * Motor de las leyes "Generations" -más de dos estados- en planos de bits.
+ * Las células vivas ocupan un plano con la disposición de MotorBits, halo
+ * incluido, y se calculan con la misma ReglaBits; la decadencia se guarda
+ * como un contador en tantos planos como bits necesita C-2: 1 bit más por
+ * celda para el Cerebro de Brian (C=3) y 2 para Star Wars (C=4).
+ * El contador sólo depende de la propia celda, así que avanza en el sitio,
+ * palabra a palabra, con un incremento con acarreo sobre los planos.
+ * La huella, una vez pedida, se mantiene con las celdas que cambian de
+ * estado: las que cambian en el plano de vivas o en algún contador.
+ * @since: prototipo2.1
+ * @source: MotorGeneraciones.java
+ * @version: 2.1 - 2019.06.03
+ * @author: ajp
+ */
+
+package modelo.motor;
+
+import java.util.Arrays;
+
+import modelo.CambiosGeneracion;
+import modelo.Estadisticas;
+import modelo.Mundo;
+import modelo.Mundo.FormaEspacio;
+import modelo.Regla;
+
+public class MotorGeneraciones implements Motor {
+
+	private final int tamaño;
+	private final int palabras;
+	private final boolean esferico;
+	private final ReglaBits reglaBits;
+	private final int estados;
+	// Valor del contador con el que la celda vuelve a estar muerta; -1 si
+	// no cabe en los planos, porque entonces el desbordamiento ya lo deja a 0.
+	private final int contadorFinal;
+	private long[] celdas;
+	private long[] nuevasCeldas;
+	private final long[][] planos;
+	// Resúmenes por fila del plano de vivas, sólo si se siguen las estadísticas.
+	private Estadisticas.Filas resumen;
+	private boolean hayAnterior;
+	// Huella Zobrist, desde la primera consulta, y su cambio en cada fila con halo.
+	private boolean seguirHuella;
+	private long huella;
+	private long[] cambiosHuella;
+	private final EjecutorFranjas.TareaFilas tareaFilas = this::actualizarFilas;
+
+	/**
+	 * Constructor convencional.
+	 * @param tamaño - lado del espacio cuadrado.
+	 * @param forma - forma del espacio.
+	 * @param regla - leyes del mundo, de más de dos estados.
+	 */
+	public MotorGeneraciones(int tamaño, FormaEspacio forma, Regla regla) {
+		assert tamaño >= 0;
+		assert forma != null;
+		assert regla.getEstados() > 2;
+		this.tamaño = tamaño;
+		this.palabras = (tamaño + 63) >>> 6;
+		this.esferico = forma == FormaEspacio.ESFERICO;
+		this.reglaBits = new ReglaBits(tamaño, esferico, regla);
+		this.estados = regla.getEstados();
+		this.celdas = new long[(tamaño + 2) * palabras];
+		this.nuevasCeldas = new long[(tamaño + 2) * palabras];
+		int bits = 32 - Integer.numberOfLeadingZeros(regla.getEstados() - 2);
+		this.planos = new long[bits][(tamaño + 2) * palabras];
+		this.contadorFinal = regla.getEstados() - 1 < 1 << bits ? regla.getEstados() - 1 : -1;
+	}
+
+	/**
+	 * El estado s de decadencia se guarda como contador s-1.
+	 */
+	@Override
+	public void cargar(byte[][] espacio) {
+		assert espacio.length == tamaño;
+		Arrays.fill(celdas, 0L);
+		for (long[] plano : planos) {
+			Arrays.fill(plano, 0L);
+		}
+		for (int i = 0; i < tamaño; i++) {
+			int base = (i + 1) * palabras;
+			for (int j = 0; j < tamaño; j++) {
+				int estado = espacio[i][j] & 0xFF;
+				long bit = 1L << (j & 63);
+				if (estado == 1) {
+					celdas[base + (j >>> 6)] |= bit;
+				}
+				else if (estado > 1) {
+					for (int p = 0; p < planos.length; p++) {
+						if (((estado - 1) >>> p & 1) != 0) {
+							planos[p][base + (j >>> 6)] |= bit;
+						}
+					}
+				}
+			}
+		}
+		hayAnterior = false;
+		seguirHuella = false;
+		if (resumen != null) {
+			resumirFilas();
+		}
+	}
+
+	@Override
+	public byte[][] volcar() {
+		byte[][] espacio = new byte[tamaño][tamaño];
+		for (int i = 0; i < tamaño; i++) {
+			int base = (i + 1) * palabras;
+			for (int j = 0; j < tamaño; j++) {
+				int indice = base + (j >>> 6);
+				int desplazamiento = j & 63;
+				int contador = 0;
+				for (int p = 0; p < planos.length; p++) {
+					contador |= (int) ((planos[p][indice] >>> desplazamiento) & 1L) << p;
+				}
+				if (contador != 0) {
+					espacio[i][j] = (byte) (contador + 1);
+				}
+				else {
+					espacio[i][j] = (byte) ((celdas[indice] >>> desplazamiento) & 1L);
+				}
+			}
+		}
+		return espacio;
+	}
+
+	@Override
+	public void actualizar() {
+		if (tamaño == 0) {
+			return;
+		}
+		rellenarHalo();
+		EjecutorFranjas.ejecutar(1, tamaño + 1, tareaFilas);
+		long[] aux = celdas;
+		celdas = nuevasCeldas;
+		nuevasCeldas = aux;
+		hayAnterior = true;
+		if (seguirHuella) {
+			for (int i = 1; i <= tamaño; i++) {
+				huella ^= cambiosHuella[i];
+			}
+		}
+	}
+
+	@Override
+	public long getHuella() {
+		if (!seguirHuella) {
+			huella = 0;
+			long[] contadores = new long[planos.length];
+			for (int i = 1; i <= tamaño; i++) {
+				for (int k = 0; k < palabras; k++) {
+					int indice = i * palabras + k;
+					long ocupadas = celdas[indice];
+					for (int p = 0; p < planos.length; p++) {
+						contadores[p] = planos[p][indice];
+						ocupadas |= contadores[p];
+					}
+					huella ^= claves(i - 1, k << 6, ocupadas, celdas[indice], contadores);
+				}
+			}
+			if (cambiosHuella == null) {
+				cambiosHuella = new long[tamaño + 2];
+			}
+			seguirHuella = true;
+		}
+		return huella;
+	}
+
+	/**
+	 * XOR de las claves de unas celdas de una palabra en su estado:
+	 * el contador más uno si está en decadencia o el bit de viva.
+	 * @param fila - fila del espacio, sin halo.
+	 * @param columna - columna del bit 0.
+	 * @param bits - celdas que se incluyen.
+	 * @param viva - palabra del plano de vivas.
+	 * @param contadores - palabras de los planos del contador.
+	 * @return el XOR de sus claves.
+	 */
+	private static long claves(int fila, int columna, long bits, long viva, long[] contadores) {
+		long claves = 0;
+		while (bits != 0) {
+			int b = Long.numberOfTrailingZeros(bits);
+			int contador = 0;
+			for (int p = 0; p < contadores.length; p++) {
+				contador |= (int) ((contadores[p] >>> b) & 1L) << p;
+			}
+			int estado = contador != 0 ? contador + 1 : (int) ((viva >>> b) & 1L);
+			claves ^= Mundo.claveZobrist(fila, columna + b, estado);
+			bits &= bits - 1;
+		}
+		return claves;
+	}
+
+	/**
+	 * Avanza generación a generación hasta que el mundo deja de cambiar:
+	 * las vivas son las mismas y no hay ninguna en decadencia, ni ahora
+	 * ni en la generación anterior, que también pudo impedir nacimientos.
+	 * @param generaciones - número de generaciones a avanzar.
+	 */
+	@Override
+	public void avanzar(long generaciones) {
+		assert generaciones >= 0;
+		boolean sinDecadencia = sinDecadencia();
+		for (long g = 0; g < generaciones; g++) {
+			boolean anteriorSinDecadencia = sinDecadencia;
+			actualizar();
+			sinDecadencia = sinDecadencia();
+			if (anteriorSinDecadencia && sinDecadencia && vivasIguales()) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Las filas del plano de vivas y las de cada plano del contador, sin el halo.
+	 */
+	@Override
+	public long[] copiarEstado() {
+		int longitud = tamaño * palabras;
+		long[] estado = new long[(planos.length + 1) * longitud];
+		System.arraycopy(celdas, palabras, estado, 0, longitud);
+		for (int p = 0; p < planos.length; p++) {
+			System.arraycopy(planos[p], palabras, estado, (p + 1) * longitud, longitud);
+		}
+		return estado;
+	}
+
+	private boolean vivasIguales() {
+		return Arrays.equals(celdas, palabras, (tamaño + 1) * palabras,
+				nuevasCeldas, palabras, (tamaño + 1) * palabras);
+	}
+
+	private boolean sinDecadencia() {
+		for (long[] plano : planos) {
+			for (long palabra : plano) {
+				if (palabra != 0) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public void seguirEstadisticas() {
+		if (resumen == null) {
+			resumen = new Estadisticas.Filas(tamaño);
+			resumirFilas();
+		}
+	}
+
+	/**
+	 * Se obtienen del plano de vivas, que cada generación resume fila a 
+	 * fila desde que se siguen; la decadencia no cuenta en la población: 
+	 * una célula en decadencia ya ha muerto.
+	 */
+	@Override
+	public Estadisticas getEstadisticas() {
+		seguirEstadisticas();
+		return resumen.obtener();
+	}
+
+	/**
+	 * Los bits del plano de vivas que cambian respecto al búfer de destino,
+	 * que conserva la generación anterior, palabra a palabra; los pasos de
+	 * la decadencia se reproducen con el número de estados.
+	 */
+	@Override
+	public CambiosGeneracion getCambios(long generacion) {
+		CambiosGeneracion.Codificador codificador = new CambiosGeneracion.Codificador(generacion, tamaño, estados);
+		if (!hayAnterior) {
+			return codificador.obtener();
+		}
+		for (int i = 0; i < tamaño; i++) {
+			int base = (i + 1) * palabras;
+			for (int k = 0; k < palabras; k++) {
+				long cambiadas = celdas[base + k] ^ nuevasCeldas[base + k];
+				if (cambiadas != 0) {
+					codificador.palabra(i, k << 6, celdas[base + k] & cambiadas, 
+							nuevasCeldas[base + k] & cambiadas);
+				}
+			}
+		}
+		return codificador.obtener();
+	}
+
+	/**
+	 * Resume todas las filas del estado actual; sólo al empezar el seguimiento.
+	 */
+	private void resumirFilas() {
+		for (int i = 0; i < tamaño; i++) {
+			int base = (i + 1) * palabras;
+			resumen.resumirPalabras(i, hayAnterior ? nuevasCeldas : null, base, celdas, base, palabras);
+		}
+	}
+
+	/**
+	 * Copia las filas de los extremos opuestos en el halo (esférico)
+	 * o lo deja a cero (plano). Sólo el plano de vivas tiene vecinas.
+	 */
+	private void rellenarHalo() {
+		int ultima = tamaño * palabras;
+		if (esferico) {
+			System.arraycopy(celdas, ultima, celdas, 0, palabras);
+			System.arraycopy(celdas, palabras, celdas, ultima + palabras, palabras);
+		}
+		else {
+			Arrays.fill(celdas, 0, palabras, 0L);
+			Arrays.fill(celdas, ultima + palabras, ultima + 2 * palabras, 0L);
+		}
+	}
+
+	/**
+	 * Calcula una franja de filas de la nueva generación.
+	 * @param desde - primera fila con halo incluida.
+	 * @param hasta - última fila con halo excluida.
+	 */
+	private void actualizarFilas(int desde, int hasta) {
+		if (!seguirHuella) {
+			for (int i = desde; i < hasta; i++) {
+				int centro = i * palabras;
+				for (int k = 0; k < palabras; k++) {
+					actualizarPalabra(centro, k);
+				}
+				if (resumen != null) {
+					resumen.resumirPalabras(i - 1, celdas, centro, nuevasCeldas, centro, palabras);
+				}
+			}
+			return;
+		}
+		// Contadores de antes y después de cada palabra, propios de la franja.
+		long[] anteriores = new long[planos.length];
+		long[] posteriores = new long[planos.length];
+		for (int i = desde; i < hasta; i++) {
+			int centro = i * palabras;
+			long cambios = 0;
+			for (int k = 0; k < palabras; k++) {
+				int indice = centro + k;
+				long viva = celdas[indice];
+				long distintos = 0;
+				for (int p = 0; p < planos.length; p++) {
+					anteriores[p] = planos[p][indice];
+				}
+				actualizarPalabra(centro, k);
+				long nueva = nuevasCeldas[indice];
+				for (int p = 0; p < planos.length; p++) {
+					posteriores[p] = planos[p][indice];
+					distintos |= anteriores[p] ^ posteriores[p];
+				}
+				distintos |= viva ^ nueva;
+				if (distintos != 0) {
+					cambios ^= claves(i - 1, k << 6, distintos, viva, anteriores)
+							^ claves(i - 1, k << 6, distintos, nueva, posteriores);
+				}
+			}
+			cambiosHuella[i] = cambios;
+			if (resumen != null) {
+				resumen.resumirPalabras(i - 1, celdas, centro, nuevasCeldas, centro, palabras);
+			}
+		}
+	}
+
+	/**
+	 * Calcula 64 celdas: las vivas con ReglaBits, sin nacimientos en las que
+	 * están en decadencia; las que no sobreviven empiezan a contar desde 1 y
+	 * las que ya contaban avanzan, hasta volver a 0 tras el último estado.
+	 * @param centro - inicio de la fila, con halo.
+	 * @param k - índice de la palabra en la fila.
+	 */
+	private void actualizarPalabra(int centro, int k) {
+		int indice = centro + k;
+		long decadencia = 0;
+		for (long[] plano : planos) {
+			decadencia |= plano[indice];
+		}
+		long viva = celdas[indice];
+		long nueva = reglaBits.calcularPalabra(celdas, centro - palabras, centro, centro + palabras, k) & ~decadencia;
+		nuevasCeldas[indice] = nueva;
+
+		long acarreo = decadencia;
+		long finales = -1L;
+		for (int p = 0; p < planos.length; p++) {
+			long bit = planos[p][indice];
+			long suma = bit ^ acarreo;
+			acarreo &= bit;
+			planos[p][indice] = suma;
+			finales &= ((contadorFinal >>> p) & 1) != 0 ? suma : ~suma;
+		}
+		if (contadorFinal > 0) {
+			for (long[] plano : planos) {
+				plano[indice] &= ~finales;
+			}
+		}
+		planos[0][indice] |= viva & ~nueva;
+	}
+
+} // class
@@ -0,0 +1,235 @@
+/**
+ * Proyecto: Juego de la vida.
+ * Motor de una celda por byte rodeado por un borde de celdas fantasma:
+ * una fila y una columna de halo a cada lado. Antes de cada generación el
+ * halo se rellena con las celdas del extremo opuesto (esférico) o se deja
+ * a cero (plano), así que el bucle interior suma las vecinas con
+ * desplazamientos fijos sobre un vector plano, sin condiciones ni
+ * comprobaciones de límites.
+ * La huella, una vez pedida, se mantiene con las celdas que cambian.
+ * @since: prototipo2.1
+ * @source: MotorHalo.java
+ * @version: 2.1 - 2019.05.21
+ * @author: ajp
+ */
+
+package modelo.motor;
+
+import java.util.Arrays;
+
+import modelo.CambiosGeneracion;
+import modelo.Estadisticas;
+import modelo.Mundo.FormaEspacio;
+import modelo.Regla;
+
+public class MotorHalo implements Motor {
+
+	private final int tamaño;
+	private final int ancho;
+	private final boolean esferico;
+	private final byte[] transiciones;
+	private byte[] celdas;
+	private byte[] nuevasCeldas;
+	// Resúmenes por fila, sólo si se siguen las estadísticas.
+	private Estadisticas.Filas resumen;
+	private boolean hayAnterior;
+	// Huella Zobrist, desde la primera consulta, y su cambio en cada fila con halo.
+	private boolean seguirHuella;
+	private long huella;
+	private long[] cambiosHuella;
+	private final EjecutorFranjas.TareaFilas tareaFilas = this::actualizarFilas;
+
+	/**
+	 * Constructor convencional.
+	 * @param tamaño - lado del espacio cuadrado.
+	 * @param forma - forma del espacio.
+	 * @param regla - leyes del mundo.
+	 */
+	public MotorHalo(int tamaño, FormaEspacio forma, Regla regla) {
+		assert tamaño >= 0;
+		assert forma != null;
+		this.tamaño = tamaño;
+		this.ancho = tamaño + 2;
+		this.esferico = forma == FormaEspacio.ESFERICO;
+		this.transiciones = new byte[2 * (Regla.MAX_VECINAS + 1)];
+		for (int indice = 0; indice < transiciones.length; indice++) {
+			transiciones[indice] = regla.siguiente(indice / (Regla.MAX_VECINAS + 1),
+					indice % (Regla.MAX_VECINAS + 1));
+		}
+		this.celdas = new byte[ancho * ancho];
+		this.nuevasCeldas = new byte[ancho * ancho];
+	}
+
+	@Override
+	public void cargar(byte[][] espacio) {
+		assert espacio.length == tamaño;
+		Arrays.fill(celdas, (byte) 0);
+		for (int i = 0; i < tamaño; i++) {
+			System.arraycopy(espacio[i], 0, celdas, (i + 1) * ancho + 1, tamaño);
+		}
+		hayAnterior = false;
+		seguirHuella = false;
+		if (resumen != null) {
+			resumirFilas();
+		}
+	}
+
+	@Override
+	public byte[][] volcar() {
+		byte[][] espacio = new byte[tamaño][tamaño];
+		for (int i = 0; i < tamaño; i++) {
+			System.arraycopy(celdas, (i + 1) * ancho + 1, espacio[i], 0, tamaño);
+		}
+		return espacio;
+	}
+
+	@Override
+	public void actualizar() {
+		if (tamaño == 0) {
+			return;
+		}
+		if (esferico) {
+			rellenarHalo();
+		}
+		EjecutorFranjas.ejecutar(1, tamaño + 1, tareaFilas);
+		byte[] aux = celdas;
+		celdas = nuevasCeldas;
+		nuevasCeldas = aux;
+		hayAnterior = true;
+		if (seguirHuella) {
+			for (int i = 1; i <= tamaño; i++) {
+				huella ^= cambiosHuella[i];
+			}
+		}
+	}
+
+	/**
+	 * Las filas sin halo, empaquetadas en bits: 64 celdas por long.
+	 */
+	@Override
+	public long[] copiarEstado() {
+		int palabras = (tamaño + 63) >>> 6;
+		long[] estado = new long[tamaño * palabras];
+		for (int i = 0; i < tamaño; i++) {
+			int primera = (i + 1) * ancho + 1;
+			for (int j = 0; j < tamaño; j++) {
+				estado[i * palabras + (j >>> 6)] |= (long) celdas[primera + j] << (j & 63);
+			}
+		}
+		return estado;
+	}
+
+	@Override
+	public long getHuella() {
+		if (!seguirHuella) {
+			huella = 0;
+			for (int i = 1; i <= tamaño; i++) {
+				huella ^= Huella.bytes(i - 1, null, celdas, i * ancho + 1, tamaño);
+			}
+			if (cambiosHuella == null) {
+				cambiosHuella = new long[tamaño + 2];
+			}
+			seguirHuella = true;
+		}
+		return huella;
+	}
+
+	@Override
+	public void seguirEstadisticas() {
+		if (resumen == null) {
+			resumen = new Estadisticas.Filas(tamaño);
+			resumirFilas();
+		}
+	}
+
+	@Override
+	public Estadisticas getEstadisticas() {
+		seguirEstadisticas();
+		return resumen.obtener();
+	}
+
+	/**
+	 * Las celdas que difieren del búfer de destino, que conserva la 
+	 * generación anterior, fila a fila sin el halo.
+	 */
+	@Override
+	public CambiosGeneracion getCambios(long generacion) {
+		CambiosGeneracion.Codificador codificador = new CambiosGeneracion.Codificador(generacion, tamaño);
+		if (!hayAnterior) {
+			return codificador.obtener();
+		}
+		for (int i = 0; i < tamaño; i++) {
+			int primera = (i + 1) * ancho + 1;
+			for (int j = 0; j < tamaño; j++) {
+				if (celdas[primera + j] != nuevasCeldas[primera + j]) {
+					if (celdas[primera + j] == 1) {
+						codificador.nacimiento(i, j);
+					}
+					else {
+						codificador.muerte(i, j);
+					}
+				}
+			}
+		}
+		return codificador.obtener();
+	}
+
+	/**
+	 * Resume todas las filas del estado actual; sólo al empezar el seguimiento.
+	 */
+	private void resumirFilas() {
+		for (int i = 1; i <= tamaño; i++) {
+			resumen.resumir(i - 1, hayAnterior ? nuevasCeldas : null, i * ancho + 1,
+					celdas, i * ancho + 1, tamaño);
+		}
+	}
+
+	/**
+	 * Copia en el halo las columnas y filas del extremo opuesto, esquinas incluidas.
+	 * En el plano no hace falta: el halo de los dos búferes nunca se escribe.
+	 */
+	private void rellenarHalo() {
+		for (int i = 1; i <= tamaño; i++) {
+			int base = i * ancho;
+			celdas[base] = celdas[base + tamaño];
+			celdas[base + tamaño + 1] = celdas[base + 1];
+		}
+		System.arraycopy(celdas, tamaño * ancho, celdas, 0, ancho);
+		System.arraycopy(celdas, ancho, celdas, (tamaño + 1) * ancho, ancho);
+	}
+
+	/**
+	 * Calcula una franja de filas de la nueva generación.
+	 * @param desde - primera fila con halo incluida.
+	 * @param hasta - última fila con halo excluida.
+	 */
+	private void actualizarFilas(int desde, int hasta) {
+		final byte[] celdas = this.celdas;
+		final byte[] nuevasCeldas = this.nuevasCeldas;
+		final int ancho = this.ancho;
+		for (int i = desde; i < hasta; i++) {
+			int primera = i * ancho + 1;
+			int ultima = primera + tamaño;
+			// Ventana deslizante de sumas de columnas de tres celdas:
+			// cada celda sólo carga la columna que entra por el Este.
+			int oeste = celdas[primera - ancho - 1] + celdas[primera - 1] + celdas[primera + ancho - 1];
+			int centro = celdas[primera - ancho] + celdas[primera] + celdas[primera + ancho];
+			for (int c = primera; c < ultima; c++) {
+				int este = celdas[c - ancho + 1] + celdas[c + 1] + celdas[c + ancho + 1];
+				int estado = celdas[c];
+				int vecinas = oeste + centro + este - estado;
+				nuevasCeldas[c] = transiciones[estado * (Regla.MAX_VECINAS + 1) + vecinas];
+				oeste = centro;
+				centro = este;
+			}
+			if (resumen != null) {
+				// La fila recién calculada aún está en la caché.
+				resumen.resumir(i - 1, celdas, primera, nuevasCeldas, primera, tamaño);
+			}
+			if (seguirHuella) {
+				cambiosHuella[i] = Huella.bytes(i - 1, celdas, nuevasCeldas, primera, tamaño);
+			}
+		}
+	}
+
+} // class
@@ -0,0 +1,735 @@
+/**
+ * Proyecto: Juego de la vida.
+ * Motor HashLife: el espacio se representa como un árbol cuaternario de nodos
+ * canónicos -cada configuración distinta existe una sola vez- y cada nodo
+ * memoriza su resultado, de forma que los patrones regulares avanzan
+ * exponencialmente muchas generaciones por llamada.
+ * El mundo ocupa la esquina superior izquierda de una raíz de lado 2^k y, si
+ * su lado no es potencia de 2, el resto son celdas pared: siempre muertas y
+ * sin vecinas que contar. El espacio plano se avanza rodeando la raíz de
+ * pared; el esférico equivale a un plano periódico: se avanza un mosaico de
+ * copias del mundo y se recorta el mundo del centro resultante.
+ * La tabla de nodos está acotada; al superar el máximo se recogen los nodos
+ * no alcanzables desde el estado actual y se olvidan los resultados memorizados.
+ * La recogida puede ocurrir dentro de un salto: los nodos que tiene en uso
+ * el cálculo en curso se apilan y también se conservan, así que un solo
+ * salto de 2^k generaciones no hace crecer la tabla sin límite.
+ * La huella, una vez pedida, se mantiene en cada salto comparando la raíz
+ * anterior con la nueva sin bajar por los nodos que comparten.
+ * @since: prototipo2.1
+ * @source: MotorHashLife.java
+ * @version: 2.1 - 2019.05.10
+ * @author: ajp
+ */
+
+package modelo.motor;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+import modelo.CambiosGeneracion;
+import modelo.Estadisticas;
+import modelo.Mundo;
+import modelo.Mundo.FormaEspacio;
+import modelo.Regla;
+
+public class MotorHashLife implements Motor {
+
+	/**
+	 * Nodo canónico del árbol; los de nivel 0 son celdas individuales.
+	 */
+	private static final class Nodo {
+		final Nodo nw;
+		final Nodo ne;
+		final Nodo sw;
+		final Nodo se;
+		final int nivel;
+		final long poblacion;
+		final boolean paredes;		// Contiene alguna celda pared.
+		final int id;
+		final int hash;
+		Nodo siguiente;				// Encadenamiento en la tabla.
+		Nodo resultado;				// Centro avanzado 2^pasoResultado generaciones.
+		int pasoResultado;
+		int marca;
+
+		Nodo(int id, long poblacion, boolean pared) {
+			this.nw = this.ne = this.sw = this.se = null;
+			this.nivel = 0;
+			this.poblacion = poblacion;
+			this.paredes = pared;
+			this.id = id;
+			this.hash = id;
+		}
+
+		Nodo(int id, Nodo nw, Nodo ne, Nodo sw, Nodo se, int hash) {
+			this.nw = nw;
+			this.ne = ne;
+			this.sw = sw;
+			this.se = se;
+			this.nivel = nw.nivel + 1;
+			this.poblacion = nw.poblacion + ne.poblacion + sw.poblacion + se.poblacion;
+			this.paredes = nw.paredes || ne.paredes || sw.paredes || se.paredes;
+			this.id = id;
+			this.hash = hash;
+		}
+	}
+
+	private final int tamaño;
+	private final boolean esferico;
+	private final int nivelMundo;
+	private final Regla regla;
+	private final int nodosMaximos;
+	private final Nodo muerta;
+	private final Nodo viva;
+	private final Nodo pared;
+	private Nodo[] vacios;
+	private Nodo[] muros;
+	private Nodo[] tabla;
+	private int nodos;
+	private int ultimoId;
+	private int marcaActual;
+	// Nodos en uso por el cálculo en curso; raíces de la recogida.
+	private Nodo[] pila;
+	private int cima;
+	// Nodos a partir de los que se recoge; crece si lo conservado ya lo llena.
+	private int umbralRecogida;
+	private int picoNodos;
+	private Nodo raiz;
+	private Nodo raizAnterior;
+	// Mosaico en construcción: nodos por nivel y celda del mundo en su esquina.
+	private HashMap<Long, Nodo> teselas;
+	// Huella Zobrist, desde la primera consulta.
+	private boolean seguirHuella;
+	private long huella;
+
+	/**
+	 * Indica si el motor puede reproducir exactamente un espacio de esa forma y tamaño.
+	 * Los nodos vacíos se dan por estables, así que no admite nacimiento sin vecinas.
+	 * @param tamaño - lado del espacio.
+	 * @param forma - forma del espacio; se admiten las dos.
+	 * @param regla - leyes del mundo.
+	 * @return true si no tiene B0.
+	 */
+	public static boolean admite(int tamaño, FormaEspacio forma, Regla regla) {
+		return tamaño >= 1 && !regla.naceCon(0);
+	}
+
+	/**
+	 * Constructor convencional.
+	 * @param tamaño - lado del espacio.
+	 * @param forma - forma del espacio.
+	 * @param regla - leyes del mundo.
+	 * @param nodosMaximos - tamaño de la tabla a partir del cual se recogen nodos.
+	 */
+	public MotorHashLife(int tamaño, FormaEspacio forma, Regla regla, int nodosMaximos) {
+		assert admite(tamaño, forma, regla);
+		this.tamaño = tamaño;
+		this.esferico = forma == FormaEspacio.ESFERICO;
+		this.nivelMundo = Math.max(1, 32 - Integer.numberOfLeadingZeros(tamaño - 1));
+		this.regla = regla;
+		this.nodosMaximos = nodosMaximos;
+		this.umbralRecogida = nodosMaximos;
+		this.pila = new Nodo[64];
+		this.muerta = new Nodo(ultimoId++, 0, false);
+		this.viva = new Nodo(ultimoId++, 1, false);
+		this.pared = new Nodo(ultimoId++, 0, true);
+		this.tabla = new Nodo[1 << 16];
+		this.vacios = new Nodo[nivelMundo + 3];
+		this.muros = new Nodo[nivelMundo + 3];
+		this.raiz = construir(new byte[tamaño][tamaño], nivelMundo, 0, 0);
+	}
+
+	@Override
+	public void cargar(byte[][] espacio) {
+		assert espacio.length == tamaño;
+		raiz = construir(espacio, nivelMundo, 0, 0);
+		raizAnterior = null;
+		seguirHuella = false;
+	}
+
+	/**
+	 * Construye el nodo que corresponde a la región cuadrada indicada;
+	 * lo que queda fuera del mundo es pared.
+	 */
+	private Nodo construir(byte[][] espacio, int nivel, int fila, int col) {
+		if (fila >= tamaño || col >= tamaño) {
+			return obtenerPared(nivel);
+		}
+		if (nivel == 0) {
+			return espacio[fila][col] == 1 ? viva : muerta;
+		}
+		int mitad = 1 << (nivel - 1);
+		return nodo(construir(espacio, nivel - 1, fila, col),
+				construir(espacio, nivel - 1, fila, col + mitad),
+				construir(espacio, nivel - 1, fila + mitad, col),
+				construir(espacio, nivel - 1, fila + mitad, col + mitad));
+	}
+
+	@Override
+	public byte[][] volcar() {
+		byte[][] espacio = new byte[tamaño][tamaño];
+		volcar(raiz, espacio, 0, 0);
+		return espacio;
+	}
+
+	private void volcar(Nodo nodo, byte[][] espacio, int fila, int col) {
+		if (nodo.poblacion == 0) {
+			return;
+		}
+		if (nodo.nivel == 0) {
+			espacio[fila][col] = 1;
+			return;
+		}
+		int mitad = 1 << (nodo.nivel - 1);
+		volcar(nodo.nw, espacio, fila, col);
+		volcar(nodo.ne, espacio, fila, col + mitad);
+		volcar(nodo.sw, espacio, fila + mitad, col);
+		volcar(nodo.se, espacio, fila + mitad, col + mitad);
+	}
+
+	@Override
+	public void actualizar() {
+		avanzarPaso(0);
+	}
+
+	@Override
+	public boolean saltaGeneraciones() {
+		return true;
+	}
+
+	/**
+	 * Avanza las generaciones indicadas descomponiéndolas en saltos de 2^j,
+	 * con j limitado por el tamaño del mundo: un salto mayor necesita más
+	 * nodos a la vez de los que admite la tabla y recogerlos en mitad del
+	 * salto olvida los resultados que se vuelven a calcular.
+	 * @param generaciones - número de generaciones a avanzar.
+	 */
+	@Override
+	public void avanzar(long generaciones) {
+		assert generaciones >= 0;
+		int pasoMaximo = nivelMundo - 1;
+		while (generaciones >= (1L << pasoMaximo)) {
+			avanzarPaso(pasoMaximo);
+			generaciones -= 1L << pasoMaximo;
+		}
+		for (int paso = pasoMaximo - 1; paso >= 0; paso--) {
+			if ((generaciones & (1L << paso)) != 0) {
+				avanzarPaso(paso);
+			}
+		}
+	}
+
+	/**
+	 * Avanza 2^paso generaciones el mundo.
+	 */
+	private void avanzarPaso(int paso) {
+		raizAnterior = raiz;
+		raiz = esferico ? avanzarEsferico(paso) : avanzarPlano(paso);
+		if (seguirHuella) {
+			huella ^= diferencia(raizAnterior, raiz, 0, 0);
+		}
+		if (nodos > umbralRecogida) {
+			recogerNodos();
+		}
+	}
+
+	/**
+	 * Rodea la raíz de pared y avanza el nodo resultante, cuyo centro
+	 * ocupa el mismo lugar que la raíz.
+	 */
+	private Nodo avanzarPlano(int paso) {
+		return avanzar(rodear(raiz), paso);
+	}
+
+	/**
+	 * Nodo del nivel siguiente con el indicado en el centro y pared alrededor.
+	 */
+	private Nodo rodear(Nodo nodo) {
+		Nodo p = obtenerPared(nodo.nivel - 1);
+		return nodo(nodo(p, p, p, nodo.nw), nodo(p, p, nodo.ne, p),
+				nodo(p, nodo.sw, p, p), nodo(nodo.se, p, p, p));
+	}
+
+	/**
+	 * Avanza un mosaico de copias del mundo de cuatro veces el lado de la
+	 * raíz, con el mundo empezando a un cuarto de lado, justo en la esquina
+	 * del centro que devuelve avanzar(); el resto del centro son copias y se
+	 * recorta. El mosaico se construye por niveles recordando cada nodo por
+	 * la celda del mundo en su esquina: en cada nivel no hay más distintos
+	 * que celdas tiene el mundo. Si el lado es potencia de 2 las copias
+	 * coinciden con la raíz y no se construye nada por debajo.
+	 */
+	private Nodo avanzarEsferico(int paso) {
+		int nivel = nivelMundo + 2;
+		int origen = (int) Math.floorMod(-(1L << (nivel - 2)), (long) tamaño);
+		teselas = new HashMap<Long, Nodo>();
+		Nodo nodo = mosaico(nivel, origen, origen);
+		teselas = null;
+		Nodo resultado = avanzar(nodo, paso);
+		while (resultado.nivel > nivelMundo) {
+			resultado = resultado.nw;
+		}
+		return limitar(resultado, 0, 0);
+	}
+
+	/**
+	 * Nodo del mosaico de lado 2^nivel cuya esquina superior izquierda es
+	 * la celda del mundo indicada.
+	 */
+	private Nodo mosaico(int nivel, int fila, int col) {
+		// Las celdas y los cuadrados alineados que no dan la vuelta ya están en la raíz.
+		if (nivel <= nivelMundo) {
+			int lado = 1 << nivel;
+			if (fila % lado == 0 && col % lado == 0 && fila + lado <= tamaño && col + lado <= tamaño) {
+				return subnodo(nivel, fila, col);
+			}
+		}
+		Long clave = ((long) nivel * tamaño + fila) * tamaño + col;
+		Nodo nodo = teselas.get(clave);
+		if (nodo == null) {
+			int mitad = (int) ((1L << (nivel - 1)) % tamaño);
+			int fila2 = (fila + mitad) % tamaño;
+			int col2 = (col + mitad) % tamaño;
+			nodo = nodo(mosaico(nivel - 1, fila, col), mosaico(nivel - 1, fila, col2),
+					mosaico(nivel - 1, fila2, col), mosaico(nivel - 1, fila2, col2));
+			teselas.put(clave, nodo);
+		}
+		return nodo;
+	}
+
+	/**
+	 * Subnodo de la raíz con la esquina superior izquierda indicada.
+	 */
+	private Nodo subnodo(int nivel, int fila, int col) {
+		Nodo nodo = raiz;
+		for (int n = nivelMundo; n > nivel; n--) {
+			int mitad = 1 << (n - 1);
+			boolean sur = (fila & mitad) != 0;
+			boolean este = (col & mitad) != 0;
+			nodo = sur ? (este ? nodo.se : nodo.sw) : (este ? nodo.ne : nodo.nw);
+		}
+		return nodo;
+	}
+
+	/**
+	 * Sustituye por pared lo que queda fuera del mundo.
+	 */
+	private Nodo limitar(Nodo nodo, int fila, int col) {
+		if (fila >= tamaño || col >= tamaño) {
+			return obtenerPared(nodo.nivel);
+		}
+		int lado = 1 << nodo.nivel;
+		if (fila + lado <= tamaño && col + lado <= tamaño) {
+			return nodo;
+		}
+		int mitad = lado >> 1;
+		return nodo(limitar(nodo.nw, fila, col), limitar(nodo.ne, fila, col + mitad),
+				limitar(nodo.sw, fila + mitad, col), limitar(nodo.se, fila + mitad, col + mitad));
+	}
+
+	/**
+	 * Obtiene el centro del nodo, de la mitad de lado, avanzado 2^paso generaciones.
+	 * @param nodo - de nivel 2 o superior.
+	 * @param paso - como máximo nivel-2.
+	 */
+	private Nodo avanzar(Nodo nodo, int paso) {
+		if (nodo.poblacion == 0) {
+			// Sin B0 nada cambia; la pared sigue donde estaba.
+			return nodo.paredes ? centro(nodo) : obtenerVacio(nodo.nivel - 1);
+		}
+		if (nodo.resultado != null && nodo.pasoResultado == paso) {
+			return nodo.resultado;
+		}
+		int base = cima;
+		apilar(nodo);
+		// Punto seguro: todo lo que usan los cálculos en curso está apilado.
+		if (nodos > umbralRecogida) {
+			recogerNodos();
+		}
+		Nodo resultado;
+		if (nodo.nivel == 2) {
+			resultado = avanzarBase(nodo);
+		}
+		else {
+			// Nueve subnodos solapados de nivel-1.
+			Nodo n00 = nodo.nw;
+			Nodo n01 = apilar(centroHorizontal(nodo.nw, nodo.ne));
+			Nodo n02 = nodo.ne;
+			Nodo n10 = apilar(centroVertical(nodo.nw, nodo.sw));
+			Nodo n11 = apilar(centro(nodo));
+			Nodo n12 = apilar(centroVertical(nodo.ne, nodo.se));
+			Nodo n20 = nodo.sw;
+			Nodo n21 = apilar(centroHorizontal(nodo.sw, nodo.se));
+			Nodo n22 = nodo.se;
+
+			// A velocidad máxima cada mitad del salto se da en una fase distinta.
+			boolean maximo = paso == nodo.nivel - 2;
+			int pasoFase = maximo ? paso - 1 : paso;
+			Nodo r00 = apilar(maximo ? avanzar(n00, pasoFase) : centro(n00));
+			Nodo r01 = apilar(maximo ? avanzar(n01, pasoFase) : centro(n01));
+			Nodo r02 = apilar(maximo ? avanzar(n02, pasoFase) : centro(n02));
+			Nodo r10 = apilar(maximo ? avanzar(n10, pasoFase) : centro(n10));
+			Nodo r11 = apilar(maximo ? avanzar(n11, pasoFase) : centro(n11));
+			Nodo r12 = apilar(maximo ? avanzar(n12, pasoFase) : centro(n12));
+			Nodo r20 = apilar(maximo ? avanzar(n20, pasoFase) : centro(n20));
+			Nodo r21 = apilar(maximo ? avanzar(n21, pasoFase) : centro(n21));
+			Nodo r22 = apilar(maximo ? avanzar(n22, pasoFase) : centro(n22));
+
+			Nodo nw = apilar(avanzar(apilar(nodo(r00, r01, r10, r11)), pasoFase));
+			Nodo ne = apilar(avanzar(apilar(nodo(r01, r02, r11, r12)), pasoFase));
+			Nodo sw = apilar(avanzar(apilar(nodo(r10, r11, r20, r21)), pasoFase));
+			Nodo se = avanzar(apilar(nodo(r11, r12, r21, r22)), pasoFase);
+			resultado = nodo(nw, ne, sw, se);
+		}
+		nodo.resultado = resultado;
+		nodo.pasoResultado = paso;
+		cima = base;
+		return resultado;
+	}
+
+	/**
+	 * Conserva un nodo en uso ante una recogida, hasta que vuelva 
+	 * el avanzar() que lo ha apilado.
+	 * @return el mismo nodo.
+	 */
+	private Nodo apilar(Nodo nodo) {
+		if (cima == pila.length) {
+			pila = Arrays.copyOf(pila, cima * 2);
+		}
+		pila[cima++] = nodo;
+		return nodo;
+	}
+
+	/**
+	 * Se obtienen a demanda del árbol: la población está en cada nodo,
+	 * los límites se buscan descendiendo sólo por nodos ocupados y los 
+	 * nacimientos comparando con la raíz anterior, sin bajar por los nodos 
+	 * que son el mismo en ambas, por ser canónicos.
+	 * Tras avanzar() se comparan con el estado previo al salto.
+	 */
+	@Override
+	public Estadisticas getEstadisticas() {
+		long poblacion = raiz.poblacion;
+		long nacimientos = 0;
+		long muertes = 0;
+		if (raizAnterior != null) {
+			nacimientos = nacimientos(raizAnterior, raiz);
+			muertes = raizAnterior.poblacion + nacimientos - poblacion;
+		}
+		if (poblacion == 0) {
+			return new Estadisticas(0, nacimientos, muertes, -1, -1, -1, -1);
+		}
+		return new Estadisticas(poblacion, nacimientos, muertes,
+				extremo(raiz, true, false), extremo(raiz, true, true),
+				extremo(raiz, false, false), extremo(raiz, false, true));
+	}
+
+	/**
+	 * Cuenta las células vivas en despues que no lo estaban en antes.
+	 */
+	private static long nacimientos(Nodo antes, Nodo despues) {
+		if (antes == despues || despues.poblacion == 0) {
+			return 0;
+		}
+		if (antes.poblacion == 0) {
+			return despues.poblacion;
+		}
+		return nacimientos(antes.nw, despues.nw) + nacimientos(antes.ne, despues.ne)
+				+ nacimientos(antes.sw, despues.sw) + nacimientos(antes.se, despues.se);
+	}
+
+	/**
+	 * Como la huella, compara la raíz anterior con la nueva sin bajar por
+	 * los nodos que comparten. Tras avanzar(), respecto al estado previo al salto.
+	 */
+	@Override
+	public CambiosGeneracion getCambios(long generacion) {
+		CambiosGeneracion.Codificador codificador = new CambiosGeneracion.Codificador(generacion, tamaño);
+		if (raizAnterior != null) {
+			cambios(raizAnterior, raiz, 0, 0, codificador);
+		}
+		return codificador.obtener();
+	}
+
+	/**
+	 * Anota las celdas que difieren en dos nodos del mismo nivel.
+	 * @param antes
+	 * @param despues
+	 * @param fila - fila de la esquina superior izquierda.
+	 * @param col - columna de la esquina superior izquierda.
+	 * @param codificador - destino de los nacimientos y muertes.
+	 */
+	private static void cambios(Nodo antes, Nodo despues, int fila, int col, 
+			CambiosGeneracion.Codificador codificador) {
+		if (antes == despues || antes.poblacion + despues.poblacion == 0) {
+			return;
+		}
+		if (despues.nivel == 0) {
+			if (despues.poblacion != 0) {
+				codificador.nacimiento(fila, col);
+			}
+			else {
+				codificador.muerte(fila, col);
+			}
+			return;
+		}
+		int mitad = 1 << (despues.nivel - 1);
+		cambios(antes.nw, despues.nw, fila, col, codificador);
+		cambios(antes.ne, despues.ne, fila, col + mitad, codificador);
+		cambios(antes.sw, despues.sw, fila + mitad, col, codificador);
+		cambios(antes.se, despues.se, fila + mitad, col + mitad, codificador);
+	}
+
+	@Override
+	public long getHuella() {
+		if (!seguirHuella) {
+			huella = diferencia(obtenerVacio(nivelMundo), raiz, 0, 0);
+			seguirHuella = true;
+		}
+		return huella;
+	}
+
+	/**
+	 * XOR de las claves Zobrist de las celdas que difieren en dos nodos 
+	 * del mismo nivel; no baja por los subnodos que son el mismo ni por los
+	 * que no tienen población en ninguno de los dos.
+	 * @param antes
+	 * @param despues
+	 * @param fila - fila de la esquina superior izquierda.
+	 * @param col - columna de la esquina superior izquierda.
+	 */
+	private static long diferencia(Nodo antes, Nodo despues, int fila, int col) {
+		if (antes == despues || antes.poblacion + despues.poblacion == 0) {
+			return 0;
+		}
+		if (despues.nivel == 0) {
+			return Mundo.claveZobrist(fila, col);
+		}
+		int mitad = 1 << (despues.nivel - 1);
+		return diferencia(antes.nw, despues.nw, fila, col)
+				^ diferencia(antes.ne, despues.ne, fila, col + mitad)
+				^ diferencia(antes.sw, despues.sw, fila + mitad, col)
+				^ diferencia(antes.se, despues.se, fila + mitad, col + mitad);
+	}
+
+	/**
+	 * Obtiene la primera o última fila o columna ocupada de un nodo con 
+	 * población, relativa a su esquina superior izquierda.
+	 * @param nodo - nodo con alguna célula viva.
+	 * @param filas - true para filas, false para columnas.
+	 * @param maximo - true para la última, false para la primera.
+	 */
+	private static int extremo(Nodo nodo, boolean filas, boolean maximo) {
+		if (nodo.nivel == 0) {
+			return 0;
+		}
+		int mitad = 1 << (nodo.nivel - 1);
+		// Mitad inicial (a) y final (b) en la dirección buscada.
+		Nodo a1 = nodo.nw;
+		Nodo a2 = filas ? nodo.ne : nodo.sw;
+		Nodo b1 = filas ? nodo.sw : nodo.ne;
+		Nodo b2 = nodo.se;
+		boolean primeroFinal = maximo ? b1.poblacion + b2.poblacion > 0 : a1.poblacion + a2.poblacion == 0;
+		if (primeroFinal) {
+			return mitad + extremo(b1, b2, filas, maximo);
+		}
+		return extremo(a1, a2, filas, maximo);
+	}
+
+	/**
+	 * Extremo de dos nodos contiguos, al menos uno con población.
+	 */
+	private static int extremo(Nodo uno, Nodo otro, boolean filas, boolean maximo) {
+		if (uno.poblacion == 0) {
+			return extremo(otro, filas, maximo);
+		}
+		if (otro.poblacion == 0) {
+			return extremo(uno, filas, maximo);
+		}
+		int a = extremo(uno, filas, maximo);
+		int b = extremo(otro, filas, maximo);
+		return maximo ? Math.max(a, b) : Math.min(a, b);
+	}
+
+	/**
+	 * Calcula por fuerza bruta el centro 2x2 de un nodo 4x4 tras una generación.
+	 * La pared no cuenta como vecina y sigue siendo pared.
+	 */
+	private Nodo avanzarBase(Nodo nodo) {
+		int[][] celdas = new int[4][4];
+		int[][] cuadrantes = { {0, 0}, {0, 2}, {2, 0}, {2, 2} };
+		Nodo[] hijos = { nodo.nw, nodo.ne, nodo.sw, nodo.se };
+		for (int q = 0; q < 4; q++) {
+			int fila = cuadrantes[q][0];
+			int col = cuadrantes[q][1];
+			celdas[fila][col] = (int) hijos[q].nw.poblacion;
+			celdas[fila][col + 1] = (int) hijos[q].ne.poblacion;
+			celdas[fila + 1][col] = (int) hijos[q].sw.poblacion;
+			celdas[fila + 1][col + 1] = (int) hijos[q].se.poblacion;
+		}
+		Nodo[] centrales = { nodo.nw.se, nodo.ne.sw, nodo.sw.ne, nodo.se.nw };
+		Nodo[] nuevas = new Nodo[4];
+		for (int q = 0; q < 4; q++) {
+			if (centrales[q] == pared) {
+				nuevas[q] = pared;
+				continue;
+			}
+			int fila = 1 + q / 2;
+			int col = 1 + q % 2;
+			int vecinas = 0;
+			for (int df = -1; df <= 1; df++) {
+				for (int dc = -1; dc <= 1; dc++) {
+					vecinas += celdas[fila + df][col + dc];
+				}
+			}
+			vecinas -= celdas[fila][col];
+			nuevas[q] = regla.siguiente(celdas[fila][col], vecinas) == 1 ? viva : muerta;
+		}
+		return nodo(nuevas[0], nuevas[1], nuevas[2], nuevas[3]);
+	}
+
+	private Nodo centro(Nodo nodo) {
+		return nodo(nodo.nw.se, nodo.ne.sw, nodo.sw.ne, nodo.se.nw);
+	}
+
+	private Nodo centroHorizontal(Nodo oeste, Nodo este) {
+		return nodo(oeste.ne, este.nw, oeste.se, este.sw);
+	}
+
+	private Nodo centroVertical(Nodo norte, Nodo sur) {
+		return nodo(norte.sw, norte.se, sur.nw, sur.ne);
+	}
+
+	private Nodo obtenerVacio(int nivel) {
+		if (nivel == 0) {
+			return muerta;
+		}
+		if (vacios[nivel] == null) {
+			Nodo hijo = obtenerVacio(nivel - 1);
+			vacios[nivel] = nodo(hijo, hijo, hijo, hijo);
+		}
+		return vacios[nivel];
+	}
+
+	private Nodo obtenerPared(int nivel) {
+		if (nivel == 0) {
+			return pared;
+		}
+		if (muros[nivel] == null) {
+			Nodo hijo = obtenerPared(nivel - 1);
+			muros[nivel] = nodo(hijo, hijo, hijo, hijo);
+		}
+		return muros[nivel];
+	}
+
+	/**
+	 * Obtiene el nodo canónico con esos cuatro hijos; lo crea si no existe.
+	 */
+	private Nodo nodo(Nodo nw, Nodo ne, Nodo sw, Nodo se) {
+		int hash = dispersion(nw, ne, sw, se);
+		int indice = hash & (tabla.length - 1);
+		for (Nodo n = tabla[indice]; n != null; n = n.siguiente) {
+			if (n.nw == nw && n.ne == ne && n.sw == sw && n.se == se) {
+				return n;
+			}
+		}
+		Nodo nuevo = new Nodo(ultimoId++, nw, ne, sw, se, hash);
+		nuevo.siguiente = tabla[indice];
+		tabla[indice] = nuevo;
+		if (++nodos > picoNodos) {
+			picoNodos = nodos;
+		}
+		if (nodos > tabla.length * 3 / 4) {
+			redimensionar(tabla.length * 2);
+		}
+		return nuevo;
+	}
+
+	private static int dispersion(Nodo nw, Nodo ne, Nodo sw, Nodo se) {
+		int h = nw.id;
+		h = h * 0x9E3779B1 + ne.id;
+		h = h * 0x9E3779B1 + sw.id;
+		h = h * 0x9E3779B1 + se.id;
+		return h ^ (h >>> 15);
+	}
+
+	private void redimensionar(int capacidad) {
+		Nodo[] anterior = tabla;
+		tabla = new Nodo[capacidad];
+		for (Nodo cabeza : anterior) {
+			Nodo n = cabeza;
+			while (n != null) {
+				Nodo sig = n.siguiente;
+				int indice = n.hash & (capacidad - 1);
+				n.siguiente = tabla[indice];
+				tabla[indice] = n;
+				n = sig;
+			}
+		}
+	}
+
+	/**
+	 * Recolección: conserva sólo los nodos alcanzables desde la raíz,
+	 * la anterior, los vacíos, la pared y la pila, y olvida todos los resultados
+	 * memorizados. Si lo conservado pasa de la mitad del máximo, la 
+	 * siguiente se retrasa hasta el doble de lo conservado: recoger en 
+	 * cada punto seguro no liberaría casi nada.
+	 */
+	private void recogerNodos() {
+		marcaActual++;
+		marcar(raiz);
+		if (raizAnterior != null) {
+			marcar(raizAnterior);
+		}
+		for (Nodo vacio : vacios) {
+			if (vacio != null) {
+				marcar(vacio);
+			}
+		}
+		for (Nodo muro : muros) {
+			if (muro != null) {
+				marcar(muro);
+			}
+		}
+		for (int i = 0; i < cima; i++) {
+			marcar(pila[i]);
+		}
+		nodos = 0;
+		for (int i = 0; i < tabla.length; i++) {
+			Nodo conservados = null;
+			Nodo n = tabla[i];
+			while (n != null) {
+				Nodo sig = n.siguiente;
+				n.resultado = null;
+				if (n.marca == marcaActual) {
+					n.siguiente = conservados;
+					conservados = n;
+					nodos++;
+				}
+				n = sig;
+			}
+			tabla[i] = conservados;
+		}
+		umbralRecogida = Math.max(nodosMaximos, 2 * nodos);
+	}
+
+	/**
+	 * @return el mayor número de nodos que ha tenido la tabla.
+	 */
+	public int getPicoNodos() {
+		return picoNodos;
+	}
+
+	private void marcar(Nodo nodo) {
+		if (nodo.nivel == 0 || nodo.marca == marcaActual) {
+			return;
+		}
+		nodo.marca = marcaActual;
+		marcar(nodo.nw);
+		marcar(nodo.ne);
+		marcar(nodo.sw);
+		marcar(nodo.se);
+	}
+
+} // class
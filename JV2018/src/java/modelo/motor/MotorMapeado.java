@@ -0,0 +1,547 @@
+/**
+ * Proyecto: Juego de la vida.
+ * Motor de 64 celdas por long fuera del montón: las filas empaquetadas en
+ * bits se guardan en un fichero proyectado en memoria (FileChannel.map),
+ * así que el tamaño del mundo lo limitan la memoria física y el disco, no
+ * el montón de Java, y el recolector de basura no lo recorre.
+ * El fichero contiene una cabecera y dos planos -generación actual y
+ * anterior- que se alternan; la cabecera indica el tamaño, la forma, las
+ * leyes, el plano actual y la generación, así que el propio fichero es el
+ * estado persistente del mundo: al abrirlo de nuevo con los mismos 
+ * parámetros se continúa donde se dejó. Cada plano se proyecta en
+ * regiones de filas completas de hasta 1 GiB. Cada hilo de cálculo copia
+ * tres filas a su memoria de trabajo, calcula la nueva con la misma lógica
+ * de bits que MotorBits y la escribe en el otro plano.
+ * La huella, una vez pedida, se mantiene con las palabras que cambian: 
+ * cada hilo acumula las de su franja y las añade al terminarla.
+ * @since: prototipo2.1
+ * @source: MotorMapeado.java
+ * @version: 2.1 - 2019.05.27
+ * @author: ajp
+ */
+
+package modelo.motor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import config.Configuracion;
+import modelo.CambiosGeneracion;
+import modelo.Estadisticas;
+import modelo.Mundo;
+import modelo.Mundo.FormaEspacio;
+import modelo.Regla;
+
+public class MotorMapeado implements MotorCeldas {
+
+	// Cabecera: marca "JV18", tamaño, plano actual, generación, forma 
+	// (1 esférico) y máscaras de nacimiento y supervivencia de las leyes.
+	private static final int MARCA = 0x4A563138;
+	private static final int CABECERA = 64;
+	private static final int POSICION_TAMAÑO = 4;
+	private static final int POSICION_PLANO = 8;
+	private static final int POSICION_GENERACION = 16;
+	private static final int POSICION_FORMA = 24;
+	private static final int POSICION_NACE = 28;
+	private static final int POSICION_SOBREVIVE = 32;
+	private static final long REGION_MAXIMA = 1L << 30;
+
+	private final int tamaño;
+	private final int palabras;
+	private final boolean esferico;
+	private final ReglaBits reglaBits;
+	private final FileChannel canal;
+	// Fichero que se borra al cerrar, si es temporal.
+	private Path temporal;
+	private final MappedByteBuffer cabecera;
+	private final int filasRegion;
+	// Regiones de cada plano y sus vistas como long.
+	private final MappedByteBuffer[][] regiones;
+	private final LongBuffer[][] filas;
+	private int plano;
+	private long generacion;
+	private boolean hayAnterior;
+	// Resúmenes por fila, sólo si se siguen las estadísticas; dejan de 
+	// valer al modificar celdas sueltas, hasta la siguiente generación.
+	private Estadisticas.Filas resumen;
+	private boolean resumenDesfasado;
+	// Alguna fila cambió en la última generación.
+	private volatile boolean hayCambios;
+	// Huella Zobrist, desde la primera consulta.
+	private volatile boolean seguirHuella;
+	private long huella;
+	// Memoria de trabajo de cada hilo: filas norte, centro, sur y nueva.
+	private final ThreadLocal<long[]> temporales;
+	private final EjecutorFranjas.TareaFilas tareaFilas = this::actualizarFilas;
+
+	/**
+	 * Constructor convencional. Si el fichero ya contiene un mundo del mismo
+	 * tamaño, forma y leyes, lo abre en el estado en que quedó; si está
+	 * vacío o no existe, lo crea con el espacio vacío.
+	 * @param fichero - fichero del mundo.
+	 * @param tamaño - lado del espacio cuadrado.
+	 * @param forma - forma del espacio.
+	 * @param regla - leyes del mundo.
+	 * @throws UncheckedIOException - si no se puede abrir o proyectar el fichero.
+	 * @throws IllegalArgumentException - si el fichero contiene otra cosa u
+	 * otro mundo.
+	 */
+	public MotorMapeado(Path fichero, int tamaño, FormaEspacio forma, Regla regla) {
+		this(fichero, tamaño, forma, regla, false);
+	}
+
+	/**
+	 * Abre o crea el fichero de un mundo.
+	 * @param reemplazar - true para descartar el mundo que contenga y 
+	 * dejar el espacio vacío, sin comprobar sus parámetros.
+	 */
+	private MotorMapeado(Path fichero, int tamaño, FormaEspacio forma, Regla regla, boolean reemplazar) {
+		assert fichero != null;
+		assert tamaño >= 0;
+		assert forma != null;
+		this.tamaño = tamaño;
+		this.palabras = (tamaño + 63) >>> 6;
+		this.esferico = forma == FormaEspacio.ESFERICO;
+		this.reglaBits = new ReglaBits(tamaño, esferico, regla);
+		this.filasRegion = (int) Math.max(1, REGION_MAXIMA / Math.max(1, palabras * 8L));
+		int numeroRegiones = (tamaño + filasRegion - 1) / filasRegion;
+		this.regiones = new MappedByteBuffer[2][numeroRegiones];
+		this.filas = new LongBuffer[2][numeroRegiones];
+		boolean nuevo;
+		try {
+			canal = FileChannel.open(fichero, StandardOpenOption.CREATE,
+					StandardOpenOption.READ, StandardOpenOption.WRITE);
+			nuevo = canal.size() == 0;
+			cabecera = canal.map(MapMode.READ_WRITE, 0, CABECERA);
+			cabecera.order(ByteOrder.LITTLE_ENDIAN);
+			if (nuevo || reemplazar) {
+				cabecera.putInt(0, MARCA);
+				cabecera.putInt(POSICION_TAMAÑO, tamaño);
+				cabecera.putInt(POSICION_PLANO, 0);
+				cabecera.putLong(POSICION_GENERACION, 0);
+				cabecera.putInt(POSICION_FORMA, esferico ? 1 : 0);
+				cabecera.putInt(POSICION_NACE, regla.getMascaraNace());
+				cabecera.putInt(POSICION_SOBREVIVE, regla.getMascaraSobrevive());
+			}
+			else if (cabecera.getInt(0) != MARCA || cabecera.getInt(POSICION_TAMAÑO) != tamaño
+					|| cabecera.getInt(POSICION_FORMA) != (esferico ? 1 : 0)
+					|| cabecera.getInt(POSICION_NACE) != regla.getMascaraNace()
+					|| cabecera.getInt(POSICION_SOBREVIVE) != regla.getMascaraSobrevive()) {
+				canal.close();
+				throw new IllegalArgumentException("MotorMapeado: " + fichero + " no es un mundo de lado " 
+						+ tamaño + ", " + forma + " y leyes " + regla);
+			}
+			proyectarPlanos();
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		if (reemplazar && !nuevo) {
+			// Las proyecciones de un fichero nuevo ya están a cero.
+			long[] vacia = new long[palabras];
+			for (int i = 0; i < tamaño; i++) {
+				escribirFila(0, i, vacia, 0);
+			}
+		}
+		plano = cabecera.getInt(POSICION_PLANO);
+		generacion = cabecera.getLong(POSICION_GENERACION);
+		// El otro plano conserva la generación anterior.
+		hayAnterior = generacion > 0;
+		temporales = ThreadLocal.withInitial(() -> new long[4 * palabras]);
+	}
+
+	/**
+	 * Crea un motor con el espacio vacío sobre un fichero persistente, 
+	 * sustituyendo el mundo que contenga; el fichero no se borra al cerrarlo.
+	 * @param fichero - fichero del mundo.
+	 * @param tamaño - lado del espacio cuadrado.
+	 * @param forma - forma del espacio.
+	 * @param regla - leyes del mundo.
+	 * @return el motor con el espacio vacío.
+	 * @throws UncheckedIOException - si no se puede abrir o proyectar el fichero.
+	 */
+	public static MotorMapeado nuevo(Path fichero, int tamaño, FormaEspacio forma, Regla regla) {
+		return new MotorMapeado(fichero, tamaño, forma, regla, true);
+	}
+
+	/**
+	 * Crea un motor sobre un fichero temporal que se borra al cerrarlo o,
+	 * si no se cierra, al terminar; el directorio se obtiene de la 
+	 * configuración (vacío = el del sistema).
+	 * @param tamaño - lado del espacio cuadrado.
+	 * @param forma - forma del espacio.
+	 * @param regla - leyes del mundo.
+	 * @return el motor con el espacio vacío.
+	 */
+	public static MotorMapeado temporal(int tamaño, FormaEspacio forma, Regla regla) {
+		String directorio = Configuracion.get().getProperty("mundo.directorioMapeado", "").trim();
+		try {
+			Path fichero = directorio.isEmpty()
+					? Files.createTempFile("mundo", ".jv")
+					: Files.createTempFile(new File(directorio).toPath(), "mundo", ".jv");
+			fichero.toFile().deleteOnExit();
+			MotorMapeado motor = new MotorMapeado(fichero, tamaño, forma, regla);
+			motor.temporal = fichero;
+			return motor;
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Proyecta los dos planos en regiones de filas completas.
+	 */
+	private void proyectarPlanos() throws IOException {
+		long bytesFila = palabras * 8L;
+		long bytesPlano = tamaño * bytesFila;
+		for (int p = 0; p < 2; p++) {
+			for (int r = 0; r < regiones[p].length; r++) {
+				long primera = (long) r * filasRegion;
+				long numeroFilas = Math.min(filasRegion, tamaño - primera);
+				regiones[p][r] = canal.map(MapMode.READ_WRITE,
+						CABECERA + p * bytesPlano + primera * bytesFila, numeroFilas * bytesFila);
+				regiones[p][r].order(ByteOrder.LITTLE_ENDIAN);
+				filas[p][r] = regiones[p][r].asLongBuffer();
+			}
+		}
+	}
+
+	public int getTamaño() {
+		return tamaño;
+	}
+
+	/**
+	 * Generaciones calculadas desde la última carga, también en sesiones anteriores.
+	 */
+	public long getGeneracion() {
+		return generacion;
+	}
+
+	/**
+	 * Lee una fila de un plano; fuera de los límites, la del extremo opuesto
+	 * (esférico) o una fila vacía (plano).
+	 * @param p - plano.
+	 * @param fila - fila leída.
+	 * @param destino - vector en el que se copia.
+	 * @param inicio - posición de la primera palabra en destino.
+	 */
+	private void leerFila(int p, int fila, long[] destino, int inicio) {
+		if (fila < 0 || fila >= tamaño) {
+			if (!esferico) {
+				Arrays.fill(destino, inicio, inicio + palabras, 0L);
+				return;
+			}
+			fila = Math.floorMod(fila, tamaño);
+		}
+		filas[p][fila / filasRegion].get((fila % filasRegion) * palabras, destino, inicio, palabras);
+	}
+
+	private void escribirFila(int p, int fila, long[] origen, int inicio) {
+		filas[p][fila / filasRegion].put((fila % filasRegion) * palabras, origen, inicio, palabras);
+	}
+
+	/**
+	 * Anota el plano actual y la generación en la cabecera del fichero.
+	 */
+	private void anotarCabecera() {
+		cabecera.putInt(POSICION_PLANO, plano);
+		cabecera.putLong(POSICION_GENERACION, generacion);
+	}
+
+	@Override
+	public void cargar(byte[][] espacio) {
+		assert espacio.length == tamaño;
+		long[] fila = temporales.get();
+		for (int i = 0; i < tamaño; i++) {
+			Arrays.fill(fila, 0, palabras, 0L);
+			for (int j = 0; j < tamaño; j++) {
+				if (espacio[i][j] == 1) {
+					fila[j >>> 6] |= 1L << (j & 63);
+				}
+			}
+			escribirFila(plano, i, fila, 0);
+		}
+		generacion = 0;
+		hayAnterior = false;
+		seguirHuella = false;
+		resumenDesfasado = true;
+		anotarCabecera();
+	}
+
+	@Override
+	public byte[][] volcar() {
+		byte[][] espacio = new byte[tamaño][tamaño];
+		long[] fila = temporales.get();
+		for (int i = 0; i < tamaño; i++) {
+			leerFila(plano, i, fila, 0);
+			for (int j = 0; j < tamaño; j++) {
+				espacio[i][j] = (byte) ((fila[j >>> 6] >>> (j & 63)) & 1L);
+			}
+		}
+		return espacio;
+	}
+
+	/**
+	 * Consulta una celda sin volcar el espacio.
+	 * @return true si está viva.
+	 */
+	public boolean getCelda(int fila, int columna) {
+		assert fila >= 0 && fila < tamaño && columna >= 0 && columna < tamaño;
+		long palabra = filas[plano][fila / filasRegion].get((fila % filasRegion) * palabras + (columna >>> 6));
+		return ((palabra >>> (columna & 63)) & 1L) != 0;
+	}
+
+	/**
+	 * Modifica una celda sin cargar el espacio entero. La generación
+	 * anterior deja de valer para las estadísticas.
+	 * @param viva - nuevo estado.
+	 */
+	public void setCelda(int fila, int columna, boolean viva) {
+		assert fila >= 0 && fila < tamaño && columna >= 0 && columna < tamaño;
+		LongBuffer region = filas[plano][fila / filasRegion];
+		int indice = (fila % filasRegion) * palabras + (columna >>> 6);
+		long bit = 1L << (columna & 63);
+		long palabra = region.get(indice);
+		if (seguirHuella && ((palabra & bit) != 0) != viva) {
+			huella ^= Mundo.claveZobrist(fila, columna);
+		}
+		region.put(indice, viva ? palabra | bit : palabra & ~bit);
+		hayAnterior = false;
+		resumenDesfasado = true;
+	}
+
+	@Override
+	public void añadir(int fila, int col) {
+		setCelda(fila, col, true);
+	}
+
+	/**
+	 * Recorre el plano actual fila a fila; sólo se examinan los bits de
+	 * las palabras no vacías.
+	 */
+	@Override
+	public long[] getVivas() {
+		long[] vivas = new long[64];
+		int n = 0;
+		long[] fila = temporales.get();
+		for (int i = 0; i < tamaño; i++) {
+			leerFila(plano, i, fila, 0);
+			for (int k = 0; k < palabras; k++) {
+				for (long bits = fila[k]; bits != 0; bits &= bits - 1) {
+					if (n == vivas.length) {
+						vivas = Arrays.copyOf(vivas, 2 * n);
+					}
+					vivas[n++] = (long) i << 32 | (k << 6) + Long.numberOfTrailingZeros(bits);
+				}
+			}
+		}
+		return Arrays.copyOf(vivas, n);
+	}
+
+	@Override
+	public void actualizar() {
+		if (tamaño == 0) {
+			return;
+		}
+		hayCambios = false;
+		EjecutorFranjas.ejecutar(0, tamaño, tareaFilas);
+		plano ^= 1;
+		generacion++;
+		hayAnterior = true;
+		// Cada fila calculada se ha resumido de nuevo.
+		resumenDesfasado = false;
+		anotarCabecera();
+	}
+
+	/**
+	 * Lee cada fila de los dos planos, el otro conserva la generación 
+	 * anterior, y compara las palabras.
+	 */
+	@Override
+	public CambiosGeneracion getCambios(long generacionRegistro) {
+		CambiosGeneracion.Codificador codificador = new CambiosGeneracion.Codificador(generacionRegistro, tamaño);
+		if (!hayAnterior) {
+			return codificador.obtener();
+		}
+		long[] trabajo = temporales.get();
+		for (int i = 0; i < tamaño; i++) {
+			leerFila(plano, i, trabajo, 0);
+			leerFila(plano ^ 1, i, trabajo, palabras);
+			for (int k = 0; k < palabras; k++) {
+				long cambiadas = trabajo[k] ^ trabajo[palabras + k];
+				if (cambiadas != 0) {
+					codificador.palabra(i, k << 6, trabajo[k] & cambiadas, trabajo[palabras + k] & cambiadas);
+				}
+			}
+		}
+		return codificador.obtener();
+	}
+
+	/**
+	 * Avanza generación a generación hasta que el mundo deja de cambiar;
+	 * a partir de ahí las generaciones restantes no tienen efecto.
+	 * @param generaciones - número de generaciones a avanzar.
+	 */
+	@Override
+	public void avanzar(long generaciones) {
+		assert generaciones >= 0;
+		for (long g = 0; g < generaciones; g++) {
+			actualizar();
+			if (!hayCambios) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Calcula una franja de filas de la nueva generación. Las tres filas de
+	 * trabajo se desplazan una posición en cada fila calculada, así que cada
+	 * fila del plano actual se lee una sola vez.
+	 * @param desde - primera fila incluida.
+	 * @param hasta - última fila excluida.
+	 */
+	private void actualizarFilas(int desde, int hasta) {
+		long[] trabajo = temporales.get();
+		int norte = 0;
+		int centro = palabras;
+		int sur = 2 * palabras;
+		int nueva = 3 * palabras;
+		leerFila(plano, desde - 1, trabajo, norte);
+		leerFila(plano, desde, trabajo, centro);
+		boolean cambiada = false;
+		long cambios = 0;
+		for (int i = desde; i < hasta; i++) {
+			leerFila(plano, i + 1, trabajo, sur);
+			for (int k = 0; k < palabras; k++) {
+				long palabra = reglaBits.calcularPalabra(trabajo, norte, centro, sur, k);
+				trabajo[nueva + k] = palabra;
+				if (palabra != trabajo[centro + k]) {
+					cambiada = true;
+					if (seguirHuella) {
+						cambios ^= Huella.palabra(i, k << 6, palabra ^ trabajo[centro + k]);
+					}
+				}
+			}
+			escribirFila(plano ^ 1, i, trabajo, nueva);
+			if (resumen != null) {
+				resumen.resumirPalabras(i, trabajo, centro, trabajo, nueva, palabras);
+			}
+			System.arraycopy(trabajo, centro, trabajo, norte, 2 * palabras);
+		}
+		if (cambiada) {
+			hayCambios = true;
+			if (seguirHuella) {
+				añadirHuella(cambios);
+			}
+		}
+	}
+
+	private synchronized void añadirHuella(long cambios) {
+		huella ^= cambios;
+	}
+
+	@Override
+	public synchronized long getHuella() {
+		if (!seguirHuella) {
+			huella = 0;
+			long[] fila = temporales.get();
+			for (int i = 0; i < tamaño; i++) {
+				leerFila(plano, i, fila, 0);
+				for (int k = 0; k < palabras; k++) {
+					huella ^= Huella.palabra(i, k << 6, fila[k]);
+				}
+			}
+			seguirHuella = true;
+		}
+		return huella;
+	}
+
+	@Override
+	public void seguirEstadisticas() {
+		if (resumen == null) {
+			resumen = new Estadisticas.Filas(tamaño);
+			resumenDesfasado = true;
+		}
+	}
+
+	/**
+	 * Desde que se siguen, cada hilo resume las filas que calcula con 
+	 * recuentos de bits y sólo se combinan esos resúmenes; los planos se
+	 * vuelven a leer enteros sólo al empezar o tras modificar celdas sueltas.
+	 */
+	@Override
+	public Estadisticas getEstadisticas() {
+		seguirEstadisticas();
+		if (resumenDesfasado) {
+			resumirFilas();
+			resumenDesfasado = false;
+		}
+		return resumen.obtener();
+	}
+
+	/**
+	 * Resume todas las filas del estado actual: el otro plano conserva la
+	 * generación anterior.
+	 */
+	private void resumirFilas() {
+		long[] trabajo = temporales.get();
+		for (int i = 0; i < tamaño; i++) {
+			leerFila(plano, i, trabajo, 0);
+			if (hayAnterior) {
+				leerFila(plano ^ 1, i, trabajo, palabras);
+			}
+			resumen.resumirPalabras(i, hayAnterior ? trabajo : null, palabras, trabajo, 0, palabras);
+		}
+	}
+
+	/**
+	 * Escribe en el disco las páginas modificadas; hasta entonces el sistema
+	 * operativo decide cuándo hacerlo.
+	 */
+	public void guardar() {
+		for (MappedByteBuffer[] plano : regiones) {
+			for (MappedByteBuffer region : plano) {
+				region.force();
+			}
+		}
+		cabecera.force();
+	}
+
+	/**
+	 * Guarda el estado y cierra el fichero; el temporal se borra sin 
+	 * guardarlo. Las proyecciones se liberan cuando el recolector descarta
+	 * el motor: el fichero borrado deja de ocupar disco entonces.
+	 */
+	@Override
+	public void cerrar() {
+		try {
+			if (temporal == null) {
+				guardar();
+			}
+			canal.close();
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		if (temporal != null) {
+			try {
+				Files.deleteIfExists(temporal);
+			}
+			catch (IOException e) {
+				// Sistemas que no borran un fichero proyectado: queda deleteOnExit.
+			}
+		}
+	}
+
+} // class
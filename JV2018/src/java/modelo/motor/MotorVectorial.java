@@ -0,0 +1,265 @@
+/**
+ * Proyecto: Juego de la vida.
+ * Motor de una celda por byte organizado para que el compilador JIT
+ * vectorice el recuento de vecinas (SIMD: AVX2/AVX-512 en x86).
+ * Cada fila tiene una columna de halo a cada lado. El recuento se hace en
+ * dos pasadas sin saltos en las que todos los accesos usan el mismo índice,
+ * condición para que HotSpot agrupe los bytes en registros vectoriales:
+ * suma vertical de las tres filas y suma horizontal de esa suma y de sus
+ * copias desplazadas una columna. El resultado, vecinas + 9*estado, es
+ * directamente el índice de la tabla de transiciones de la Regla; esa
+ * última consulta es escalar.
+ * La huella, una vez pedida, se mantiene con las celdas que cambian.
+ * @since: prototipo2.1
+ * @source: MotorVectorial.java
+ * @version: 2.1 - 2019.05.20
+ * @author: ajp
+ */
+
+package modelo.motor;
+
+import modelo.CambiosGeneracion;
+import modelo.Estadisticas;
+import modelo.Mundo.FormaEspacio;
+import modelo.Regla;
+
+public class MotorVectorial implements Motor {
+
+	private final int tamaño;
+	private final int ancho;
+	private final boolean esferico;
+	private final byte[] transiciones;
+	private byte[][] celdas;
+	private byte[][] nuevasCeldas;
+	private final byte[] filaVacia;
+	// Resúmenes por fila, sólo si se siguen las estadísticas.
+	private Estadisticas.Filas resumen;
+	private boolean hayAnterior;
+	// Huella Zobrist, desde la primera consulta, y su cambio en cada fila.
+	private boolean seguirHuella;
+	private long huella;
+	private long[] cambiosHuella;
+	// Filas de trabajo de cada hilo de cálculo: suma vertical, sus dos
+	// desplazamientos y los índices de la tabla.
+	private final ThreadLocal<byte[][]> temporales;
+	private final EjecutorFranjas.TareaFilas tareaFilas = this::actualizarFilas;
+
+	/**
+	 * Constructor convencional.
+	 * @param tamaño - lado del espacio cuadrado.
+	 * @param forma - forma del espacio.
+	 * @param regla - leyes del mundo.
+	 */
+	public MotorVectorial(int tamaño, FormaEspacio forma, Regla regla) {
+		assert tamaño >= 0;
+		assert forma != null;
+		this.tamaño = tamaño;
+		this.ancho = tamaño + 2;
+		this.esferico = forma == FormaEspacio.ESFERICO;
+		this.transiciones = new byte[2 * (Regla.MAX_VECINAS + 1)];
+		for (int indice = 0; indice < transiciones.length; indice++) {
+			transiciones[indice] = regla.siguiente(indice / (Regla.MAX_VECINAS + 1),
+					indice % (Regla.MAX_VECINAS + 1));
+		}
+		this.celdas = new byte[tamaño][ancho];
+		this.nuevasCeldas = new byte[tamaño][ancho];
+		this.filaVacia = new byte[ancho];
+		this.temporales = ThreadLocal.withInitial(() -> new byte[4][ancho]);
+	}
+
+	@Override
+	public void cargar(byte[][] espacio) {
+		assert espacio.length == tamaño;
+		for (int i = 0; i < tamaño; i++) {
+			celdas[i][0] = 0;
+			celdas[i][ancho - 1] = 0;
+			System.arraycopy(espacio[i], 0, celdas[i], 1, tamaño);
+		}
+		hayAnterior = false;
+		seguirHuella = false;
+		if (resumen != null) {
+			resumirFilas();
+		}
+	}
+
+	@Override
+	public byte[][] volcar() {
+		byte[][] espacio = new byte[tamaño][tamaño];
+		for (int i = 0; i < tamaño; i++) {
+			System.arraycopy(celdas[i], 1, espacio[i], 0, tamaño);
+		}
+		return espacio;
+	}
+
+	@Override
+	public void actualizar() {
+		if (tamaño == 0) {
+			return;
+		}
+		if (esferico) {
+			// Columnas de halo: copia de la columna del extremo opuesto.
+			for (byte[] fila : celdas) {
+				fila[0] = fila[tamaño];
+				fila[ancho - 1] = fila[1];
+			}
+		}
+		EjecutorFranjas.ejecutar(0, tamaño, tareaFilas);
+		byte[][] aux = celdas;
+		celdas = nuevasCeldas;
+		nuevasCeldas = aux;
+		hayAnterior = true;
+		if (seguirHuella) {
+			for (long cambios : cambiosHuella) {
+				huella ^= cambios;
+			}
+		}
+	}
+
+	/**
+	 * Las filas sin halo, empaquetadas en bits: 64 celdas por long.
+	 */
+	@Override
+	public long[] copiarEstado() {
+		int palabras = (tamaño + 63) >>> 6;
+		long[] estado = new long[tamaño * palabras];
+		for (int i = 0; i < tamaño; i++) {
+			for (int j = 0; j < tamaño; j++) {
+				estado[i * palabras + (j >>> 6)] |= (long) celdas[i][j + 1] << (j & 63);
+			}
+		}
+		return estado;
+	}
+
+	@Override
+	public long getHuella() {
+		if (!seguirHuella) {
+			huella = 0;
+			for (int i = 0; i < tamaño; i++) {
+				huella ^= Huella.bytes(i, null, celdas[i], 1, tamaño);
+			}
+			if (cambiosHuella == null) {
+				cambiosHuella = new long[tamaño];
+			}
+			seguirHuella = true;
+		}
+		return huella;
+	}
+
+	@Override
+	public void seguirEstadisticas() {
+		if (resumen == null) {
+			resumen = new Estadisticas.Filas(tamaño);
+			resumirFilas();
+		}
+	}
+
+	@Override
+	public Estadisticas getEstadisticas() {
+		seguirEstadisticas();
+		return resumen.obtener();
+	}
+
+	/**
+	 * Las celdas que difieren del búfer de destino, que conserva la 
+	 * generación anterior, fila a fila sin las columnas de halo.
+	 */
+	@Override
+	public CambiosGeneracion getCambios(long generacion) {
+		CambiosGeneracion.Codificador codificador = new CambiosGeneracion.Codificador(generacion, tamaño);
+		if (!hayAnterior) {
+			return codificador.obtener();
+		}
+		for (int i = 0; i < tamaño; i++) {
+			byte[] ahora = celdas[i];
+			byte[] antes = nuevasCeldas[i];
+			for (int j = 1; j <= tamaño; j++) {
+				if (ahora[j] != antes[j]) {
+					if (ahora[j] == 1) {
+						codificador.nacimiento(i, j - 1);
+					}
+					else {
+						codificador.muerte(i, j - 1);
+					}
+				}
+			}
+		}
+		return codificador.obtener();
+	}
+
+	/**
+	 * Resume todas las filas del estado actual; sólo al empezar el seguimiento.
+	 */
+	private void resumirFilas() {
+		for (int i = 0; i < tamaño; i++) {
+			resumen.resumir(i, hayAnterior ? nuevasCeldas[i] : null, 1, celdas[i], 1, tamaño);
+		}
+	}
+
+	/**
+	 * Calcula una franja de filas de la nueva generación.
+	 * @param desde - primera fila incluida.
+	 * @param hasta - última fila excluida.
+	 */
+	private void actualizarFilas(int desde, int hasta) {
+		byte[][] filas = temporales.get();
+		for (int i = desde; i < hasta; i++) {
+			actualizarFila(i, filas[0], filas[1], filas[2], filas[3]);
+		}
+	}
+
+	/**
+	 * Calcula una fila de la nueva generación.
+	 * @param i - fila calculada.
+	 * @param vertical - suma de la columna de tres celdas centrada en cada posición.
+	 * @param oeste - vertical desplazada una posición hacia el Este.
+	 * @param este - vertical desplazada una posición hacia el Oeste.
+	 * @param indices - vecinas + 9*estado de cada celda.
+	 */
+	private void actualizarFila(int i, byte[] vertical, byte[] oeste, byte[] este, byte[] indices) {
+		byte[] norte = filaAdyacente(i - 1);
+		byte[] centro = celdas[i];
+		byte[] sur = filaAdyacente(i + 1);
+		sumarFilas(norte, centro, sur, vertical);
+		System.arraycopy(vertical, 0, oeste, 1, ancho - 1);
+		System.arraycopy(vertical, 1, este, 0, ancho - 1);
+		// Los nueve sumandos incluyen a la propia celda: se añade 8*estado.
+		sumarIndices(oeste, vertical, este, centro, indices);
+		byte[] nueva = nuevasCeldas[i];
+		for (int j = 1; j <= tamaño; j++) {
+			nueva[j] = transiciones[indices[j]];
+		}
+		if (resumen != null) {
+			resumen.resumir(i, centro, 1, nueva, 1, tamaño);
+		}
+		if (seguirHuella) {
+			cambiosHuella[i] = Huella.bytes(i, centro, nueva, 1, tamaño);
+		}
+	}
+
+	/**
+	 * Obtiene una fila vecina; fuera de los límites, la del extremo opuesto
+	 * (esférico) o una fila vacía (plano).
+	 */
+	private byte[] filaAdyacente(int i) {
+		if (i >= 0 && i < tamaño) {
+			return celdas[i];
+		}
+		if (esferico) {
+			return celdas[Math.floorMod(i, tamaño)];
+		}
+		return filaVacia;
+	}
+
+	private static void sumarFilas(byte[] norte, byte[] centro, byte[] sur, byte[] vertical) {
+		for (int j = 0; j < vertical.length; j++) {
+			vertical[j] = (byte) (norte[j] + centro[j] + sur[j]);
+		}
+	}
+
+	private static void sumarIndices(byte[] oeste, byte[] vertical, byte[] este, byte[] centro, byte[] indices) {
+		for (int j = 0; j < indices.length; j++) {
+			indices[j] = (byte) (oeste[j] + vertical[j] + este[j] + (centro[j] << 3));
+		}
+	}
+
+} // class
@@ -0,0 +1,163 @@
+/**
+ * Proyecto: Juego de la vida.
+ * Regla compilada para filas de 64 celdas por long: calcula una palabra
+ * de la nueva generación con lógica de sumadores completos a partir de
+ * la fila superior, la propia y la inferior. Sólo se evalúan los recuentos
+ * de vecinas que aparecen en la regla. La comparten los motores que
+ * empaquetan las filas en bits, estén en el montón o en un fichero.
+ * @since: prototipo2.1
+ * @source: ReglaBits.java
+ * @version: 2.1 - 2019.05.27
+ * @author: ajp
+ */
+
+package modelo.motor;
+
+import modelo.Regla;
+
+final class ReglaBits {
+
+	private final int palabras;
+	private final int bitFinal;
+	private final long mascaraFinal;
+	private final boolean esferico;
+	// Recuentos que producen célula viva y efecto de cada uno.
+	private static final byte NACE = 1;
+	private static final byte SOBREVIVE = 2;
+	private static final byte NACE_Y_SOBREVIVE = 3;
+	private final int[] cuentas;
+	private final byte[] efectos;
+
+	/**
+	 * Constructor convencional.
+	 * @param tamaño - celdas por fila; ocupan (tamaño+63)/64 palabras.
+	 * @param esferico - true si los extremos de la fila son adyacentes.
+	 * @param regla - leyes del mundo.
+	 */
+	ReglaBits(int tamaño, boolean esferico, Regla regla) {
+		this.palabras = (tamaño + 63) >>> 6;
+		this.bitFinal = (tamaño - 1) & 63;
+		this.mascaraFinal = -1L >>> (63 - bitFinal);
+		this.esferico = esferico;
+		int mascara = regla.getMascaraNace() | regla.getMascaraSobrevive();
+		this.cuentas = new int[Integer.bitCount(mascara)];
+		this.efectos = new byte[cuentas.length];
+		for (int valor = 0, i = 0; valor <= Regla.MAX_VECINAS; valor++) {
+			if (((mascara >>> valor) & 1) != 0) {
+				cuentas[i] = valor;
+				efectos[i++] = (byte) ((regla.naceCon(valor) ? NACE : 0) | (regla.sobreviveCon(valor) ? SOBREVIVE : 0));
+			}
+		}
+	}
+
+	/**
+	 * Calcula la palabra k de una fila de la nueva generación.
+	 * @param celdas - palabras de la generación actual.
+	 * @param norte - inicio de la fila superior.
+	 * @param centro - inicio de la fila calculada.
+	 * @param sur - inicio de la fila inferior.
+	 * @param k - índice de la palabra en la fila.
+	 * @return las 64 celdas nuevas.
+	 */
+	long calcularPalabra(long[] celdas, int norte, int centro, int sur, int k) {
+		long no = oeste(celdas, norte, k);
+		long n = celdas[norte + k];
+		long ne = este(celdas, norte, k);
+		long o = oeste(celdas, centro, k);
+		long e = este(celdas, centro, k);
+		long so = oeste(celdas, sur, k);
+		long s = celdas[sur + k];
+		long se = este(celdas, sur, k);
+
+		// Sumadores completos: tres grupos de peso 1.
+		long xa = no ^ n;
+		long unosA = xa ^ ne;
+		long dosA = (no & n) | (ne & xa);
+		long xb = o ^ e;
+		long unosB = xb ^ so;
+		long dosB = (o & e) | (so & xb);
+		long unosC = s ^ se;
+		long dosC = s & se;
+		// Bit 0 del recuento.
+		long xu = unosA ^ unosB;
+		long bit0 = xu ^ unosC;
+		long dosD = (unosA & unosB) | (unosC & xu);
+		// Bit 1 y acarreos de peso 4.
+		long xd = dosA ^ dosB;
+		long dosE = xd ^ dosC;
+		long cuatroA = (dosA & dosB) | (dosC & xd);
+		long bit1 = dosE ^ dosD;
+		long cuatroB = dosE & dosD;
+		long bit2 = cuatroA ^ cuatroB;
+		long bit3 = cuatroA & cuatroB;
+
+		// Sólo se evalúan los recuentos que aparecen en la regla:
+		// B3/S23 son dos términos y B3678/S34678 cinco.
+		long viva = celdas[centro + k];
+		long nueva = 0;
+		for (int i = 0; i < cuentas.length; i++) {
+			long igual = igual(cuentas[i], bit0, bit1, bit2, bit3);
+			switch (efectos[i]) {
+			case NACE:
+				nueva |= igual & ~viva;
+				break;
+			case SOBREVIVE:
+				nueva |= igual & viva;
+				break;
+			case NACE_Y_SOBREVIVE:
+				nueva |= igual;
+				break;
+			}
+		}
+		if (k == palabras - 1) {
+			nueva &= mascaraFinal;
+		}
+		return nueva;
+	}
+
+	/**
+	 * Obtiene la palabra k de una fila desplazada de forma que cada bit
+	 * quede alineado con su vecina del Oeste.
+	 */
+	private long oeste(long[] celdas, int base, int k) {
+		long x = celdas[base + k] << 1;
+		if (k > 0) {
+			return x | (celdas[base + k - 1] >>> 63);
+		}
+		if (esferico) {
+			return x | ((celdas[base + palabras - 1] >>> bitFinal) & 1L);
+		}
+		return x;
+	}
+
+	/**
+	 * Obtiene la palabra k de una fila desplazada de forma que cada bit
+	 * quede alineado con su vecina del Este.
+	 */
+	private long este(long[] celdas, int base, int k) {
+		long x = celdas[base + k] >>> 1;
+		if (k < palabras - 1) {
+			return x | (celdas[base + k + 1] << 63);
+		}
+		if (esferico) {
+			return x | ((celdas[base] & 1L) << bitFinal);
+		}
+		return x;
+	}
+
+	/**
+	 * Máscara de las posiciones cuyo recuento de vecinas coincide con el valor.
+	 * Con bit3 activo el resto son 0 (recuento 8), así que bit3 sólo
+	 * hace falta para distinguir 8 de 0.
+	 */
+	private static long igual(int valor, long bit0, long bit1, long bit2, long bit3) {
+		if (valor == 8) {
+			return bit3;
+		}
+		long igual = ((valor & 1) != 0 ? bit0 : ~bit0)
+				& ((valor & 2) != 0 ? bit1 : ~bit1)
+				& ((valor & 4) != 0 ? bit2 : ~bit2);
+		return valor == 0 ? igual & ~bit3 : igual;
+	}
+
+} // class
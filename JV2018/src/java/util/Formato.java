@@ -44,6 +44,11 @@ public class Formato {
 	
 	public static final String PATRON_NOMBRE_MUNDO_JV = "^[A-ZÑ][A-ZÑáéíóúña-z \\d]+";
 	public static final String PATRON_NOMBRE_PATRON_JV = "^[A-ZÑ][A-ZÑáéíóúña-z \\d]+";
+	/**
+	 * Leyes Life-like en notación B/S (B36/S23), S/B (S23/B36) o numérica S/B (23/36);
+	 * las "Generations" añaden los estados (B2/S/C3 o /2/3).
+	 */
+	public static final String PATRON_REGLA_JV = "^([Bb][0-8]*/[Ss][0-8]*(/[Cc][0-9]{1,3})?|[Ss][0-8]*/[Bb][0-8]*(/[Cc][0-9]{1,3})?|[0-8]*/[0-8]*(/[0-9]{1,3})?)$";
 	
 	/**
 	 * Verifica que un texto tiene un formato válido.
@@ -0,0 +1,213 @@
+/**
+ * Proyecto: Juego de la vida.
+ * Clase-utilidad: tabla de dispersión de claves long y valores int con
+ * direccionamiento abierto y sondeo lineal, sin objetos por entrada.
+ * El valor 0 indica posición libre; sirve como conjunto (valor 1)
+ * o como contador (incrementar).
+ * Vaciarla y recorrerla cuesta según la capacidad, así que la reduce cuando
+ * queda ocupada en menos de un octavo: tras un pico de población no sigue 
+ * pagando la capacidad que alcanzó.
+ * @since: prototipo2.1
+ * @source: TablaLong.java
+ * @version: 2.1 - 2019.05.13
+ * @author: ajp
+ */
+
+package util;
+
+import java.util.Arrays;
+
+public class TablaLong {
+
+	private static final int CAPACIDAD_INICIAL = 16;
+	private long[] claves;
+	private int[] valores;
+	private int tamaño;
+	private int mascara;
+
+	public TablaLong() {
+		this(CAPACIDAD_INICIAL);
+	}
+
+	/**
+	 * @param previstos - número de claves previsto.
+	 */
+	public TablaLong(int previstos) {
+		reservar(capacidadPara(previstos));
+	}
+
+	/**
+	 * Capacidad, potencia de 2, en la que caben las claves previstas 
+	 * ocupando como mucho la mitad.
+	 */
+	private static int capacidadPara(int previstos) {
+		return Integer.highestOneBit(Math.max(CAPACIDAD_INICIAL, previstos * 2 - 1)) << 1;
+	}
+
+	private void reservar(int capacidad) {
+		claves = new long[capacidad];
+		valores = new int[capacidad];
+		mascara = capacidad - 1;
+	}
+
+	/**
+	 * Dispersión de 64 a 32 bits (finalizador de MurmurHash3).
+	 */
+	private static int dispersion(long clave) {
+		clave ^= clave >>> 33;
+		clave *= 0xff51afd7ed558ccdL;
+		clave ^= clave >>> 33;
+		clave *= 0xc4ceb9fe1a85ec53L;
+		clave ^= clave >>> 33;
+		return (int) clave;
+	}
+
+	/**
+	 * Obtiene la posición que ocupa, o que ocuparía, la clave.
+	 */
+	private int posicion(long clave) {
+		int i = dispersion(clave) & mascara;
+		while (valores[i] != 0 && claves[i] != clave) {
+			i = (i + 1) & mascara;
+		}
+		return i;
+	}
+
+	public boolean contiene(long clave) {
+		return valores[posicion(clave)] != 0;
+	}
+
+	/**
+	 * @return el valor asociado; 0 si la clave no está.
+	 */
+	public int obtener(long clave) {
+		return valores[posicion(clave)];
+	}
+
+	/**
+	 * Añade la clave con valor 1 si no estaba.
+	 * @return true si se ha añadido.
+	 */
+	public boolean añadir(long clave) {
+		int i = posicion(clave);
+		if (valores[i] != 0) {
+			return false;
+		}
+		ocupar(i, clave, 1);
+		return true;
+	}
+
+	/**
+	 * Asocia un valor, distinto de 0, a la clave.
+	 */
+	public void poner(long clave, int valor) {
+		assert valor != 0;
+		int i = posicion(clave);
+		if (valores[i] != 0) {
+			valores[i] = valor;
+			return;
+		}
+		ocupar(i, clave, valor);
+	}
+
+	/**
+	 * Incrementa en uno el valor de la clave; la añade con 1 si no estaba.
+	 * @return el nuevo valor.
+	 */
+	public int incrementar(long clave) {
+		int i = posicion(clave);
+		if (valores[i] != 0) {
+			return ++valores[i];
+		}
+		ocupar(i, clave, 1);
+		return 1;
+	}
+
+	/**
+	 * Elimina la clave reubicando las siguientes del mismo grupo.
+	 * @return true si estaba.
+	 */
+	public boolean eliminar(long clave) {
+		int i = posicion(clave);
+		if (valores[i] == 0) {
+			return false;
+		}
+		valores[i] = 0;
+		tamaño--;
+		// Reinserta el resto del grupo contiguo.
+		int j = (i + 1) & mascara;
+		while (valores[j] != 0) {
+			long k = claves[j];
+			int v = valores[j];
+			valores[j] = 0;
+			int destino = posicion(k);
+			claves[destino] = k;
+			valores[destino] = v;
+			j = (j + 1) & mascara;
+		}
+		if (tamaño < capacidad() / 8 && capacidad() > CAPACIDAD_INICIAL) {
+			redimensionar(capacidad() / 2);
+		}
+		return true;
+	}
+
+	private void ocupar(int i, long clave, int valor) {
+		claves[i] = clave;
+		valores[i] = valor;
+		if (++tamaño > (mascara + 1) / 2) {
+			redimensionar((mascara + 1) * 2);
+		}
+	}
+
+	private void redimensionar(int capacidad) {
+		long[] clavesAnteriores = claves;
+		int[] valoresAnteriores = valores;
+		reservar(capacidad);
+		for (int i = 0; i < clavesAnteriores.length; i++) {
+			if (valoresAnteriores[i] != 0) {
+				int j = posicion(clavesAnteriores[i]);
+				claves[j] = clavesAnteriores[i];
+				valores[j] = valoresAnteriores[i];
+			}
+		}
+	}
+
+	/**
+	 * Vacía la tabla. Conserva su capacidad salvo si estaba ocupada en 
+	 * menos de un octavo: entonces la reduce a la que necesitaban sus claves,
+	 * que es lo previsible para el siguiente llenado.
+	 */
+	public void limpiar() {
+		int capacidad = capacidadPara(tamaño);
+		if (capacidad <= capacidad() / 4) {
+			reservar(capacidad);
+		}
+		else {
+			Arrays.fill(valores, 0);
+		}
+		tamaño = 0;
+	}
+
+	public int tamaño() {
+		return tamaño;
+	}
+
+	// Recorrido por posiciones, sin iteradores: for (i < capacidad()) if (ocupada(i)) ...
+
+	public int capacidad() {
+		return mascara + 1;
+	}
+
+	public boolean ocupada(int i) {
+		return valores[i] != 0;
+	}
+
+	public long clave(int i) {
+		return claves[i];
+	}
+
+	public int valor(int i) {
+		return valores[i];
+	}
+
+} // class
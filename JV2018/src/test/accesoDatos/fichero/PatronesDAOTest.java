@@ -0,0 +1,365 @@
+package accesoDatos.fichero;
+/** Proyecto: Juego de la vida.
+ *  Prueba Junit5 de la biblioteca de patrones PatronesDAO según el modelo2.1
+ *  Trabaja en un directorio temporal, no en el de datos del proyecto.
+ *  @since: prototipo2.1
+ *  @source: PatronesDAOTest.java
+ *  @version: 2.1 - 2019/06/05
+ *  @author: ajp
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import accesoDatos.DatosException;
+import config.Configuracion;
+import modelo.Distribucion;
+import modelo.ModeloException;
+import modelo.Mundo;
+import modelo.Mundo.FormaEspacio;
+import modelo.Patron;
+import modelo.Posicion;
+import modelo.Regla;
+
+public class PatronesDAOTest {
+
+	private static Path directorio;
+	private static String directorioAnterior;
+	private static PatronesDAO patronesDAO;
+	private static Regla conway;
+
+	// Planeador reflejado: misma forma que el predeterminado, otras células.
+	private static final Distribucion REFLEJADO = new Distribucion(new long[] {
+			Distribucion.empaquetar(0, 1), Distribucion.empaquetar(1, 0), Distribucion.empaquetar(2, 0),
+			Distribucion.empaquetar(2, 1), Distribucion.empaquetar(2, 2) });
+	// Barco: cinco células de otra forma.
+	private static final Distribucion BARCO = new Distribucion(new long[] {
+			Distribucion.empaquetar(0, 0), Distribucion.empaquetar(0, 1), Distribucion.empaquetar(1, 0),
+			Distribucion.empaquetar(1, 2), Distribucion.empaquetar(2, 1) });
+
+	/**
+	 * Dirige la biblioteca a un directorio temporal, relativo al de trabajo
+	 * como el de la configuración, antes de crear la instancia única.
+	 */
+	@BeforeAll
+	public static void iniciarlizarDatosFijos() {
+		try {
+			directorio = Files.createTempDirectory("patrones");
+			directorioAnterior = Configuracion.get().getProperty("datos.nombreDirectorio");
+			Configuracion.get().setProperty("datos.nombreDirectorio",
+					Paths.get("").toAbsolutePath().relativize(directorio).toString());
+			patronesDAO = PatronesDAO.getInstance();
+			conway = new Regla(Regla.CONWAY);
+		}
+		catch (IOException | DatosException | ModeloException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	@AfterAll
+	public static void borrarDirectorio() {
+		Configuracion.get().setProperty("datos.nombreDirectorio", directorioAnterior);
+		for (File fichero : directorio.toFile().listFiles()) {
+			fichero.delete();
+		}
+		directorio.toFile().delete();
+	}
+
+	/**
+	 * Crea un Mundo plano vacío del tamaño indicado.
+	 */
+	private static Mundo crearMundo(int tamaño) {
+		try {
+			return new Mundo("Prueba", new byte[tamaño][tamaño],
+					new LinkedList<Posicion>(), new HashMap<String, int[]>(), FormaEspacio.PLANO);
+		}
+		catch (ModeloException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	/**
+	 * Cada prueba parte de los predeterminados, ya guardados.
+	 */
+	@BeforeEach
+	public void iniciarlizarDatosVariables() {
+		patronesDAO.borrarTodo();
+	}
+
+	// Test's con DATOS VALIDOS
+
+	@Test
+	public void testPredeterminados() {
+		try {
+			assertEquals("\nBloque\nParpadeador\nPlaneador", patronesDAO.listarId());
+			assertEquals(3, patronesDAO.obtenerTodos().size());
+			Patron planeador = patronesDAO.obtener("Planeador");
+			assertNotNull(planeador);
+			assertEquals(5, planeador.getCeldas().size());
+			assertEquals(3, planeador.getAlto());
+			assertEquals(3, planeador.getAncho());
+			assertEquals(conway, planeador.getRegla());
+			assertNull(patronesDAO.obtener("Nave"));
+		}
+		catch (DatosException e) {
+			fail("No debe llegar aquí...");
+		}
+	}
+
+	@Test
+	public void testAltaGuardarRecuperar() {
+		try {
+			Patron barco = new Patron("Barco", conway, BARCO, 3, 3);
+			patronesDAO.alta(barco);
+			// Pendiente: se obtiene antes de guardar.
+			assertEquals(barco, patronesDAO.obtener("Barco"));
+			assertEquals("\nBarco\nBloque\nParpadeador\nPlaneador", patronesDAO.listarId());
+			patronesDAO.guardarDatos();
+			assertEquals(barco, patronesDAO.obtener("Barco"));
+			// Vuelve a proyectar el fichero guardado.
+			patronesDAO.recuperarDatos();
+			assertEquals(barco, patronesDAO.obtener("Barco"));
+			assertEquals(barco, patronesDAO.obtenerTodos().get(0));
+			assertEquals(4, patronesDAO.obtenerTodos().size());
+		}
+		catch (DatosException e) {
+			fail("No debe llegar aquí...");
+		}
+	}
+
+	@Test
+	public void testObtenerForma() {
+		try {
+			Patron planeador = patronesDAO.obtener("Planeador");
+			Patron reflejado = new Patron("Planeador reflejado", conway, REFLEJADO, 3, 3);
+			assertEquals(planeador.getHuellaForma(), reflejado.getHuellaForma());
+			// Guardado y pendiente con la misma forma.
+			patronesDAO.alta(reflejado);
+			List<Patron> encontrados = patronesDAO.obtenerForma(planeador.getHuellaForma());
+			assertEquals(2, encontrados.size());
+			assertTrue(encontrados.contains(planeador));
+			assertTrue(encontrados.contains(reflejado));
+			patronesDAO.guardarDatos();
+			encontrados = patronesDAO.obtenerForma(planeador.getHuellaForma());
+			assertEquals(2, encontrados.size());
+			assertTrue(encontrados.contains(planeador));
+			assertTrue(encontrados.contains(reflejado));
+			assertTrue(patronesDAO.obtenerForma(new Patron("Barco", conway, BARCO, 3, 3).getHuellaForma()).isEmpty());
+		}
+		catch (DatosException e) {
+			fail("No debe llegar aquí...");
+		}
+	}
+
+	@Test
+	public void testActualizarPendienteSobreGuardado() {
+		try {
+			long huellaGuardado = patronesDAO.obtener("Planeador").getHuellaForma();
+			Patron cambiado = new Patron("Planeador", conway, BARCO, 3, 3);
+			patronesDAO.actualizar(cambiado);
+			// El pendiente oculta al guardado en todas las consultas.
+			assertEquals(cambiado, patronesDAO.obtener("Planeador"));
+			assertTrue(patronesDAO.obtenerForma(huellaGuardado).isEmpty());
+			List<Patron> encontrados = patronesDAO.obtenerForma(cambiado.getHuellaForma());
+			assertEquals(1, encontrados.size());
+			assertEquals(cambiado, encontrados.get(0));
+			Mundo mundo = crearMundo(3);
+			assertEquals(5, patronesDAO.estampar("Planeador", mundo, 0, 0));
+			assertEquals(BARCO, mundo.getCelulasVivas());
+			assertEquals(3, patronesDAO.obtenerTodos().size());
+			assertEquals(cambiado, patronesDAO.obtenerTodos().get(2));
+			patronesDAO.guardarDatos();
+			assertEquals(cambiado, patronesDAO.obtener("Planeador"));
+			assertTrue(patronesDAO.obtenerForma(huellaGuardado).isEmpty());
+			assertEquals(1, patronesDAO.obtenerForma(cambiado.getHuellaForma()).size());
+		}
+		catch (DatosException e) {
+			fail("No debe llegar aquí...");
+		}
+	}
+
+	@Test
+	public void testBajaPendienteSobreGuardado() {
+		try {
+			Patron parpadeador = patronesDAO.obtener("Parpadeador");
+			assertEquals(parpadeador, patronesDAO.baja("Parpadeador"));
+			assertNull(patronesDAO.obtener("Parpadeador"));
+			assertTrue(patronesDAO.obtenerForma(parpadeador.getHuellaForma()).isEmpty());
+			assertEquals("\nBloque\nPlaneador", patronesDAO.listarId());
+			assertEquals(2, patronesDAO.obtenerTodos().size());
+			try {
+				patronesDAO.estampar("Parpadeador", crearMundo(3), 0, 0);
+				fail("No debe llegar aquí...");
+			}
+			catch (DatosException e) {
+			}
+			patronesDAO.guardarDatos();
+			patronesDAO.recuperarDatos();
+			assertNull(patronesDAO.obtener("Parpadeador"));
+			assertEquals("\nBloque\nPlaneador", patronesDAO.listarId());
+			// Dada de baja, admite otra alta con el mismo nombre.
+			patronesDAO.alta(parpadeador);
+			assertEquals(parpadeador, patronesDAO.obtener("Parpadeador"));
+		}
+		catch (DatosException e) {
+			fail("No debe llegar aquí...");
+		}
+	}
+
+	@Test
+	public void testEstamparRecortado() {
+		try {
+			Mundo mundo = crearMundo(4);
+			// Guardado, leído de la biblioteca.
+			assertEquals(5, patronesDAO.estampar("Planeador", mundo, 0, 0));
+			// Recortado por la esquina inferior derecha.
+			assertEquals(1, patronesDAO.estampar("Bloque", mundo, 3, 3));
+			// Recortado por la esquina superior izquierda.
+			assertEquals(1, patronesDAO.estampar("Bloque", mundo, -1, -1));
+			assertEquals(new Distribucion(new long[] {
+					Distribucion.empaquetar(0, 0), Distribucion.empaquetar(0, 1), Distribucion.empaquetar(1, 2),
+					Distribucion.empaquetar(2, 0), Distribucion.empaquetar(2, 1), Distribucion.empaquetar(2, 2),
+					Distribucion.empaquetar(3, 3) }), mundo.getCelulasVivas());
+			// Pendiente.
+			patronesDAO.alta(new Patron("Barco", conway, BARCO, 3, 3));
+			mundo = crearMundo(4);
+			assertEquals(4, patronesDAO.estampar("Barco", mundo, 1, 2));
+			assertEquals(new Distribucion(new long[] {
+					Distribucion.empaquetar(1, 2), Distribucion.empaquetar(1, 3),
+					Distribucion.empaquetar(2, 2), Distribucion.empaquetar(3, 3) }), mundo.getCelulasVivas());
+		}
+		catch (DatosException e) {
+			fail("No debe llegar aquí...");
+		}
+	}
+
+	@Test
+	public void testEstamparMundo() {
+		try {
+			patronesDAO.alta(new Patron("Barco", conway, BARCO, 3, 3));
+			for (String nombre : new String[] {"Planeador", "Barco"}) {
+				Mundo mundo = crearMundo(8);
+				Mundo referencia = crearMundo(8);
+				// Leído del registro o del patrón completo, estampa lo mismo.
+				assertEquals(referencia.estampar(patronesDAO.obtener(nombre).getCeldas(), 6, 2),
+						patronesDAO.estampar(nombre, mundo, 6, 2));
+				assertEquals(referencia.getCelulasVivas(), mundo.getCelulasVivas());
+			}
+		}
+		catch (DatosException e) {
+			fail("No debe llegar aquí...");
+		}
+	}
+
+	@Test
+	public void testNombreLargo() {
+		try {
+			// Longitud que no cabe en un short con signo.
+			Patron largo = new Patron("Barco" + "a".repeat(40000), conway, BARCO, 3, 3);
+			patronesDAO.alta(largo);
+			patronesDAO.guardarDatos();
+			patronesDAO.recuperarDatos();
+			assertEquals(largo, patronesDAO.obtener(largo.getNombre()));
+			assertEquals(4, patronesDAO.obtenerTodos().size());
+			assertEquals(5, patronesDAO.estampar(largo.getNombre(), crearMundo(3), 0, 0));
+		}
+		catch (DatosException e) {
+			fail("No debe llegar aquí...");
+		}
+	}
+
+	@Test
+	public void testCerrarGuardaPendientes() {
+		try {
+			Patron barco = new Patron("Barco", conway, BARCO, 3, 3);
+			patronesDAO.alta(barco);
+			patronesDAO.cerrar();
+			patronesDAO.recuperarDatos();
+			assertEquals(barco, patronesDAO.obtener("Barco"));
+		}
+		catch (DatosException e) {
+			fail("No debe llegar aquí...");
+		}
+	}
+
+	// Test's con DATOS NO VALIDOS
+
+	@Test
+	public void testAltaRepetido() {
+		try {
+			patronesDAO.alta(new Patron("Bloque", conway, BARCO, 3, 3));
+			fail("No debe llegar aquí...");
+		}
+		catch (DatosException e) {
+		}
+		try {
+			patronesDAO.alta(new Patron("Barco", conway, BARCO, 3, 3));
+			patronesDAO.alta(new Patron("Barco", conway, BARCO, 3, 3));
+			fail("No debe llegar aquí...");
+		}
+		catch (DatosException e) {
+		}
+	}
+
+	@Test
+	public void testAltaNombreNoValido() {
+		try {
+			patronesDAO.alta(new Patron("barco", conway, BARCO, 3, 3));
+			fail("No debe llegar aquí...");
+		}
+		catch (DatosException e) {
+		}
+	}
+
+	@Test
+	public void testNombreDemasiadoLargo() {
+		Patron largo = new Patron("Barco" + "a".repeat(70000), conway, BARCO, 3, 3);
+		try {
+			patronesDAO.alta(largo);
+			fail("No debe llegar aquí...");
+		}
+		catch (DatosException e) {
+		}
+		assertEquals("\nBloque\nParpadeador\nPlaneador", patronesDAO.listarId());
+	}
+
+	@Test
+	public void testNoExiste() {
+		try {
+			patronesDAO.baja("Nave");
+			fail("No debe llegar aquí...");
+		}
+		catch (DatosException e) {
+		}
+		try {
+			patronesDAO.actualizar(new Patron("Nave", conway, BARCO, 3, 3));
+			fail("No debe llegar aquí...");
+		}
+		catch (DatosException e) {
+		}
+		try {
+			patronesDAO.estampar("Nave", crearMundo(3), 0, 0);
+			fail("No debe llegar aquí...");
+		}
+		catch (DatosException e) {
+		}
+	}
+
+} // class
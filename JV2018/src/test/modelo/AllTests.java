@@ -12,11 +12,23 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
+import accesoDatos.fichero.PatronesDAOTest;
+
 @RunWith(Suite.class)
 @SuiteClasses({ 
 	UsuarioTest.class,
 	SesionUsuarioTest.class,
-	SimulacionTest.class
+	SimulacionTest.class,
+	MundoTest.class,
+	ReglaTest.class,
+	DetectorCiclosTest.class,
+	EjecutorLotesTest.class,
+	DistribucionTest.class,
+	CambiosGeneracionTest.class,
+	PatronTest.class,
+	CensoTest.class,
+	BusquedaSopasTest.class,
+	PatronesDAOTest.class
 })
 
 public class AllTests {
@@ -0,0 +1,189 @@
+package modelo;
+/** Proyecto: Juego de la vida.
+ *  Prueba Junit5 de la clase BusquedaSopas según el modelo2.1
+ *  @since: prototipo2.1
+ *  @source: BusquedaSopasTest.java
+ *  @version: 2.1 - 2019/06/02
+ *  @author: ajp
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import config.Configuracion;
+import modelo.Mundo.FormaEspacio;
+
+public class BusquedaSopasTest {
+
+	// Test's con DATOS VALIDOS
+	@Test
+	public void testGenerarSopaReproducible() {
+		Distribucion sopa = BusquedaSopas.generarSopa("prueba", 7);
+		assertEquals(sopa, BusquedaSopas.generarSopa("prueba", 7));
+		assertTrue(!sopa.equals(BusquedaSopas.generarSopa("prueba", 8)));
+		// La semilla y el número no se confunden al concatenarlos.
+		assertTrue(!BusquedaSopas.generarSopa("prueba1", 2).equals(BusquedaSopas.generarSopa("prueba", 12)));
+		for (int i = 0; i < sopa.size(); i++) {
+			assertTrue(Distribucion.fila(sopa.getCelda(i)) < BusquedaSopas.LADO_SOPA);
+			assertTrue(Distribucion.columna(sopa.getCelda(i)) < BusquedaSopas.LADO_SOPA);
+		}
+	}
+
+	@Test
+	public void testBuscarContinuaTrasReinicio() {
+		Path resultados = null;
+		try {
+			Regla regla = new Regla(Regla.CONWAY);
+			Path seguida = Files.createTempFile("sopas", ".txt");
+			Files.delete(seguida);
+			BusquedaSopas busqueda = new BusquedaSopas("prueba", regla, 64, 2000, 4, seguida);
+			busqueda.buscar(3);
+			busqueda.cerrar();
+			Map<String, Long> frecuencias = busqueda.getFrecuencias();
+			assertEquals(12, busqueda.getSopas());
+			assertTrue(frecuencias.containsKey("Bloque"));
+			// Los planeadores que escapan se cuentan, no sus restos contra el borde.
+			assertTrue(frecuencias.containsKey("Planeador"));
+			Files.delete(seguida);
+
+			resultados = Files.createTempFile("sopas", ".txt");
+			Files.delete(resultados);
+			busqueda = new BusquedaSopas("prueba", regla, 64, 2000, 4, resultados);
+			busqueda.buscar(2);
+			busqueda.cerrar();
+			// Línea a medio escribir al interrumpirse.
+			Files.write(resultados, "bloque\t2\t1\tBlo".getBytes(StandardCharsets.UTF_8),
+					StandardOpenOption.APPEND);
+			busqueda = new BusquedaSopas("prueba", regla, 64, 2000, 4, resultados);
+			assertEquals(8, busqueda.getSopas());
+			busqueda.buscar(1);
+			busqueda.cerrar();
+			assertEquals(12, busqueda.getSopas());
+			assertEquals(frecuencias, busqueda.getFrecuencias());
+		}
+		catch (ModeloException | IOException | InterruptedException e) {
+			fail("No debe llegar aquí...");
+		}
+		finally {
+			borrar(resultados);
+		}
+	}
+
+	@Test
+	public void testBuscarVariosHilos() {
+		Path resultados = null;
+		String hilosAnterior = Configuracion.get().getProperty("simulacion.hilosLote");
+		try {
+			Regla regla = new Regla(Regla.CONWAY);
+			resultados = Files.createTempFile("sopas", ".txt");
+			Files.delete(resultados);
+			Configuracion.get().setProperty("simulacion.hilosLote", "1");
+			BusquedaSopas busqueda = new BusquedaSopas("hilos", regla, 64, 2000, 8, resultados);
+			busqueda.buscar(2);
+			busqueda.cerrar();
+			Map<String, Long> frecuencias = busqueda.getFrecuencias();
+			Files.delete(resultados);
+
+			// Los resultados y las naves retiradas llegan a la vez desde varios hilos.
+			Configuracion.get().setProperty("simulacion.hilosLote", "4");
+			busqueda = new BusquedaSopas("hilos", regla, 64, 2000, 8, resultados);
+			busqueda.buscar(2);
+			busqueda.cerrar();
+			assertEquals(16, busqueda.getSopas());
+			assertEquals(frecuencias, busqueda.getFrecuencias());
+		}
+		catch (ModeloException | IOException | InterruptedException e) {
+			fail("No debe llegar aquí...");
+		}
+		finally {
+			Configuracion.get().setProperty("simulacion.hilosLote", hilosAnterior);
+			borrar(resultados);
+		}
+	}
+
+	@Test
+	public void testRetirarNaves() {
+		Path resultados = null;
+		try {
+			Regla regla = new Regla(Regla.CONWAY);
+			resultados = Files.createTempFile("sopas", ".txt");
+			Files.delete(resultados);
+			BusquedaSopas busqueda = new BusquedaSopas("prueba", regla, 64, 2000, 4, resultados);
+			busqueda.cerrar();
+			// Bloque en el centro y planeador hacia la esquina inferior derecha.
+			Distribucion celdas = new Distribucion(new long[] {
+					Distribucion.empaquetar(30, 30), Distribucion.empaquetar(30, 31),
+					Distribucion.empaquetar(31, 30), Distribucion.empaquetar(31, 31),
+					Distribucion.empaquetar(40, 41), Distribucion.empaquetar(41, 42),
+					Distribucion.empaquetar(42, 40), Distribucion.empaquetar(42, 41),
+					Distribucion.empaquetar(42, 42) });
+			Mundo mundo = new Mundo("Prueba", new byte[64][64], celdas,
+					new HashMap<String, int[]>(), FormaEspacio.PLANO);
+			mundo.setRegla(regla);
+			Mundo sinRetirar = (Mundo) mundo.clone();
+			Map<String, Long> naves = new HashMap<String, Long>();
+			for (int turno = 0; turno < 50 && naves.isEmpty(); turno++) {
+				mundo.avanzar(BusquedaSopas.MARGEN / 2);
+				naves = busqueda.retirarNaves(mundo);
+			}
+			assertEquals(1, naves.size());
+			assertEquals(1L, (long) naves.get("Planeador"));
+			mundo.avanzar(200);
+			Censo censo = Censo.de(mundo);
+			assertEquals(1, censo.getObjetos());
+			assertEquals(1, censo.getRecuento("Bloque"));
+			// Sin retirarlo choca con el borde y deja restos.
+			sinRetirar.avanzar(400);
+			assertTrue(Censo.de(sinRetirar).getObjetos() > 1);
+		}
+		catch (ModeloException | IOException e) {
+			fail("No debe llegar aquí...");
+		}
+		finally {
+			borrar(resultados);
+		}
+	}
+
+	// Test's con DATOS NO VALIDOS
+	@Test
+	public void testBusquedaOtrosParametros() {
+		Path resultados = null;
+		try {
+			resultados = Files.createTempFile("sopas", ".txt");
+			Files.delete(resultados);
+			new BusquedaSopas("prueba", new Regla(Regla.CONWAY), 64, 2000, 4, resultados).cerrar();
+			new BusquedaSopas("otra", new Regla(Regla.CONWAY), 64, 2000, 4, resultados);
+			fail("No debe llegar aquí...");
+		}
+		catch (ModeloException e) {
+		}
+		catch (IOException e) {
+			fail("No debe llegar aquí...");
+		}
+		finally {
+			borrar(resultados);
+		}
+	}
+
+	private static void borrar(Path fichero) {
+		try {
+			if (fichero != null) {
+				Files.deleteIfExists(fichero);
+			}
+		}
+		catch (IOException e) {
+		}
+	}
+
+} // class
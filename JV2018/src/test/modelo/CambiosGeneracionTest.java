@@ -0,0 +1,154 @@
+package modelo;
+/** Proyecto: Juego de la vida.
+ *  Prueba Junit5 de las clases CambiosGeneracion y RegistroCambios según el modelo2.1
+ *  @since: prototipo2.1
+ *  @source: CambiosGeneracionTest.java
+ *  @version: 2.1 - 2019/05/29
+ *  @author: ajp
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import modelo.Mundo.FormaEspacio;
+import modelo.Mundo.TipoMotor;
+
+public class CambiosGeneracionTest {
+
+	private static byte[][] copiar(byte[][] espacio) {
+		byte[][] copia = new byte[espacio.length][];
+		for (int i = 0; i < espacio.length; i++) {
+			copia[i] = espacio[i].clone();
+		}
+		return copia;
+	}
+
+	// Test's con DATOS VALIDOS
+	@Test
+	public void testDiferenciaAplicar() {
+		byte[][] anterior = new byte[10][10];
+		anterior[2][3] = anterior[9][9] = 1;
+		byte[][] actual = new byte[10][10];
+		actual[2][3] = actual[0][1] = actual[5][5] = 1;
+		CambiosGeneracion cambios = CambiosGeneracion.diferencia(7, 2, anterior, actual);
+		assertEquals(7, cambios.getGeneracion());
+		assertArrayEquals(new long[] {1, 55}, cambios.getNacimientos());
+		assertArrayEquals(new long[] {99}, cambios.getMuertes());
+		// Distancias de un byte: 1 + 2 + 1 + 1.
+		assertEquals(5, cambios.getCodificados().length);
+		cambios.aplicar(anterior);
+		assertArrayEquals(actual, anterior);
+	}
+
+	@Test
+	public void testDiferenciaVariosEstados() {
+		// La viva que decae muere una vez; los pasos de la decadencia no son
+		// cambios, pero aplicar() los reproduce.
+		byte[][] anterior = new byte[4][4];
+		anterior[0][0] = 1;
+		anterior[1][1] = 2;
+		anterior[2][2] = 3;
+		byte[][] actual = new byte[4][4];
+		actual[0][0] = 2;
+		actual[1][1] = 3;
+		actual[3][3] = 1;
+		CambiosGeneracion cambios = CambiosGeneracion.diferencia(1, 4, anterior, actual);
+		assertArrayEquals(new long[] {15}, cambios.getNacimientos());
+		assertArrayEquals(new long[] {0}, cambios.getMuertes());
+		byte[][] reproducido = copiar(anterior);
+		cambios.aplicar(reproducido);
+		assertArrayEquals(actual, reproducido);
+	}
+
+	@Test
+	public void testDiferenciaDistribuciones() {
+		Random aleatorio = new Random(5);
+		byte[][] anterior = new byte[40][40];
+		byte[][] actual = new byte[40][40];
+		for (int i = 0; i < 40; i++) {
+			for (int j = 0; j < 40; j++) {
+				anterior[i][j] = (byte) (aleatorio.nextInt(4) == 0 ? 1 : 0);
+				actual[i][j] = (byte) (aleatorio.nextInt(4) == 0 ? 1 : 0);
+			}
+		}
+		CambiosGeneracion densa = CambiosGeneracion.diferencia(3, 2, anterior, actual);
+		CambiosGeneracion dispersa = CambiosGeneracion.diferencia(3, 40, 
+				Distribucion.extraer(anterior), Distribucion.extraer(actual));
+		assertEquals(40, dispersa.getTamaño());
+		assertArrayEquals(densa.getCodificados(), dispersa.getCodificados());
+	}
+
+	@Test
+	public void testRegistroReproduceSimulacion() {
+		registrarYReproducir(Regla.CONWAY);
+	}
+
+	@Test
+	public void testRegistroReproduceDecadencia() {
+		registrarYReproducir(Regla.CEREBRO_DE_BRIAN);
+		registrarYReproducir(Regla.STAR_WARS);
+	}
+
+	/**
+	 * Registra 50 generaciones con cada motor y comprueba que reproducir
+	 * los cambios sobre el espacio inicial da las mismas generaciones.
+	 * Salvo REFERENCIA, cada motor compara con la generación anterior que conserva.
+	 */
+	private static void registrarYReproducir(String notacion) {
+		for (TipoMotor motor : TipoMotor.values()) {
+			try {
+				byte[][] inicial = new byte[64][64];
+				Random aleatorio = new Random(3);
+				for (byte[] fila : inicial) {
+					for (int j = 0; j < fila.length; j++) {
+						fila[j] = (byte) (aleatorio.nextInt(3) == 0 ? 1 : 0);
+					}
+				}
+				Mundo mundo = new Mundo("Prueba", new byte[0][0],
+						new LinkedList<Posicion>(), new HashMap<String, int[]>(), FormaEspacio.ESFERICO);
+				mundo.setEspacio(copiar(inicial));
+				mundo.setRegla(new Regla(notacion));
+				mundo.setTipoMotor(motor);
+				ByteArrayOutputStream salida = new ByteArrayOutputStream();
+				RegistroCambios registro = new RegistroCambios(salida);
+				mundo.suscribirCambios(registro);
+				List<String> generaciones = new ArrayList<String>();
+				for (int generacion = 0; generacion < 50; generacion++) {
+					mundo.actualizarMundo();
+					generaciones.add(mundo.toStringEstadoMundo());
+				}
+				mundo.cerrarCambios();
+				registro.esperar();
+				// Una instantánea por generación ocuparía 64x64 bytes.
+				assertTrue(salida.size() < 50 * 64 * 64 / 4);
+				Mundo reproducido = new Mundo("Prueba", new byte[0][0],
+						new LinkedList<Posicion>(), new HashMap<String, int[]>(), FormaEspacio.ESFERICO);
+				List<String> reproducidas = new ArrayList<String>();
+				long total = RegistroCambios.reproducir(new ByteArrayInputStream(salida.toByteArray()), 
+						copiar(inicial), espacio -> {
+							reproducido.setEspacio(copiar(espacio));
+							reproducidas.add(reproducido.toStringEstadoMundo());
+						});
+				assertEquals(50, total);
+				assertEquals(notacion + " " + motor, generaciones, reproducidas);
+			}
+			catch (ModeloException | IOException | InterruptedException e) {
+				fail("No debe llegar aquí...");
+			}
+		}
+	}
+
+} // class
@@ -0,0 +1,157 @@
+package modelo;
+/** Proyecto: Juego de la vida.
+ *  Prueba Junit5 de las clases Censo y Catalogo según el modelo2.1
+ *  @since: prototipo2.1
+ *  @source: CensoTest.java
+ *  @version: 2.1 - 2019/06/01
+ *  @author: ajp
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+
+import org.junit.jupiter.api.Test;
+
+import modelo.Catalogo.Objeto;
+import modelo.Catalogo.TipoObjeto;
+import modelo.Mundo.FormaEspacio;
+
+public class CensoTest {
+
+	/**
+	 * Mundo con las leyes de Conway y las células vivas indicadas.
+	 * @param celdas - pares fila, columna.
+	 */
+	private static Mundo crearMundo(int tamaño, FormaEspacio forma, int... celdas) {
+		try {
+			Mundo mundo = new Mundo("Censo", new byte[0][0],
+					new LinkedList<Posicion>(), new HashMap<String, int[]>(), forma);
+			byte[][] espacio = new byte[tamaño][tamaño];
+			for (int k = 0; k < celdas.length; k += 2) {
+				espacio[celdas[k]][celdas[k + 1]] = 1;
+			}
+			mundo.setEspacio(espacio);
+			return mundo;
+		}
+		catch (ModeloException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	// Test's con DATOS VALIDOS
+	@Test
+	public void testCensoObjetosSeparados() {
+		Mundo mundo = crearMundo(32, FormaEspacio.PLANO,
+				// Bloque.
+				2, 2, 2, 3, 3, 2, 3, 3,
+				// Parpadeador vertical.
+				10, 20, 11, 20, 12, 20,
+				// Planeador.
+				20, 6, 21, 7, 22, 5, 22, 6, 22, 7,
+				// Otro bloque.
+				25, 25, 25, 26, 26, 25, 26, 26);
+		Censo censo = Censo.de(mundo);
+		assertEquals(4, censo.getObjetos());
+		assertEquals(2, censo.getRecuento("Bloque"));
+		assertEquals(1, censo.getRecuento("Parpadeador"));
+		assertEquals(1, censo.getRecuento("Planeador"));
+		assertEquals(2, censo.getRecuento(TipoObjeto.NATURALEZA_MUERTA));
+		assertEquals(1, censo.getRecuento(TipoObjeto.NAVE));
+	}
+
+	@Test
+	public void testCensoFasesDistintas() {
+		// El planeador en las fases que no están en el catálogo de partida.
+		Mundo mundo = crearMundo(32, FormaEspacio.PLANO,
+				4, 4, 5, 5, 6, 3, 6, 4, 6, 5);
+		for (int generacion = 0; generacion < 4; generacion++) {
+			assertEquals(1, Censo.de(mundo).getRecuento("Planeador"));
+			mundo.actualizarMundo();
+		}
+	}
+
+	@Test
+	public void testCensoEsfericoCruzaBorde() {
+		// Bloque partido en las cuatro esquinas.
+		Mundo mundo = crearMundo(16, FormaEspacio.ESFERICO,
+				0, 0, 0, 15, 15, 0, 15, 15);
+		Censo censo = Censo.de(mundo);
+		assertEquals(1, censo.getObjetos());
+		assertEquals(1, censo.getRecuento("Bloque"));
+	}
+
+	@Test
+	public void testCatalogoClasificaFormaNueva() {
+		try {
+			Catalogo catalogo = new Catalogo(new Regla(new int[] { 3 }, new int[] { 2, 3 }), 30);
+			// Barco largo: naturaleza muerta de 7 células.
+			long[] celdas = {
+				Distribucion.empaquetar(0, 0), Distribucion.empaquetar(0, 1),
+				Distribucion.empaquetar(1, 0), Distribucion.empaquetar(1, 2),
+				Distribucion.empaquetar(2, 1), Distribucion.empaquetar(2, 3),
+				Distribucion.empaquetar(3, 2)
+			};
+			assertNull(catalogo.buscar(Patron.huellaForma(celdas, 0, celdas.length)));
+			Objeto objeto = catalogo.identificar(celdas, 0, celdas.length);
+			assertEquals(TipoObjeto.NATURALEZA_MUERTA, objeto.getTipo());
+			assertTrue(objeto.getNombre().startsWith("xs7_"));
+			assertEquals(objeto, catalogo.buscar(Patron.huellaForma(celdas, 0, celdas.length)));
+		}
+		catch (ModeloException e) {
+			fail("No debe llegar aquí...");
+		}
+	}
+
+	@Test
+	public void testCatalogoPeriodos() {
+		try {
+			Catalogo catalogo = Catalogo.de(new Regla(Regla.CONWAY));
+			long[] sapo = {
+				Distribucion.empaquetar(0, 1), Distribucion.empaquetar(0, 2), Distribucion.empaquetar(0, 3),
+				Distribucion.empaquetar(1, 0), Distribucion.empaquetar(1, 1), Distribucion.empaquetar(1, 2)
+			};
+			Objeto objeto = catalogo.identificar(sapo, 0, sapo.length);
+			assertEquals("Sapo", objeto.getNombre());
+			assertEquals(TipoObjeto.OSCILADOR, objeto.getTipo());
+			assertEquals(2, objeto.getPeriodo());
+		}
+		catch (ModeloException e) {
+			fail("No debe llegar aquí...");
+		}
+	}
+
+	// Test's con DATOS NO VALIDOS
+	@Test
+	public void testCatalogoFormaInestable() {
+		try {
+			Catalogo catalogo = new Catalogo(new Regla(new int[] { 3 }, new int[] { 2, 3 }), 30);
+			// Pentominó R: sigue evolucionando más de mil generaciones.
+			long[] celdas = {
+				Distribucion.empaquetar(0, 1), Distribucion.empaquetar(0, 2),
+				Distribucion.empaquetar(1, 0), Distribucion.empaquetar(1, 1),
+				Distribucion.empaquetar(2, 1)
+			};
+			Objeto objeto = catalogo.identificar(celdas, 0, celdas.length);
+			assertEquals(TipoObjeto.INDETERMINADO, objeto.getTipo());
+			assertEquals(0, catalogo.getFases());
+			// Girada: se reconoce sin volver a hacerla evolucionar.
+			long[] girada = new long[celdas.length];
+			for (int i = 0; i < celdas.length; i++) {
+				girada[i] = Distribucion.empaquetar(Distribucion.columna(celdas[i]), 
+						2 - Distribucion.fila(celdas[i]));
+			}
+			assertSame(objeto, catalogo.identificar(girada, 0, girada.length));
+			assertNull(catalogo.buscar(Patron.huellaForma(celdas, 0, celdas.length)));
+		}
+		catch (ModeloException e) {
+			fail("No debe llegar aquí...");
+		}
+	}
+
+} // class
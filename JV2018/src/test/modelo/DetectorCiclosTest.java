@@ -0,0 +1,103 @@
+package modelo;
+/** Proyecto: Juego de la vida.
+ *  Prueba Junit5 de la clase DetectorCiclos según el modelo2.1
+ *  @since: prototipo2.1
+ *  @source: DetectorCiclosTest.java
+ *  @version: 2.1 - 2019/05/22
+ *  @author: ajp
+ */
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+
+import org.junit.jupiter.api.Test;
+
+import modelo.Mundo.FormaEspacio;
+
+public class DetectorCiclosTest {
+
+	/**
+	 * Avanza el mundo hasta que se detecta un ciclo.
+	 * @return el periodo detectado; 0 si no se detecta.
+	 */
+	private static int periodo(byte[][] espacio, int generaciones) {
+		try {
+			Mundo mundo = new Mundo("Prueba", new byte[0][0],
+					new LinkedList<Posicion>(), new HashMap<String, int[]>(), FormaEspacio.PLANO);
+			mundo.setEspacio(espacio);
+			DetectorCiclos detector = new DetectorCiclos(4);
+			detector.registrar(mundo.getHuella());
+			for (int generacion = 0; generacion < generaciones; generacion++) {
+				mundo.actualizarMundo();
+				int periodo = detector.registrar(mundo.getHuella());
+				if (periodo > 0) {
+					return periodo;
+				}
+			}
+			return 0;
+		}
+		catch (ModeloException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	// Test's con DATOS VALIDOS
+	@Test
+	public void testRegistrar() {
+		DetectorCiclos detector = new DetectorCiclos(3);
+		assertEquals(0, detector.registrar(10));
+		assertEquals(0, detector.registrar(20));
+		assertEquals(2, detector.registrar(10));
+		assertEquals(1, detector.registrar(10));
+	}
+
+	@Test
+	public void testRegistrarOlvidaAntiguas() {
+		DetectorCiclos detector = new DetectorCiclos(2);
+		detector.registrar(10);
+		detector.registrar(20);
+		detector.registrar(30);
+		assertEquals(0, detector.registrar(10));
+	}
+
+	@Test
+	public void testRegistrarMuchasVueltas() {
+		// El anillo da muchas vueltas y sigue encontrando el periodo.
+		DetectorCiclos detector = new DetectorCiclos(3);
+		detector.registrar(10);
+		detector.registrar(20);
+		detector.registrar(30);
+		for (int vuelta = 0; vuelta < 100000; vuelta++) {
+			assertEquals(3, detector.registrar(10));
+			assertEquals(3, detector.registrar(20));
+			assertEquals(3, detector.registrar(30));
+		}
+		detector.reiniciar();
+		assertEquals(0, detector.registrar(30));
+		assertEquals(1, detector.registrar(30));
+	}
+
+	@Test
+	public void testExtincion() {
+		byte[][] espacio = new byte[6][6];
+		espacio[2][2] = 1;
+		assertEquals(1, periodo(espacio, 10));
+	}
+
+	@Test
+	public void testVidaEstatica() {
+		byte[][] espacio = new byte[6][6];
+		espacio[2][2] = espacio[2][3] = espacio[3][2] = espacio[3][3] = 1;
+		assertEquals(1, periodo(espacio, 10));
+	}
+
+	@Test
+	public void testOscilador() {
+		byte[][] espacio = new byte[6][6];
+		espacio[2][1] = espacio[2][2] = espacio[2][3] = 1;
+		assertEquals(2, periodo(espacio, 10));
+	}
+
+} // class
@@ -0,0 +1,123 @@
+package modelo;
+/** Proyecto: Juego de la vida.
+ *  Prueba Junit5 de la clase Distribucion según el modelo2.1
+ *  @since: prototipo2.1
+ *  @source: DistribucionTest.java
+ *  @version: 2.1 - 2019/05/28
+ *  @author: ajp
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import modelo.Mundo.FormaEspacio;
+
+public class DistribucionTest {
+
+	// Test's con DATOS VALIDOS
+	@Test
+	public void testDistribucionOrdenadaSinRepetir() {
+		List<Posicion> posiciones = new LinkedList<Posicion>();
+		posiciones.add(new Posicion(3, 1));
+		posiciones.add(new Posicion(0, 7));
+		posiciones.add(new Posicion(3, 0));
+		posiciones.add(new Posicion(0, 7));
+		Distribucion distribucion = Distribucion.de(posiciones);
+		assertEquals(3, distribucion.size());
+		assertEquals(new Posicion(0, 7), distribucion.get(0));
+		assertEquals(new Posicion(3, 0), distribucion.get(1));
+		assertEquals(new Posicion(3, 1), distribucion.get(2));
+		assertTrue(distribucion.contains(new Posicion(3, 1)));
+		assertFalse(distribucion.contains(new Posicion(1, 3)));
+	}
+
+	@Test
+	public void testDistribucionCompatibleConList() {
+		List<Posicion> posiciones = new ArrayList<Posicion>();
+		posiciones.add(new Posicion(1, 2));
+		posiciones.add(new Posicion(4, 0));
+		Distribucion distribucion = Distribucion.de(posiciones);
+		assertEquals(posiciones, distribucion);
+		assertEquals(distribucion, posiciones);
+		assertEquals(posiciones.hashCode(), distribucion.hashCode());
+		try {
+			distribucion.add(new Posicion(0, 0));
+			fail("Es inmutable...");
+		}
+		catch (UnsupportedOperationException e) {
+		}
+	}
+
+	@Test
+	public void testDistribucionExtraer() {
+		byte[][] espacio = new byte[5][5];
+		espacio[1][2] = espacio[2][3] = espacio[3][1] = espacio[3][2] = espacio[3][3] = 1;
+		Distribucion distribucion = Distribucion.extraer(espacio);
+		assertEquals(5, distribucion.size());
+		assertEquals(Distribucion.empaquetar(1, 2), distribucion.getCelda(0));
+		assertEquals(1, Distribucion.fila(distribucion.getCelda(0)));
+		assertEquals(2, Distribucion.columna(distribucion.getCelda(0)));
+	}
+
+	@Test
+	public void testDistribucionExtraerVariosEstados() {
+		// Sólo el estado 1 es viva; los de decadencia, también los negativos como byte, no.
+		byte[][] espacio = new byte[5][5];
+		espacio[1][1] = espacio[4][4] = 1;
+		espacio[1][2] = 2;
+		espacio[2][2] = 3;
+		espacio[3][3] = (byte) 200;
+		Distribucion distribucion = Distribucion.extraer(espacio);
+		assertEquals(2, distribucion.size());
+		assertTrue(distribucion.contiene(1, 1));
+		assertTrue(distribucion.contiene(4, 4));
+		assertFalse(distribucion.contiene(0, 0));
+		try {
+			Mundo mundo = new Mundo("Prueba", new byte[0][0],
+					new LinkedList<Posicion>(), new HashMap<String, int[]>(), FormaEspacio.PLANO);
+			mundo.setRegla(new Regla(Regla.CEREBRO_DE_BRIAN));
+			espacio = new byte[5][5];
+			espacio[1][1] = espacio[4][4] = 1;
+			espacio[1][2] = espacio[2][2] = 2;
+			mundo.setEspacio(espacio);
+			for (Mundo.TipoMotor motor : new Mundo.TipoMotor[] {Mundo.TipoMotor.REFERENCIA, Mundo.TipoMotor.BITS}) {
+				mundo.setTipoMotor(motor);
+				assertFalse(mundo.getCelulasVivas().contiene(0, 0));
+				assertEquals(2, mundo.getCelulasVivas().size());
+			}
+		}
+		catch (ModeloException e) {
+			fail("No debe llegar aquí...");
+		}
+	}
+
+	@Test
+	public void testMundoCargaDistribucion() {
+		try {
+			byte[][] espacio = new byte[5][5];
+			espacio[1][2] = espacio[2][3] = espacio[3][1] = espacio[3][2] = espacio[3][3] = 1;
+			Mundo mundo = new Mundo("Prueba", new byte[0][0],
+					new LinkedList<Posicion>(), new HashMap<String, int[]>(), FormaEspacio.PLANO);
+			mundo.setEspacio(new byte[5][5]);
+			mundo.setDistribucion(Distribucion.extraer(espacio));
+			Mundo esperado = new Mundo("Prueba", new byte[0][0],
+					new LinkedList<Posicion>(), new HashMap<String, int[]>(), FormaEspacio.PLANO);
+			esperado.setEspacio(espacio);
+			assertEquals(esperado.toStringEstadoMundo(), mundo.toStringEstadoMundo());
+			assertEquals(5, mundo.getDistribucion().size());
+		}
+		catch (ModeloException e) {
+			fail("No debe llegar aquí...");
+		}
+	}
+
+} // class
@@ -0,0 +1,209 @@
+package modelo;
+/** Proyecto: Juego de la vida.
+ *  Prueba Junit5 de la clase EjecutorLotes según el modelo2.1
+ *  @since: prototipo2.1
+ *  @source: EjecutorLotesTest.java
+ *  @version: 2.1 - 2019/05/24
+ *  @author: ajp
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import modelo.Mundo.FormaEspacio;
+import modelo.Simulacion.EstadoSimulacion;
+import util.Fecha;
+
+public class EjecutorLotesTest {
+
+	/**
+	 * Crea una simulación de un Mundo plano 8x8 con las células indicadas.
+	 * @param segundo - segundo de la fecha, para distinguir los id.
+	 */
+	private static Simulacion crearSimulacion(int segundo, int ciclos, int[]... celdas) {
+		try {
+			byte[][] espacio = new byte[8][8];
+			for (int[] celda : celdas) {
+				espacio[celda[0]][celda[1]] = 1;
+			}
+			Mundo mundo = new Mundo("Prueba", new byte[0][0],
+					new LinkedList<Posicion>(), new HashMap<String, int[]>(), FormaEspacio.PLANO);
+			mundo.setEspacio(espacio);
+			return new Simulacion(new Usuario(), new Fecha(2019, 5, 24, 10, 0, segundo),
+					mundo, ciclos, EstadoSimulacion.PREPARADA);
+		}
+		catch (ModeloException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	// Test's con DATOS VALIDOS
+	@Test
+	public void testEjecutarLote() {
+		List<Simulacion> lote = new ArrayList<Simulacion>();
+		for (int i = 0; i < 20; i++) {
+			// Oscilador de periodo 2: con ciclos impares acaba en vertical.
+			lote.add(crearSimulacion(i, 21 + i, new int[] {3, 2}, new int[] {3, 3}, new int[] {3, 4}));
+		}
+		List<ResultadoSimulacion> resultados = new ArrayList<ResultadoSimulacion>();
+		EjecutorLotes ejecutor = new EjecutorLotes(4);
+		try {
+			ejecutor.ejecutar(lote, resultados::add);
+		}
+		catch (ModeloException | InterruptedException e) {
+			fail("No debe llegar aquí...");
+		}
+		finally {
+			ejecutor.cerrar();
+		}
+		assertEquals(20, resultados.size());
+		for (ResultadoSimulacion resultado : resultados) {
+			assertEquals(2, resultado.getPeriodo());
+			assertEquals(2, resultado.getGeneraciones());
+			assertEquals(3, resultado.getPoblacionFinal());
+		}
+		for (Simulacion simulacion : lote) {
+			assertEquals(EstadoSimulacion.COMPLETADA, simulacion.getEstado());
+			// Ciclos impares: la fila pasa a columna.
+			String estado = simulacion.getMundo().toStringEstadoMundo();
+			assertEquals(simulacion.getCiclos() % 2 == 1, estado.equals(
+					crearSimulacion(0, 1, new int[] {2, 3}, new int[] {3, 3}, new int[] {4, 3})
+					.getMundo().toStringEstadoMundo()));
+		}
+	}
+
+	@Test
+	public void testEjecutarIgnoraNoPreparadas() {
+		Simulacion simulacion = crearSimulacion(0, 5, new int[] {1, 1});
+		simulacion.setEstado(EstadoSimulacion.COMPLETADA);
+		List<Simulacion> lote = new ArrayList<Simulacion>();
+		lote.add(simulacion);
+		List<ResultadoSimulacion> resultados = new ArrayList<ResultadoSimulacion>();
+		EjecutorLotes ejecutor = new EjecutorLotes(1);
+		try {
+			ejecutor.ejecutar(lote, resultados::add);
+		}
+		catch (ModeloException | InterruptedException e) {
+			fail("No debe llegar aquí...");
+		}
+		finally {
+			ejecutor.cerrar();
+		}
+		assertTrue(resultados.isEmpty());
+	}
+
+	@Test
+	public void testEjecutarPorTurnos() {
+		List<Simulacion> lote = new ArrayList<Simulacion>();
+		for (int i = 0; i < 50; i++) {
+			// Más simulaciones que hilos; el planeador no entra en ciclo en 8x8 plano
+			// hasta convertirse en bloque.
+			lote.add(crearSimulacion(i, 40 + i, new int[] {0, 1}, new int[] {1, 2}, 
+					new int[] {2, 0}, new int[] {2, 1}, new int[] {2, 2}));
+		}
+		Simulacion referencia = crearSimulacion(0, 40, new int[] {0, 1}, new int[] {1, 2}, 
+				new int[] {2, 0}, new int[] {2, 1}, new int[] {2, 2});
+		ResultadoSimulacion esperado = EjecutorLotes.ejecutar(referencia);
+		List<ResultadoSimulacion> resultados = new ArrayList<ResultadoSimulacion>();
+		EjecutorLotes ejecutor = new EjecutorLotes(2);
+		try {
+			ejecutor.ejecutarPorTurnos(lote, resultados::add, 3);
+		}
+		catch (ModeloException | InterruptedException e) {
+			fail("No debe llegar aquí...");
+		}
+		finally {
+			ejecutor.cerrar();
+		}
+		assertEquals(50, resultados.size());
+		for (ResultadoSimulacion resultado : resultados) {
+			assertEquals(esperado.getPeriodo(), resultado.getPeriodo());
+			assertEquals(esperado.getGeneraciones(), resultado.getGeneraciones());
+			assertEquals(esperado.getPoblacionFinal(), resultado.getPoblacionFinal());
+		}
+		for (Simulacion simulacion : lote) {
+			assertEquals(EstadoSimulacion.COMPLETADA, simulacion.getEstado());
+			assertEquals(referencia.getMundo().toStringEstadoMundo(), 
+					simulacion.getMundo().toStringEstadoMundo());
+		}
+	}
+
+	@Test
+	public void testPausarReanudar() throws InterruptedException {
+		List<Simulacion> lote = new ArrayList<Simulacion>();
+		for (int i = 0; i < 10; i++) {
+			lote.add(crearSimulacion(i, 1000, new int[] {0, 1}, new int[] {1, 2}, 
+					new int[] {2, 0}, new int[] {2, 1}, new int[] {2, 2}));
+		}
+		List<ResultadoSimulacion> resultados = new ArrayList<ResultadoSimulacion>();
+		EjecutorLotes ejecutor = new EjecutorLotes(2);
+		ejecutor.pausar();
+		assertTrue(ejecutor.isPausado());
+		Thread lanzador = new Thread(() -> {
+			try {
+				ejecutor.ejecutarPorTurnos(lote, resultados::add, 1);
+			}
+			catch (ModeloException | InterruptedException e) {
+				throw new AssertionError(e);
+			}
+		});
+		lanzador.start();
+		// Cada simulación se detiene en su primer turno.
+		while (ejecutor.getTurnosPausados() < lote.size()) {
+			Thread.sleep(1);
+		}
+		// En pausa ninguna simulación avanza ni termina.
+		assertTrue(lanzador.isAlive());
+		synchronized (resultados) {
+			assertTrue(resultados.isEmpty());
+		}
+		for (Simulacion simulacion : lote) {
+			assertEquals(EstadoSimulacion.PREPARADA, simulacion.getEstado());
+		}
+		ejecutor.reanudar();
+		lanzador.join();
+		ejecutor.cerrar();
+		assertEquals(10, resultados.size());
+	}
+
+	@Test
+	public void testErrorEnTurno() throws InterruptedException {
+		List<Simulacion> lote = new ArrayList<Simulacion>();
+		for (int i = 0; i < 4; i++) {
+			lote.add(crearSimulacion(i, 100, new int[] {0, 1}, new int[] {1, 2}, 
+					new int[] {2, 0}, new int[] {2, 1}, new int[] {2, 2}));
+		}
+		EjecutorLotes ejecutor = new EjecutorLotes(2);
+		try {
+			// Un Error, no una RuntimeException, no debe dejar el lote esperando.
+			ejecutor.ejecutarPorTurnos(lote, resultado -> {}, 1, mundo -> {
+				throw new AssertionError("fallo");
+			});
+			fail("No debe llegar aquí...");
+		}
+		catch (ModeloException e) {
+			assertTrue(e.getMessage().contains("fallo"));
+		}
+		finally {
+			ejecutor.cerrar();
+		}
+	}
+
+	@Test
+	public void testEjecutarExtincion() {
+		Simulacion simulacion = crearSimulacion(0, 30, new int[] {1, 1});
+		ResultadoSimulacion resultado = EjecutorLotes.ejecutar(simulacion);
+		assertEquals(1, resultado.getPeriodo());
+		assertEquals(0, resultado.getPoblacionFinal());
+		assertEquals(EstadoSimulacion.COMPLETADA, simulacion.getEstado());
+	}
+
+} // class
@@ -0,0 +1,948 @@
+package modelo;
+/** Proyecto: Juego de la vida.
+ *  Prueba Junit5 de la clase Mundo según el modelo2.1
+ *  Contrasta cada motor de cálculo con el motor de REFERENCIA.
+ *  @since: prototipo2.1
+ *  @source: MundoTest.java
+ *  @version: 2.1 - 2019/05/06
+ *  @author: ajp
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import config.Configuracion;
+import modelo.Mundo.FormaEspacio;
+import modelo.Mundo.TipoMotor;
+import modelo.motor.MotorHashLife;
+import modelo.motor.MotorMapeado;
+
+public class MundoTest {
+	private static byte[][] espacioAleatorio;
+
+	/**
+	 * Método que se ejecuta una sola vez al principio del conjunto pruebas.
+	 */
+	@BeforeAll
+	public static void iniciarlizarDatosFijos() {
+		// Tamaño no múltiplo de 64 para probar el empaquetado parcial.
+		Random aleatorio = new Random(2019);
+		espacioAleatorio = new byte[70][70];
+		for (byte[] fila : espacioAleatorio) {
+			for (int j = 0; j < fila.length; j++) {
+				fila[j] = (byte) (aleatorio.nextInt(3) == 0 ? 1 : 0);
+			}
+		}
+	}
+
+	/**
+	 * Crea un Mundo con una copia del espacio indicado.
+	 */
+	private static Mundo crearMundo(byte[][] espacio, FormaEspacio forma, TipoMotor motor) {
+		try {
+			Mundo mundo = new Mundo("Prueba", new byte[0][0],
+					new LinkedList<Posicion>(), new HashMap<String, int[]>(), forma);
+			byte[][] copia = new byte[espacio.length][];
+			for (int i = 0; i < espacio.length; i++) {
+				copia[i] = espacio[i].clone();
+			}
+			mundo.setEspacio(copia);
+			mundo.setTipoMotor(motor);
+			return mundo;
+		}
+		catch (ModeloException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	/**
+	 * Avanza en paralelo un mundo de referencia y otro con el motor indicado.
+	 */
+	private static void contrastarMotor(TipoMotor motor, FormaEspacio forma) {
+		Mundo referencia = crearMundo(espacioAleatorio, forma, TipoMotor.REFERENCIA);
+		Mundo mundo = crearMundo(espacioAleatorio, forma, motor);
+		for (int generacion = 0; generacion < 50; generacion++) {
+			referencia.actualizarMundo();
+			mundo.actualizarMundo();
+			assertEquals(referencia.toStringEstadoMundo(), mundo.toStringEstadoMundo());
+		}
+	}
+
+	// Test's con DATOS VALIDOS
+	@Test
+	public void testMotoresPlano() {
+		for (TipoMotor motor : TipoMotor.values()) {
+			contrastarMotor(motor, FormaEspacio.PLANO);
+		}
+	}
+
+	@Test
+	public void testMotoresEsferico() {
+		for (TipoMotor motor : TipoMotor.values()) {
+			contrastarMotor(motor, FormaEspacio.ESFERICO);
+		}
+	}
+
+	@Test
+	public void testHashLifeEsferico() {
+		// Lado potencia de 2: las copias del mosaico son la propia raíz.
+		byte[][] espacio = new byte[64][64];
+		for (int i = 0; i < 64; i++) {
+			System.arraycopy(espacioAleatorio[i], 0, espacio[i], 0, 64);
+		}
+		Mundo referencia = crearMundo(espacio, FormaEspacio.ESFERICO, TipoMotor.REFERENCIA);
+		Mundo mundo = crearMundo(espacio, FormaEspacio.ESFERICO, TipoMotor.HASHLIFE);
+		assertEquals(referencia.getHuella(), mundo.getHuella());
+		for (int generacion = 0; generacion < 50; generacion++) {
+			referencia.actualizarMundo();
+			mundo.actualizarMundo();
+			assertEquals(referencia.getHuella(), mundo.getHuella());
+		}
+		assertEquals(referencia.toStringEstadoMundo(), mundo.toStringEstadoMundo());
+		mundo.avanzar(100);
+		for (int generacion = 0; generacion < 100; generacion++) {
+			referencia.actualizarMundo();
+		}
+		assertEquals(referencia.getHuella(), mundo.getHuella());
+	}
+
+	@Test
+	public void testHashLifeMundoDemo() {
+		// Patrones del mundo de demostración, de 18x18: lado que no es potencia de 2.
+		byte[][] espacio = new byte[18][18];
+		int[][] vivas = { {2, 5}, {3, 4}, {3, 6}, {4, 7}, {5, 5}, {5, 6}, {5, 7},
+				{4, 12}, {4, 13}, {4, 14}, {8, 9}, {8, 10}, {8, 11}, {9, 9}, {9, 11},
+				{10, 9}, {10, 10}, {10, 11}, {11, 5}, {11, 6}, {12, 5}, {12, 6} };
+		for (int[] celda : vivas) {
+			espacio[celda[0]][celda[1]] = 1;
+		}
+		try {
+			Regla conway = new Regla(Regla.CONWAY);
+			for (FormaEspacio forma : FormaEspacio.values()) {
+				Mundo referencia = crearMundo(espacio, forma, TipoMotor.REFERENCIA);
+				Mundo mundo = crearMundo(espacio, forma, TipoMotor.HASHLIFE);
+				MotorHashLife motor = new MotorHashLife(18, forma, conway, 100000);
+				motor.cargar(espacio);
+				assertTrue(MotorHashLife.admite(18, forma, conway));
+				assertEquals(referencia.getHuella(), motor.getHuella());
+				for (int generacion = 0; generacion < 50; generacion++) {
+					referencia.actualizarMundo();
+					mundo.actualizarMundo();
+					motor.actualizar();
+					assertEquals(referencia.getCelulasVivas(), Distribucion.extraer(motor.volcar()));
+					assertEquals(referencia.getHuella(), motor.getHuella());
+					assertEquals(referencia.toStringEstadoMundo(), mundo.toStringEstadoMundo());
+				}
+				referencia.avanzar(1 << 20);
+				mundo.avanzar(1 << 20);
+				motor.avanzar(1 << 20);
+				assertEquals(referencia.getCelulasVivas(), Distribucion.extraer(motor.volcar()));
+				assertEquals(referencia.getHuella(), motor.getHuella());
+				assertEquals(referencia.getHuella(), mundo.getHuella());
+				assertEquals(referencia.getEstadisticas().getPoblacion(), motor.getEstadisticas().getPoblacion());
+			}
+		}
+		catch (ModeloException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	@Test
+	public void testHashLifeRecogeDuranteElSalto() {
+		// Un solo salto de 2^6 generaciones crea muchos más nodos que el máximo.
+		Random aleatorio = new Random(2019);
+		byte[][] espacio = new byte[128][128];
+		for (byte[] fila : espacio) {
+			for (int j = 0; j < fila.length; j++) {
+				fila[j] = (byte) (aleatorio.nextInt(3) == 0 ? 1 : 0);
+			}
+		}
+		String anterior = Configuracion.get().getProperty("mundo.nodosHashLife");
+		Configuracion.get().setProperty("mundo.nodosHashLife", "8000");
+		try {
+			Mundo referencia = crearMundo(espacio, FormaEspacio.ESFERICO, TipoMotor.REFERENCIA);
+			Mundo mundo = crearMundo(espacio, FormaEspacio.ESFERICO, TipoMotor.HASHLIFE);
+			referencia.avanzar(64);
+			mundo.avanzar(64);
+			assertEquals(referencia.getCelulasVivas(), mundo.getCelulasVivas());
+			assertEquals(referencia.getHuella(), mundo.getHuella());
+
+			MotorHashLife motor = new MotorHashLife(128, FormaEspacio.ESFERICO, new Regla(Regla.CONWAY), 8000);
+			motor.cargar(espacio);
+			motor.avanzar(64);
+			assertEquals(referencia.getCelulasVivas(), Distribucion.extraer(motor.volcar()));
+			// Sólo lo creado entre dos puntos seguros supera el máximo.
+			assertTrue(motor.getPicoNodos() <= 8000 + 64);
+		}
+		catch (ModeloException e) {
+			throw new AssertionError(e);
+		}
+		finally {
+			Configuracion.get().setProperty("mundo.nodosHashLife", anterior);
+		}
+	}
+
+	@Test
+	public void testLeyesRecibidasNoSeSobrescriben() {
+		try {
+			HashMap<String, int[]> constantes = new HashMap<String, int[]>();
+			constantes.put("ValoresRenacer", new int[] {3, 6});
+			constantes.put("ValoresSobrevivir", new int[] {2, 3});
+			Mundo mundo = new Mundo("Prueba", new byte[0][0],
+					new LinkedList<Posicion>(), constantes, FormaEspacio.PLANO);
+			assertEquals(new Regla(Regla.HIGHLIFE), mundo.getRegla());
+		}
+		catch (ModeloException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	@Test
+	public void testMotoresOtraRegla() {
+		try {
+			Regla regla = new Regla(Regla.DIA_Y_NOCHE);
+			Mundo referencia = crearMundo(espacioAleatorio, FormaEspacio.ESFERICO, TipoMotor.REFERENCIA);
+			referencia.setRegla(regla);
+			for (int generacion = 0; generacion < 20; generacion++) {
+				referencia.actualizarMundo();
+			}
+			for (TipoMotor motor : TipoMotor.values()) {
+				Mundo mundo = crearMundo(espacioAleatorio, FormaEspacio.ESFERICO, motor);
+				mundo.setRegla(regla);
+				for (int generacion = 0; generacion < 20; generacion++) {
+					mundo.actualizarMundo();
+				}
+				assertEquals(regla, mundo.getRegla());
+				assertEquals(referencia.toStringEstadoMundo(), mundo.toStringEstadoMundo());
+			}
+		}
+		catch (ModeloException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	@Test
+	public void testSetTipoMotorConservaEstado() {
+		Mundo mundo = crearMundo(espacioAleatorio, FormaEspacio.ESFERICO, TipoMotor.BITS);
+		mundo.actualizarMundo();
+		String estado = mundo.toStringEstadoMundo();
+		mundo.setTipoMotor(TipoMotor.REFERENCIA);
+		assertSame(TipoMotor.REFERENCIA, mundo.getTipoMotor());
+		assertEquals(estado, mundo.toStringEstadoMundo());
+	}
+
+	@Test
+	public void testHuellaIncremental() {
+		for (FormaEspacio forma : FormaEspacio.values()) {
+			for (TipoMotor motor : TipoMotor.values()) {
+				Mundo referencia = crearMundo(espacioAleatorio, forma, TipoMotor.REFERENCIA);
+				Mundo mundo = crearMundo(espacioAleatorio, forma, motor);
+				assertEquals(referencia.getHuella(), mundo.getHuella());
+				for (int generacion = 0; generacion < 30; generacion++) {
+					referencia.actualizarMundo();
+					mundo.actualizarMundo();
+					// Sin volcar el espacio: cada motor la mantiene con sus cambios.
+					assertEquals(referencia.getHuella(), mundo.getHuella());
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testHuellaEspacioVacio() {
+		Mundo mundo = crearMundo(new byte[8][8], FormaEspacio.PLANO, TipoMotor.REFERENCIA);
+		assertEquals(0, mundo.getHuella());
+	}
+
+	@Test
+	public void testHuellaCeldaOrigen() {
+		byte[][] espacio = new byte[8][8];
+		espacio[0][0] = 1;
+		for (TipoMotor motor : TipoMotor.values()) {
+			Mundo mundo = crearMundo(espacio, FormaEspacio.PLANO, motor);
+			assertNotEquals(0, mundo.getHuella());
+			assertNotEquals(crearMundo(new byte[8][8], FormaEspacio.PLANO, motor), mundo);
+		}
+	}
+
+	@Test
+	public void testEstadisticasMotores() {
+		for (FormaEspacio forma : FormaEspacio.values()) {
+			Mundo[] mundos = new Mundo[TipoMotor.values().length];
+			for (TipoMotor motor : TipoMotor.values()) {
+				mundos[motor.ordinal()] = crearMundo(espacioAleatorio, forma, motor);
+				assertEquals(mundos[0].getEstadisticas(), mundos[motor.ordinal()].getEstadisticas());
+			}
+			for (int generacion = 0; generacion < 20; generacion++) {
+				for (Mundo mundo : mundos) {
+					mundo.actualizarMundo();
+					assertEquals(mundos[0].getEstadisticas(), mundo.getEstadisticas());
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testEstadisticasSeguidas() {
+		Distribucion planeador = new Distribucion(new long[] {
+				Distribucion.empaquetar(0, 1), Distribucion.empaquetar(1, 2),
+				Distribucion.empaquetar(2, 0), Distribucion.empaquetar(2, 1), Distribucion.empaquetar(2, 2)
+		});
+		for (TipoMotor motor : TipoMotor.values()) {
+			Mundo referencia = crearMundo(espacioAleatorio, FormaEspacio.PLANO, TipoMotor.REFERENCIA);
+			Mundo mundo = crearMundo(espacioAleatorio, FormaEspacio.PLANO, motor);
+			for (int generacion = 0; generacion < 150; generacion++) {
+				if (generacion == 100) {
+					// Las regiones ya estables vuelven a cambiar.
+					referencia.estampar(planeador, 5, 5);
+					mundo.estampar(planeador, 5, 5);
+					assertEquals(referencia.getEstadisticas(), mundo.getEstadisticas());
+				}
+				referencia.actualizarMundo();
+				mundo.actualizarMundo();
+				assertEquals(referencia.getEstadisticas(), mundo.getEstadisticas());
+			}
+		}
+	}
+
+	@Test
+	public void testMotoresVariosEstados() {
+		try {
+			for (String notacion : new String[] {Regla.CEREBRO_DE_BRIAN, Regla.STAR_WARS}) {
+				Regla regla = new Regla(notacion);
+				for (FormaEspacio forma : FormaEspacio.values()) {
+					Mundo referencia = crearMundo(espacioAleatorio, forma, TipoMotor.REFERENCIA);
+					referencia.setRegla(regla);
+					referencia.getHuella();
+					// Cualquier motor recurre al de planos de bits.
+					Mundo mundo = crearMundo(espacioAleatorio, forma, TipoMotor.HASHLIFE);
+					mundo.setRegla(regla);
+					for (int generacion = 0; generacion < 50; generacion++) {
+						referencia.actualizarMundo();
+						mundo.actualizarMundo();
+						assertEquals(referencia.getHuella(), mundo.getHuella());
+						assertEquals(referencia.toStringEstadoMundo(), mundo.toStringEstadoMundo());
+					}
+					assertEquals(referencia.getEstadisticas().getPoblacion(), mundo.getEstadisticas().getPoblacion());
+				}
+			}
+		}
+		catch (ModeloException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	@Test
+	public void testDecadenciaCelulaAislada() {
+		byte[][] espacio = new byte[8][8];
+		espacio[3][3] = 1;
+		try {
+			for (TipoMotor motor : new TipoMotor[] {TipoMotor.REFERENCIA, TipoMotor.BITS}) {
+				Mundo mundo = crearMundo(espacio, FormaEspacio.PLANO, motor);
+				mundo.setRegla(new Regla(Regla.STAR_WARS));
+				mundo.actualizarMundo();
+				assertEquals(0, mundo.getEstadisticas().getPoblacion());
+				assertNotEquals(0, mundo.getHuella());
+				mundo.avanzar(2);
+				assertEquals(0, mundo.getHuella());
+			}
+		}
+		catch (ModeloException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	@Test
+	public void testCambioAReglaDosEstados() {
+		try {
+			Mundo referencia = crearMundo(espacioAleatorio, FormaEspacio.ESFERICO, TipoMotor.REFERENCIA);
+			Mundo mundo = crearMundo(espacioAleatorio, FormaEspacio.ESFERICO, TipoMotor.BITS);
+			for (Mundo m : new Mundo[] {referencia, mundo}) {
+				m.setRegla(new Regla(Regla.STAR_WARS));
+				m.avanzar(5);
+			}
+			Mundo clon = (Mundo) referencia.clone();
+			assertEquals(referencia.toStringEstadoMundo(), mundo.toStringEstadoMundo());
+			// Las celdas en decadencia quedan muertas; las vivas se conservan.
+			for (Mundo m : new Mundo[] {referencia, mundo}) {
+				m.setRegla(new Regla(Regla.CONWAY));
+				assertEquals(-1, m.toStringEstadoMundo().indexOf('.'));
+			}
+			assertNotEquals(-1, clon.toStringEstadoMundo().indexOf('.'));
+			assertEquals(referencia.getHuella(), mundo.getHuella());
+			for (int generacion = 0; generacion < 20; generacion++) {
+				referencia.actualizarMundo();
+				mundo.actualizarMundo();
+				assertEquals(referencia.toStringEstadoMundo(), mundo.toStringEstadoMundo());
+			}
+		}
+		catch (ModeloException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	@Test
+	public void testMundoDispersoGrande() {
+		// 100000 x 100000 celdas: sólo cabe sin espacio denso.
+		final int lado = 100_000;
+		final int desplazamiento = lado / 2 - 32;
+		long[] celdas = new long[64 * 64];
+		int n = 0;
+		for (int i = 0; i < 64; i++) {
+			for (int j = 0; j < 64; j++) {
+				if (espacioAleatorio[i][j] == 1) {
+					celdas[n++] = Distribucion.empaquetar(i + desplazamiento, j + desplazamiento);
+				}
+			}
+		}
+		try {
+			Mundo mundo = new Mundo("Sopa", lado, new Distribucion(Arrays.copyOf(celdas, n)),
+					new HashMap<String, int[]>(), FormaEspacio.PLANO);
+			assertSame(TipoMotor.DISPERSO, mundo.getTipoMotor());
+			assertEquals(lado, mundo.getTamañoMundo());
+			// La misma sopa, lejos de los bordes, en un espacio denso pequeño.
+			byte[][] espacio = new byte[256][256];
+			for (int i = 0; i < 64; i++) {
+				System.arraycopy(espacioAleatorio[i], 0, espacio[i + 96], 96, 64);
+			}
+			Mundo referencia = crearMundo(espacio, FormaEspacio.PLANO, TipoMotor.REFERENCIA);
+			Mundo clon = (Mundo) mundo.clone();
+			mundo.avanzar(60);
+			referencia.avanzar(60);
+			Distribucion vivas = mundo.getCelulasVivas();
+			Distribucion esperadas = referencia.getCelulasVivas();
+			assertEquals(esperadas.size(), vivas.size());
+			for (int k = 0; k < vivas.size(); k++) {
+				long celda = esperadas.getCelda(k);
+				assertEquals(Distribucion.empaquetar(Distribucion.fila(celda) - 96 + desplazamiento, 
+						Distribucion.columna(celda) - 96 + desplazamiento), vivas.getCelda(k));
+			}
+			assertEquals(esperadas.size(), mundo.getEstadisticas().getPoblacion());
+			// El clon tiene su propio motor.
+			assertNotEquals(mundo, clon);
+			clon.avanzar(60);
+			assertEquals(mundo, clon);
+			assertEquals(mundo.hashCode(), clon.hashCode());
+			// Se serializa con sus células vivas.
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (ObjectOutputStream salida = new ObjectOutputStream(bytes)) {
+				salida.writeObject(mundo);
+			}
+			try (ObjectInputStream entrada = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+				Mundo leido = (Mundo) entrada.readObject();
+				assertEquals(mundo, leido);
+				assertEquals(mundo.getCelulasVivas(), leido.getCelulasVivas());
+			}
+		}
+		catch (ModeloException | IOException | ClassNotFoundException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	@Test
+	public void testMundoDispersoCambioMotor() {
+		Mundo mundo = crearMundo(espacioAleatorio, FormaEspacio.ESFERICO, TipoMotor.DISPERSO);
+		Mundo referencia = crearMundo(espacioAleatorio, FormaEspacio.ESFERICO, TipoMotor.REFERENCIA);
+		mundo.avanzar(10);
+		referencia.avanzar(10);
+		// Del motor disperso al espacio denso y vuelta, sin perder el estado.
+		mundo.setTipoMotor(TipoMotor.BITS);
+		mundo.avanzar(10);
+		mundo.setTipoMotor(TipoMotor.DISPERSO);
+		mundo.setTipoMundo(FormaEspacio.ESFERICO);
+		mundo.avanzar(10);
+		referencia.avanzar(20);
+		assertEquals(referencia.toStringEstadoMundo(), mundo.toStringEstadoMundo());
+		assertEquals(referencia.getHuella(), mundo.getHuella());
+		assertEquals(referencia, mundo);
+	}
+
+	@Test
+	public void testAvanzar() {
+		for (FormaEspacio forma : FormaEspacio.values()) {
+			Mundo referencia = crearMundo(espacioAleatorio, forma, TipoMotor.REFERENCIA);
+			for (int generacion = 0; generacion < 150; generacion++) {
+				referencia.actualizarMundo();
+			}
+			for (TipoMotor motor : TipoMotor.values()) {
+				Mundo mundo = crearMundo(espacioAleatorio, forma, motor);
+				mundo.avanzar(150);
+				assertEquals(referencia.toStringEstadoMundo(), mundo.toStringEstadoMundo());
+				assertEquals(referencia.getHuella(), mundo.getHuella());
+			}
+		}
+	}
+
+	@Test
+	public void testAvanzarCiclo() {
+		byte[][] espacio = new byte[16][16];
+		espacio[5][4] = espacio[5][5] = espacio[5][6] = 1;
+		byte[][] vertical = new byte[16][16];
+		vertical[4][5] = vertical[5][5] = vertical[6][5] = 1;
+		for (TipoMotor motor : TipoMotor.values()) {
+			Mundo mundo = crearMundo(espacio, FormaEspacio.ESFERICO, motor);
+			// Sin atajo de ciclos en todos los motores: cifra moderada.
+			mundo.avanzar(100_001);
+			assertEquals(crearMundo(vertical, FormaEspacio.ESFERICO, motor).toStringEstadoMundo(), 
+					mundo.toStringEstadoMundo());
+		}
+		// El periodo se detecta a las dos generaciones; el resto es par.
+		for (TipoMotor motor : new TipoMotor[] {TipoMotor.REFERENCIA, TipoMotor.BITS, TipoMotor.TESELAS, 
+				TipoMotor.DISPERSO, TipoMotor.VECTORIAL, TipoMotor.HALO}) {
+			Mundo mundo = crearMundo(espacio, FormaEspacio.PLANO, motor);
+			mundo.avanzar(Long.MAX_VALUE - 1);
+			assertEquals(crearMundo(espacio, FormaEspacio.PLANO, motor).toStringEstadoMundo(), 
+					mundo.toStringEstadoMundo());
+		}
+	}
+
+	@Test
+	public void testAvanzarSopaAsentada() {
+		// La sopa acaba en vidas estáticas y osciladores: todos los motores
+		// salvo MAPEADO saltan el ciclo en lugar de calcularlo entero.
+		Mundo referencia = crearMundo(espacioAleatorio, FormaEspacio.PLANO, TipoMotor.REFERENCIA);
+		referencia.avanzar(1_000_001);
+		for (TipoMotor motor : TipoMotor.values()) {
+			if (motor != TipoMotor.MAPEADO) {
+				Mundo mundo = crearMundo(espacioAleatorio, FormaEspacio.PLANO, motor);
+				mundo.avanzar(1_000_001);
+				assertEquals(referencia.toStringEstadoMundo(), mundo.toStringEstadoMundo());
+			}
+		}
+	}
+
+	@Test
+	public void testAvanzarIgualQuePasos() {
+		byte[][] espacio = new byte[2][2];
+		espacio[0][0] = 1;
+		try {
+			Regla regla = new Regla("B0/S8");
+			Mundo pasos = crearMundo(espacio, FormaEspacio.ESFERICO, TipoMotor.REFERENCIA);
+			Mundo mundo = crearMundo(espacio, FormaEspacio.ESFERICO, TipoMotor.REFERENCIA);
+			pasos.setRegla(regla);
+			mundo.setRegla(regla);
+			for (int generacion = 0; generacion < 37; generacion++) {
+				pasos.actualizarMundo();
+			}
+			mundo.avanzar(37);
+			assertEquals(pasos.toStringEstadoMundo(), mundo.toStringEstadoMundo());
+		}
+		catch (ModeloException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	@Test
+	public void testAvanzarVariosEstados() {
+		// La decadencia de la generación anterior aún impedía un nacimiento.
+		byte[][] espacio = {
+				{0, 1, 0, 0, 0},
+				{0, 4, 5, 0, 1},
+				{1, 0, 0, 2, 0},
+				{0, 1, 1, 0, 0},
+				{0, 0, 1, 0, 0}
+		};
+		try {
+			String[] notaciones = {"B3/S23/C10", "B3/S23/C10", Regla.STAR_WARS};
+			byte[][][] iniciales = {espacio, espacioAleatorio, espacioAleatorio};
+			for (int caso = 0; caso < notaciones.length; caso++) {
+				Regla regla = new Regla(notaciones[caso]);
+				byte[][] inicial = iniciales[caso];
+				for (TipoMotor motor : TipoMotor.values()) {
+					Mundo pasos = crearMundo(inicial, FormaEspacio.ESFERICO, TipoMotor.REFERENCIA);
+					pasos.setRegla(regla);
+					for (int generaciones = 1; generaciones <= 40; generaciones++) {
+						pasos.actualizarMundo();
+						Mundo mundo = crearMundo(inicial, FormaEspacio.ESFERICO, TipoMotor.REFERENCIA);
+						mundo.setRegla(regla);
+						mundo.setTipoMotor(motor);
+						mundo.avanzar(generaciones);
+						assertEquals(pasos.toStringEstadoMundo(), mundo.toStringEstadoMundo());
+					}
+				}
+			}
+		}
+		catch (ModeloException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	@Test
+	public void testMotorMapeadoPersistente() throws IOException {
+		Path fichero = Files.createTempFile("mundo", ".jv");
+		try {
+			Mundo referencia = crearMundo(espacioAleatorio, FormaEspacio.ESFERICO, TipoMotor.REFERENCIA);
+			MotorMapeado motor = new MotorMapeado(fichero, espacioAleatorio.length, 
+					FormaEspacio.ESFERICO, referencia.getRegla());
+			motor.cargar(espacioAleatorio);
+			motor.avanzar(10);
+			motor.cerrar();
+			// Se continúa desde el estado guardado en el fichero.
+			motor = new MotorMapeado(fichero, espacioAleatorio.length, 
+					FormaEspacio.ESFERICO, referencia.getRegla());
+			assertEquals(10, motor.getGeneracion());
+			motor.avanzar(5);
+			referencia.avanzar(15);
+			Mundo mapeado = crearMundo(motor.volcar(), FormaEspacio.ESFERICO, TipoMotor.REFERENCIA);
+			assertEquals(referencia.toStringEstadoMundo(), mapeado.toStringEstadoMundo());
+			assertEquals(referencia.getEstadisticas().getPoblacion(), motor.getEstadisticas().getPoblacion());
+			motor.cerrar();
+		}
+		finally {
+			Files.delete(fichero);
+		}
+	}
+
+	@Test
+	public void testMundoMapeadoPersistente() throws IOException {
+		Path fichero = Files.createTempFile("mundo", ".jv");
+		Files.delete(fichero);
+		try {
+			Mundo referencia = crearMundo(espacioAleatorio, FormaEspacio.ESFERICO, TipoMotor.REFERENCIA);
+			Mundo mundo = new Mundo("Mapeado", fichero, espacioAleatorio.length,
+					new HashMap<String, int[]>(), FormaEspacio.ESFERICO);
+			assertSame(TipoMotor.MAPEADO, mundo.getTipoMotor());
+			assertEquals(0, mundo.getCelulasVivas().size());
+			// Las células se escriben en el fichero, sin espacio denso.
+			Distribucion vivas = referencia.getCelulasVivas();
+			assertEquals(vivas.size(), mundo.estampar(vivas, 0, 0));
+			assertEquals(referencia.getHuella(), mundo.getHuella());
+			mundo.avanzar(10);
+			referencia.avanzar(10);
+			assertEquals(referencia.getCelulasVivas(), mundo.getCelulasVivas());
+			assertEquals(referencia.getEstadisticas(), mundo.getEstadisticas());
+			// Serializado, sólo guarda el fichero y lo vuelve a abrir.
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (ObjectOutputStream salida = new ObjectOutputStream(bytes)) {
+				salida.writeObject(mundo);
+			}
+			assertTrue(bytes.size() < vivas.size() * 8);
+			try (ObjectInputStream entrada = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+				assertEquals(referencia.getCelulasVivas(), ((Mundo) entrada.readObject()).getCelulasVivas());
+			}
+			// Otro Mundo sobre el mismo fichero continúa donde se dejó.
+			Mundo abierto = new Mundo("Mapeado", fichero, espacioAleatorio.length,
+					new HashMap<String, int[]>(), FormaEspacio.ESFERICO);
+			abierto.avanzar(5);
+			referencia.avanzar(5);
+			assertEquals(referencia.getCelulasVivas(), abierto.getCelulasVivas());
+			// El clon calcula en un temporal, sin tocar el fichero.
+			Mundo clon = (Mundo) abierto.clone();
+			clon.avanzar(5);
+			assertEquals(referencia.getCelulasVivas(), new Mundo("Mapeado", fichero, espacioAleatorio.length,
+					new HashMap<String, int[]>(), FormaEspacio.ESFERICO).getCelulasVivas());
+		}
+		catch (ModeloException | ClassNotFoundException e) {
+			throw new AssertionError(e);
+		}
+		finally {
+			Files.deleteIfExists(fichero);
+		}
+	}
+
+	@Test
+	public void testMundoMapeadoOtrosParametros() throws IOException {
+		Path fichero = Files.createTempFile("mundo", ".jv");
+		try {
+			MotorMapeado motor = new MotorMapeado(fichero, 64, FormaEspacio.ESFERICO, new Regla(Regla.CONWAY));
+			motor.cerrar();
+			// La cabecera guarda el tamaño, la forma y las leyes.
+			for (Object[] otros : new Object[][] {
+					{32, FormaEspacio.ESFERICO, Regla.CONWAY},
+					{64, FormaEspacio.PLANO, Regla.CONWAY},
+					{64, FormaEspacio.ESFERICO, Regla.HIGHLIFE}}) {
+				try {
+					new MotorMapeado(fichero, (Integer) otros[0], (FormaEspacio) otros[1], new Regla((String) otros[2]));
+					throw new AssertionError("No debe llegar aquí...");
+				}
+				catch (IllegalArgumentException e) {
+				}
+			}
+			HashMap<String, int[]> highLife = new HashMap<String, int[]>();
+			highLife.put("ValoresRenacer", new int[] {3, 6});
+			highLife.put("ValoresSobrevivir", new int[] {2, 3});
+			try {
+				new Mundo("Mapeado", fichero, 64, highLife, FormaEspacio.ESFERICO);
+				throw new AssertionError("No debe llegar aquí...");
+			}
+			catch (ModeloException e) {
+			}
+			// El mismo mundo sí se abre.
+			new MotorMapeado(fichero, 64, FormaEspacio.ESFERICO, new Regla(Regla.CONWAY)).cerrar();
+		}
+		catch (ModeloException e) {
+			throw new AssertionError(e);
+		}
+		finally {
+			Files.delete(fichero);
+		}
+	}
+
+	@Test
+	public void testMotorMapeadoTemporalSeBorra() throws IOException {
+		Path directorio = Files.createTempDirectory("mapeado");
+		String anterior = Configuracion.get().getProperty("mundo.directorioMapeado", "");
+		Configuracion.get().setProperty("mundo.directorioMapeado", directorio.toString());
+		try {
+			MotorMapeado motor = MotorMapeado.temporal(espacioAleatorio.length, 
+					FormaEspacio.ESFERICO, crearMundo(espacioAleatorio, FormaEspacio.ESFERICO, TipoMotor.REFERENCIA).getRegla());
+			motor.cargar(espacioAleatorio);
+			motor.actualizar();
+			try (Stream<Path> ficheros = Files.list(directorio)) {
+				assertEquals(1, ficheros.count());
+			}
+			motor.cerrar();
+			try (Stream<Path> ficheros = Files.list(directorio)) {
+				assertEquals(0, ficheros.count());
+			}
+		}
+		finally {
+			Configuracion.get().setProperty("mundo.directorioMapeado", anterior);
+			Files.delete(directorio);
+		}
+	}
+
+	@Test
+	public void testEqualsHashCode() {
+		// Cada Mundo compila sus propias constantes: vectores iguales, no idénticos.
+		Mundo mundo1 = crearMundo(espacioAleatorio, FormaEspacio.PLANO, TipoMotor.REFERENCIA);
+		Mundo mundo2 = crearMundo(espacioAleatorio, FormaEspacio.PLANO, TipoMotor.BITS);
+		assertEquals(mundo1, mundo2);
+		assertEquals(mundo1.hashCode(), mundo2.hashCode());
+		mundo1.actualizarMundo();
+		mundo2.actualizarMundo();
+		assertEquals(mundo1, mundo2);
+		assertEquals(mundo1.hashCode(), mundo2.hashCode());
+		mundo2.actualizarMundo();
+		assertNotEquals(mundo1, mundo2);
+	}
+
+	@Test
+	public void testCloneCopiaEnEscritura() {
+		for (TipoMotor motor : new TipoMotor[] {TipoMotor.REFERENCIA, TipoMotor.BITS, TipoMotor.TESELAS}) {
+			Mundo original = crearMundo(espacioAleatorio, FormaEspacio.ESFERICO, motor);
+			original.actualizarMundo();
+			String estado = original.toStringEstadoMundo();
+			// El clon parte del estado actual, no de la distribución inicial.
+			Mundo clon = (Mundo) original.clone();
+			assertEquals(estado, clon.toStringEstadoMundo());
+			assertEquals(original, clon);
+			clon.actualizarMundo();
+			clon.actualizarMundo();
+			assertEquals(estado, original.toStringEstadoMundo());
+			original.actualizarMundo();
+			original.actualizarMundo();
+			original.actualizarMundo();
+			Mundo referencia = crearMundo(espacioAleatorio, FormaEspacio.ESFERICO, TipoMotor.REFERENCIA);
+			referencia.avanzar(3);
+			assertEquals(referencia.toStringEstadoMundo(), clon.toStringEstadoMundo());
+			referencia.avanzar(1);
+			assertEquals(referencia.toStringEstadoMundo(), original.toStringEstadoMundo());
+			assertEquals(referencia.getHuella(), original.getHuella());
+		}
+	}
+
+	@Test
+	public void testCloneComparteMotor() {
+		for (TipoMotor motor : new TipoMotor[] {TipoMotor.BITS, TipoMotor.TESELAS}) {
+			Mundo original = crearMundo(espacioAleatorio, FormaEspacio.PLANO, motor);
+			original.avanzar(4);
+			long huella = original.getHuella();
+			// El motor va por delante del espacio: los clones lo comparten.
+			Mundo clon = (Mundo) original.clone();
+			Mundo nieto = (Mundo) clon.clone();
+			assertEquals(huella, clon.getHuella());
+			clon.avanzar(3);
+			nieto.avanzar(1);
+			original.avanzar(2);
+			Mundo referencia = crearMundo(espacioAleatorio, FormaEspacio.PLANO, TipoMotor.REFERENCIA);
+			referencia.avanzar(5);
+			assertEquals(referencia.toStringEstadoMundo(), nieto.toStringEstadoMundo());
+			assertEquals(referencia.getHuella(), nieto.getHuella());
+			referencia.avanzar(1);
+			assertEquals(referencia.toStringEstadoMundo(), original.toStringEstadoMundo());
+			assertEquals(referencia.getHuella(), original.getHuella());
+			referencia.avanzar(1);
+			assertEquals(referencia.toStringEstadoMundo(), clon.toStringEstadoMundo());
+			assertEquals(referencia.getHuella(), clon.getHuella());
+			assertEquals(referencia.getEstadisticas(), clon.getEstadisticas());
+			// Estampar en el clon no toca al original.
+			String estado = original.toStringEstadoMundo();
+			Mundo otro = (Mundo) original.clone();
+			otro.estampar(new Distribucion(new long[] {Distribucion.empaquetar(0, 0)}), 5, 5);
+			otro.avanzar(1);
+			assertEquals(estado, original.toStringEstadoMundo());
+		}
+	}
+
+	@Test
+	public void testDistribucionMundoAntiguo() {
+		try {
+			Mundo mundo = crearMundo(espacioAleatorio, FormaEspacio.PLANO, TipoMotor.REFERENCIA);
+			// Los mundos guardados antes de empaquetarla tenían una LinkedList.
+			LinkedList<Posicion> antigua = new LinkedList<Posicion>();
+			antigua.add(new Posicion(3, 4));
+			java.lang.reflect.Field campo = Mundo.class.getDeclaredField("distribucion");
+			campo.setAccessible(true);
+			campo.set(mundo, antigua);
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (ObjectOutputStream salida = new ObjectOutputStream(bytes)) {
+				salida.writeObject(mundo);
+			}
+			try (ObjectInputStream entrada = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+				Mundo leido = (Mundo) entrada.readObject();
+				assertTrue(leido.getDistribucion() instanceof Distribucion);
+				assertEquals(1, leido.getDistribucion().size());
+				assertEquals(new Posicion(3, 4), leido.getDistribucion().get(0));
+				assertSame(leido.getDistribucion(), ((Mundo) leido.clone()).getDistribucion());
+			}
+			// Un clon tampoco comparte la lista modificable.
+			assertTrue(((Mundo) mundo.clone()).getDistribucion() instanceof Distribucion);
+		}
+		catch (ReflectiveOperationException | IOException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	@Test
+	public void testCloneCopiaSoloFilasEscritas() {
+		Distribucion bloque = new Distribucion(new long[] {
+				Distribucion.empaquetar(0, 0), Distribucion.empaquetar(0, 1),
+				Distribucion.empaquetar(1, 0), Distribucion.empaquetar(1, 1) });
+		Mundo original = crearMundo(espacioAleatorio, FormaEspacio.PLANO, TipoMotor.REFERENCIA);
+		String estado = original.toStringEstadoMundo();
+		Mundo clon = (Mundo) original.clone();
+		clon.estampar(bloque, 20, 30);
+		// Sólo se han copiado las dos filas escritas.
+		for (int i = 0; i < espacioAleatorio.length; i++) {
+			assertEquals(i != 20 && i != 21, clon.filaCompartida(i));
+		}
+		assertEquals(estado, original.toStringEstadoMundo());
+		clon.estampar(bloque, 21, 40);
+		assertTrue(!clon.filaCompartida(22));
+		assertTrue(clon.filaCompartida(23));
+		// El original escribe en sus propias copias, no en las del clon.
+		String estadoClon = clon.toStringEstadoMundo();
+		original.estampar(bloque, 21, 50);
+		assertEquals(estadoClon, clon.toStringEstadoMundo());
+		Mundo referencia = crearMundo(espacioAleatorio, FormaEspacio.PLANO, TipoMotor.REFERENCIA);
+		referencia.estampar(bloque, 21, 50);
+		assertEquals(referencia.toStringEstadoMundo(), original.toStringEstadoMundo());
+		// Con filas compartidas, el búfer anterior no es destino de la siguiente generación.
+		Mundo referenciaClon = crearMundo(espacioAleatorio, FormaEspacio.PLANO, TipoMotor.REFERENCIA);
+		referenciaClon.estampar(bloque, 20, 30);
+		referenciaClon.estampar(bloque, 21, 40);
+		clon.avanzar(3);
+		referenciaClon.avanzar(3);
+		assertEquals(referencia.toStringEstadoMundo(), original.toStringEstadoMundo());
+		assertEquals(referenciaClon.toStringEstadoMundo(), clon.toStringEstadoMundo());
+	}
+
+	@Test
+	public void testSetEspacioNoSeSobrescribe() {
+		for (FormaEspacio forma : FormaEspacio.values()) {
+			byte[][] espacio = new byte[espacioAleatorio.length][];
+			for (int i = 0; i < espacio.length; i++) {
+				espacio[i] = espacioAleatorio[i].clone();
+			}
+			Mundo mundo = crearMundo(new byte[0][0], forma, TipoMotor.REFERENCIA);
+			mundo.setEspacio(espacio);
+			// Con doble búfer, la tercera generación se escribiría en la matriz recibida.
+			mundo.avanzar(3);
+			assertTrue(Arrays.deepEquals(espacioAleatorio, espacio));
+			Mundo referencia = crearMundo(espacioAleatorio, forma, TipoMotor.REFERENCIA);
+			referencia.avanzar(3);
+			assertEquals(referencia.toStringEstadoMundo(), mundo.toStringEstadoMundo());
+		}
+	}
+
+	@Test
+	public void testEstampar() {
+		// Planeador, con dos células que caen fuera por la derecha.
+		Distribucion planeador = new Distribucion(new long[] {
+				Distribucion.empaquetar(0, 1), Distribucion.empaquetar(1, 2), Distribucion.empaquetar(2, 0),
+				Distribucion.empaquetar(2, 1), Distribucion.empaquetar(2, 2) });
+		for (TipoMotor motor : new TipoMotor[] {TipoMotor.REFERENCIA, TipoMotor.BITS, TipoMotor.DISPERSO}) {
+			Mundo mundo = crearMundo(espacioAleatorio, FormaEspacio.ESFERICO, motor);
+			mundo.avanzar(5);
+			mundo.getHuella();
+			Mundo clon = (Mundo) mundo.clone();
+			String antes = clon.toStringEstadoMundo();
+			assertEquals(3, mundo.estampar(planeador, 10, espacioAleatorio.length - 2));
+			assertEquals(antes, clon.toStringEstadoMundo());
+			// Lo mismo que formar el espacio entero y establecerlo.
+			Mundo referencia = crearMundo(espacioAleatorio, FormaEspacio.ESFERICO, TipoMotor.REFERENCIA);
+			referencia.avanzar(5);
+			byte[][] espacio = new byte[espacioAleatorio.length][espacioAleatorio.length];
+			Distribucion vivas = referencia.getCelulasVivas();
+			for (int k = 0; k < vivas.size(); k++) {
+				espacio[Distribucion.fila(vivas.getCelda(k))][Distribucion.columna(vivas.getCelda(k))] = 1;
+			}
+			for (int k = 0; k < planeador.size(); k++) {
+				int columna = espacioAleatorio.length - 2 + Distribucion.columna(planeador.getCelda(k));
+				if (columna < espacioAleatorio.length) {
+					espacio[10 + Distribucion.fila(planeador.getCelda(k))][columna] = 1;
+				}
+			}
+			referencia.setEspacio(espacio);
+			assertEquals(referencia.getHuella(), mundo.getHuella());
+			mundo.avanzar(10);
+			referencia.avanzar(10);
+			assertEquals(referencia.toStringEstadoMundo(), mundo.toStringEstadoMundo());
+		}
+	}
+
+	@Test
+	public void testEstadisticasPlaneador() {
+		byte[][] espacio = new byte[64][64];
+		espacio[10][11] = espacio[11][12] = espacio[12][10] = espacio[12][11] = espacio[12][12] = 1;
+		for (TipoMotor motor : TipoMotor.values()) {
+			Mundo mundo = crearMundo(espacio, FormaEspacio.ESFERICO, motor);
+			assertEquals(new Estadisticas(5, 0, 0, 10, 12, 10, 12), mundo.getEstadisticas());
+			for (int generacion = 0; generacion < 4; generacion++) {
+				mundo.actualizarMundo();
+			}
+			// Una generación: dos nacimientos y dos muertes.
+			Estadisticas estadisticas = mundo.getEstadisticas();
+			assertEquals(5, estadisticas.getPoblacion());
+			assertEquals(2, estadisticas.getNacimientos());
+			assertEquals(2, estadisticas.getMuertes());
+			assertEquals(11, estadisticas.getFilaMinima());
+			assertEquals(11, estadisticas.getColumnaMinima());
+			assertEquals(3, estadisticas.getAlto());
+			assertEquals(3, estadisticas.getAncho());
+		}
+	}
+
+	// Test's con DATOS NO VALIDOS
+	@Test
+	public void testMundoDispersoTamañoCero() {
+		try {
+			new Mundo("Sopa", 0, new Distribucion(new long[0]),
+					new HashMap<String, int[]>(), FormaEspacio.PLANO);
+			fail("No debe llegar aquí...");
+		}
+		catch (ModeloException e) {
+		}
+	}
+
+} // class
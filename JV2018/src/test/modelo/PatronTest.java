@@ -0,0 +1,217 @@
+package modelo;
+/** Proyecto: Juego de la vida.
+ *  Prueba Junit5 de la clase Patron y sus formatos RLE y Macrocell según el modelo2.1
+ *  @since: prototipo2.1
+ *  @source: PatronTest.java
+ *  @version: 2.1 - 2019/05/30
+ *  @author: ajp
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import org.junit.jupiter.api.Test;
+
+import accesoDatos.DatosException;
+import accesoDatos.fichero.FormatoMacrocell;
+import accesoDatos.fichero.FormatoRLE;
+import modelo.Mundo.FormaEspacio;
+
+public class PatronTest {
+
+	private static final String PLANEADOR = "#N Planeador\nx = 3, y = 3, rule = B3/S23\nbo$2bo$3o!\n";
+	private static final String CAÑON = "#N Cañón de Gosper\n"
+			+ "x = 36, y = 9, rule = B3/S23\n"
+			+ "24bo$22bobo$12b2o6b2o12b2o$11bo3bo4b2o12b2o$2o8bo5bo3b2o$2o8bo3bob2o4b\n"
+			+ "obo$10bo5bo7bo$11bo3bo$12b2o!\n";
+
+	// Test's con DATOS VALIDOS
+	@Test
+	public void testLeerRLE() {
+		try {
+			Patron patron = FormatoRLE.leer(new StringReader(PLANEADOR), "");
+			assertEquals("Planeador", patron.getNombre());
+			assertEquals(3, patron.getAlto());
+			assertEquals(3, patron.getAncho());
+			assertEquals(new Regla(Regla.CONWAY), patron.getRegla());
+			assertEquals(5, patron.getCeldas().size());
+			assertTrue(patron.getCeldas().contains(new Posicion(0, 1)));
+			assertTrue(patron.getCeldas().contains(new Posicion(1, 2)));
+			assertTrue(patron.getCeldas().contains(new Posicion(2, 0)));
+		}
+		catch (Exception e) {
+			fail("No debe llegar aquí...");
+		}
+	}
+
+	@Test
+	public void testRLEIdaVuelta() {
+		try {
+			Patron patron = FormatoRLE.leer(new StringReader(CAÑON), "");
+			assertEquals(36, patron.getCeldas().size());
+			StringWriter texto = new StringWriter();
+			FormatoRLE.escribir(texto, patron);
+			assertEquals(patron, FormatoRLE.leer(new StringReader(texto.toString()), ""));
+		}
+		catch (Exception e) {
+			fail("No debe llegar aquí...");
+		}
+	}
+
+	@Test
+	public void testMacrocellIdaVuelta() {
+		try {
+			Patron patron = FormatoRLE.leer(new StringReader(CAÑON), "");
+			StringWriter texto = new StringWriter();
+			FormatoMacrocell.escribir(texto, patron);
+			assertTrue(texto.toString().startsWith("[M2]"));
+			Patron leido = FormatoMacrocell.leer(new StringReader(texto.toString()), "");
+			assertEquals(patron.getNombre(), leido.getNombre());
+			assertEquals(patron.getRegla(), leido.getRegla());
+			assertEquals(patron.getCeldas(), leido.getCeldas());
+		}
+		catch (Exception e) {
+			fail("No debe llegar aquí...");
+		}
+	}
+
+	@Test
+	public void testMacrocellNodosCompartidos() {
+		try {
+			// Cuatro bloques en la misma posición de sus cuadros de 8x8: una sola hoja.
+			String rle = "x = 58, y = 58\n2o54b2o$2o54b2o$55$2o54b2o$2o54b2o!\n";
+			Patron patron = FormatoRLE.leer(new StringReader(rle), "Bloques");
+			StringWriter texto = new StringWriter();
+			FormatoMacrocell.escribir(texto, patron);
+			assertEquals(1, texto.toString().lines().filter(linea -> linea.startsWith("*")).count());
+			assertEquals(patron.getCeldas(),
+					FormatoMacrocell.leer(new StringReader(texto.toString()), "").getCeldas());
+		}
+		catch (Exception e) {
+			fail("No debe llegar aquí...");
+		}
+	}
+
+	@Test
+	public void testCrearMundoYRecortar() {
+		try {
+			Patron patron = FormatoRLE.leer(new StringReader(PLANEADOR), "");
+			Mundo mundo = patron.crearMundo("Planeador", 20, FormaEspacio.PLANO);
+			assertEquals(5, mundo.getCelulasVivas().size());
+			Patron recortado = Patron.de("Planeador", mundo);
+			assertEquals(patron, recortado);
+		}
+		catch (Exception e) {
+			fail("No debe llegar aquí...");
+		}
+	}
+
+	@Test
+	public void testHuellaFormaSimetrias() {
+		try {
+			Patron patron = FormatoRLE.leer(new StringReader(PLANEADOR), "");
+			// Traspuesto y desplazado.
+			Patron girado = FormatoRLE.leer(new StringReader("x = 5, y = 5\n2$4bo$2bobo$3b2o!\n"), "Otro");
+			assertEquals(patron.getHuellaForma(), girado.getHuellaForma());
+			Patron bloque = FormatoRLE.leer(new StringReader("x = 2, y = 2\n2o$2o!\n"), "");
+			assertNotEquals(patron.getHuellaForma(), bloque.getHuellaForma());
+		}
+		catch (Exception e) {
+			fail("No debe llegar aquí...");
+		}
+	}
+
+	@Test
+	public void testRLEVariosEstados() {
+		try {
+			// A viva; B, C y los estados con prefijo, en decadencia.
+			Patron patron = FormatoRLE.leer(new StringReader("x = 6, y = 2, rule = B2/S/C3\nABA$.2BpAA!\n"), "Cerebro");
+			assertEquals(3, patron.getCeldas().size());
+			assertTrue(patron.getCeldas().contains(new Posicion(0, 0)));
+			assertTrue(patron.getCeldas().contains(new Posicion(0, 2)));
+			assertTrue(patron.getCeldas().contains(new Posicion(1, 4)));
+			StringWriter texto = new StringWriter();
+			FormatoRLE.escribir(texto, patron);
+			assertTrue(texto.toString().contains("A.A$4.A!"));
+			assertEquals(patron, FormatoRLE.leer(new StringReader(texto.toString()), ""));
+		}
+		catch (Exception e) {
+			fail("No debe llegar aquí...");
+		}
+	}
+
+	@Test
+	public void testCrearMundoVariosEstados() {
+		try {
+			Regla regla = new Regla(Regla.CEREBRO_DE_BRIAN);
+			Patron patron = new Patron("Cerebro", regla,
+					new Distribucion(new long[] {Distribucion.empaquetar(0, 0), Distribucion.empaquetar(0, 1)}), 1, 2);
+			assertEquals(regla, patron.crearMundo("Cerebro", 8, FormaEspacio.PLANO).getRegla());
+		}
+		catch (ModeloException e) {
+			fail("No debe llegar aquí...");
+		}
+	}
+
+	@Test
+	public void testLeerMacrocellRecortado() {
+		try {
+			// Planeador en la esquina inferior derecha del cuadrante sureste.
+			Patron patron = FormatoMacrocell.leer(new StringReader(
+					"[M2]\n#R B3/S23\n$$$$$......*$.......*$.....***$\n4 0 0 0 1\n"), "");
+			assertEquals(3, patron.getAlto());
+			assertEquals(3, patron.getAncho());
+			assertEquals(FormatoRLE.leer(new StringReader(PLANEADOR), "").getCeldas(), patron.getCeldas());
+		}
+		catch (Exception e) {
+			fail("No debe llegar aquí...");
+		}
+	}
+
+	// Test's con DATOS NO VALIDOS
+	@Test
+	public void testLeerRLECabeceraNoValida() {
+		try {
+			FormatoRLE.leer(new StringReader("x = tres\nbo$2bo$3o!\n"), "");
+			fail("No debe llegar aquí...");
+		}
+		catch (DatosException e) {
+		}
+		catch (Exception e) {
+			fail("No debe llegar aquí...");
+		}
+	}
+
+	@Test
+	public void testLeerMacrocellNodoNoValido() {
+		try {
+			FormatoMacrocell.leer(new StringReader("[M2]\n4 7 0 0 0\n"), "");
+			fail("No debe llegar aquí...");
+		}
+		catch (DatosException e) {
+		}
+		catch (Exception e) {
+			fail("No debe llegar aquí...");
+		}
+	}
+
+	@Test
+	public void testCrearMundoNoCabe() {
+		try {
+			Patron patron = FormatoRLE.leer(new StringReader(CAÑON), "");
+			patron.crearMundo("Cañón", 20, FormaEspacio.PLANO);
+			fail("No debe llegar aquí...");
+		}
+		catch (ModeloException e) {
+		}
+		catch (Exception e) {
+			fail("No debe llegar aquí...");
+		}
+	}
+
+} // class
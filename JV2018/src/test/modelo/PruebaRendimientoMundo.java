@@ -0,0 +1,108 @@
+package modelo;
+/** Proyecto: Juego de la vida.
+ *  Prueba de rendimiento de los motores de Mundo: tiempo por generación,
+ *  aceleración respecto al motor de REFERENCIA y bytes reservados por
+ *  generación en régimen estable. También el coste de clonar un mundo 
+ *  grande con el motor predeterminado y de la primera generación del clon.
+ *  Se ejecuta como programa; no forma parte de AllTests.
+ *  @since: prototipo2.1
+ *  @source: PruebaRendimientoMundo.java
+ *  @version: 2.1 - 2019/05/21
+ *  @author: ajp
+ */
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Random;
+
+import config.Configuracion;
+import modelo.Mundo.FormaEspacio;
+import modelo.Mundo.TipoMotor;
+
+public class PruebaRendimientoMundo {
+
+	private static final int TAMAÑO = 512;
+	private static final int CALENTAMIENTO = 200;
+	private static final int GENERACIONES = 500;
+	private static final int TAMAÑO_CLONES = 4096;
+	private static final int CLONES = 1000;
+
+	public static void main(String[] args) throws ModeloException {
+		// El reparto por franjas reserva tareas del ForkJoinPool;
+		// se mide el cálculo secuencial, antes de crear el pool.
+		Configuracion.get().setProperty("mundo.paralelismo", "1");
+
+		com.sun.management.ThreadMXBean hilos =
+				(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long idHilo = Thread.currentThread().getId();
+
+		for (FormaEspacio forma : FormaEspacio.values()) {
+			double nanosReferencia = 0;
+			for (TipoMotor tipoMotor : TipoMotor.values()) {
+				Mundo mundo = crearMundo(forma, tipoMotor, TAMAÑO);
+				for (int i = 0; i < CALENTAMIENTO; i++) {
+					mundo.actualizarMundo();
+				}
+				long bytesInicio = hilos.getThreadAllocatedBytes(idHilo);
+				long inicio = System.nanoTime();
+				for (int i = 0; i < GENERACIONES; i++) {
+					mundo.actualizarMundo();
+				}
+				long nanos = System.nanoTime() - inicio;
+				long bytes = hilos.getThreadAllocatedBytes(idHilo) - bytesInicio;
+				if (tipoMotor == TipoMotor.REFERENCIA) {
+					nanosReferencia = nanos;
+				}
+				System.out.println(String.format("%-9s %-10s %10.3f ms/generación %7.1fx %12d bytes/generación",
+						forma, tipoMotor, nanos / 1e6 / GENERACIONES, nanosReferencia / nanos, bytes / GENERACIONES));
+			}
+		}
+		medirClones(hilos, idHilo);
+	}
+
+	/**
+	 * Clona muchas veces un mundo grande, ya calculado con el motor
+	 * predeterminado, y calcula una generación de uno de los clones.
+	 */
+	private static void medirClones(com.sun.management.ThreadMXBean hilos, long idHilo) throws ModeloException {
+		Mundo mundo = crearMundo(FormaEspacio.ESFERICO,
+				TipoMotor.valueOf(Configuracion.get().getProperty("mundo.motorPredeterminado")), TAMAÑO_CLONES);
+		mundo.actualizarMundo();
+		Mundo[] clones = new Mundo[CLONES];
+		long bytesInicio = hilos.getThreadAllocatedBytes(idHilo);
+		long inicio = System.nanoTime();
+		for (int i = 0; i < CLONES; i++) {
+			clones[i] = (Mundo) mundo.clone();
+		}
+		long nanos = System.nanoTime() - inicio;
+		long bytes = hilos.getThreadAllocatedBytes(idHilo) - bytesInicio;
+		System.out.println(String.format("%d clones %dx%d %-10s %10.3f ms/clon %12d bytes/clon",
+				CLONES, TAMAÑO_CLONES, TAMAÑO_CLONES, mundo.getTipoMotor(), nanos / 1e6 / CLONES, bytes / CLONES));
+		bytesInicio = hilos.getThreadAllocatedBytes(idHilo);
+		inicio = System.nanoTime();
+		clones[CLONES - 1].actualizarMundo();
+		nanos = System.nanoTime() - inicio;
+		bytes = hilos.getThreadAllocatedBytes(idHilo) - bytesInicio;
+		System.out.println(String.format("primera generación del clon %10.3f ms %12d bytes", nanos / 1e6, bytes));
+	}
+
+	/**
+	 * Crea un Mundo aleatorio reproducible con el motor indicado.
+	 */
+	private static Mundo crearMundo(FormaEspacio forma, TipoMotor tipoMotor, int tamaño) throws ModeloException {
+		Random aleatorio = new Random(2019);
+		byte[][] espacio = new byte[tamaño][tamaño];
+		for (byte[] fila : espacio) {
+			for (int j = 0; j < fila.length; j++) {
+				fila[j] = (byte) (aleatorio.nextInt(3) == 0 ? 1 : 0);
+			}
+		}
+		Mundo mundo = new Mundo("Prueba", new byte[0][0],
+				new LinkedList<Posicion>(), new HashMap<String, int[]>(), forma);
+		mundo.setEspacio(espacio);
+		mundo.setTipoMotor(tipoMotor);
+		return mundo;
+	}
+
+} // class
@@ -0,0 +1,128 @@
+package modelo;
+/** Proyecto: Juego de la vida.
+ *  Prueba Junit5 de la clase Regla según el modelo2.1
+ *  @since: prototipo2.1
+ *  @source: ReglaTest.java
+ *  @version: 2.1 - 2019/05/20
+ *  @author: ajp
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.jupiter.api.Test;
+
+public class ReglaTest {
+
+	// Test's con DATOS VALIDOS
+	@Test
+	public void testReglaNotacionBS() {
+		try {
+			Regla regla = new Regla(Regla.HIGHLIFE);
+			assertArrayEquals(new int[] {3, 6}, regla.getValoresRenacer());
+			assertArrayEquals(new int[] {2, 3}, regla.getValoresSobrevivir());
+			assertEquals("B36/S23", regla.toString());
+		}
+		catch (ModeloException e) {
+			fail("No debe llegar aquí...");
+		}
+	}
+
+	@Test
+	public void testReglaNotacionesEquivalentes() {
+		try {
+			Regla regla = new Regla("B3/S23");
+			assertEquals(regla, new Regla("b3/s23"));
+			assertEquals(regla, new Regla("S23/B3"));
+			assertEquals(regla, new Regla("23/3"));
+			assertEquals(regla, new Regla(new int[] {3}, new int[] {2, 3}));
+		}
+		catch (ModeloException e) {
+			fail("No debe llegar aquí...");
+		}
+	}
+
+	@Test
+	public void testReglaSinSupervivencia() {
+		try {
+			Regla regla = new Regla(Regla.SEMILLAS);
+			assertEquals(0, regla.getValoresSobrevivir().length);
+			assertEquals(0, regla.siguiente(1, 2));
+			assertEquals(1, regla.siguiente(0, 2));
+		}
+		catch (ModeloException e) {
+			fail("No debe llegar aquí...");
+		}
+	}
+
+	@Test
+	public void testSiguiente() {
+		try {
+			Regla regla = new Regla(Regla.CONWAY);
+			assertEquals(1, regla.siguiente(0, 3));
+			assertEquals(0, regla.siguiente(0, 2));
+			assertEquals(1, regla.siguiente(1, 2));
+			assertEquals(0, regla.siguiente(1, 4));
+			assertTrue(regla.naceCon(3));
+			assertFalse(regla.sobreviveCon(1));
+		}
+		catch (ModeloException e) {
+			fail("No debe llegar aquí...");
+		}
+	}
+
+	@Test
+	public void testReglaVariosEstados() {
+		try {
+			Regla regla = new Regla(Regla.CEREBRO_DE_BRIAN);
+			assertEquals(3, regla.getEstados());
+			assertEquals("B2/S/C3", regla.toString());
+			assertEquals(regla, new Regla("/2/3"));
+			assertNotEquals(regla, new Regla(Regla.SEMILLAS));
+			assertEquals(1, regla.siguiente(0, 2));
+			// La viva que no sobrevive decae y no nace en decadencia.
+			assertEquals(2, regla.siguiente(1, 2));
+			assertEquals(0, regla.siguiente(2, 2));
+			assertEquals(3, new Regla(Regla.STAR_WARS).siguiente(2, 3));
+		}
+		catch (ModeloException e) {
+			fail("No debe llegar aquí...");
+		}
+	}
+
+	// Test's CON DATOS NO VALIDOS
+	@Test
+	public void testReglaFormatoNoValido() {
+		try {
+			new Regla("B9/S23");
+			fail("No debe llegar aquí...");
+		}
+		catch (ModeloException e) {
+		}
+	}
+
+	@Test
+	public void testReglaValorNoValido() {
+		try {
+			new Regla(new int[] {3}, new int[] {2, 9});
+			fail("No debe llegar aquí...");
+		}
+		catch (ModeloException e) {
+		}
+	}
+
+	@Test
+	public void testReglaEstadosNoValidos() {
+		try {
+			new Regla("B2/S/C1");
+			fail("No debe llegar aquí...");
+		}
+		catch (ModeloException e) {
+		}
+	}
+
+} // class